@@ -0,0 +1,1152 @@
+package myAdapter;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * Skeleton of the {@link HMap} implementations meant to be used as bounded
+ * caches, such as {@link LruHMap} and {@link TinyLfuHMap}. The mappings are
+ * nodes linked in one or more <i>queues</i>, doubly linked lists whose order
+ * is decided by the eviction policy of the subclass, and are located through
+ * an {@link OpenHashTable} mapping each key to its node. Subclasses only move
+ * nodes between and within the queues when mappings are added or used, and
+ * choose the mappings to evict when the cache grows over its maximum weight;
+ * this class provides on top of them the map operations, the views, the
+ * eviction listener and the counters.
+ *
+ * <p>Each mapping has a weight, given by an {@link HWeigher} or 1 if the
+ * cache has none, and the sum of the weights is kept within the maximum
+ * weight of the cache. The eviction listener is called with the key and the
+ * value of every evicted mapping after the lock of the cache has been
+ * released, so it can safely use the cache. It is not called for mappings
+ * removed explicitly or by {@link #clear()}.</p>
+ *
+ * <p>All the operations are synchronized on the cache. The compound
+ * operations are the default ones of {@link HMap}: each of their steps is
+ * atomic, but not the operation as a whole. The views walk the queues in
+ * order; their iterators are fail-fast and throw
+ * {@link ConcurrentModificationException} if the cache is modified, or a
+ * mapping is used, other than through the iterator itself. As
+ * {@link MapAdapter}, the caches do not support null keys nor null
+ * values.</p>
+ */
+abstract class AbstractCacheHMap implements HMap {
+
+    // Attributes //
+
+    /** Index of the nodes of the queues by key. */
+    private final OpenHashTable index;
+
+    /**
+     * Sentinels of the circular queues: the successor of a sentinel is the
+     * head of its queue, the first to be evicted, and its predecessor the
+     * tail.
+     */
+    private final Node[] heads;
+
+    /** Sum of the weights of the nodes of each queue. */
+    private final long[] queueWeights;
+
+    private final long maximumWeight;
+    private final HWeigher weigher;
+    private final HBiConsumer evictionListener;
+
+    private long weightedSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Evicted nodes whose listener call is pending, chained through their
+     * {@code next} field.
+     */
+    private Node evicted;
+
+    /** Number of structural modifications and uses, for the iterators. */
+    private int modifications;
+
+    // Constructors //
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maximumWeight    the maximum total weight of the mappings.
+     * @param weigher          the weigher of the mappings, or {@code null}
+     *                         to weigh each mapping 1.
+     * @param evictionListener the action called with the key and the value
+     *                         of each evicted mapping, or {@code null}.
+     * @param queues           the number of queues of the policy.
+     *
+     * @throws IllegalArgumentException if the maximum weight is not positive.
+     */
+    AbstractCacheHMap(long maximumWeight, HWeigher weigher, HBiConsumer evictionListener, int queues) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Illegal maximum weight: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.index = new OpenHashTable((int) Math.min(maximumWeight, 1 << 16), OpenHashTable.LINEAR, false);
+        this.heads = new Node[queues];
+        this.queueWeights = new long[queues];
+        for (int i = 0; i < queues; i++) {
+            Node head = new Node(null, null, 0);
+            head.prev = head;
+            head.next = head;
+            heads[i] = head;
+        }
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings.
+     */
+    public synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key. The mapping is not marked as used.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized boolean containsKey(Object key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value. This operation requires time linear in the map size and marks no
+     * mapping as used.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public synchronized boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        for (Node node = first(0); node != null; node = following(node)) {
+            if (value.equals(node.value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key. A mapping
+     * found is marked as used and counted as a hit, otherwise a miss is
+     * counted.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public synchronized Object get(Object key) {
+        Node node = (Node) index.get(key);
+        recordAccess(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key, without
+     * marking the mapping as used nor counting a hit or a miss.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public synchronized Object peek(Object key) {
+        Node node = (Node) index.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map and
+     * marks the mapping as used. If the map then weighs more than its maximum
+     * weight, mappings are evicted according to the policy of the cache, and
+     * the eviction listener is called for each of them once the map is
+     * unlocked. The new mapping itself may be evicted.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException     if {@code key} or {@code value} is
+     *                                  null.
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *                                  weight.
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        return write(key, value, true);
+    }
+
+    /**
+     * Weighs and stores a value, then evicts mappings while the map is
+     * overweight and calls the eviction listener. If {@code use}, the
+     * mapping is marked as used and inserted if absent; otherwise only an
+     * existing mapping is replaced.
+     */
+    private Object write(Object key, Object value, boolean use) {
+        int weight = weigher == null ? 1 : weigher.weigh(key, value);
+        if (weight < 0) throw new IllegalArgumentException("Illegal weight: " + weight);
+        Object old = null;
+        Node pending;
+        synchronized (this) {
+            if (use) recordAccess(key);
+            Node node = (Node) index.get(key);
+            if (node != null) {
+                old = node.value;
+                node.value = value;
+                weightedSize += weight - node.weight;
+                queueWeights[node.queue] += weight - node.weight;
+                node.weight = weight;
+                if (use) onAccess(node);
+            } else if (use) {
+                node = new Node(key, value, weight);
+                index.put(key, node);
+                weightedSize += weight;
+                onInsert(node);
+            } else {
+                return null;
+            }
+            if (weightedSize > maximumWeight) evictEntries();
+            pending = evicted;
+            evicted = null;
+        }
+        if (evictionListener != null) {
+            for (Node node = pending; node != null; node = node.next) {
+                evictionListener.accept(node.key, node.value);
+            }
+        }
+        return old;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, as if by
+     * calling {@link #put(Object, Object)} once for each of them. Mappings
+     * put first may be evicted by the following ones.
+     *
+     * @param t Mappings to be stored in this map.
+     *
+     * @throws NullPointerException the specified map is {@code null}, or the
+     *                              specified map contains entries with
+     *                              {@code null} keys or values.
+     */
+    public void putAll(HMap t) {
+        if (t == null) throw new NullPointerException();
+        HIterator iter = t.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry entry = (HEntry) iter.next();
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the mapping for this key from this map if it is present. The
+     * eviction listener is not called.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized Object remove(Object key) {
+        Node node = (Node) index.remove(key);
+        if (node == null) return null;
+        unlink(node);
+        weightedSize -= node.weight;
+        return node.value;
+    }
+
+    /**
+     * Removes all mappings from this map. The eviction listener is not called
+     * and the counters are left unchanged.
+     */
+    public synchronized void clear() {
+        index.clear();
+        for (int i = 0; i < heads.length; i++) {
+            heads[i].prev = heads[i];
+            heads[i].next = heads[i];
+            queueWeights[i] = 0;
+        }
+        weightedSize = 0;
+        modifications++;
+    }
+
+    /**
+     * Returns a set view of the keys contained in this map, in the order of
+     * the queues of the cache. The set supports element removal but does not
+     * support the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map.
+     */
+    public HSet keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * Returns a collection view of the values contained in this map, in the
+     * order of the queues of the cache. The collection supports element
+     * removal but does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a collection view of the values contained in this map.
+     */
+    public HCollection values() {
+        return new ValueCollection();
+    }
+
+    /**
+     * Returns a set view of the mappings contained in this map, in the order
+     * of the queues of the cache. The set supports element removal but does
+     * not support the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the mappings contained in this map.
+     */
+    public HSet entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Performs the action for each mapping of this map, in the order of the
+     * queues of the cache, without marking them as used.
+     *
+     * @param action the action to be performed for each mapping.
+     *
+     * @throws NullPointerException            if the action is {@code null}.
+     * @throws ConcurrentModificationException if the action modifies the map
+     *                                         or uses a mapping.
+     */
+    @Override
+    public synchronized void forEach(HBiConsumer action) {
+        if (action == null) throw new NullPointerException();
+        int expected = modifications;
+        for (Node node = first(0); node != null; node = following(node)) {
+            action.accept(node.key, node.value);
+            if (modifications != expected) {
+                throw new ConcurrentModificationException("The map has been modified by the function or action.");
+            }
+        }
+    }
+
+    /**
+     * Compares the specified object with this map for equality. Returns
+     * {@code true} if the given object is also a map and the two maps
+     * represent the same mappings. No mapping is marked as used.
+     *
+     * @param o object to be compared for equality with this map.
+     * @return {@code true} if the specified object is equal to this map.
+     */
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HMap)) return false;
+        return this.entrySet().equals(((HMap) o).entrySet());
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of the
+     * hash codes of the entries of the map.
+     *
+     * @return the hash code value for this map.
+     */
+    public int hashCode() {
+        return entrySet().hashCode();
+    }
+
+    /**
+     * Returns a string representation of this map in the same format of
+     * {@link MapAdapter#toString()}, in the order of the queues of the cache.
+     *
+     * @return The string representation of this map.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (Node node = first(0); node != null; node = following(node)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(node.key).append('=').append(node.value);
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    // Cache //
+
+    /**
+     * Returns the maximum total weight of the mappings of this map.
+     *
+     * @return the maximum weight of this map.
+     */
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the total weight of the mappings of this map, its size if the
+     * map has no weigher.
+     *
+     * @return the weight of this map.
+     */
+    public synchronized long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Returns an estimate of the heap retained by the structure of this map
+     * in bytes: its hash index, the nodes linking the mappings in the queues
+     * and the state of the eviction policy. The keys and values are not
+     * included; with {@link HWeigher#HEAP} as weigher they are estimated by
+     * {@link #weightedSize()}, and the sum of the two estimates the whole
+     * heap retained by the map.
+     *
+     * @return the estimated size of the structure of this map in bytes.
+     */
+    public synchronized long footprint() {
+        long arrays = OpenHashTable.align(OpenHashTable.ARRAY_HEADER + (long) heads.length * OpenHashTable.REFERENCE)
+                + OpenHashTable.align(OpenHashTable.ARRAY_HEADER + (long) heads.length * Long.BYTES);
+        return index.footprint() + (long) (index.size() + heads.length) * Node.BYTES + arrays;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Object)} that found a
+     * mapping.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get(Object)} that found no
+     * mapping.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of mappings evicted to keep the map within its
+     * maximum weight.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    // Policy //
+
+    /**
+     * Records an access to the key, by {@link #get(Object)} whether it hits
+     * or not and by {@link #put(Object, Object)}, before the mapping is
+     * looked up. Does nothing by default.
+     *
+     * @param key the key accessed.
+     */
+    void recordAccess(Object key) {
+    }
+
+    /**
+     * Links a new node into one of the queues.
+     *
+     * @param node the node of the new mapping.
+     */
+    abstract void onInsert(Node node);
+
+    /**
+     * Moves a node whose mapping has been used.
+     *
+     * @param node the node of the mapping.
+     */
+    abstract void onAccess(Node node);
+
+    /**
+     * Evicts mappings with {@link #evict(Node)} until the weight of the map
+     * is not over its maximum.
+     */
+    abstract void evictEntries();
+
+    /**
+     * Returns {@code true} if the map weighs more than its maximum weight.
+     */
+    final boolean overweight() {
+        return weightedSize > maximumWeight;
+    }
+
+    /**
+     * Returns the total weight of the nodes of a queue.
+     */
+    final long queueWeight(int queue) {
+        return queueWeights[queue];
+    }
+
+    /**
+     * Returns the head of a queue, its first node to evict, or {@code null}
+     * if the queue is empty.
+     */
+    final Node headOf(int queue) {
+        Node head = heads[queue];
+        return head.next == head ? null : head.next;
+    }
+
+    /**
+     * Returns the node following the given one in its queue, or {@code null}
+     * if it is the tail.
+     */
+    final Node nextInQueue(Node node) {
+        return node.next == heads[node.queue] ? null : node.next;
+    }
+
+    /**
+     * Appends the node at the tail of a queue.
+     */
+    final void link(int queue, Node node) {
+        Node head = heads[queue];
+        node.queue = queue;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        queueWeights[queue] += node.weight;
+        modifications++;
+    }
+
+    /**
+     * Removes the node from its queue.
+     */
+    final void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        queueWeights[node.queue] -= node.weight;
+        modifications++;
+    }
+
+    /**
+     * Moves the node to the tail of a queue, possibly its own.
+     */
+    final void moveToTail(int queue, Node node) {
+        if (node.queue == queue && node.next == heads[queue]) return;
+        unlink(node);
+        link(queue, node);
+    }
+
+    /**
+     * Removes the mapping of the node from the map, counting an eviction and
+     * scheduling the call of the eviction listener.
+     */
+    final void evict(Node node) {
+        index.remove(node.key);
+        unlink(node);
+        weightedSize -= node.weight;
+        evictions++;
+        node.next = evicted;
+        evicted = node;
+    }
+
+    // Internals //
+
+    /**
+     * Returns the head of the first non empty queue starting from the given
+     * one, or {@code null} if they are all empty.
+     */
+    private Node first(int queue) {
+        for (int i = queue; i < heads.length; i++) {
+            if (heads[i].next != heads[i]) return heads[i].next;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the node following the given one in the order of the views, or
+     * {@code null} if it is the last one.
+     */
+    private Node following(Node node) {
+        return node.next != heads[node.queue] ? node.next : first(node.queue + 1);
+    }
+
+    /**
+     * Removes the mapping of the node if it is still in the map, as the
+     * iterators do.
+     */
+    private synchronized void removeNode(Node node) {
+        if (node.prev == null) return;
+        index.remove(node.key);
+        unlink(node);
+        weightedSize -= node.weight;
+    }
+
+    /**
+     * A mapping of the map, linked in one of the queues.
+     */
+    static final class Node {
+
+        /** Estimated size in bytes of a node: a header and six fields. */
+        static final int BYTES = 40;
+
+        final Object key;
+        Object value;
+        int weight;
+
+        /** Index of the queue holding the node. */
+        int queue;
+
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // Inner classes //
+
+    /**
+     * Operations shared by the views of the map. All of them are built on top
+     * of the map's operations and of the view's iterator and mark no mapping
+     * as used.
+     */
+    public abstract class AbstractView extends AbstractMapView {
+
+        /**
+         * Removes all of the mappings from the backing map.
+         */
+        @Override
+        public void clear() {
+            AbstractCacheHMap.this.clear();
+        }
+
+        /**
+         * Returns {@code true} if this collection contains no elements.
+         *
+         * @return {@code true} if this collection contains no elements
+         */
+        @Override
+        public boolean isEmpty() {
+            return AbstractCacheHMap.this.isEmpty();
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         *
+         * @return the number of elements in this collection
+         */
+        @Override
+        public int size() {
+            return AbstractCacheHMap.this.size();
+        }
+
+        /**
+         * Returns an array containing all the elements in this collection,
+         * stored in the specified array if it is big enough, while holding
+         * the lock of the map.
+         *
+         * @param a the array into which the elements of this collection are to
+         *          be stored, if it is big enough.
+         * @return an array containing the elements of this collection
+         *
+         * @throws NullPointerException if the specified array is {@code null}.
+         */
+        @Override
+        public Object[] toArray(Object[] a) {
+            synchronized (AbstractCacheHMap.this) {
+                return super.toArray(a);
+            }
+        }
+
+        /**
+         * Returns the hash code value for this collection, defined as the sum
+         * of the hash codes of its elements, while holding the lock of the
+         * map.
+         *
+         * @return the hash code value for this collection.
+         */
+        @Override
+        public int hashCode() {
+            synchronized (AbstractCacheHMap.this) {
+                return super.hashCode();
+            }
+        }
+    }
+
+    /**
+     * Set view of the mappings of the map.
+     *
+     * @see AbstractCacheHMap#entrySet()
+     */
+    public class EntrySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains the mapping of the
+         * specified entry.
+         *
+         * @param o entry whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if o is not instance of HMap.HEntry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            Object value = peek(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        /**
+         * Removes the mapping of the specified entry from the map if the key is
+         * mapped to the entry's value.
+         *
+         * @param o entry to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if the specified element is not a
+         *                              HEntry instance
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            synchronized (AbstractCacheHMap.this) {
+                if (!contains(entry)) return false;
+                AbstractCacheHMap.this.remove(entry.getKey());
+                return true;
+            }
+        }
+
+        /**
+         * Returns a fail-fast iterator over the mappings of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new EntryIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Set view of the keys of the map.
+     *
+     * @see AbstractCacheHMap#keySet()
+     */
+    public class KeySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains a mapping for the specified
+         * key.
+         *
+         * @param o element whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        /**
+         * Removes the mapping of the specified key from the map.
+         *
+         * @param o key to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            return AbstractCacheHMap.this.remove(o) != null;
+        }
+
+        /**
+         * Returns a fail-fast iterator over the keys of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new KeyIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Collection view of the values of the map.
+     *
+     * @see AbstractCacheHMap#values()
+     */
+    public class ValueCollection extends AbstractView {
+
+        /**
+         * Returns {@code true} if at least one key of the map is mapped to the
+         * specified value.
+         *
+         * @param o element whose presence in this collection is to be tested.
+         * @return {@code true} if this collection contains the specified
+         * element
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        /**
+         * Removes the first mapping to the specified value in the order of
+         * the iterator, if present.
+         *
+         * @param o element to be removed from this collection, if present.
+         * @return {@code true} if this collection changed as a result of the
+         * call
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            synchronized (AbstractCacheHMap.this) {
+                for (Node node = first(0); node != null; node = following(node)) {
+                    if (o.equals(node.value)) {
+                        removeNode(node);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+
+        /**
+         * Returns a fail-fast iterator over the values of the map.
+         *
+         * @return an iterator over the elements in this collection.
+         */
+        @Override
+        public HIterator iterator() {
+            return new ValueIterator();
+        }
+
+        /**
+         * Compares the specified object with this collection for equality.
+         * This collection is equal to another collection that is not a set if
+         * both contain the same elements the same number of times.
+         *
+         * @param o Object to be compared for equality with this collection.
+         * @return {@code true} if the specified object is equal to this
+         * collection
+         */
+        @Override
+        public boolean equals(Object o) {
+            return valuesEqual(o);
+        }
+    }
+
+    // Iterator
+
+    /**
+     * Fail-fast iterator over the mappings of the map, queue by queue.
+     * Iterating does not mark the mappings as used.
+     */
+    public class EntryIterator implements HIterator {
+
+        // Attributes //
+
+        private Node next;
+        private Node last = null;
+        private int expected;
+
+        // Constructors //
+
+        EntryIterator() {
+            synchronized (AbstractCacheHMap.this) {
+                next = first(0);
+                expected = modifications;
+            }
+        }
+
+        // Methods //
+
+        /**
+         * Returns {@code true} if the iteration has more elements.
+         *
+         * @return {@code true} if the iterator has more elements.
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException          iteration has no more
+         *                                         elements.
+         * @throws ConcurrentModificationException if the map has been
+         *                                         modified since the iterator
+         *                                         was created.
+         */
+        @Override
+        public Object next() {
+            Node node = nextNode();
+            return new Entry(node.key, node.value);
+        }
+
+        /**
+         * Removes from the map the mapping of the last element returned by
+         * the iterator.
+         *
+         * @throws IllegalStateException           if the {@code next} method
+         *                                         has not yet been called, or
+         *                                         the {@code remove} method has
+         *                                         already been called after the
+         *                                         last call to the {@code next}
+         *                                         method.
+         * @throws ConcurrentModificationException if the map has been
+         *                                         modified since the iterator
+         *                                         was created.
+         */
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            synchronized (AbstractCacheHMap.this) {
+                if (modifications != expected) throw new ConcurrentModificationException();
+                removeNode(last);
+                expected = modifications;
+            }
+            last = null;
+        }
+
+        /**
+         * Returns the next node of the iteration and moves forward.
+         */
+        final Node nextNode() {
+            synchronized (AbstractCacheHMap.this) {
+                if (modifications != expected) throw new ConcurrentModificationException();
+                if (next == null) throw new NoSuchElementException();
+                last = next;
+                next = following(next);
+                return last;
+            }
+        }
+    }
+
+    /**
+     * Fail-fast iterator over the keys of the map.
+     */
+    public class KeyIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException          iteration has no more
+         *                                         elements.
+         * @throws ConcurrentModificationException if the map has been
+         *                                         modified since the iterator
+         *                                         was created.
+         */
+        @Override
+        public Object next() {
+            return nextNode().key;
+        }
+    }
+
+    /**
+     * Fail-fast iterator over the values of the map.
+     */
+    public class ValueIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException          iteration has no more
+         *                                         elements.
+         * @throws ConcurrentModificationException if the map has been
+         *                                         modified since the iterator
+         *                                         was created.
+         */
+        @Override
+        public Object next() {
+            return nextNode().value;
+        }
+    }
+
+    /**
+     * The entry implementation of the caches. The entry carries the value read
+     * when it was returned by the iterator; setting its value writes through
+     * to the map like {@code put}, weighing the value and evicting mappings
+     * if needed, but without marking the mapping as used, and does not add
+     * the mapping back if it has been removed.
+     */
+    public class Entry implements HEntry {
+
+        // Attributes //
+
+        private final Object key;
+        private Object value;
+
+        // Constructors //
+
+        private Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Methods //
+
+        /**
+         * Returns the key corresponding to this entry.
+         *
+         * @return the key corresponding to this entry.
+         */
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value corresponding to this entry.
+         *
+         * @return the value corresponding to this entry.
+         */
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Replaces the value corresponding to this entry with the specified
+         * value, writing through to the map if the key is still mapped. The
+         * new weight of the mapping counts towards the maximum weight, so
+         * mappings, this one included, may be evicted.
+         *
+         * @param value new value to be stored in this entry.
+         * @return old value of the mapping in the map, or {@code null} if the
+         * key is no longer mapped.
+         *
+         * @throws NullPointerException     if the specified value is
+         *                                  {@code null}.
+         * @throws IllegalArgumentException if the weigher returns a negative
+         *                                  weight.
+         */
+        @Override
+        public Object setValue(Object value) {
+            if (value == null) throw new NullPointerException();
+            Object old = write(key, value, false);
+            this.value = value;
+            return old;
+        }
+
+        /**
+         * Returns the hash code value for this map entry.
+         *
+         * @return the hash code value for this map entry.
+         */
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        /**
+         * Compares the specified object with this entry for equality.
+         *
+         * @param o object to be compared for equality with this map entry.
+         * @return {@code true} if the specified object is equal to this map
+         * entry.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof HEntry)) return false;
+            HEntry e = (HEntry) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        /**
+         * Creates a string representation of the entry following the
+         * {@code key=value} representation
+         */
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
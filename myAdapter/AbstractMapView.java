@@ -0,0 +1,242 @@
+package myAdapter;
+
+/**
+ * Skeleton of the views of the maps whose views are built on their iterator
+ * and their {@code contains} and {@code size} methods, such as the views of
+ * {@link ConcurrentMapAdapter}, {@link AbstractSlotHMap},
+ * {@link AbstractCacheHMap} and {@link PersistentHMap}. Subclasses implement
+ * {@code iterator}, {@code contains}, {@code remove}, {@code size} and
+ * {@code clear}; this class provides the bulk operations, the arrays, hashing
+ * and the equality of set views and of value collections on top of them.
+ *
+ * <p>The views cannot add elements, so {@code add} and {@code addAll} are not
+ * supported. Bulk removals go through the iterator, and fail as it does if
+ * the view does not support removal.</p>
+ */
+abstract class AbstractMapView implements HCollection {
+
+    // Methods //
+
+    /**
+     * This method is not supported by the views of a map.
+     *
+     * @throws UnsupportedOperationException {@code add} is not supported by
+     *                                       this collection.
+     */
+    @Override
+    public boolean add(Object o) {
+        throw new UnsupportedOperationException("Method 'add' is not supported by this view.");
+    }
+
+    /**
+     * This method is not supported by the views of a map.
+     *
+     * @throws UnsupportedOperationException {@code addAll} is not supported
+     *                                       by this collection.
+     */
+    @Override
+    public boolean addAll(HCollection c) {
+        throw new UnsupportedOperationException("Method 'addAll' is not supported by this view.");
+    }
+
+    /**
+     * Returns {@code true} if this collection contains no elements.
+     *
+     * @return {@code true} if this collection contains no elements
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns {@code true} if this collection contains all of the elements
+     * in the specified collection.
+     *
+     * @param c collection to be checked for containment in this
+     *          collection.
+     * @return {@code true} if this collection contains all of the elements
+     * in the specified collection
+     *
+     * @throws NullPointerException if the specified collection is
+     *                              {@code null} or contains one or more
+     *                              null elements.
+     */
+    @Override
+    public boolean containsAll(HCollection c) {
+        if (c == null) throw new NullPointerException();
+        HIterator iter = c.iterator();
+        while (iter.hasNext()) {
+            if (!contains(iter.next())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes all this collection's elements that are also contained in the
+     * specified collection, through the iterator of this collection.
+     *
+     * @param c elements to be removed from this collection.
+     * @return {@code true} if this collection changed as a result of the
+     * call
+     *
+     * @throws NullPointerException if the specified collection is
+     *                              {@code null}.
+     */
+    @Override
+    public boolean removeAll(HCollection c) {
+        if (c == null) throw new NullPointerException();
+        boolean res = false;
+        HIterator iter = iterator();
+        while (iter.hasNext()) {
+            if (c.contains(iter.next())) {
+                iter.remove();
+                res = true;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Retains only the elements in this collection that are contained in
+     * the specified collection, removing the others through the iterator of
+     * this collection.
+     *
+     * @param c elements to be retained in this collection.
+     * @return {@code true} if this collection changed as a result of the
+     * call
+     *
+     * @throws NullPointerException if the specified collection is
+     *                              {@code null}.
+     */
+    @Override
+    public boolean retainAll(HCollection c) {
+        if (c == null) throw new NullPointerException();
+        boolean res = false;
+        HIterator iter = iterator();
+        while (iter.hasNext()) {
+            if (!c.contains(iter.next())) {
+                iter.remove();
+                res = true;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns an array containing all the elements in this collection, in
+     * the order of the iterator.
+     *
+     * @return an array containing all the elements in this collection
+     */
+    @Override
+    public Object[] toArray() {
+        return toArray(new Object[0]);
+    }
+
+    /**
+     * Returns an array containing all the elements in this collection,
+     * stored in the specified array if it is big enough. If the array has
+     * more room than elements, the element following the last one is set
+     * to {@code null}. The array is sized on the elements actually returned
+     * by the iterator, so a collection changing concurrently never leaves
+     * {@code null} slots in a new array nor overflows it.
+     *
+     * @param a the array into which the elements of this collection are to
+     *          be stored, if it is big enough.
+     * @return an array containing the elements of this collection
+     *
+     * @throws NullPointerException if the specified array is {@code null}.
+     */
+    @Override
+    public Object[] toArray(Object[] a) {
+        if (a == null) throw new NullPointerException();
+        int size = size();
+        Object[] res = a.length >= size ? a : new Object[size];
+        HIterator iter = iterator();
+
+        int i = 0;
+        while (iter.hasNext()) {
+            if (i == res.length) {
+                Object[] grown = new Object[res.length * 2 + 1];
+                System.arraycopy(res, 0, grown, 0, i);
+                res = grown;
+            }
+            res[i++] = iter.next();
+        }
+        if (i < res.length) {
+            if (res != a) {
+                Object[] trimmed = new Object[i];
+                System.arraycopy(res, 0, trimmed, 0, i);
+                return trimmed;
+            }
+            res[i] = null;
+        }
+        return res;
+    }
+
+    /**
+     * Returns the hash code value for this collection, defined as the sum
+     * of the hash codes of its elements.
+     *
+     * @return the hash code value for this collection.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        HIterator i = iterator();
+        while (i.hasNext()) {
+            hash += i.next().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Returns {@code true} if the specified set has the size of this set
+     * and is contained in it. Used by the set views as their {@code equals}.
+     */
+    boolean setEquals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HSet)) return false;
+        HSet other = (HSet) o;
+        return other.size() == size() && containsAll(other);
+    }
+
+    /**
+     * Returns {@code true} if the specified object is a collection, but not
+     * a set, holding the elements of this collection the same number of
+     * times. Used by the value collections as their {@code equals}.
+     */
+    boolean valuesEqual(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HCollection) || o instanceof HSet) return false;
+        HCollection other = (HCollection) o;
+        if (other.size() != size()) return false;
+
+        ValueIndex counts = new ValueIndex(size());
+        HIterator iter = iterator();
+        while (iter.hasNext()) counts.add(iter.next());
+        return consumes(counts, other);
+    }
+
+    /**
+     * Returns {@code true} if each element of the collection can be removed
+     * from the counted values, that is if the collection holds no element
+     * more times than it was counted. The collection must have as many
+     * elements as were counted for this to mean equality.
+     *
+     * @param counts the counted values, consumed by the call.
+     * @param other  the collection whose elements are removed from the
+     *               counts.
+     * @return {@code true} if every element of the collection was counted.
+     */
+    static boolean consumes(ValueIndex counts, HCollection other) {
+        HIterator iter = other.iterator();
+        while (iter.hasNext()) {
+            Object current = iter.next();
+            // Null elements cannot be counted
+            if (current == null || !counts.remove(current)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+package myAdapter;
+
+import java.util.Arrays;
+
+/**
+ * Skeleton of the maps keyed by a primitive type ({@link IntObjectHMap},
+ * {@link LongObjectHMap}, {@link IntIntHMap} and {@link LongLongHMap}).
+ * Subclasses store keys, and where possible values, in primitive arrays using
+ * open addressing with linear probing, so no key is boxed while stored.
+ *
+ * <p>This class holds the slot state array shared by every subclass, marking
+ * each slot as free, full or removed (a tombstone), together with the
+ * bookkeeping deciding when the table has to be rebuilt. The {@link HMap}
+ * views inherited from {@link AbstractSlotHMap} box keys and values only when
+ * they are returned, so the primitive maps can be passed wherever an
+ * {@code HMap} is expected.</p>
+ *
+ * <p>The maps are not synchronized. As {@link MapAdapter}, they do not support
+ * null keys nor null values.</p>
+ */
+abstract class AbstractPrimitiveHMap extends AbstractSlotHMap {
+
+    // Constants //
+
+    /** State of a slot that has never held a mapping. */
+    static final byte FREE = 0;
+
+    /** State of a slot holding a live mapping. */
+    static final byte FULL = 1;
+
+    /** State of a slot whose mapping has been removed. */
+    static final byte REMOVED = 2;
+
+    /** Default number of mappings a map can hold before growing. */
+    static final int DEFAULT_CAPACITY = 16;
+
+    /** Smallest allowed number of slots, must be a power of two. */
+    private static final int MIN_SLOTS = 16;
+
+    /** Largest allowed number of slots, must be a power of two. */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /** Maximum fraction of slots that can be full or removed. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Attributes //
+
+    /** State of each slot, one of {@link #FREE}, {@link #FULL}, {@link #REMOVED}. */
+    byte[] states;
+
+    /** Number of full slots. */
+    int size;
+
+    /** Number of full or removed slots. */
+    int used;
+
+    /** Value of {@code used} over which the table is rebuilt. */
+    int threshold;
+
+    // Methods //
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all mappings from this map. The number of slots is left
+     * unchanged.
+     */
+    public void clear() {
+        Arrays.fill(states, FREE);
+        size = 0;
+        used = 0;
+    }
+
+    // Slot accessors //
+
+    @Override
+    final int slotCount() {
+        return states.length;
+    }
+
+    @Override
+    final int nextSlot(int from) {
+        byte[] st = states;
+        while (from < st.length && st[from] != FULL) from++;
+        return from;
+    }
+
+    @Override
+    void removeAt(int slot) {
+        states[slot] = REMOVED;
+        size--;
+    }
+
+    // Table management //
+
+    /**
+     * Replaces the slot states with an array of free slots of the given size.
+     * Subclasses call it when allocating their own arrays.
+     *
+     * @param slots the number of slots, a power of two.
+     */
+    final void allocateStates(int slots) {
+        states = new byte[slots];
+        size = 0;
+        used = 0;
+        threshold = slots == MAX_SLOTS ? slots - 1 : (int) (slots * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the number of slots the table must have when it is rebuilt:
+     * twice the current one if most of the used slots are full, the current
+     * one if the rebuild is only needed to purge the removed slots.
+     *
+     * @return the number of slots of the rebuilt table.
+     */
+    final int rebuildSlots() {
+        return size > used / 2 && states.length < MAX_SLOTS ? states.length << 1 : states.length;
+    }
+
+    /**
+     * Returns the smallest power of two number of slots that can hold the
+     * given number of mappings within the load factor.
+     *
+     * @param capacity the number of mappings.
+     * @return the number of slots.
+     *
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    static int slotsFor(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        int slots = MIN_SLOTS;
+        while (slots < MAX_SLOTS && slots * LOAD_FACTOR < capacity) slots <<= 1;
+        return slots;
+    }
+
+    /**
+     * Spreads the hash of an int key over the bits used as slot index.
+     *
+     * @param key the key.
+     * @return the spread hash of the key.
+     */
+    static int hash(int key) {
+        return OpenHashTable.spread(key);
+    }
+
+    /**
+     * Spreads the hash of a long key over the bits used as slot index, using
+     * the hash code of the boxed key.
+     *
+     * @param key the key.
+     * @return the spread hash of the key.
+     */
+    static int hash(long key) {
+        return OpenHashTable.spread((int) (key ^ (key >>> 32)));
+    }
+}
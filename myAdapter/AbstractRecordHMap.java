@@ -0,0 +1,543 @@
+package myAdapter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Skeleton of the {@link HMap} implementations storing their mappings as
+ * serialized records outside the Java heap, such as {@link OffHeapHMap} and
+ * {@link MappedHMap}. Keys and values are converted by an {@link HCodec} and
+ * located through a hash index held in a {@link ByteBuffer}; subclasses only
+ * decide where the index and the records are stored.
+ *
+ * <p>Each record is made of the lengths of the encoded key and value followed
+ * by their bytes. Records are referenced by an address, an opaque positive
+ * {@code long} chosen by the subclass. The index is an open addressing table
+ * with linear probing whose slots hold the address of a record and the hash
+ * of its encoded key, so keys are compared by their encodings and are never
+ * decoded to be found. Removed mappings leave a tombstone, purged when the
+ * index is rebuilt.</p>
+ */
+abstract class AbstractRecordHMap extends AbstractSlotHMap {
+
+    // Constants //
+
+    /** Bytes of an index slot: a long address and an int hash. */
+    static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+
+    /** Bytes of the header of a record: the key and value lengths. */
+    static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+    /** Address of a free slot. */
+    static final long FREE = 0;
+
+    /** Address of a removed slot. */
+    static final long REMOVED = -1;
+
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MIN_SLOTS = 16;
+
+    /** Largest number of slots whose index fits in a single buffer. */
+    static final int MAX_SLOTS = 1 << 27;
+
+    static final float LOAD_FACTOR = 0.75f;
+
+    // Attributes //
+
+    final HCodec keyCodec;
+    final HCodec valueCodec;
+
+    /** Hash index, {@link #SLOT_BYTES} bytes for each slot. */
+    private ByteBuffer index;
+    private int slots;
+
+    private int size;
+
+    /** Number of slots that are full or removed. */
+    private int used;
+
+    /** Value of {@code used} over which the index is rebuilt. */
+    private int threshold;
+
+    /** Heap buffer holding the encoding of the key being looked up. */
+    private ByteBuffer scratch;
+
+    // Constructors //
+
+    /**
+     * Creates a map using the given codecs. Subclasses must then allocate or
+     * attach the index.
+     *
+     * @param keyCodec   codec of the keys.
+     * @param valueCodec codec of the values.
+     *
+     * @throws NullPointerException if a codec is {@code null}.
+     */
+    AbstractRecordHMap(HCodec keyCodec, HCodec valueCodec) {
+        if (keyCodec == null || valueCodec == null) throw new NullPointerException("Codecs must not be null.");
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        scratch = ByteBuffer.allocate(64);
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public boolean containsKey(Object key) {
+        if (key == null) throw new NullPointerException();
+        return keyCodec.accepts(key) && find(encodeKey(key)) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value. The value is encoded once and compared with the stored encodings,
+     * which requires time linear in the map size but decodes no value.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        if (!valueCodec.accepts(value)) return false;
+        ByteBuffer encoded = ByteBuffer.allocate(valueCodec.encodedSize(value));
+        valueCodec.encode(value, encoded);
+        encoded.flip();
+        int length = encoded.remaining();
+        for (int i = nextSlot(0); i < slots; i = nextSlot(i + 1)) {
+            long address = addressAt(i);
+            ByteBuffer buffer = recordBuffer(address);
+            int offset = recordOffset(address);
+            if (buffer.getInt(offset + Integer.BYTES) == length
+                    && buffer.slice(offset + RECORD_HEADER + buffer.getInt(offset), length).mismatch(encoded) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return a decoded copy of the value to which this map maps the
+     * specified key, or {@code null} if the map contains no mapping for this
+     * key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public Object get(Object key) {
+        if (key == null) throw new NullPointerException();
+        if (!keyCodec.accepts(key)) return null;
+        int slot = find(encodeKey(key));
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    /**
+     * Associates the specified value with the specified key, replacing any
+     * previous mapping of the key.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if {@code key} or {@code value} is null.
+     * @throws ClassCastException   if the key or the value is not accepted by
+     *                              its codec.
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        if (!valueCodec.accepts(value)) {
+            throw new ClassCastException("Value not accepted by the codec: " + value.getClass().getName());
+        }
+        ByteBuffer encodedKey = encodeKey(key);
+        int hash = hash(encodedKey);
+        int valueLength = valueCodec.encodedSize(value);
+
+        int slot = probe(encodedKey, hash);
+        if (slot < 0) {
+            insert(-slot - 1, hash, append(encodedKey, value, valueLength));
+            return null;
+        }
+        long address = addressAt(slot);
+        Object old = valueAt(slot);
+        if (!overwrite(address, value, valueLength)) {
+            setAddress(slot, append(encodedKey, value, valueLength));
+            replaced(address);
+        }
+        return old;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if it is
+     * present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with a specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if the key is {@code null}
+     */
+    public Object remove(Object key) {
+        if (key == null) throw new NullPointerException();
+        if (!keyCodec.accepts(key)) return null;
+        int slot = find(encodeKey(key));
+        if (slot < 0) return null;
+        Object old = valueAt(slot);
+        removeAt(slot);
+        return old;
+    }
+
+    /**
+     * Removes all mappings from this map. The number of index slots is left
+     * unchanged.
+     */
+    public void clear() {
+        for (int i = 0; i < slots; i++) setAddress(i, FREE);
+        size = 0;
+        used = 0;
+    }
+
+    // Storage //
+
+    /**
+     * Returns a zeroed buffer able to hold the index with the given number of
+     * slots, starting at position 0.
+     *
+     * @param slots the number of slots, a power of two.
+     * @return the buffer of the new index.
+     */
+    abstract ByteBuffer newIndex(int slots);
+
+    /**
+     * Called when a rebuild of the index has completed, once every mapping
+     * has been moved from the previous buffer to the one returned by
+     * {@link #newIndex(int)}.
+     */
+    void indexRebuilt() {
+    }
+
+    /**
+     * Returns the buffer holding the record at the address.
+     *
+     * @param address the address of a record.
+     * @return the buffer holding the record.
+     */
+    abstract ByteBuffer recordBuffer(long address);
+
+    /**
+     * Returns the offset of the record at the address in its buffer.
+     *
+     * @param address the address of a record.
+     * @return the offset of the record.
+     */
+    abstract int recordOffset(long address);
+
+    /**
+     * Stores a new record made of the encoded key and the value.
+     *
+     * @param encodedKey  the encoded key, between position and limit. The
+     *                    buffer must be left unchanged.
+     * @param value       the value to encode.
+     * @param valueLength the length of the encoded value.
+     * @return the address of the new record, a positive number.
+     */
+    abstract long append(ByteBuffer encodedKey, Object value, int valueLength);
+
+    /**
+     * Tries to replace the value of an existing record in place, which is
+     * possible when the encoded value keeps its length.
+     *
+     * @param address     the address of the record.
+     * @param value       the new value.
+     * @param valueLength the length of the encoded new value.
+     * @return {@code true} if the record has been updated, {@code false} if
+     * a new record has to be appended.
+     */
+    boolean overwrite(long address, Object value, int valueLength) {
+        ByteBuffer buffer = recordBuffer(address);
+        int offset = recordOffset(address);
+        if (buffer.getInt(offset + Integer.BYTES) != valueLength) return false;
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + RECORD_HEADER + buffer.getInt(offset));
+        valueCodec.encode(value, record);
+        return true;
+    }
+
+    /**
+     * Called when a record is no longer referenced because its slot now
+     * references a new record for the same key.
+     *
+     * @param address the address of the replaced record.
+     */
+    abstract void replaced(long address);
+
+    /**
+     * Called when the mapping of a record is removed, before its slot is
+     * marked as removed.
+     *
+     * @param address the address of the removed record.
+     */
+    abstract void removed(long address);
+
+    // Slot accessors //
+
+    @Override
+    final int slotCount() {
+        return slots;
+    }
+
+    @Override
+    final int nextSlot(int from) {
+        while (from < slots && addressAt(from) <= FREE) from++;
+        return from;
+    }
+
+    @Override
+    final Object keyAt(int slot) {
+        long address = addressAt(slot);
+        ByteBuffer record = recordBuffer(address).duplicate();
+        int offset = recordOffset(address);
+        record.position(offset + RECORD_HEADER);
+        return keyCodec.decode(record, record.getInt(offset));
+    }
+
+    @Override
+    final Object valueAt(int slot) {
+        long address = addressAt(slot);
+        ByteBuffer record = recordBuffer(address).duplicate();
+        int offset = recordOffset(address);
+        record.position(offset + RECORD_HEADER + record.getInt(offset));
+        return valueCodec.decode(record, record.getInt(offset + Integer.BYTES));
+    }
+
+    @Override
+    void removeAt(int slot) {
+        removed(addressAt(slot));
+        setAddress(slot, REMOVED);
+        size--;
+    }
+
+    // Index management //
+
+    /**
+     * Replaces the index with an empty one of the given number of slots.
+     *
+     * @param slots the number of slots, a power of two.
+     */
+    final void allocateIndex(int slots) {
+        attachIndex(newIndex(slots), slots, 0, 0);
+    }
+
+    /**
+     * Replaces the index with an existing one, for instance read back from a
+     * file.
+     *
+     * @param index the buffer of the index, starting at position 0.
+     * @param slots the number of slots of the index.
+     * @param size  the number of full slots.
+     * @param used  the number of full or removed slots.
+     */
+    final void attachIndex(ByteBuffer index, int slots, int size, int used) {
+        this.index = index;
+        this.slots = slots;
+        this.size = size;
+        this.used = used;
+        threshold = slots == MAX_SLOTS ? slots - 1 : (int) (slots * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the number of full or removed slots.
+     *
+     * @return the number of used slots.
+     */
+    final int usedSlots() {
+        return used;
+    }
+
+    /**
+     * Makes the slot of the encoded key reference the record at the address,
+     * adding the key if it is not present. Used to rebuild the index from
+     * stored records.
+     *
+     * @param encodedKey the encoded key, between position and limit.
+     * @param address    the address of a record holding the key.
+     */
+    final void link(ByteBuffer encodedKey, long address) {
+        int hash = hash(encodedKey);
+        int slot = probe(encodedKey, hash);
+        if (slot < 0) insert(-slot - 1, hash, address);
+        else setAddress(slot, address);
+    }
+
+    /**
+     * Removes the slot of the encoded key, if present. Used to rebuild the
+     * index from stored records.
+     *
+     * @param encodedKey the encoded key, between position and limit.
+     */
+    final void unlink(ByteBuffer encodedKey) {
+        int slot = find(encodedKey);
+        if (slot < 0) return;
+        setAddress(slot, REMOVED);
+        size--;
+    }
+
+    /**
+     * Returns the number of slots of an index that can hold the given number
+     * of mappings within the load factor.
+     *
+     * @param capacity the number of mappings.
+     * @return the number of slots, a power of two.
+     *
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    static int slotsFor(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        int slots = MIN_SLOTS;
+        while (slots < MAX_SLOTS && slots * LOAD_FACTOR < capacity) slots <<= 1;
+        return slots;
+    }
+
+    final long addressAt(int slot) {
+        return index.getLong(slot * SLOT_BYTES);
+    }
+
+    final void setAddress(int slot, long address) {
+        index.putLong(slot * SLOT_BYTES, address);
+    }
+
+    // Internals //
+
+    /**
+     * Returns the encoding of the key in the scratch buffer, between position
+     * 0 and the limit.
+     */
+    private ByteBuffer encodeKey(Object key) {
+        if (!keyCodec.accepts(key)) {
+            throw new ClassCastException("Key not accepted by the codec: " + key.getClass().getName());
+        }
+        int length = keyCodec.encodedSize(key);
+        if (scratch.capacity() < length) scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() << 1));
+        scratch.clear();
+        keyCodec.encode(key, scratch);
+        scratch.flip();
+        return scratch;
+    }
+
+    /**
+     * Returns the slot holding the encoded key, or -1 if the key is not
+     * present.
+     */
+    private int find(ByteBuffer encodedKey) {
+        int slot = probe(encodedKey, hash(encodedKey));
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Returns the slot holding the encoded key or, if the key is not present,
+     * {@code -(slot + 1)} where slot is the one the key should be inserted in:
+     * the first removed slot met, or the free slot ending the probe.
+     */
+    private int probe(ByteBuffer encodedKey, int hash) {
+        int mask = slots - 1;
+        int slot = hash & mask;
+        int free = -1;
+        for (long address = addressAt(slot); address != FREE; address = addressAt(slot)) {
+            if (address == REMOVED) {
+                if (free < 0) free = slot;
+            } else if (hashAt(slot) == hash && keyEquals(address, encodedKey)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(free >= 0 ? free : slot) - 1;
+    }
+
+    /**
+     * Stores a new mapping in a free or removed slot.
+     */
+    private void insert(int slot, int hash, long address) {
+        // Reusing a tombstone does not change the used slot count
+        if (addressAt(slot) == FREE) used++;
+        setAddress(slot, address);
+        setHash(slot, hash);
+        size++;
+        if (used > threshold) rebuild();
+    }
+
+    /**
+     * Returns {@code true} if the record at the address holds the encoded key.
+     */
+    private boolean keyEquals(long address, ByteBuffer encodedKey) {
+        ByteBuffer buffer = recordBuffer(address);
+        int offset = recordOffset(address);
+        int length = buffer.getInt(offset);
+        return length == encodedKey.remaining()
+                && buffer.slice(offset + RECORD_HEADER, length).mismatch(encodedKey) < 0;
+    }
+
+    /**
+     * Hashes the bytes between the position and the limit of the buffer.
+     */
+    private static int hash(ByteBuffer bytes) {
+        int h = 1;
+        for (int i = bytes.position(); i < bytes.limit(); i++) h = 31 * h + bytes.get(i);
+        return OpenHashTable.spread(h);
+    }
+
+    /**
+     * Rebuilds the index dropping the tombstones. Stored hashes are reused,
+     * so no key is read back.
+     */
+    private void rebuild() {
+        ByteBuffer oldIndex = index;
+        int oldSlots = slots;
+        int oldSize = size;
+        allocateIndex(size > used / 2 && slots < MAX_SLOTS ? slots << 1 : slots);
+
+        int mask = slots - 1;
+        for (int i = 0; i < oldSlots; i++) {
+            long address = oldIndex.getLong(i * SLOT_BYTES);
+            if (address <= FREE) continue;
+            int hash = oldIndex.getInt(i * SLOT_BYTES + Long.BYTES);
+            int slot = hash & mask;
+            while (addressAt(slot) != FREE) slot = (slot + 1) & mask;
+            setAddress(slot, address);
+            setHash(slot, hash);
+            used++;
+        }
+        size = oldSize;
+        indexRebuilt();
+    }
+
+    private int hashAt(int slot) {
+        return index.getInt(slot * SLOT_BYTES + Long.BYTES);
+    }
+
+    private void setHash(int slot, int hash) {
+        index.putInt(slot * SLOT_BYTES + Long.BYTES, hash);
+    }
+}
@@ -0,0 +1,612 @@
+package myAdapter;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Skeleton of the {@link HMap} implementations that store their mappings in
+ * the numbered slots of a table, such as the maps keyed by primitive types
+ * (see {@link AbstractPrimitiveHMap}) and {@link OffHeapHMap}. Subclasses
+ * only implement the map operations and a few slot accessors; this class
+ * provides on top of them the views of the map, equality, hashing and the
+ * string representation.
+ *
+ * <p>The views walk the slots directly and obtain keys and values through
+ * {@link #keyAt(int)} and {@link #valueAt(int)}, so subclasses storing keys
+ * and values in another form (primitive, serialized) only convert them when
+ * they are returned. Slot removal must not move other mappings, so that
+ * iterators can remove the current element and go on.</p>
+ *
+ * <p>As {@link MapAdapter}, the maps do not support null keys nor null
+ * values.</p>
+ */
+abstract class AbstractSlotHMap implements HMap {
+
+    // Methods //
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, as if by
+     * calling {@link #put(Object, Object)} once for each of them.
+     *
+     * @param t Mappings to be stored in this map.
+     *
+     * @throws NullPointerException if the specified map is {@code null} or
+     *                              contains {@code null} keys or values.
+     * @throws ClassCastException   if a key or a value of the specified map is
+     *                              not of the type supported by this map.
+     */
+    public void putAll(HMap t) {
+        if (t == null) throw new NullPointerException();
+        HIterator iter = t.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry current = (HEntry) iter.next();
+            put(current.getKey(), current.getValue());
+        }
+    }
+
+    /**
+     * Returns a set view of the mappings contained in this map. Keys and
+     * values of the returned entries are boxed. The set supports element
+     * removal but does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a set view of the mappings contained in this map.
+     */
+    public HSet entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Returns a set view of the boxed keys contained in this map. The set
+     * supports element removal but does not support the {@code add} or
+     * {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map.
+     */
+    public HSet keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * Returns a collection view of the boxed values contained in this map. The
+     * collection supports element removal but does not support the
+     * {@code add} or {@code addAll} operations.
+     *
+     * @return a collection view of the values contained in this map.
+     */
+    public HCollection values() {
+        return new ValueCollection();
+    }
+
+    /**
+     * Compares the specified object with this map for equality. Returns
+     * {@code true} if the given object is also a map and the two maps
+     * represent the same mappings, comparing the boxed keys and values of
+     * this map.
+     *
+     * @param o object to be compared for equality with this map.
+     * @return {@code true} if the specified object is equal to this map.
+     */
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HMap)) return false;
+        HMap other = (HMap) o;
+        if (other.size() != size()) return false;
+        HIterator iter = other.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry entry = (HEntry) iter.next();
+            Object value = entry.getKey() == null ? null : get(entry.getKey());
+            if (value == null || !value.equals(entry.getValue())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, the sum of the hash codes of
+     * its entries computed on the boxed keys and values.
+     *
+     * @return the hash code value for this map.
+     */
+    public int hashCode() {
+        int hash = 0;
+        for (int i = nextSlot(0); i < slotCount(); i = nextSlot(i + 1)) {
+            hash += keyAt(i).hashCode() ^ valueAt(i).hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Returns a string representation of this map in the same format of
+     * {@link MapAdapter#toString()}.
+     *
+     * @return The string representation of this map.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int i = nextSlot(0); i < slotCount(); i = nextSlot(i + 1)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(keyAt(i)).append('=').append(valueAt(i));
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    // Slot accessors //
+
+    /**
+     * Returns the number of slots of the table. Every slot index lies between
+     * 0 inclusive and this number exclusive.
+     *
+     * @return the number of slots of the table.
+     */
+    abstract int slotCount();
+
+    /**
+     * Returns the index of the first slot holding a mapping at or after
+     * {@code from}, or {@link #slotCount()} if there is none.
+     *
+     * @param from the slot to start searching from.
+     * @return the first full slot at or after {@code from}.
+     */
+    abstract int nextSlot(int from);
+
+    /**
+     * Returns the key of a full slot, boxed or decoded as needed.
+     *
+     * @param slot index of a full slot.
+     * @return the key of the slot.
+     */
+    abstract Object keyAt(int slot);
+
+    /**
+     * Returns the value of a full slot, boxed or decoded as needed.
+     *
+     * @param slot index of a full slot.
+     * @return the value of the slot.
+     */
+    abstract Object valueAt(int slot);
+
+    /**
+     * Removes the mapping of a full slot without moving any other mapping, so
+     * that iterations over the slots can go on.
+     *
+     * @param slot index of a full slot.
+     */
+    abstract void removeAt(int slot);
+
+    /**
+     * Writes the value of an entry of the views through to the map. The
+     * default implementation calls {@link #put(Object, Object)}.
+     *
+     * @param key   the key of the entry.
+     * @param value the new value of the entry.
+     * @return the previous value of the key, or {@code null} if it had none.
+     */
+    Object writeThrough(Object key, Object value) {
+        return put(key, value);
+    }
+
+    // Inner classes //
+
+    /**
+     * Operations shared by the views of a slot map.
+     */
+    public abstract class AbstractView extends AbstractMapView {
+
+        /**
+         * Removes all of the mappings from the backing map.
+         */
+        @Override
+        public void clear() {
+            AbstractSlotHMap.this.clear();
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         *
+         * @return the number of elements in this collection
+         */
+        @Override
+        public int size() {
+            return AbstractSlotHMap.this.size();
+        }
+    }
+
+    /**
+     * Set view of the mappings of a slot map.
+     */
+    public class EntrySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains the mapping of the
+         * specified entry.
+         *
+         * @param o entry whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if o is not instance of HMap.HEntry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            Object value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        /**
+         * Removes the mapping of the specified entry from the map if the key is
+         * mapped to the entry's value.
+         *
+         * @param o entry to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if the specified element is not a
+         *                              HEntry instance
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) return false;
+            AbstractSlotHMap.this.remove(((HEntry) o).getKey());
+            return true;
+        }
+
+        /**
+         * Returns an iterator over the mappings of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new EntryIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Set view of the boxed keys of a slot map.
+     */
+    public class KeySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains a mapping for the specified
+         * key.
+         *
+         * @param o element whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        /**
+         * Removes the mapping of the specified key from the map.
+         *
+         * @param o key to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            return AbstractSlotHMap.this.remove(o) != null;
+        }
+
+        /**
+         * Returns an iterator over the boxed keys of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new KeyIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Collection view of the boxed values of a slot map.
+     */
+    public class ValueCollection extends AbstractView {
+
+        /**
+         * Returns {@code true} if at least one key of the map is mapped to the
+         * specified value.
+         *
+         * @param o element whose presence in this collection is to be tested.
+         * @return {@code true} if this collection contains the specified
+         * element
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        /**
+         * Removes one mapping of the map to the specified value, if present.
+         *
+         * @param o element to be removed from this collection, if present.
+         * @return {@code true} if this collection changed as a result of the
+         * call
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            for (int i = nextSlot(0); i < slotCount(); i = nextSlot(i + 1)) {
+                if (o.equals(valueAt(i))) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns an iterator over the boxed values of the map.
+         *
+         * @return an iterator over the elements in this collection.
+         */
+        @Override
+        public HIterator iterator() {
+            return new ValueIterator();
+        }
+
+        /**
+         * Compares the specified object with this collection for equality.
+         * This collection is equal to another collection that is not a set if
+         * both contain the same elements the same number of times.
+         *
+         * @param o Object to be compared for equality with this collection.
+         * @return {@code true} if the specified object is equal to this
+         * collection
+         */
+        @Override
+        public boolean equals(Object o) {
+            return valuesEqual(o);
+        }
+    }
+
+    // Iterator
+
+    /**
+     * Iterator over the mappings of a slot map, walking the slots of
+     * the table. The behavior of the iterator is undefined if the map is
+     * structurally modified during the iteration other than through the
+     * iterator's own {@code remove}.
+     */
+    public class EntryIterator implements HIterator {
+
+        // Attributes //
+
+        private int currentSlot = -1;
+        private int cursor = 0;
+
+        // Methods //
+
+        /**
+         * Returns {@code true} if the iteration has more elements.
+         *
+         * @return {@code true} if the iterator has more elements.
+         */
+        @Override
+        public boolean hasNext() {
+            cursor = nextSlot(cursor);
+            return cursor < slotCount();
+        }
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            int slot = advance();
+            return new Entry(keyAt(slot), valueAt(slot));
+        }
+
+        /**
+         * Removes from the map the last element returned by the iterator.
+         *
+         * @throws IllegalStateException if the {@code next} method has not yet
+         *                               been called, or the {@code remove}
+         *                               method has already been called after
+         *                               the last call to the {@code next}
+         *                               method.
+         */
+        @Override
+        public void remove() {
+            if (currentSlot < 0 || nextSlot(currentSlot) != currentSlot) throw new IllegalStateException();
+            removeAt(currentSlot);
+            currentSlot = -1;
+        }
+
+        /**
+         * Moves the iteration to the next element and returns its slot.
+         *
+         * @return the slot of the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        final int advance() {
+            if (!hasNext()) throw new NoSuchElementException();
+            currentSlot = cursor++;
+            return currentSlot;
+        }
+    }
+
+    /**
+     * Iterator over the boxed keys of a slot map.
+     */
+    public class KeyIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            return keyAt(advance());
+        }
+    }
+
+    /**
+     * Iterator over the boxed values of a slot map.
+     */
+    public class ValueIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            return valueAt(advance());
+        }
+    }
+
+    /**
+     * Entry of a slot map, holding the boxed key and value read when it
+     * was returned by the iterator. Setting its value writes through to the
+     * map.
+     */
+    public class Entry implements HEntry {
+
+        // Attributes //
+
+        private final Object key;
+        private Object value;
+
+        // Constructors //
+
+        private Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Methods //
+
+        /**
+         * Returns the key corresponding to this entry.
+         *
+         * @return the key corresponding to this entry.
+         */
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value corresponding to this entry.
+         *
+         * @return the value corresponding to this entry.
+         */
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Replaces the value corresponding to this entry with the specified
+         * value, writing through to the map.
+         *
+         * @param value new value to be stored in this entry.
+         * @return old value corresponding to the entry.
+         *
+         * @throws NullPointerException if the specified value is {@code null}.
+         * @throws ClassCastException   if the value is not of the type
+         *                              supported by the map.
+         */
+        @Override
+        public Object setValue(Object value) {
+            Object old = writeThrough(key, value);
+            this.value = value;
+            return old;
+        }
+
+        /**
+         * Returns the hash code value for this map entry.
+         *
+         * @return the hash code value for this map entry.
+         */
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        /**
+         * Compares the specified object with this entry for equality.
+         *
+         * @param o object to be compared for equality with this map entry.
+         * @return {@code true} if the specified object is equal to this map
+         * entry.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof HEntry)) return false;
+            HEntry e = (HEntry) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        /**
+         * Creates a string representation of the entry following the
+         * {@code key=value} representation
+         */
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
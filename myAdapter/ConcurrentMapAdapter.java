@@ -0,0 +1,1254 @@
+package myAdapter;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread safe implementation of {@link HMap} designed for maps shared by
+ * many threads. Unlike {@link MapAdapter}, whose hash table serializes every
+ * operation on a single lock, the mappings are partitioned into a fixed
+ * number of <i>segments</i>, each one a hash table with its own lock:
+ * <ul>
+ * <li>retrieval operations ({@code get}, {@code containsKey},
+ * {@code containsValue}) never lock and may overlap with updates;</li>
+ * <li>update operations ({@code put}, {@code remove}) only lock the segment
+ * the key belongs to, so updates of keys of different segments proceed in
+ * parallel. The number of segments is the <i>concurrency level</i> chosen at
+ * construction time.</li>
+ * </ul>
+ *
+ * <p>Retrievals reflect the results of the most recently completed updates.
+ * Aggregate operations such as {@code putAll}, {@code clear} and
+ * {@code size} are not atomic: a concurrent retrieval may observe only part of
+ * their effect.</p>
+ *
+ * <p>The views returned by {@link #keySet()}, {@link #values()} and
+ * {@link #entrySet()} and their iterators are <i>weakly consistent</i>: they
+ * reflect the state of the map at some point at or since the creation of the
+ * iterator, may or may not reflect later modifications, and never throw a
+ * {@code ConcurrentModificationException}. Each element is returned at most
+ * once.</p>
+ *
+ * <p>As {@link MapAdapter}, this map does not support null keys nor null
+ * values so {@code NullPointerException} will be thrown on all methods for
+ * which that is expected, and all the optional operations are implemented.</p>
+ *
+ * @see HMap
+ * @see MapAdapter
+ */
+public class ConcurrentMapAdapter implements HMap {
+
+    // Constants //
+
+    /** Default number of mappings the map can hold before growing. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Default number of segments. */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /** Largest allowed number of segments. */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    /** Smallest allowed number of buckets of a segment. */
+    private static final int MIN_BUCKETS = 2;
+
+    /** Largest allowed number of buckets of a segment. */
+    private static final int MAX_BUCKETS = 1 << 30;
+
+    /** Maximum average number of mappings per bucket. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Attributes //
+
+    private final Segment[] segments;
+
+    /** Shift of the hash selecting the segment from its high bits. */
+    private final int segmentShift;
+
+    /** Mask of the hash selecting the segment after the shift. */
+    private final int segmentMask;
+
+    // Constructors //
+
+    /**
+     * Creates a new empty map with the default capacity and concurrency
+     * level.
+     */
+    public ConcurrentMapAdapter() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new empty map given an initial capacity, using the default
+     * concurrency level.
+     *
+     * @param initialCapacity The number of mappings the map can hold before
+     *                        growing
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public ConcurrentMapAdapter(int initialCapacity) {
+        this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new empty map given an initial capacity and a concurrency
+     * level. The concurrency level is the expected number of threads updating
+     * the map at the same time and is rounded up to a power of two to obtain
+     * the number of segments.
+     *
+     * @param initialCapacity  The number of mappings the map can hold before
+     *                         growing
+     * @param concurrencyLevel The expected number of concurrently updating
+     *                         threads
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative or
+     *                                  the concurrency level is not positive.
+     */
+    public ConcurrentMapAdapter(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+        }
+
+        int shift = 0;
+        int count = 1;
+        while (count < concurrencyLevel && count < MAX_SEGMENTS) {
+            shift++;
+            count <<= 1;
+        }
+        this.segmentShift = 32 - shift;
+        this.segmentMask = count - 1;
+
+        int perSegment = (initialCapacity + count - 1) / count;
+        int buckets = MIN_BUCKETS;
+        while (buckets < MAX_BUCKETS && buckets * LOAD_FACTOR < perSegment) buckets <<= 1;
+
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) segments[i] = new Segment(buckets);
+    }
+
+    /**
+     * Creates a new map with the same mappings of the given map, using the
+     * default concurrency level.
+     *
+     * @param map The map to copy the data from.
+     *
+     * @throws NullPointerException if the map is {@code null} or contains
+     *                              {@code null} keys or values.
+     */
+    public ConcurrentMapAdapter(HMap map) {
+        this(Math.max(map.size(), DEFAULT_CAPACITY), DEFAULT_CONCURRENCY_LEVEL);
+        putAll(map);
+    }
+
+    // Methods //
+
+    /**
+     * Removes all mappings from this map. Segments are cleared one at a time,
+     * so concurrent retrievals may observe a partially cleared map.
+     */
+    public void clear() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value. This operation requires time linear in the map size and does not
+     * lock the map.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        for (Segment segment : segments) {
+            if (segment.containsValue(value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public boolean containsKey(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).find(key, hash) != null;
+    }
+
+    /**
+     * Returns a weakly consistent set view of the mappings contained in this
+     * map. The set is backed by the map, so changes to the map are reflected
+     * in the set, and vice versa. The set supports element removal, which
+     * removes the corresponding mapping from the map, via the
+     * {@code Iterator.remove}, {@code Set.remove}, {@code removeAll},
+     * {@code retainAll} and {@code clear} operations. It does not support the
+     * {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the mappings contained in this map.
+     */
+    public HSet entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Compares the specified object with this map for equality. Returns
+     * {@code true} if the given object is also a map and the two maps
+     * represent the same mappings. The result is only meaningful if neither
+     * map is modified during the comparison.
+     *
+     * @param o object to be compared for equality with this map.
+     * @return {@code true} if the specified object is equal to this map.
+     */
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HMap)) return false;
+        return this.entrySet().equals(((HMap) o).entrySet());
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key. This
+     * operation does not lock the map.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public Object get(Object key) {
+        int hash = hash(key);
+        Node node = segmentFor(hash).find(key, hash);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of the
+     * hash codes of the entries of the map.
+     *
+     * @return the hash code value for this map.
+     */
+    public int hashCode() {
+        return entrySet().hashCode();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings.
+     */
+    public boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.count != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a weakly consistent set view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are reflected in the
+     * set, and vice versa. The set supports element removal but does not
+     * support the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map.
+     */
+    public HSet keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. Only
+     * the segment the key belongs to is locked.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if {@code key} or {@code value} is null.
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map. The copy
+     * is not atomic: concurrent retrievals may observe part of the mappings.
+     *
+     * @param t Mappings to be stored in this map.
+     *
+     * @throws NullPointerException the specified map is {@code null}, or the
+     *                              specified map contains entries with
+     *                              {@code null} keys or values.
+     */
+    public void putAll(HMap t) {
+        if (t == null) throw new NullPointerException();
+        HIterator iter = t.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry current = (HEntry) iter.next();
+            put(current.getKey(), current.getValue());
+        }
+    }
+
+    /**
+     * Removes the mapping for this key from this map if it is present. Only
+     * the segment the key belongs to is locked.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with a specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if the key is {@code null}
+     */
+    public Object remove(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map, summing the
+     * number of mappings of every segment without locking. If the map is
+     * concurrently updated the result may not reflect any single state of
+     * the map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) size += segment.count;
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    /**
+     * Returns a weakly consistent collection view of the values contained in
+     * this map. The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice versa. The collection supports
+     * element removal but does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * @return a collection view of the values contained in this map.
+     */
+    public HCollection values() {
+        return new ValueCollection();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key. The
+     * key is looked up once, without locking.
+     *
+     * @param key          the key whose associated value is to be returned.
+     * @param defaultValue the default mapping of the key.
+     * @return the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        Object value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * If the specified key is not already associated with a value associates
+     * it with the given value and returns {@code null}, else returns the
+     * current value. The check and the insertion are atomic: only the segment
+     * the key belongs to is locked.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).putIfAbsent(key, hash, value);
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently mapped
+     * to the specified value. The check and the removal are atomic: only the
+     * segment the key belongs to is locked.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value expected to be associated with the specified key.
+     * @return {@code true} if the value was removed.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * Replaces the entry for the specified key only if it is currently mapped
+     * to some value. The check and the replacement are atomic: only the
+     * segment the key belongs to is locked.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public Object replace(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).replace(key, hash, null, value);
+    }
+
+    /**
+     * Replaces the entry for the specified key only if currently mapped to the
+     * specified value. The check and the replacement are atomic: only the
+     * segment the key belongs to is locked.
+     *
+     * @param key      key with which the specified value is associated.
+     * @param oldValue value expected to be associated with the specified key.
+     * @param newValue value to be associated with the specified key.
+     * @return {@code true} if the value was replaced.
+     *
+     * @throws NullPointerException if the key or a value is {@code null}.
+     */
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        if (key == null || oldValue == null || newValue == null) {
+            throw new NullPointerException("Key and values must not be null.");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).replace(key, hash, oldValue, newValue) != null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value, computes
+     * its value using the given mapping function and enters it into this map
+     * unless {@code null}. A mapped key is found without locking; otherwise
+     * the whole operation, including the call to the function, is atomic and
+     * locks the segment the key belongs to, so the function should be short
+     * and must not update this map.
+     *
+     * @param key             key with which the computed value is to be
+     *                        associated.
+     * @param mappingFunction the function to compute a value.
+     * @return the current (existing or computed) value associated with the
+     * specified key, or {@code null} if the computed value is {@code null}.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function adds or removes
+     *                                         a mapping of the key's segment.
+     */
+    @Override
+    public Object computeIfAbsent(Object key, HFunction mappingFunction) {
+        if (mappingFunction == null) throw new NullPointerException();
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        Node node = segment.find(key, hash);
+        if (node != null) return node.value;
+        return segment.compute(key, hash, (k, v) -> v != null ? v : mappingFunction.apply(k));
+    }
+
+    /**
+     * If the specified key is mapped, computes a new mapping given the key and
+     * its current value, removing the mapping if the function returns
+     * {@code null}. The whole operation, including the call to the function,
+     * is atomic and locks the segment the key belongs to, so the function
+     * should be short and must not update this map.
+     *
+     * @param key               key with which the computed value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function adds or removes
+     *                                         a mapping of the key's segment.
+     */
+    @Override
+    public Object computeIfPresent(Object key, HBiFunction remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        if (segment.find(key, hash) == null) return null;
+        return segment.compute(key, hash, (k, v) -> v == null ? null : remappingFunction.apply(k, v));
+    }
+
+    /**
+     * Computes a mapping for the specified key and its current value, or
+     * {@code null} if there is no current mapping. The mapping is removed, or
+     * not added, if the function returns {@code null}. The whole operation,
+     * including the call to the function, is atomic and locks the segment the
+     * key belongs to, so the function should be short and must not update
+     * this map.
+     *
+     * @param key               key with which the computed value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function adds or removes
+     *                                         a mapping of the key's segment.
+     */
+    @Override
+    public Object compute(Object key, HBiFunction remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, remappingFunction);
+    }
+
+    /**
+     * If the specified key is not mapped, associates it with the given value.
+     * Otherwise, replaces the value with the result of the given function
+     * applied to the current and the given value, or removes the mapping if
+     * the result is {@code null}. The whole operation, including the call to
+     * the function, is atomic and locks the segment the key belongs to, so the
+     * function should be short and must not update this map.
+     *
+     * @param key               key with which the resulting value is to be
+     *                          associated.
+     * @param value             the value to be merged with the existing value
+     *                          associated with the key or, if no existing value
+     *                          is associated with the key, to be associated
+     *                          with the key.
+     * @param remappingFunction the function to recompute a value if present.
+     * @return the new value associated with the specified key, or
+     * {@code null} if no value is associated with the key.
+     *
+     * @throws NullPointerException            if the key, the value or the
+     *                                         function is {@code null}.
+     * @throws ConcurrentModificationException if the function adds or removes
+     *                                         a mapping of the key's segment.
+     */
+    @Override
+    public Object merge(Object key, Object value, HBiFunction remappingFunction) {
+        if (value == null || remappingFunction == null) throw new NullPointerException();
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash,
+                (k, v) -> v == null ? value : remappingFunction.apply(v, value));
+    }
+
+    /**
+     * Returns a string representation of this map in the same format of
+     * {@link MapAdapter#toString()}.
+     *
+     * @return The string representation of this map.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        HIterator iter = entrySet().iterator();
+        while (iter.hasNext()) {
+            sb.append(iter.next());
+            if (iter.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    // Internals //
+
+    /**
+     * Spreads the key's hash code so that both the high bits selecting the
+     * segment and the low bits selecting the bucket depend on every bit of
+     * the original hash code.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the segment a hash belongs to.
+     */
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * A mapping of a segment's bucket chain. The key and its hash never
+     * change; the value and the link to the next node are volatile so that
+     * lock-free readers observe the writes of the segment's lock holder.
+     */
+    private static final class Node {
+
+        final int hash;
+        final Object key;
+        volatile Object value;
+        volatile Node next;
+
+        Node(int hash, Object key, Object value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A chained hash table holding the mappings whose hash selects it. All
+     * updates are made while holding the segment's monitor; reads go through
+     * the volatile bucket array without locking.
+     *
+     * <p>Removed nodes are unlinked from their chain without changing their
+     * own link, so a reader standing on a removed node can still complete its
+     * traversal. Growing the table links copies of the nodes in a new bucket
+     * array which is then published, leaving the old array untouched for the
+     * readers still traversing it.</p>
+     */
+    private static final class Segment {
+
+        volatile AtomicReferenceArray<Node> table;
+
+        /** Number of mappings, written only under the segment's lock. */
+        volatile int count;
+
+        /** Value of {@code count} over which the table grows. */
+        private int threshold;
+
+        /** Number of insertions and removals, written under the lock. */
+        private int modifications;
+
+        Segment(int buckets) {
+            this.table = new AtomicReferenceArray<>(buckets);
+            this.threshold = (int) (buckets * LOAD_FACTOR);
+        }
+
+        /**
+         * Returns the node of the key without locking, or {@code null}.
+         */
+        Node find(Object key, int hash) {
+            AtomicReferenceArray<Node> tab = table;
+            for (Node e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && (e.key == key || e.key.equals(key))) return e;
+            }
+            return null;
+        }
+
+        /**
+         * Returns {@code true} if a node of the segment holds the value,
+         * without locking.
+         */
+        boolean containsValue(Object value) {
+            AtomicReferenceArray<Node> tab = table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node e = tab.get(i); e != null; e = e.next) {
+                    if (value.equals(e.value)) return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized Object put(Object key, int hash, Object value) {
+            AtomicReferenceArray<Node> tab = table;
+            int index = hash & (tab.length() - 1);
+            Node first = tab.get(index);
+            for (Node e = first; e != null; e = e.next) {
+                if (e.hash == hash && (e.key == key || e.key.equals(key))) {
+                    Object old = e.value;
+                    e.value = value;
+                    return old;
+                }
+            }
+            tab.set(index, new Node(hash, key, value, first));
+            modifications++;
+            if (++count > threshold) grow();
+            return null;
+        }
+
+        /**
+         * Maps the key to the value only if it is not mapped, returning the
+         * current value or {@code null}.
+         */
+        synchronized Object putIfAbsent(Object key, int hash, Object value) {
+            Node node = find(key, hash);
+            return node != null ? node.value : put(key, hash, value);
+        }
+
+        /**
+         * Replaces the value of the key if present and, when
+         * {@code expected} is not {@code null}, only if it maps to an equal
+         * value. Returns the replaced value or {@code null}.
+         */
+        synchronized Object replace(Object key, int hash, Object expected, Object value) {
+            Node node = find(key, hash);
+            if (node == null) return null;
+            Object old = node.value;
+            if (expected != null && !expected.equals(old)) return null;
+            node.value = value;
+            return old;
+        }
+
+        /**
+         * Maps the key to the value computed by the function from the key and
+         * the current value, or {@code null} if the key is not mapped. The
+         * mapping is removed, or not added, if the function returns
+         * {@code null}. The function is called while holding the lock.
+         */
+        synchronized Object compute(Object key, int hash, HBiFunction remappingFunction) {
+            Node node = find(key, hash);
+            int expected = modifications;
+            Object value = remappingFunction.apply(key, node == null ? null : node.value);
+            if (modifications != expected) throw new ConcurrentModificationException();
+            if (value == null) {
+                if (node != null) remove(key, hash, null);
+            } else if (node != null) {
+                node.value = value;
+            } else {
+                put(key, hash, value);
+            }
+            return value;
+        }
+
+        /**
+         * Removes the mapping of the key if present and, when
+         * {@code expected} is not {@code null}, only if it maps to an equal
+         * value.
+         */
+        synchronized Object remove(Object key, int hash, Object expected) {
+            AtomicReferenceArray<Node> tab = table;
+            int index = hash & (tab.length() - 1);
+            Node pred = null;
+            for (Node e = tab.get(index); e != null; pred = e, e = e.next) {
+                if (e.hash == hash && (e.key == key || e.key.equals(key))) {
+                    Object old = e.value;
+                    if (expected != null && !expected.equals(old)) return null;
+                    if (pred == null) tab.set(index, e.next);
+                    else pred.next = e.next;
+                    modifications++;
+                    count--;
+                    return old;
+                }
+            }
+            return null;
+        }
+
+        synchronized void clear() {
+            if (count == 0) return;
+            table = new AtomicReferenceArray<>(table.length());
+            modifications++;
+            count = 0;
+        }
+
+        /**
+         * Doubles the number of buckets publishing a new array of copied
+         * nodes.
+         */
+        private void grow() {
+            AtomicReferenceArray<Node> old = table;
+            if (old.length() >= MAX_BUCKETS) return;
+            AtomicReferenceArray<Node> tab = new AtomicReferenceArray<>(old.length() << 1);
+            int mask = tab.length() - 1;
+            for (int i = 0; i < old.length(); i++) {
+                for (Node e = old.get(i); e != null; e = e.next) {
+                    int index = e.hash & mask;
+                    tab.set(index, new Node(e.hash, e.key, e.value, tab.get(index)));
+                }
+            }
+            threshold = (int) (tab.length() * LOAD_FACTOR);
+            table = tab;
+        }
+    }
+
+    // Inner classes //
+
+    /**
+     * Operations shared by the views of the map. All of them are built on top
+     * of the map's thread safe operations and of the view's weakly consistent
+     * iterator, so no view operation locks more than one segment at a time.
+     */
+    public abstract class AbstractView extends AbstractMapView {
+
+        /**
+         * Removes all of the mappings from the backing map.
+         */
+        @Override
+        public void clear() {
+            ConcurrentMapAdapter.this.clear();
+        }
+
+        /**
+         * Returns {@code true} if this collection contains no elements.
+         *
+         * @return {@code true} if this collection contains no elements
+         */
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentMapAdapter.this.isEmpty();
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         *
+         * @return the number of elements in this collection
+         */
+        @Override
+        public int size() {
+            return ConcurrentMapAdapter.this.size();
+        }
+    }
+
+    /**
+     * Weakly consistent set view of the mappings of the map.
+     *
+     * @see ConcurrentMapAdapter#entrySet()
+     */
+    public class EntrySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains the mapping of the
+         * specified entry.
+         *
+         * @param o entry whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if o is not instance of HMap.HEntry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            Object value = ConcurrentMapAdapter.this.get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        /**
+         * Removes the mapping of the specified entry from the map if the key is
+         * still mapped to the entry's value. The check and the removal are
+         * atomic.
+         *
+         * @param o entry to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if the specified element is not a
+         *                              HEntry instance
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            int hash = hash(entry.getKey());
+            return segmentFor(hash).remove(entry.getKey(), hash, entry.getValue()) != null;
+        }
+
+        /**
+         * Returns a weakly consistent iterator over the mappings of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new EntryIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Weakly consistent set view of the keys of the map.
+     *
+     * @see ConcurrentMapAdapter#keySet()
+     */
+    public class KeySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains a mapping for the specified
+         * key.
+         *
+         * @param o element whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return ConcurrentMapAdapter.this.containsKey(o);
+        }
+
+        /**
+         * Removes the mapping of the specified key from the map.
+         *
+         * @param o key to be removed from this set, if present.
+         * @return true if the set contained the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            return ConcurrentMapAdapter.this.remove(o) != null;
+        }
+
+        /**
+         * Returns a weakly consistent iterator over the keys of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new KeyIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Weakly consistent collection view of the values of the map.
+     *
+     * @see ConcurrentMapAdapter#values()
+     */
+    public class ValueCollection extends AbstractView {
+
+        /**
+         * Returns {@code true} if at least one key of the map is mapped to the
+         * specified value.
+         *
+         * @param o element whose presence in this collection is to be tested.
+         * @return {@code true} if this collection contains the specified
+         * element
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return ConcurrentMapAdapter.this.containsValue(o);
+        }
+
+        /**
+         * Removes one mapping of the map to the specified value, if present.
+         * The mapping is only removed if it still maps to the value when its
+         * segment is locked.
+         *
+         * @param o element to be removed from this collection, if present.
+         * @return {@code true} if this collection changed as a result of the
+         * call
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            HIterator iter = entrySet().iterator();
+            while (iter.hasNext()) {
+                HEntry entry = (HEntry) iter.next();
+                if (o.equals(entry.getValue()) && entrySet().remove(entry)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns a weakly consistent iterator over the values of the map.
+         *
+         * @return an iterator over the elements in this collection.
+         */
+        @Override
+        public HIterator iterator() {
+            return new ValueIterator();
+        }
+
+        /**
+         * Compares the specified object with this collection for equality.
+         * This collection is equal to another collection that is not a set if
+         * both contain the same elements the same number of times.
+         *
+         * @param o Object to be compared for equality with this collection.
+         * @return {@code true} if the specified object is equal to this
+         * collection
+         */
+        @Override
+        public boolean equals(Object o) {
+            return valuesEqual(o);
+        }
+    }
+
+    // Iterator
+
+    /**
+     * Weakly consistent iterator over the mappings of the map. The iterator
+     * walks the segments in order and, for each segment, the bucket array
+     * published when the iterator reached it, so it never fails because of
+     * concurrent updates.
+     */
+    public class EntryIterator implements HIterator {
+
+        // Attributes //
+
+        private int segmentIndex = 0;
+        private AtomicReferenceArray<Node> table = null;
+        private int bucket = 0;
+        private Node next = null;
+        private Node last = null;
+
+        // Constructors //
+
+        EntryIterator() {
+            advance();
+        }
+
+        // Methods //
+
+        /**
+         * Returns {@code true} if the iteration has more elements.
+         *
+         * @return {@code true} if the iterator has more elements.
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            Node node = nextNode();
+            return new Entry(node.key, node.value);
+        }
+
+        /**
+         * Removes from the map the key of the last element returned by the
+         * iterator.
+         *
+         * @throws IllegalStateException if the {@code next} method has not yet
+         *                               been called, or the {@code remove}
+         *                               method has already been called after
+         *                               the last call to the {@code next}
+         *                               method.
+         */
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            ConcurrentMapAdapter.this.remove(last.key);
+            last = null;
+        }
+
+        /**
+         * Returns the next node of the iteration and moves forward.
+         */
+        final Node nextNode() {
+            if (next == null) throw new NoSuchElementException();
+            last = next;
+            next = next.next;
+            if (next == null) advance();
+            return last;
+        }
+
+        /**
+         * Moves {@code next} to the first node of the following non empty
+         * bucket, moving through the segments as needed.
+         */
+        private void advance() {
+            while (true) {
+                if (table != null) {
+                    while (bucket < table.length()) {
+                        next = table.get(bucket++);
+                        if (next != null) return;
+                    }
+                }
+                if (segmentIndex == segments.length) {
+                    next = null;
+                    return;
+                }
+                table = segments[segmentIndex++].table;
+                bucket = 0;
+            }
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the keys of the map.
+     */
+    public class KeyIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            return nextNode().key;
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the values of the map.
+     */
+    public class ValueIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            return nextNode().value;
+        }
+    }
+
+    /**
+     * {@code ConcurrentMapAdapter}'s entry implementation. The entry carries
+     * the value read when it was returned by the iterator; setting its value
+     * writes through to the map.
+     */
+    public class Entry implements HEntry {
+
+        // Attributes //
+
+        private final Object key;
+        private Object value;
+
+        // Constructors //
+
+        private Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Methods //
+
+        /**
+         * Returns the key corresponding to this entry.
+         *
+         * @return the key corresponding to this entry.
+         */
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value corresponding to this entry.
+         *
+         * @return the value corresponding to this entry.
+         */
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Replaces the value corresponding to this entry with the specified
+         * value, writing through to the map.
+         *
+         * @param value new value to be stored in this entry.
+         * @return old value corresponding to the entry.
+         *
+         * @throws NullPointerException if the specified value is {@code null}.
+         */
+        @Override
+        public Object setValue(Object value) {
+            Object old = ConcurrentMapAdapter.this.put(key, value);
+            this.value = value;
+            return old;
+        }
+
+        /**
+         * Returns the hash code value for this map entry.
+         *
+         * @return the hash code value for this map entry.
+         */
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        /**
+         * Compares the specified object with this entry for equality.
+         *
+         * @param o object to be compared for equality with this map entry.
+         * @return {@code true} if the specified object is equal to this map
+         * entry.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof HEntry)) return false;
+            HEntry e = (HEntry) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        /**
+         * Creates a string representation of the entry following the
+         * {@code key=value} representation
+         */
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package myAdapter;
+
+/**
+ * An implementation of {@link HMap} whose mappings expire: each mapping is
+ * put with a <i>time to live</i>, given to
+ * {@link #put(Object, Object, long)} or the default one of the map, after
+ * which it is no longer visible to {@link #get(Object)},
+ * {@link #containsKey(Object)}, {@link #size()} nor the views, as if it had
+ * been removed.
+ *
+ * <p>Expired mappings are removed by a <i>hierarchical timing wheel</i>
+ * instead of periodic scans of the whole map. The wheel has 6 levels of 64
+ * buckets, the buckets of level {@code i} spanning 64<sup>i</sup>
+ * milliseconds, so it covers about two years; a mapping is linked in the
+ * bucket of the finest level able to hold its expiration time. Each
+ * operation first advances the wheel to the current time: the buckets whose
+ * span has passed are emptied, their expired mappings removed and the others
+ * moved down to a finer level. A mapping moves down at most 5 times before
+ * it expires and an advance visits at most 64 buckets per level, so expiring
+ * costs amortized constant time per mapping, whatever the size of the
+ * map.</p>
+ *
+ * <p>The time is read from an {@link HClock}, {@link HClock#SYSTEM} unless
+ * another one is given, so that tests and simulations can drive it. A
+ * mapping put without a time to live into a map without a default one never
+ * expires, and is not linked in the wheel.</p>
+ *
+ * <p>All the operations of the map are synchronized on the map. The views
+ * are not: an iteration must be synchronized on the map by the caller if the
+ * map can be modified concurrently. Iterators skip the mappings expired when
+ * they move to the next element. Setting the value of an entry keeps the
+ * expiration time of its mapping, and does nothing if the mapping has
+ * expired or been removed. As {@link MapAdapter}, the map does not
+ * support null keys nor null values.</p>
+ *
+ * @see HClock
+ * @see HMap
+ */
+public class ExpiringHMap extends AbstractSlotHMap {
+
+    // Constants //
+
+    /** Expiration time of the mappings that never expire. */
+    private static final long NEVER = Long.MAX_VALUE;
+
+    /** Number of bits of a bucket index. */
+    private static final int BITS = 6;
+
+    /** Number of buckets of each level of the wheel. */
+    private static final int BUCKETS = 1 << BITS;
+
+    /** Number of levels of the wheel. */
+    private static final int LEVELS = 6;
+
+    // Attributes //
+
+    /** Index of the nodes by key. */
+    private final OpenHashTable index = new OpenHashTable();
+
+    /**
+     * Sentinels of the circular bucket lists of each level of the wheel,
+     * indexed by the expiration time shifted by {@code BITS} bits per
+     * level.
+     */
+    private final Node[][] wheel = new Node[LEVELS][BUCKETS];
+
+    private final HClock clock;
+    private final long defaultTimeToLive;
+
+    /** Time of the clock when the map was created, the origin of the wheel. */
+    private final long origin;
+
+    /** Time since the origin up to which the wheel has been advanced. */
+    private long time;
+
+    // Constructors //
+
+    /**
+     * Creates an empty map whose mappings only expire if put with a time to
+     * live, using the system clock.
+     */
+    public ExpiringHMap() {
+        this(NEVER, HClock.SYSTEM);
+    }
+
+    /**
+     * Creates an empty map whose mappings expire by default after the given
+     * time, using the system clock.
+     *
+     * @param defaultTimeToLive the time to live in milliseconds of the
+     *                          mappings put without one.
+     *
+     * @throws IllegalArgumentException if the time to live is not positive.
+     */
+    public ExpiringHMap(long defaultTimeToLive) {
+        this(defaultTimeToLive, HClock.SYSTEM);
+    }
+
+    /**
+     * Creates an empty map whose mappings expire by default after the given
+     * time, as measured by the given clock.
+     *
+     * @param defaultTimeToLive the time to live in milliseconds of the
+     *                          mappings put without one, {@link Long#MAX_VALUE}
+     *                          for none.
+     * @param clock             the source of the current time.
+     *
+     * @throws IllegalArgumentException if the time to live is not positive.
+     * @throws NullPointerException     if the clock is {@code null}.
+     */
+    public ExpiringHMap(long defaultTimeToLive, HClock clock) {
+        if (defaultTimeToLive <= 0) throw new IllegalArgumentException("Illegal time to live: " + defaultTimeToLive);
+        if (clock == null) throw new NullPointerException();
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.clock = clock;
+        this.origin = clock.millis();
+        for (Node[] level : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                Node head = new Node(null, null, NEVER);
+                head.prev = head;
+                head.next = head;
+                level[i] = head;
+            }
+        }
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of live key-value mappings in this map.
+     *
+     * @return the number of live key-value mappings in this map.
+     */
+    public synchronized int size() {
+        advance();
+        return index.size();
+    }
+
+    /**
+     * Returns {@code true} if this map contains a live mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a live mapping for the
+     * specified key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized boolean containsKey(Object key) {
+        advance();
+        return index.containsKey(key);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value with a live mapping.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public synchronized boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        advance();
+        for (int i = index.nextSlot(0); i < index.capacity(); i = index.nextSlot(i + 1)) {
+            if (value.equals(((Node) index.valueAt(i)).value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key, or
+     * {@code null} if the map contains no live mapping for this key.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no live mapping for this key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized Object get(Object key) {
+        advance();
+        Node node = (Node) index.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * with the default time to live of the map. A live mapping of the key is
+     * replaced, and its time to live restarted.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key by a live
+     * mapping, or {@code null} if there was none.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    public Object put(Object key, Object value) {
+        return put(key, value, defaultTimeToLive);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * expiring after the given time. A live mapping of the key is replaced.
+     *
+     * @param key        key with which the specified value is to be
+     *                   associated.
+     * @param value      value to be associated with the specified key.
+     * @param timeToLive the time in milliseconds after which the mapping
+     *                   expires, {@link Long#MAX_VALUE} for never.
+     * @return previous value associated with the specified key by a live
+     * mapping, or {@code null} if there was none.
+     *
+     * @throws NullPointerException     if the key or the value is
+     *                                  {@code null}.
+     * @throws IllegalArgumentException if the time to live is not positive.
+     */
+    public synchronized Object put(Object key, Object value, long timeToLive) {
+        if (key == null || value == null) throw new NullPointerException("Key and value must not be null.");
+        if (timeToLive <= 0) throw new IllegalArgumentException("Illegal time to live: " + timeToLive);
+        advance();
+        long expiresAt = timeToLive >= NEVER - time ? NEVER : time + timeToLive;
+        Node node = (Node) index.get(key);
+        Object old = null;
+        if (node == null) {
+            node = new Node(key, value, expiresAt);
+            index.put(key, node);
+        } else {
+            old = node.value;
+            node.value = value;
+            node.expiresAt = expiresAt;
+            unschedule(node);
+        }
+        if (expiresAt != NEVER) schedule(node);
+        return old;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with the specified key by a live
+     * mapping, or {@code null} if there was none.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized Object remove(Object key) {
+        advance();
+        Node node = (Node) index.remove(key);
+        if (node == null) return null;
+        unschedule(node);
+        return node.value;
+    }
+
+    /**
+     * Removes all mappings from this map.
+     */
+    public synchronized void clear() {
+        index.clear();
+        for (Node[] level : wheel) {
+            for (Node head : level) {
+                head.prev = head;
+                head.next = head;
+            }
+        }
+    }
+
+    /**
+     * Returns the time in milliseconds before the mapping of the key expires,
+     * {@link Long#MAX_VALUE} if it never does, or -1 if the map contains no
+     * live mapping for the key.
+     *
+     * @param key key whose mapping is to be checked.
+     * @return the remaining time to live of the mapping of the key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public synchronized long timeToLive(Object key) {
+        advance();
+        Node node = (Node) index.get(key);
+        if (node == null) return -1;
+        return node.expiresAt == NEVER ? NEVER : node.expiresAt - time;
+    }
+
+    /**
+     * Removes the expired mappings now. Every operation of the map already
+     * does so before running; this method lets an idle map release the
+     * expired keys and values.
+     */
+    public synchronized void cleanUp() {
+        advance();
+    }
+
+    // Slot accessors //
+
+    @Override
+    int slotCount() {
+        return index.capacity();
+    }
+
+    @Override
+    int nextSlot(int from) {
+        long now = now();
+        int slot = index.nextSlot(from);
+        while (slot < index.capacity() && ((Node) index.valueAt(slot)).expiresAt <= now) {
+            slot = index.nextSlot(slot + 1);
+        }
+        return slot;
+    }
+
+    @Override
+    Object keyAt(int slot) {
+        return index.keyAt(slot);
+    }
+
+    @Override
+    Object valueAt(int slot) {
+        return ((Node) index.valueAt(slot)).value;
+    }
+
+    @Override
+    synchronized void removeAt(int slot) {
+        Node node = (Node) index.valueAt(slot);
+        if (index.removeAt(slot, node.key)) unschedule(node);
+    }
+
+    /**
+     * Replaces the value of a live mapping, keeping its expiration time. A
+     * mapping removed or expired since the entry was read is not added back.
+     */
+    @Override
+    synchronized Object writeThrough(Object key, Object value) {
+        if (value == null) throw new NullPointerException();
+        advance();
+        Node node = (Node) index.get(key);
+        if (node == null) return null;
+        Object old = node.value;
+        node.value = value;
+        return old;
+    }
+
+    // Timing wheel //
+
+    /**
+     * Advances the wheel to the current time. At each level, from the
+     * finest, the buckets whose span has been entered since the last advance
+     * are emptied: their expired mappings are removed and the others are
+     * scheduled again, at a finer level. A level whose current bucket has not
+     * changed ends the advance, since the coarser ones have not changed
+     * either.
+     */
+    private void advance() {
+        long previous = time;
+        long now = now();
+        if (now <= previous) return;
+        time = now;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            long previousTicks = previous >>> shift;
+            long delta = (now >>> shift) - previousTicks;
+            if (delta <= 0) break;
+            for (long ticks = 1; ticks <= Math.min(delta, BUCKETS); ticks++) {
+                expireBucket(wheel[level][(int) ((previousTicks + ticks) & (BUCKETS - 1))], now);
+            }
+        }
+    }
+
+    /**
+     * Returns the time elapsed since the origin of the wheel.
+     */
+    private long now() {
+        return clock.millis() - origin;
+    }
+
+    /**
+     * Empties a bucket, removing its expired mappings and scheduling the
+     * others again.
+     */
+    private void expireBucket(Node head, long now) {
+        Node node = head.next;
+        head.prev = head;
+        head.next = head;
+        while (node != head) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.expiresAt <= now) {
+                index.remove(node.key);
+            } else {
+                schedule(node);
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Links the node in the bucket of its expiration time, at the finest
+     * level whose span covers its remaining time to live.
+     */
+    private void schedule(Node node) {
+        long delay = node.expiresAt - time;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (BITS * (level + 1))) level++;
+        Node head = wheel[level][(int) ((node.expiresAt >>> (BITS * level)) & (BUCKETS - 1))];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    /**
+     * Unlinks the node from its bucket, if it is linked in one.
+     */
+    private void unschedule(Node node) {
+        if (node.prev == null) return;
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    // Inner classes //
+
+    /**
+     * A mapping of the map, linked in a bucket of the wheel unless it never
+     * expires.
+     */
+    private static final class Node {
+        final Object key;
+        Object value;
+        long expiresAt;
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
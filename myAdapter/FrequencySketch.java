@@ -0,0 +1,163 @@
+package myAdapter;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch estimating how many times each key has been accessed
+ * recently, used by {@link TinyLfuHMap} to decide whether a new mapping is
+ * worth the one it would evict. The sketch keeps 4-bit counters, so the
+ * estimated frequencies saturate at 15, packed sixteen to a {@code long}.
+ * Each key increments one counter in four different words chosen by four
+ * hash functions, and its frequency is estimated as the smallest of the
+ * four: collisions can only make it higher.
+ *
+ * <p>To forget the accesses that are no longer recent, all the counters are
+ * halved once the sketch has counted ten increments per key of its capacity.
+ * The halving is a shift of each word, so it costs one pass over a small
+ * array.</p>
+ *
+ * <p>The sketch is not synchronized: a sketch owned by a cache is only
+ * accessed while holding the cache's lock.</p>
+ */
+final class FrequencySketch {
+
+    // Constants //
+
+    /** Smallest allowed number of words, must be a power of two. */
+    private static final int MIN_WORDS = 8;
+
+    /** Largest allowed number of words, must be a power of two. */
+    private static final int MAX_WORDS = 1 << 24;
+
+    /** Keeps the three low bits of each counter after a shift. */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** Seeds of the four hash functions choosing the words of a key. */
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    // Attributes //
+
+    private long[] table;
+
+    /** Number of increments after which the counters are halved. */
+    private int sampleSize;
+
+    /** Number of increments since the counters were last halved. */
+    private int additions;
+
+    // Constructors //
+
+    /**
+     * Creates an empty sketch sized for {@code capacity} distinct keys, with
+     * one word of sixteen counters per key to keep the collisions rare.
+     *
+     * @param capacity the number of keys whose frequencies are estimated.
+     */
+    FrequencySketch(long capacity) {
+        int words = MIN_WORDS;
+        while (words < MAX_WORDS && words < capacity) words <<= 1;
+        table = new long[words];
+        sampleSize = 10 * words;
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of keys the sketch has been sized for.
+     */
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Grows the sketch until it is sized for {@code capacity} keys, or has
+     * reached its largest size, keeping every estimated frequency. The table
+     * is doubled by copying it into both halves of the new one: a word index
+     * keeps its low bits when the table doubles, so each counter is found at
+     * its old index or at the same index in the upper half, holding its old
+     * count either way.
+     *
+     * @param capacity the number of keys whose frequencies are estimated.
+     */
+    void ensureCapacity(long capacity) {
+        while (table.length < MAX_WORDS && table.length < capacity) {
+            int words = table.length;
+            long[] grown = Arrays.copyOf(table, words << 1);
+            System.arraycopy(table, 0, grown, words, words);
+            table = grown;
+            sampleSize = 10 * grown.length;
+        }
+    }
+
+    /**
+     * Returns an estimate of the heap retained by the sketch in bytes, that
+     * is the size of its table.
+     *
+     * @return the estimated size of the sketch in bytes.
+     */
+    long footprint() {
+        return OpenHashTable.align(OpenHashTable.ARRAY_HEADER + (long) table.length * Long.BYTES);
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to the key with the
+     * given hash, from 0 to 15.
+     *
+     * @param hash the hash of the key, as given by {@link OpenHashTable#hash}.
+     * @return the estimated frequency of the key.
+     */
+    int frequency(int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Counts an access to the key with the given hash, halving all the
+     * counters if the sample is complete.
+     *
+     * @param hash the hash of the key, as given by {@link OpenHashTable#hash}.
+     */
+    void increment(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions == sampleSize) reset();
+    }
+
+    /**
+     * Increments the given counter of a word unless it is saturated.
+     */
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) == mask) return false;
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * Returns the word holding the counter of the {@code i}-th hash function.
+     */
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & (table.length - 1);
+    }
+
+    /**
+     * Halves all the counters.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+        additions >>>= 1;
+    }
+}
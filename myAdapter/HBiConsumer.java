@@ -0,0 +1,20 @@
+package myAdapter;
+
+/**
+ * An operation that accepts two arguments and returns no result. It is used
+ * by {@link HMap#forEach(HBiConsumer)} to act on the key and the value of
+ * each mapping of a map.
+ *
+ * @see HConsumer
+ */
+@FunctionalInterface
+public interface HBiConsumer {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param t the first input argument.
+     * @param u the second input argument.
+     */
+    void accept(Object t, Object u);
+}
@@ -0,0 +1,23 @@
+package myAdapter;
+
+/**
+ * A function that accepts two arguments and produces a result. It is used by
+ * the compound operations of {@link HMap}, such as
+ * {@link HMap#compute(Object, HBiFunction)} and
+ * {@link HMap#merge(Object, Object, HBiFunction)}, to compute a new value from
+ * a key or a value and the current value.
+ *
+ * @see HFunction
+ */
+@FunctionalInterface
+public interface HBiFunction {
+
+    /**
+     * Applies this function to the given arguments.
+     *
+     * @param t the first function argument.
+     * @param u the second function argument.
+     * @return the function result.
+     */
+    Object apply(Object t, Object u);
+}
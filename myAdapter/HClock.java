@@ -0,0 +1,27 @@
+package myAdapter;
+
+/**
+ * A source of the current time in milliseconds. It is used by
+ * {@link ExpiringHMap} to decide when its mappings expire, so that tests and
+ * simulations can drive the time instead of waiting for it.
+ *
+ * @see ExpiringHMap
+ */
+@FunctionalInterface
+public interface HClock {
+
+    /**
+     * The clock of the running virtual machine, based on
+     * {@link System#nanoTime()}: it never goes backwards, but its origin is
+     * arbitrary.
+     */
+    HClock SYSTEM = () -> System.nanoTime() / 1_000_000;
+
+    /**
+     * Returns the current time in milliseconds. Only the differences between
+     * two returned times are meaningful.
+     *
+     * @return the current time in milliseconds.
+     */
+    long millis();
+}
@@ -0,0 +1,152 @@
+package myAdapter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A codec converting keys or values of a given type to and from a sequence of
+ * bytes, used by {@link OffHeapHMap} to store its mappings outside the Java
+ * heap.
+ *
+ * <p>An encoding must be canonical: two objects are equal if and only if
+ * their encodings are equal, since the map compares keys by their encoded
+ * bytes and never decodes them to look them up. The codecs for
+ * {@code String}, {@code Integer} and {@code Long} are provided as
+ * {@link #STRING}, {@link #INTEGER} and {@link #LONG}.</p>
+ *
+ * @see OffHeapHMap
+ */
+public interface HCodec {
+
+    /**
+     * Returns {@code true} if the object is of the type handled by this codec.
+     * Objects of other types are never contained in a map using the codec.
+     *
+     * @param o a non null object.
+     * @return {@code true} if the object can be encoded by this codec.
+     */
+    boolean accepts(Object o);
+
+    /**
+     * Returns the number of bytes of the encoding of the object.
+     *
+     * @param o an object accepted by this codec.
+     * @return the length of the encoding of the object.
+     *
+     * @throws ClassCastException if the object is not accepted by this codec.
+     */
+    int encodedSize(Object o);
+
+    /**
+     * Writes the encoding of the object at the position of the buffer,
+     * advancing the position by {@link #encodedSize(Object)} bytes.
+     *
+     * @param o   an object accepted by this codec.
+     * @param dst the buffer to write to.
+     *
+     * @throws ClassCastException if the object is not accepted by this codec.
+     */
+    void encode(Object o, ByteBuffer dst);
+
+    /**
+     * Reads an object from the {@code length} bytes starting at the position
+     * of the buffer. The position of the buffer may be changed.
+     *
+     * @param src    the buffer to read from.
+     * @param length the length of the encoding.
+     * @return the decoded object.
+     */
+    Object decode(ByteBuffer src, int length);
+
+    /**
+     * Codec of {@code String} instances, encoded in UTF-8. Strings holding an
+     * unpaired surrogate have no UTF-8 encoding and are not accepted, since
+     * replacing the surrogate would make distinct strings share an encoding.
+     */
+    HCodec STRING = new HCodec() {
+        public boolean accepts(Object o) {
+            return o instanceof String && utf8Length((String) o) >= 0;
+        }
+
+        public int encodedSize(Object o) {
+            int length = utf8Length((String) o);
+            if (length < 0) throw new ClassCastException("String with an unpaired surrogate");
+            return length;
+        }
+
+        public void encode(Object o, ByteBuffer dst) {
+            if (utf8Length((String) o) < 0) throw new ClassCastException("String with an unpaired surrogate");
+            dst.put(((String) o).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Object decode(ByteBuffer src, int length) {
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Codec of {@code Integer} instances, encoded in 4 bytes.
+     */
+    HCodec INTEGER = new HCodec() {
+        public boolean accepts(Object o) {
+            return o instanceof Integer;
+        }
+
+        public int encodedSize(Object o) {
+            if (!accepts(o)) throw new ClassCastException("Not an Integer: " + o.getClass().getName());
+            return Integer.BYTES;
+        }
+
+        public void encode(Object o, ByteBuffer dst) {
+            dst.putInt((Integer) o);
+        }
+
+        public Object decode(ByteBuffer src, int length) {
+            return src.getInt();
+        }
+    };
+
+    /**
+     * Codec of {@code Long} instances, encoded in 8 bytes.
+     */
+    HCodec LONG = new HCodec() {
+        public boolean accepts(Object o) {
+            return o instanceof Long;
+        }
+
+        public int encodedSize(Object o) {
+            if (!accepts(o)) throw new ClassCastException("Not a Long: " + o.getClass().getName());
+            return Long.BYTES;
+        }
+
+        public void encode(Object o, ByteBuffer dst) {
+            dst.putLong((Long) o);
+        }
+
+        public Object decode(ByteBuffer src, int length) {
+            return src.getLong();
+        }
+    };
+
+    /**
+     * Returns the length of the UTF-8 encoding of the string, or -1 if it
+     * holds an unpaired surrogate.
+     */
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) return -1;
+            else length += 3;
+        }
+        return length;
+    }
+}
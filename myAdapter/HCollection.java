@@ -1,5 +1,7 @@
 package myAdapter;
 
+import java.util.ConcurrentModificationException;
+
 /**
  * The root interface in the <i>collection hierarchy</i>.  A collection
  * represents a group of objects, known as its <i>elements</i>.  Some
@@ -342,6 +344,57 @@ public interface HCollection {
      */
     void clear();
 
+    // Internal Iteration
+
+    /**
+     * Performs the given action for each element of this collection until all
+     * the elements have been processed or the action throws an exception.
+     * Elements are processed in the order of the iterator. Exceptions thrown
+     * by the action are relayed to the caller.
+     *
+     * <p>The default implementation walks the collection with its iterator.
+     * Implementations that can walk their storage directly should override
+     * it.</p>
+     *
+     * @param action the action to be performed for each element.
+     *
+     * @throws NullPointerException            if the specified action is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the collection is modified
+     *                                         while it is being walked, where
+     *                                         detected.
+     */
+    default void forEach(HConsumer action) {
+        if (action == null) throw new NullPointerException();
+        HIterator iter = iterator();
+        while (iter.hasNext()) action.accept(iter.next());
+    }
+
+    /**
+     * Creates a spliterator over the elements of this collection, which can
+     * be split so that the elements are traversed in parallel.
+     *
+     * <p>The default implementation creates a spliterator from the
+     * collection's iterator. It is split by copying batches of elements into
+     * arrays, so implementations that can partition their storage directly
+     * should override it.</p>
+     *
+     * @return a spliterator over the elements of this collection.
+     */
+    default HSpliterator spliterator() {
+        return new IteratorSpliterator(this);
+    }
+
+    /**
+     * Returns a sequential {@link HPipeline} whose elements are the elements
+     * of this collection, to filter, map and reduce them lazily in a single
+     * pass.
+     *
+     * @return a pipeline over the elements of this collection.
+     */
+    default HPipeline pipeline() {
+        return HPipeline.of(this);
+    }
 
     // Comparison and hashing
 
@@ -0,0 +1,19 @@
+package myAdapter;
+
+/**
+ * An operation that accepts a single argument and returns no result. It is
+ * used by {@link HCollection#forEach(HConsumer)} to act on each element of a
+ * collection.
+ *
+ * @see HBiConsumer
+ */
+@FunctionalInterface
+public interface HConsumer {
+
+    /**
+     * Performs this operation on the given argument.
+     *
+     * @param t the input argument.
+     */
+    void accept(Object t);
+}
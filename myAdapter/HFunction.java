@@ -0,0 +1,21 @@
+package myAdapter;
+
+/**
+ * A function that accepts one argument and produces a result. It is used by
+ * the compound operations of {@link HMap}, such as
+ * {@link HMap#computeIfAbsent(Object, HFunction)}, to compute a value from a
+ * key.
+ *
+ * @see HBiFunction
+ */
+@FunctionalInterface
+public interface HFunction {
+
+    /**
+     * Applies this function to the given argument.
+     *
+     * @param t the function argument.
+     * @return the function result.
+     */
+    Object apply(Object t);
+}
@@ -0,0 +1,58 @@
+package myAdapter;
+
+/**
+ * A function computing the values of the keys missing from a
+ * {@link LoadingHMap}. Only {@link #load(Object)} must be implemented;
+ * loaders able to fetch several keys at once, for instance with a single
+ * query to a database, should also override {@link #loadAll(HCollection)}.
+ *
+ * <p>A loader reports a missing value by returning {@code null} and a failure
+ * by throwing an unchecked exception, which is thrown again to every caller
+ * waiting for the value.</p>
+ *
+ * @see LoadingHMap
+ * @see HFunction
+ */
+@FunctionalInterface
+public interface HLoader {
+
+    /**
+     * Computes the value of a key.
+     *
+     * @param key the key whose value is loaded.
+     * @return the value of the key, or {@code null} if it has none.
+     */
+    Object load(Object key);
+
+    /**
+     * Computes the values of several keys. The default implementation calls
+     * {@link #load(Object)} once for each key.
+     *
+     * @param keys the keys whose values are loaded.
+     * @return a map of the keys that have a value to their value. Other keys
+     * are ignored.
+     */
+    default HMap loadAll(HCollection keys) {
+        HMap values = new MapAdapter();
+        HIterator iter = keys.iterator();
+        while (iter.hasNext()) {
+            Object key = iter.next();
+            Object value = load(key);
+            if (value != null) values.put(key, value);
+        }
+        return values;
+    }
+
+    /**
+     * Computes a new value of a key whose current value is about to expire.
+     * The default implementation calls {@link #load(Object)}.
+     *
+     * @param key      the key whose value is reloaded.
+     * @param oldValue the current value of the key.
+     * @return the new value of the key, or {@code null} to keep the current
+     * one until it expires.
+     */
+    default Object reload(Object key, Object oldValue) {
+        return load(key);
+    }
+}
@@ -1,5 +1,7 @@
 package myAdapter;
 
+import java.util.ConcurrentModificationException;
+
 /**
  * An object that maps keys to values. A map cannot contain duplicate keys;
  * each key can map to at most one value.
@@ -318,6 +320,336 @@ public interface HMap {
      */
     int hashCode();
 
+    // Compound Operations
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method. Implementations that can look
+     * the key up only once, or that are thread safe, should override it.</p>
+     *
+     * @param key          the key whose associated value is to be returned.
+     * @param defaultValue the default mapping of the key.
+     * @return the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException   if the key is of an inappropriate type for
+     *                              this map (optional).
+     * @throws NullPointerException if the specified key is {@code null} and
+     *                              this map does not permit {@code null} keys
+     *                              (optional).
+     */
+    default Object getOrDefault(Object key, Object defaultValue) {
+        Object value = get(key);
+        return value != null || containsKey(key) ? value : defaultValue;
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}) associates it with the given value and returns
+     * {@code null}, else returns the current value (optional operation).
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the specified key or value is
+     *                                       {@code null}, and this map does
+     *                                       not permit {@code null} keys or
+     *                                       values.
+     */
+    default Object putIfAbsent(Object key, Object value) {
+        Object current = get(key);
+        if (current == null) current = put(key, value);
+        return current;
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently mapped
+     * to the specified value (optional operation).
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value expected to be associated with the specified key.
+     * @return {@code true} if the value was removed.
+     *
+     * @throws UnsupportedOperationException if the {@code remove} operation is
+     *                                       not supported by this map.
+     * @throws ClassCastException            if the key or value is of an
+     *                                       inappropriate type for this map
+     *                                       (optional).
+     * @throws NullPointerException          if the specified key or value is
+     *                                       {@code null}, and this map does
+     *                                       not permit {@code null} keys or
+     *                                       values (optional).
+     */
+    default boolean remove(Object key, Object value) {
+        Object current = get(key);
+        if (current == null ? value != null || !containsKey(key) : !current.equals(value)) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    /**
+     * Replaces the entry for the specified key only if it is currently mapped
+     * to some value (optional operation).
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the specified key or value is
+     *                                       {@code null}, and this map does
+     *                                       not permit {@code null} keys or
+     *                                       values.
+     */
+    default Object replace(Object key, Object value) {
+        return containsKey(key) ? put(key, value) : null;
+    }
+
+    /**
+     * Replaces the entry for the specified key only if currently mapped to the
+     * specified value (optional operation).
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key      key with which the specified value is associated.
+     * @param oldValue value expected to be associated with the specified key.
+     * @param newValue value to be associated with the specified key.
+     * @return {@code true} if the value was replaced.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of a specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if a specified key or value is
+     *                                       {@code null}, and this map does
+     *                                       not permit {@code null} keys or
+     *                                       values.
+     */
+    default boolean replace(Object key, Object oldValue, Object newValue) {
+        Object current = get(key);
+        if (current == null ? oldValue != null || !containsKey(key) : !current.equals(oldValue)) {
+            return false;
+        }
+        put(key, newValue);
+        return true;
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}), attempts to compute its value using the given
+     * mapping function and enters it into this map unless {@code null}
+     * (optional operation).
+     *
+     * <p>If the mapping function returns {@code null}, no mapping is recorded.
+     * The mapping function should not modify this map during computation.</p>
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key             key with which the computed value is to be
+     *                        associated.
+     * @param mappingFunction the function to compute a value.
+     * @return the current (existing or computed) value associated with the
+     * specified key, or {@code null} if the computed value is {@code null}.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the mapping function is
+     *                                       {@code null}, or the specified key
+     *                                       is {@code null} and this map does
+     *                                       not support {@code null} keys.
+     */
+    default Object computeIfAbsent(Object key, HFunction mappingFunction) {
+        if (mappingFunction == null) throw new NullPointerException();
+        Object current = get(key);
+        if (current == null) {
+            current = mappingFunction.apply(key);
+            if (current != null) put(key, current);
+        }
+        return current;
+    }
+
+    /**
+     * If the value for the specified key is present and non {@code null},
+     * attempts to compute a new mapping given the key and its current mapped
+     * value (optional operation).
+     *
+     * <p>If the remapping function returns {@code null}, the mapping is
+     * removed. The remapping function should not modify this map during
+     * computation.</p>
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key               key with which the specified value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the remapping function is
+     *                                       {@code null}, or the specified key
+     *                                       is {@code null} and this map does
+     *                                       not support {@code null} keys.
+     */
+    default Object computeIfPresent(Object key, HBiFunction remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        Object current = get(key);
+        if (current == null) return null;
+        Object value = remappingFunction.apply(key, current);
+        if (value == null) remove(key);
+        else put(key, value);
+        return value;
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its current
+     * mapped value, or {@code null} if there is no current mapping (optional
+     * operation).
+     *
+     * <p>If the remapping function returns {@code null}, the mapping is
+     * removed, or remains absent if initially absent. The remapping function
+     * should not modify this map during computation.</p>
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key               key with which the specified value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the remapping function is
+     *                                       {@code null}, or the specified key
+     *                                       is {@code null} and this map does
+     *                                       not support {@code null} keys.
+     */
+    default Object compute(Object key, HBiFunction remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        Object current = get(key);
+        Object value = remappingFunction.apply(key, current);
+        if (value != null) put(key, value);
+        else if (current != null || containsKey(key)) remove(key);
+        return value;
+    }
+
+    /**
+     * If the specified key is not already associated with a value or is
+     * associated with {@code null}, associates it with the given non
+     * {@code null} value. Otherwise, replaces the associated value with the
+     * results of the given remapping function, or removes it if the result is
+     * {@code null} (optional operation). This method may be of use when
+     * combining multiple mapped values for a key, for instance to count
+     * occurrences with {@code merge(key, 1, (a, b) -> (Integer) a + (Integer) b)}.
+     *
+     * <p>The remapping function should not modify this map during
+     * computation.</p>
+     *
+     * <p>The default implementation makes no guarantees about synchronization
+     * or atomicity properties of this method.</p>
+     *
+     * @param key               key with which the resulting value is to be
+     *                          associated.
+     * @param value             the non {@code null} value to be merged with
+     *                          the existing value associated with the key or,
+     *                          if no existing value is associated with the key,
+     *                          to be associated with the key.
+     * @param remappingFunction the function to recompute a value if present.
+     * @return the new value associated with the specified key, or
+     * {@code null} if no value is associated with the key.
+     *
+     * @throws UnsupportedOperationException if the {@code put} operation is not
+     *                                       supported by this map.
+     * @throws ClassCastException            if the class of the specified key
+     *                                       or value prevents it from being
+     *                                       stored in this map.
+     * @throws NullPointerException          if the specified value or the
+     *                                       remapping function is {@code null},
+     *                                       or the specified key is
+     *                                       {@code null} and this map does not
+     *                                       support {@code null} keys.
+     */
+    default Object merge(Object key, Object value, HBiFunction remappingFunction) {
+        if (value == null || remappingFunction == null) throw new NullPointerException();
+        Object current = get(key);
+        Object merged = current == null ? value : remappingFunction.apply(current, value);
+        if (merged == null) remove(key);
+        else put(key, merged);
+        return merged;
+    }
+
+    // Internal Iteration
+
+    /**
+     * Performs the given action for each mapping of this map until all the
+     * mappings have been processed or the action throws an exception.
+     * Mappings are processed in the order of the entry set's iterator.
+     * Exceptions thrown by the action are relayed to the caller.
+     *
+     * <p>The default implementation walks the entry set with its iterator.
+     * Implementations that can walk their storage directly, without
+     * allocating an iterator and an entry per mapping, should override
+     * it.</p>
+     *
+     * @param action the action to be performed for each mapping.
+     *
+     * @throws NullPointerException            if the specified action is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the map is modified while
+     *                                         it is being walked, where
+     *                                         detected.
+     */
+    default void forEach(HBiConsumer action) {
+        if (action == null) throw new NullPointerException();
+        HIterator iter = entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry entry = (HEntry) iter.next();
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * A map entry (key-value pair).  The {@code Map.entrySet} method returns a
      * collection-view of the map, whose elements are of this class.  The
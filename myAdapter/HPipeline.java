@@ -0,0 +1,367 @@
+package myAdapter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A lazy sequence of operations over the elements of an {@link HCollection},
+ * obtained from {@link HCollection#pipeline()}. Intermediate operations
+ * ({@link #filter(HPredicate)}, {@link #map(HFunction)}) only record a stage
+ * and return a new pipeline; nothing is evaluated until a terminal operation
+ * ({@link #forEach(HConsumer)}, {@link #count()},
+ * {@link #anyMatch(HPredicate)}, {@link #reduce(Object, HBiFunction)},
+ * {@link #toMap(HFunction, HFunction, HBiFunction)}) is called.
+ *
+ * <p>The stages are fused: every element of the source is pushed through all
+ * of them in a single pass over the source's {@link HSpliterator}, so no
+ * intermediate collection or array is created.</p>
+ *
+ * <p>A pipeline made {@link #parallel() parallel} splits the spliterator of
+ * its source and evaluates the parts as tasks of a {@link ForkJoinPool},
+ * combining their partial results in encounter order. The functions given to
+ * a parallel pipeline must then be safe to call from several threads, and
+ * the functions combining results, such as the accumulator of
+ * {@link #reduce(Object, HBiFunction)}, must be associative.</p>
+ *
+ * <p>A pipeline can be evaluated more than once, each terminal operation
+ * traversing the source again. The source must not be structurally modified
+ * while a terminal operation is running.</p>
+ *
+ * @see HCollection#pipeline()
+ * @see HSpliterator
+ */
+public final class HPipeline {
+
+    // Constants //
+
+    /** Number of leaf tasks per worker thread a parallel evaluation aims at. */
+    private static final int LEAVES_PER_THREAD = 4;
+
+    /** Smallest estimated number of elements of a leaf task. */
+    private static final long MIN_LEAF_SIZE = 1 << 10;
+
+    // Attributes //
+
+    private final HCollection source;
+
+    /** Previous pipeline, {@code null} for the head of the pipeline. */
+    private final HPipeline upstream;
+
+    /** Stage appended to the upstream pipeline, {@code null} for the head. */
+    private final Stage stage;
+
+    /** Pool evaluating the pipeline, {@code null} if sequential. */
+    private final ForkJoinPool pool;
+
+    // Constructors //
+
+    private HPipeline(HCollection source, HPipeline upstream, Stage stage, ForkJoinPool pool) {
+        this.source = source;
+        this.upstream = upstream;
+        this.stage = stage;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a sequential pipeline whose elements are the elements of the
+     * collection.
+     *
+     * @param source the collection providing the elements.
+     * @return a new sequential pipeline.
+     *
+     * @throws NullPointerException if the collection is {@code null}.
+     */
+    public static HPipeline of(HCollection source) {
+        if (source == null) throw new NullPointerException();
+        return new HPipeline(source, null, null, null);
+    }
+
+    // Intermediate operations //
+
+    /**
+     * Returns a pipeline of the elements of this pipeline matching the
+     * predicate.
+     *
+     * @param predicate the predicate an element must match to be kept.
+     * @return the new pipeline.
+     *
+     * @throws NullPointerException if the predicate is {@code null}.
+     */
+    public HPipeline filter(HPredicate predicate) {
+        if (predicate == null) throw new NullPointerException();
+        return then(sink -> e -> {
+            if (predicate.test(e)) sink.accept(e);
+        });
+    }
+
+    /**
+     * Returns a pipeline of the results of applying the function to the
+     * elements of this pipeline.
+     *
+     * @param mapper the function to apply to each element.
+     * @return the new pipeline.
+     *
+     * @throws NullPointerException if the function is {@code null}.
+     */
+    public HPipeline map(HFunction mapper) {
+        if (mapper == null) throw new NullPointerException();
+        return then(sink -> e -> sink.accept(mapper.apply(e)));
+    }
+
+    /**
+     * Returns an equivalent pipeline evaluated in parallel on the common
+     * {@link ForkJoinPool}.
+     *
+     * @return a parallel pipeline.
+     */
+    public HPipeline parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns an equivalent pipeline evaluated in parallel on the given pool.
+     *
+     * @param pool the pool running the tasks of the evaluation.
+     * @return a parallel pipeline.
+     *
+     * @throws NullPointerException if the pool is {@code null}.
+     */
+    public HPipeline parallel(ForkJoinPool pool) {
+        if (pool == null) throw new NullPointerException();
+        return new HPipeline(source, upstream, stage, pool);
+    }
+
+    /**
+     * Returns an equivalent pipeline evaluated sequentially in the calling
+     * thread.
+     *
+     * @return a sequential pipeline.
+     */
+    public HPipeline sequential() {
+        return pool == null ? this : new HPipeline(source, upstream, stage, null);
+    }
+
+    /**
+     * Returns {@code true} if the terminal operations of this pipeline are
+     * evaluated in parallel.
+     *
+     * @return {@code true} if this pipeline is parallel.
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    // Terminal operations //
+
+    /**
+     * Performs the action for each element of this pipeline. In a parallel
+     * pipeline the action is called from several threads, in no particular
+     * order.
+     *
+     * @param action the action to perform on each element.
+     *
+     * @throws NullPointerException if the action is {@code null}.
+     */
+    public void forEach(HConsumer action) {
+        if (action == null) throw new NullPointerException();
+        evaluate(new Terminal() {
+            Object run(HSpliterator spliterator) {
+                spliterator.forEachRemaining(wrap(action));
+                return null;
+            }
+
+            Object combine(Object left, Object right) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of elements of this pipeline.
+     *
+     * @return the number of elements.
+     */
+    public long count() {
+        return (Long) evaluate(new Terminal() {
+            Object run(HSpliterator spliterator) {
+                long[] count = new long[1];
+                spliterator.forEachRemaining(wrap(e -> count[0]++));
+                return count[0];
+            }
+
+            Object combine(Object left, Object right) {
+                return (Long) left + (Long) right;
+            }
+        });
+    }
+
+    /**
+     * Returns {@code true} if at least one element of this pipeline matches
+     * the predicate. The evaluation stops as soon as a matching element is
+     * found, in every task of a parallel pipeline.
+     *
+     * @param predicate the predicate to test the elements with.
+     * @return {@code true} if an element matches the predicate.
+     *
+     * @throws NullPointerException if the predicate is {@code null}.
+     */
+    public boolean anyMatch(HPredicate predicate) {
+        if (predicate == null) throw new NullPointerException();
+        return (Boolean) evaluate(new Terminal() {
+            volatile boolean found;
+
+            Object run(HSpliterator spliterator) {
+                HConsumer sink = wrap(e -> {
+                    if (predicate.test(e)) found = true;
+                });
+                while (!found && spliterator.tryAdvance(sink)) { }
+                return found;
+            }
+
+            Object combine(Object left, Object right) {
+                return (Boolean) left || (Boolean) right;
+            }
+        });
+    }
+
+    /**
+     * Reduces the elements of this pipeline with the accumulator, starting
+     * from the identity. A parallel pipeline reduces each part from the
+     * identity and combines the partial results with the accumulator, so the
+     * identity must be neutral for the accumulator and the accumulator must
+     * be associative.
+     *
+     * @param identity    the initial value of the reduction.
+     * @param accumulator the function combining a partial result with an
+     *                    element or with another partial result.
+     * @return the result of the reduction.
+     *
+     * @throws NullPointerException if the accumulator is {@code null}.
+     */
+    public Object reduce(Object identity, HBiFunction accumulator) {
+        if (accumulator == null) throw new NullPointerException();
+        return evaluate(new Terminal() {
+            Object run(HSpliterator spliterator) {
+                Object[] result = {identity};
+                spliterator.forEachRemaining(wrap(e -> result[0] = accumulator.apply(result[0], e)));
+                return result[0];
+            }
+
+            Object combine(Object left, Object right) {
+                return accumulator.apply(left, right);
+            }
+        });
+    }
+
+    /**
+     * Collects the elements of this pipeline into a new {@link MapAdapter},
+     * mapping the key computed from each element to the value computed from
+     * it. Values of the same key are merged with
+     * {@link HMap#merge(Object, Object, HBiFunction)}, so the merge function
+     * also combines the partial maps of a parallel pipeline and must be
+     * associative.
+     *
+     * @param keyMapper     the function computing the key of an element.
+     * @param valueMapper   the function computing the value of an element.
+     * @param mergeFunction the function merging two values of the same key.
+     * @return the map of the collected elements.
+     *
+     * @throws NullPointerException if a function is {@code null}, or a
+     *                              function returns a {@code null} key or
+     *                              value.
+     */
+    public HMap toMap(HFunction keyMapper, HFunction valueMapper, HBiFunction mergeFunction) {
+        if (keyMapper == null || valueMapper == null || mergeFunction == null) throw new NullPointerException();
+        return (HMap) evaluate(new Terminal() {
+            Object run(HSpliterator spliterator) {
+                MapAdapter map = new MapAdapter();
+                spliterator.forEachRemaining(wrap(e -> map.merge(keyMapper.apply(e), valueMapper.apply(e), mergeFunction)));
+                return map;
+            }
+
+            Object combine(Object left, Object right) {
+                HMap map = (HMap) left;
+                ((HMap) right).forEach((k, v) -> map.merge(k, v, mergeFunction));
+                return map;
+            }
+        });
+    }
+
+    // Internals //
+
+    /**
+     * Returns a pipeline with the stage appended to this one.
+     */
+    private HPipeline then(Stage next) {
+        return new HPipeline(source, this, next, pool);
+    }
+
+    /**
+     * Wraps the sink of a terminal operation with the stages of the
+     * pipeline, the last stage being the innermost.
+     */
+    private HConsumer wrap(HConsumer sink) {
+        for (HPipeline p = this; p.stage != null; p = p.upstream) sink = p.stage.wrap(sink);
+        return sink;
+    }
+
+    /**
+     * Evaluates the terminal operation over the whole source, sequentially
+     * or splitting the source into tasks of the pool.
+     */
+    private Object evaluate(Terminal terminal) {
+        HSpliterator spliterator = source.spliterator();
+        if (pool == null) return terminal.run(spliterator);
+        long leaf = spliterator.estimateSize() / ((long) pool.getParallelism() * LEAVES_PER_THREAD);
+        return pool.invoke(new Task(terminal, spliterator, Math.max(leaf, MIN_LEAF_SIZE)));
+    }
+
+    /**
+     * An intermediate operation, turning the sink of the following stages
+     * into the sink of the previous one.
+     */
+    private interface Stage {
+        HConsumer wrap(HConsumer sink);
+    }
+
+    /**
+     * A terminal operation: how to compute the result of a part of the source
+     * and how to combine the results of two adjacent parts.
+     */
+    private abstract static class Terminal {
+        abstract Object run(HSpliterator spliterator);
+
+        abstract Object combine(Object left, Object right);
+    }
+
+    /**
+     * A task splitting its part of the source while it is larger than the
+     * leaf size, forking a task for the first half.
+     */
+    private static final class Task extends RecursiveTask<Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Terminal terminal;
+        private final HSpliterator spliterator;
+        private final long leafSize;
+
+        Task(Terminal terminal, HSpliterator spliterator, long leafSize) {
+            this.terminal = terminal;
+            this.spliterator = spliterator;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected Object compute() {
+            HSpliterator prefix;
+            if (spliterator.estimateSize() > leafSize && (prefix = spliterator.trySplit()) != null) {
+                Task left = new Task(terminal, prefix, leafSize);
+                left.fork();
+                Object right = new Task(terminal, spliterator, leafSize).compute();
+                return terminal.combine(left.join(), right);
+            }
+            return terminal.run(spliterator);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package myAdapter;
+
+/**
+ * A boolean-valued function of one argument. It is used by {@link HPipeline}
+ * to select the elements passing a filter or matching a condition.
+ *
+ * @see HFunction
+ */
+@FunctionalInterface
+public interface HPredicate {
+
+    /**
+     * Evaluates this predicate on the given argument.
+     *
+     * @param t the input argument.
+     * @return {@code true} if the input argument matches the predicate.
+     */
+    boolean test(Object t);
+}
@@ -0,0 +1,65 @@
+package myAdapter;
+
+/**
+ * An object for traversing and partitioning the elements of a collection.
+ * Unlike {@link HIterator}, a spliterator can hand part of its elements off
+ * to another spliterator with {@link #trySplit()}, so that the parts can be
+ * traversed in parallel, for instance by the tasks of a
+ * {@link java.util.concurrent.ForkJoinPool}, each part by a single thread.
+ *
+ * <p>A spliterator is not thread safe: each one must be used by one thread
+ * at a time. The behavior of a spliterator is undefined if the collection it
+ * covers is structurally modified while it is being traversed.</p>
+ *
+ * @see HCollection#spliterator()
+ * @see HIterator
+ */
+public interface HSpliterator {
+
+    /**
+     * If a remaining element exists, performs the given action on it and
+     * returns {@code true}, else returns {@code false}.
+     *
+     * @param action the action to be performed on the next element.
+     * @return {@code false} if no remaining elements existed.
+     *
+     * @throws NullPointerException if the specified action is {@code null}.
+     */
+    boolean tryAdvance(HConsumer action);
+
+    /**
+     * Performs the given action for each remaining element, sequentially in
+     * the current thread, until all elements have been processed or the
+     * action throws an exception.
+     *
+     * <p>The default implementation repeatedly calls
+     * {@link #tryAdvance(HConsumer)} until it returns {@code false}.</p>
+     *
+     * @param action the action to be performed for each element.
+     *
+     * @throws NullPointerException if the specified action is {@code null}.
+     */
+    default void forEachRemaining(HConsumer action) {
+        while (tryAdvance(action)) { }
+    }
+
+    /**
+     * If this spliterator can be partitioned, returns a spliterator covering
+     * part of its elements, which will not be covered by this spliterator
+     * anymore. Otherwise returns {@code null}. Repeated calls eventually
+     * return {@code null}.
+     *
+     * @return a spliterator covering some portion of the elements, or
+     * {@code null} if this spliterator cannot be split.
+     */
+    HSpliterator trySplit();
+
+    /**
+     * Returns an estimate of the number of elements that would be encountered
+     * by {@link #forEachRemaining(HConsumer)}. The estimate is used to decide
+     * whether splitting is worthwhile and need not be exact.
+     *
+     * @return the estimated number of remaining elements.
+     */
+    long estimateSize();
+}
@@ -0,0 +1,68 @@
+package myAdapter;
+
+/**
+ * A function assigning a weight to a mapping. It is used by the caches, such
+ * as {@link TinyLfuHMap}, to bound the total weight of their mappings instead
+ * of their number.
+ *
+ * @see HBiFunction
+ */
+@FunctionalInterface
+public interface HWeigher {
+
+    /**
+     * A weigher estimating the heap retained by the key and the value of a
+     * mapping, in bytes. Strings, boxed primitives and arrays of primitives
+     * are counted with their contents, assuming compact strings of one byte
+     * per character; arrays of references are counted without the objects
+     * they refer to, and any other object as an empty object. Weights over
+     * {@link Integer#MAX_VALUE} are capped.
+     */
+    HWeigher HEAP = (key, value) -> (int) Math.min(Integer.MAX_VALUE, heapSize(key) + heapSize(value));
+
+    /**
+     * Returns the weight of the mapping, which must not change while the
+     * mapping is in the cache.
+     *
+     * @param key   the key of the mapping.
+     * @param value the value of the mapping.
+     * @return the weight of the mapping, zero or positive.
+     */
+    int weigh(Object key, Object value);
+
+    /**
+     * Returns the estimated size in bytes of an object, see {@link #HEAP}.
+     */
+    private static long heapSize(Object o) {
+        final int header = OpenHashTable.ARRAY_HEADER;
+        long bytes;
+        if (o instanceof String) {
+            // The String object, then its byte array
+            return OpenHashTable.align(OpenHashTable.OBJECT_HEADER + 10)
+                    + OpenHashTable.align(header + ((String) o).length());
+        } else if (o instanceof byte[]) {
+            bytes = header + ((byte[]) o).length;
+        } else if (o instanceof boolean[]) {
+            bytes = header + ((boolean[]) o).length;
+        } else if (o instanceof char[]) {
+            bytes = header + 2L * ((char[]) o).length;
+        } else if (o instanceof short[]) {
+            bytes = header + 2L * ((short[]) o).length;
+        } else if (o instanceof int[]) {
+            bytes = header + 4L * ((int[]) o).length;
+        } else if (o instanceof float[]) {
+            bytes = header + 4L * ((float[]) o).length;
+        } else if (o instanceof long[]) {
+            bytes = header + 8L * ((long[]) o).length;
+        } else if (o instanceof double[]) {
+            bytes = header + 8L * ((double[]) o).length;
+        } else if (o instanceof Object[]) {
+            bytes = header + (long) OpenHashTable.REFERENCE * ((Object[]) o).length;
+        } else if (o instanceof Long || o instanceof Double) {
+            bytes = OpenHashTable.OBJECT_HEADER + 8;
+        } else {
+            bytes = OpenHashTable.OBJECT_HEADER + 4;
+        }
+        return OpenHashTable.align(bytes);
+    }
+}
@@ -0,0 +1,344 @@
+package myAdapter;
+
+/**
+ * A map from primitive {@code int} keys to primitive {@code int} values. Keys
+ * and values are stored unboxed in two parallel {@code int[]} arrays, so a
+ * mapping costs two {@code int}s and one state byte instead of two boxed
+ * objects and a hash table node. The unboxed operations {@link #get(int)},
+ * {@link #put(int, int)}, {@link #remove(int)} and {@link #containsKey(int)}
+ * never allocate.
+ *
+ * <p>Since a primitive value cannot be {@code null}, the unboxed operations
+ * return the map's <i>no entry value</i>, chosen at construction time and 0 by
+ * default, when the key has no mapping; {@link #containsKey(int)}
+ * distinguishes a missing key from a key mapped to that value.</p>
+ *
+ * <p>The map also implements {@link HMap}: the {@code Object} based methods
+ * accept and return {@code Integer} instances and the views return boxed keys and
+ * values, so the map can be used wherever an {@code HMap} is expected. Keys
+ * and values of other types are never contained in the map and are rejected
+ * by {@link #put(Object, Object)} with a {@code ClassCastException}.</p>
+ *
+ * <p>Collisions are resolved by linear probing and removed mappings leave a
+ * tombstone in the slot state array, purged when the table is rebuilt. The
+ * map is not synchronized.</p>
+ *
+ * @see HMap
+ * @see MapAdapter
+ */
+public class IntIntHMap extends AbstractPrimitiveHMap {
+
+    // Attributes //
+
+    private int[] keys;
+    private int[] values;
+    private final int noEntryValue;
+
+    // Constructors //
+
+    /**
+     * Creates a new empty map with the default capacity and 0 as no entry
+     * value.
+     */
+    public IntIntHMap() {
+        this(DEFAULT_CAPACITY, 0);
+    }
+
+    /**
+     * Creates a new empty map that can hold {@code initialCapacity} mappings
+     * without growing, with 0 as no entry value.
+     *
+     * @param initialCapacity The number of mappings the map can hold before
+     *                        growing
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntIntHMap(int initialCapacity) {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * Creates a new empty map that can hold {@code initialCapacity} mappings
+     * without growing, given the value returned by the unboxed operations
+     * for keys without a mapping.
+     *
+     * @param initialCapacity The number of mappings the map can hold before
+     *                        growing
+     * @param noEntryValue    The value returned for keys without a mapping
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntIntHMap(int initialCapacity, int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(slotsFor(initialCapacity));
+    }
+
+    /**
+     * Creates a new map with the same mappings of the given map, whose keys
+     * and values must be {@code Integer} instances.
+     *
+     * @param map The map to copy the data from.
+     *
+     * @throws NullPointerException if the map is {@code null} or contains
+     *                              {@code null} values.
+     * @throws ClassCastException   if a key or a value of the map is not a
+     *                              {@code Integer}.
+     */
+    public IntIntHMap(HMap map) {
+        this(map.size(), 0);
+        putAll(map);
+    }
+
+    // Unboxed methods //
+
+    /**
+     * Returns the value returned by the unboxed operations for keys without a
+     * mapping.
+     *
+     * @return the no entry value of this map.
+     */
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Returns the value mapped to the key, or the no entry value if the map
+     * contains no mapping for the key.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value mapped to the key, or the no entry value.
+     */
+    public int get(int key) {
+        int slot = find(key);
+        return slot < 0 ? noEntryValue : values[slot];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the key.
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the value.
+     * This operation requires time linear in the map size.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the value.
+     */
+    public boolean containsValue(int value) {
+        for (int i = nextSlot(0); i < states.length; i = nextSlot(i + 1)) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous mapping of the
+     * key.
+     *
+     * @param key   key with which the value is to be associated.
+     * @param value value to be associated with the key.
+     * @return the value previously mapped to the key, or the no entry value.
+     */
+    public int put(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        int free = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == REMOVED) {
+                if (free < 0) free = slot;
+            } else if (keys[slot] == key) {
+                int old = values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Reusing a tombstone does not change the used slot count
+        if (free >= 0) slot = free;
+        else used++;
+        keys[slot] = key;
+        values[slot] = value;
+        states[slot] = FULL;
+        size++;
+        if (used > threshold) rebuild();
+        return noEntryValue;
+    }
+
+    /**
+     * Removes the mapping of the key if present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return the value previously mapped to the key, or the no entry value.
+     */
+    public int remove(int key) {
+        int slot = find(key);
+        if (slot < 0) return noEntryValue;
+        removeAt(slot);
+        // Removal only marks the slot, the value is still readable
+        return values[slot];
+    }
+
+    // HMap methods //
+
+    /**
+     * Returns the boxed value to which this map maps the specified key, which
+     * is expected to be a {@code Integer}.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public Object get(Object key) {
+        if (key == null) throw new NullPointerException();
+        if (!(key instanceof Integer)) return null;
+        int slot = find(((Integer) key).intValue());
+        return slot < 0 ? null : (Object) values[slot];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key, which is expected to be a {@code Integer}.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public boolean containsKey(Object key) {
+        if (key == null) throw new NullPointerException();
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value, which is expected to be a {@code Integer}. This operation requires
+     * time linear in the map size.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        return value instanceof Integer && containsValue(((Integer) value).intValue());
+    }
+
+    /**
+     * Associates the specified {@code Integer} value with the specified
+     * {@code Integer} key.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if {@code key} or {@code value} is null.
+     * @throws ClassCastException   if {@code key} or {@code value} is not a
+     *                              {@code Integer}.
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        int k = ((Integer) key).intValue();
+        int v = ((Integer) value).intValue();
+        int slot = find(k);
+        if (slot < 0) {
+            put(k, v);
+            return null;
+        }
+        int old = values[slot];
+        values[slot] = v;
+        return old;
+    }
+
+    /**
+     * Removes the mapping for the specified key, which is expected to be a
+     * {@code Integer}, from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with a specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if the key is {@code null}
+     */
+    public Object remove(Object key) {
+        if (key == null) throw new NullPointerException();
+        if (!(key instanceof Integer)) return null;
+        int slot = find(((Integer) key).intValue());
+        if (slot < 0) return null;
+        removeAt(slot);
+        // Removal only marks the slot, the value is still readable
+        return values[slot];
+    }
+
+    // Slot accessors //
+
+    @Override
+    Object keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    Object valueAt(int slot) {
+        return values[slot];
+    }
+
+    // Internals //
+
+    /**
+     * Returns the slot holding the key, or -1 if the key is not present.
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the table dropping the tombstones.
+     */
+    private void rebuild() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(rebuildSlots());
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] != FULL) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (states[slot] != FREE) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            states[slot] = FULL;
+            size++;
+            used++;
+        }
+    }
+
+    /**
+     * Replaces the storage with empty arrays of the given number of slots.
+     */
+    private void allocate(int slots) {
+        allocateStates(slots);
+        keys = new int[slots];
+        values = new int[slots];
+    }
+}
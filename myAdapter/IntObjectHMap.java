@@ -0,0 +1,300 @@
+package myAdapter;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive {@code int} keys to object values. Keys are stored
+ * unboxed in a {@code int[]} parallel to the value array, so a mapping costs
+ * one {@code int}, one reference and one state byte instead of a boxed key
+ * and a hash table node. The unboxed operations {@link #get(int)},
+ * {@link #put(int, Object)}, {@link #remove(int)} and
+ * {@link #containsKey(int)} never allocate.
+ *
+ * <p>The map also implements {@link HMap}: the {@code Object} based methods
+ * accept {@code Integer} keys and the views return boxed keys, so the map can be
+ * used wherever an {@code HMap} is expected. Keys of other types are never
+ * contained in the map and are rejected by {@link #put(Object, Object)} with
+ * a {@code ClassCastException}.</p>
+ *
+ * <p>Collisions are resolved by linear probing and removed mappings leave a
+ * tombstone in the slot state array, purged when the table is rebuilt. Null
+ * values are not supported. The map is not synchronized.</p>
+ *
+ * @see HMap
+ * @see MapAdapter
+ */
+public class IntObjectHMap extends AbstractPrimitiveHMap {
+
+    // Attributes //
+
+    private int[] keys;
+    private Object[] values;
+
+    // Constructors //
+
+    /**
+     * Creates a new empty map with the default capacity.
+     */
+    public IntObjectHMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty map that can hold {@code initialCapacity} mappings
+     * without growing.
+     *
+     * @param initialCapacity The number of mappings the map can hold before
+     *                        growing
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntObjectHMap(int initialCapacity) {
+        allocate(slotsFor(initialCapacity));
+    }
+
+    /**
+     * Creates a new map with the same mappings of the given map, whose keys
+     * must be {@code Integer} instances.
+     *
+     * @param map The map to copy the data from.
+     *
+     * @throws NullPointerException if the map is {@code null} or contains
+     *                              {@code null} values.
+     * @throws ClassCastException   if a key of the map is not a {@code Integer}.
+     */
+    public IntObjectHMap(HMap map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    // Unboxed methods //
+
+    /**
+     * Returns the value mapped to the key, or {@code null} if the map contains
+     * no mapping for the key.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value mapped to the key, or {@code null}.
+     */
+    public Object get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the key.
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous mapping of the
+     * key.
+     *
+     * @param key   key with which the value is to be associated.
+     * @param value value to be associated with the key.
+     * @return the value previously mapped to the key, or {@code null}.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public Object put(int key, Object value) {
+        if (value == null) throw new NullPointerException("Value must not be null.");
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        int free = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == REMOVED) {
+                if (free < 0) free = slot;
+            } else if (keys[slot] == key) {
+                Object old = values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Reusing a tombstone does not change the used slot count
+        if (free >= 0) slot = free;
+        else used++;
+        keys[slot] = key;
+        values[slot] = value;
+        states[slot] = FULL;
+        size++;
+        if (used > threshold) rebuild();
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key if present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return the value previously mapped to the key, or {@code null}.
+     */
+    public Object remove(int key) {
+        int slot = find(key);
+        if (slot < 0) return null;
+        Object old = values[slot];
+        removeAt(slot);
+        return old;
+    }
+
+    // HMap methods //
+
+    /**
+     * Returns the value to which this map maps the specified key, which is
+     * expected to be a {@code Integer}.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public Object get(Object key) {
+        if (key == null) throw new NullPointerException();
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key, which is expected to be a {@code Integer}.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public boolean containsKey(Object key) {
+        if (key == null) throw new NullPointerException();
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value. This operation requires time linear in the map size.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        for (int i = nextSlot(0); i < states.length; i = nextSlot(i + 1)) {
+            if (value.equals(values[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified {@code Integer} key.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if {@code key} or {@code value} is null.
+     * @throws ClassCastException   if {@code key} is not a {@code Integer}.
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        return put(((Integer) key).intValue(), value);
+    }
+
+    /**
+     * Removes the mapping for the specified key, which is expected to be a
+     * {@code Integer}, from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with a specified key, or {@code null}
+     * if there was no mapping for key.
+     *
+     * @throws NullPointerException if the key is {@code null}
+     */
+    public Object remove(Object key) {
+        if (key == null) throw new NullPointerException();
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    /**
+     * Removes all mappings from this map.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(values, null);
+    }
+
+    // Slot accessors //
+
+    @Override
+    Object keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    Object valueAt(int slot) {
+        return values[slot];
+    }
+
+    @Override
+    void removeAt(int slot) {
+        super.removeAt(slot);
+        values[slot] = null;
+    }
+
+    // Internals //
+
+    /**
+     * Returns the slot holding the key, or -1 if the key is not present.
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the table dropping the tombstones.
+     */
+    private void rebuild() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(rebuildSlots());
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] != FULL) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (states[slot] != FREE) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            states[slot] = FULL;
+            size++;
+            used++;
+        }
+    }
+
+    /**
+     * Replaces the storage with empty arrays of the given number of slots.
+     */
+    private void allocate(int slots) {
+        allocateStates(slots);
+        keys = new int[slots];
+        values = new Object[slots];
+    }
+}
@@ -0,0 +1,123 @@
+package myAdapter;
+
+/**
+ * The spliterator returned by default by {@link HCollection#spliterator()},
+ * built on the collection's iterator. An iterator cannot be split, so every
+ * {@link #trySplit()} copies the next batch of elements into an array and
+ * returns a spliterator over the array, which can in turn be split in
+ * halves. Batches grow arithmetically so that the cost of copying is
+ * amortized over large collections while small ones still get split.
+ */
+final class IteratorSpliterator implements HSpliterator {
+
+    // Constants //
+
+    /** Growth of the size of successive batches. */
+    private static final int BATCH_UNIT = 1 << 10;
+
+    /** Largest size of a batch. */
+    private static final int MAX_BATCH = 1 << 25;
+
+    // Attributes //
+
+    private final HCollection collection;
+    private HIterator iterator;
+    private long estimate;
+    private int batch;
+
+    /** Elements of an array spliterator, {@code null} for an iterator one. */
+    private final Object[] array;
+    private int index;
+    private final int fence;
+
+    // Constructors //
+
+    /**
+     * Creates a spliterator over the elements of the collection. The iterator
+     * and the size of the collection are obtained on first use.
+     *
+     * @param collection the collection to traverse.
+     */
+    IteratorSpliterator(HCollection collection) {
+        this.collection = collection;
+        this.estimate = -1;
+        this.array = null;
+        this.fence = 0;
+    }
+
+    /**
+     * Creates a spliterator over a range of an array.
+     */
+    private IteratorSpliterator(Object[] array, int origin, int fence) {
+        this.collection = null;
+        this.array = array;
+        this.index = origin;
+        this.fence = fence;
+    }
+
+    // Methods //
+
+    @Override
+    public boolean tryAdvance(HConsumer action) {
+        if (action == null) throw new NullPointerException();
+        if (array != null) {
+            if (index >= fence) return false;
+            action.accept(array[index++]);
+            return true;
+        }
+        bind();
+        if (!iterator.hasNext()) return false;
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(HConsumer action) {
+        if (action == null) throw new NullPointerException();
+        if (array != null) {
+            while (index < fence) action.accept(array[index++]);
+            return;
+        }
+        bind();
+        while (iterator.hasNext()) action.accept(iterator.next());
+    }
+
+    @Override
+    public HSpliterator trySplit() {
+        if (array != null) {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            IteratorSpliterator prefix = new IteratorSpliterator(array, index, mid);
+            index = mid;
+            return prefix;
+        }
+        bind();
+        if (estimate <= 1 || !iterator.hasNext()) return null;
+        int n = (int) Math.min(Math.min(batch + BATCH_UNIT, MAX_BATCH), estimate);
+        Object[] elements = new Object[n];
+        int count = 0;
+        while (count < n && iterator.hasNext()) elements[count++] = iterator.next();
+        batch = count;
+        estimate -= count;
+        return new IteratorSpliterator(elements, 0, count);
+    }
+
+    @Override
+    public long estimateSize() {
+        if (array != null) return fence - index;
+        bind();
+        return estimate;
+    }
+
+    // Internals //
+
+    /**
+     * Obtains the iterator and the size of the collection on first use.
+     */
+    private void bind() {
+        if (iterator == null) {
+            iterator = collection.iterator();
+            estimate = collection.size();
+        }
+    }
+}
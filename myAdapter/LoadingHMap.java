@@ -0,0 +1,623 @@
+package myAdapter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A view of a cache, any {@link HMap}, that loads the values of the missing
+ * keys with an {@link HLoader} when they are read with {@link #get(Object)}
+ * or {@link #getAll(HCollection)}. All the other operations, including the
+ * default compound operations of {@link HMap}, are those of the cache and
+ * never load.
+ *
+ * <p>Loads are <i>single-flight</i>: while the value of a key is being
+ * loaded, the other threads missing the same key do not call the loader
+ * again but wait for the value being loaded, sharing its future, and receive
+ * the same value or the same exception. {@link #getAll(HCollection)} loads
+ * all the keys that are neither cached nor being loaded with a single call
+ * of {@link HLoader#loadAll(HCollection)}, and waits for the others. A loaded
+ * value is put into the cache before the waiting threads are released; a
+ * value put into the cache while its key is being loaded is replaced by the
+ * loaded one.</p>
+ *
+ * <p>When the cache is an {@link ExpiringHMap}, the map can also
+ * <i>refresh</i> its values ahead of their expiration: a value read when it
+ * has less than a given time to live left is reloaded with
+ * {@link HLoader#reload(Object, Object)} by an {@link Executor}, while the
+ * readers keep getting the current value without waiting. A miss of a key
+ * being refreshed waits for the refresh.</p>
+ *
+ * <p>The map is as thread-safe as its cache: the loads in flight are tracked
+ * under their own lock, which is never held while calling the loader. Keys
+ * and values must not be null.</p>
+ *
+ * @see HLoader
+ * @see ExpiringHMap
+ */
+public class LoadingHMap implements HMap {
+
+    // Attributes //
+
+    private final HMap cache;
+    private final HLoader loader;
+
+    /** Futures of the loads and refreshes in flight, by key. */
+    private final OpenHashTable loading = new OpenHashTable();
+
+    /** Time to live under which a value is refreshed, or -1 for never. */
+    private final long refreshAhead;
+    private final Executor executor;
+
+    private final AtomicLong loads = new AtomicLong();
+
+    // Constructors //
+
+    /**
+     * Creates a map loading the values missing from the cache with the given
+     * loader.
+     *
+     * @param cache  the map storing the loaded values.
+     * @param loader the function computing the missing values.
+     *
+     * @throws NullPointerException if the cache or the loader is
+     *                              {@code null}.
+     */
+    public LoadingHMap(HMap cache, HLoader loader) {
+        if (cache == null || loader == null) throw new NullPointerException();
+        this.cache = cache;
+        this.loader = loader;
+        this.refreshAhead = -1;
+        this.executor = null;
+    }
+
+    /**
+     * Creates a map loading the values missing from the cache with the given
+     * loader, and reloading with the executor the values read when they
+     * expire in less than {@code refreshAhead} milliseconds.
+     *
+     * @param cache        the map storing the loaded values.
+     * @param loader       the function computing the missing values.
+     * @param refreshAhead the time to live in milliseconds under which a
+     *                     value read is refreshed.
+     * @param executor     the executor running the refreshes.
+     *
+     * @throws NullPointerException     if an argument is {@code null}.
+     * @throws IllegalArgumentException if {@code refreshAhead} is negative.
+     */
+    public LoadingHMap(ExpiringHMap cache, HLoader loader, long refreshAhead, Executor executor) {
+        if (cache == null || loader == null || executor == null) throw new NullPointerException();
+        if (refreshAhead < 0) throw new IllegalArgumentException("Illegal refresh time: " + refreshAhead);
+        this.cache = cache;
+        this.loader = loader;
+        this.refreshAhead = refreshAhead;
+        this.executor = executor;
+    }
+
+    // Methods //
+
+    /**
+     * Returns the value of the key, loading it if the cache has none. If the
+     * key is already being loaded, waits for that load instead of starting
+     * another one.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value of the key, or {@code null} if the loader found none.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     * @throws RuntimeException     the exception thrown by the loader or the
+     *                              cache, if the load failed.
+     */
+    public Object get(Object key) {
+        if (key == null) throw new NullPointerException();
+        Object value = cache.get(key);
+        if (value != null) {
+            if (refreshAhead >= 0) refreshIfNeeded(key, value);
+            return value;
+        }
+        Load future;
+        boolean owner = false;
+        synchronized (loading) {
+            future = (Load) loading.get(key);
+            if (future == null) {
+                future = new Load();
+                loading.put(key, future);
+                owner = true;
+            }
+        }
+        if (!owner) return join(future);
+        // Any failure, of the loader or of the cache, must end the load
+        try {
+            // The key may have been loaded between the miss and the lock
+            value = cache.containsKey(key) ? cache.get(key) : null;
+            if (value == null) {
+                loads.incrementAndGet();
+                value = loader.load(key);
+                if (value != null) cache.put(key, value);
+            }
+        } catch (Throwable e) {
+            fail(key, future, e);
+            throw e;
+        }
+        finish(key, future, value);
+        return value;
+    }
+
+    /**
+     * Returns the value of the key if the cache has one, without loading
+     * it.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the cached value of the key, or {@code null}.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public Object getIfPresent(Object key) {
+        if (key == null) throw new NullPointerException();
+        return cache.get(key);
+    }
+
+    /**
+     * Returns the values of the given keys, loading the missing ones with a
+     * single call of {@link HLoader#loadAll(HCollection)}. Keys already being
+     * loaded are not loaded again, their loads are waited for.
+     *
+     * @param keys the keys whose values are returned.
+     * @return a new map of the keys that have a value to their value.
+     *
+     * @throws NullPointerException if the collection or one of its keys is
+     *                              {@code null}.
+     * @throws RuntimeException     the exception thrown by the loader or the
+     *                              cache, if a load failed.
+     */
+    public HMap getAll(HCollection keys) {
+        if (keys == null) throw new NullPointerException();
+        HIterator iter = keys.iterator();
+        while (iter.hasNext()) {
+            if (iter.next() == null) throw new NullPointerException();
+        }
+        MapAdapter result = new MapAdapter();
+        MapAdapter owned = new MapAdapter();
+        MapAdapter waited = new MapAdapter();
+        // Any failure, while registering the keys or loading them, must end
+        // all the loads owned so far
+        try {
+            iter = keys.iterator();
+            while (iter.hasNext()) {
+                Object key = iter.next();
+                if (result.containsKey(key) || owned.containsKey(key) || waited.containsKey(key)) continue;
+                Object value = cache.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                    continue;
+                }
+                synchronized (loading) {
+                    Load future = (Load) loading.get(key);
+                    if (future == null) {
+                        future = new Load();
+                        owned.put(key, future);
+                        loading.put(key, future);
+                    } else {
+                        waited.put(key, future);
+                    }
+                }
+            }
+            if (!owned.isEmpty()) loadOwned(owned, result);
+        } catch (Throwable e) {
+            HIterator failed = owned.entrySet().iterator();
+            while (failed.hasNext()) {
+                HEntry entry = (HEntry) failed.next();
+                fail(entry.getKey(), (Load) entry.getValue(), e);
+            }
+            throw e;
+        }
+        HIterator waits = waited.entrySet().iterator();
+        while (waits.hasNext()) {
+            HEntry entry = (HEntry) waits.next();
+            Object value = join((Load) entry.getValue());
+            if (value != null) result.put(entry.getKey(), value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of calls made to the loader, counting each call of
+     * {@link HLoader#loadAll(HCollection)} and each refresh once.
+     *
+     * @return the number of calls made to the loader.
+     */
+    public long loadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Returns the map storing the loaded values.
+     *
+     * @return the cache of this map.
+     */
+    public HMap cache() {
+        return cache;
+    }
+
+    // Delegation //
+
+    /**
+     * Returns the number of key-value mappings of the cache.
+     *
+     * @return the number of key-value mappings of the cache.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns {@code true} if the cache contains no key-value mappings.
+     *
+     * @return {@code true} if the cache contains no key-value mappings.
+     */
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if the cache contains a mapping for the specified
+     * key, without loading it.
+     *
+     * @param key key whose presence in the cache is to be tested.
+     * @return {@code true} if the cache contains a mapping for the key.
+     */
+    public boolean containsKey(Object key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Returns {@code true} if the cache maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in the cache is to be tested.
+     * @return {@code true} if the cache maps one or more keys to the value.
+     */
+    public boolean containsValue(Object value) {
+        return cache.containsValue(value);
+    }
+
+    /**
+     * Associates the specified value with the specified key in the cache. A
+     * load of the key in flight replaces the value when it ends.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return previous value associated with the key in the cache, or
+     * {@code null}.
+     */
+    public Object put(Object key, Object value) {
+        return cache.put(key, value);
+    }
+
+    /**
+     * Removes the mapping for this key from the cache if it is present.
+     *
+     * @param key key whose mapping is to be removed from the cache.
+     * @return previous value associated with the key in the cache, or
+     * {@code null}.
+     */
+    public Object remove(Object key) {
+        return cache.remove(key);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to the cache.
+     *
+     * @param t Mappings to be stored in the cache.
+     */
+    public void putAll(HMap t) {
+        cache.putAll(t);
+    }
+
+    /**
+     * Removes all mappings from the cache. Loads in flight are not
+     * cancelled.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the key set view of the cache.
+     *
+     * @return a set view of the keys contained in the cache.
+     */
+    public HSet keySet() {
+        return cache.keySet();
+    }
+
+    /**
+     * Returns the value collection view of the cache.
+     *
+     * @return a collection view of the values contained in the cache.
+     */
+    public HCollection values() {
+        return cache.values();
+    }
+
+    /**
+     * Returns the entry set view of the cache.
+     *
+     * @return a set view of the mappings contained in the cache.
+     */
+    public HSet entrySet() {
+        return cache.entrySet();
+    }
+
+    /**
+     * Returns the value of the key in the cache, or {@code defaultValue} if
+     * it has none, without loading it.
+     *
+     * @param key          the key whose associated value is to be returned.
+     * @param defaultValue the default mapping of the key.
+     * @return the cached value of the key, or {@code defaultValue}.
+     */
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return cache.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Calls {@link HMap#putIfAbsent(Object, Object)} on the cache.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        return cache.putIfAbsent(key, value);
+    }
+
+    /**
+     * Calls {@link HMap#remove(Object, Object)} on the cache.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value expected to be associated with the specified key.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        return cache.remove(key, value);
+    }
+
+    /**
+     * Calls {@link HMap#replace(Object, Object)} on the cache.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value to be associated with the specified key.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object replace(Object key, Object value) {
+        return cache.replace(key, value);
+    }
+
+    /**
+     * Calls {@link HMap#replace(Object, Object, Object)} on the cache.
+     *
+     * @param key      key with which the specified value is associated.
+     * @param oldValue value expected to be associated with the specified key.
+     * @param newValue value to be associated with the specified key.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        return cache.replace(key, oldValue, newValue);
+    }
+
+    /**
+     * Calls {@link HMap#computeIfAbsent(Object, HFunction)} on the cache: the
+     * function is used instead of the loader.
+     *
+     * @param key             key with which the computed value is to be
+     *                        associated.
+     * @param mappingFunction the function computing the value.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object computeIfAbsent(Object key, HFunction mappingFunction) {
+        return cache.computeIfAbsent(key, mappingFunction);
+    }
+
+    /**
+     * Calls {@link HMap#computeIfPresent(Object, HBiFunction)} on the cache.
+     *
+     * @param key               key whose value is recomputed.
+     * @param remappingFunction the function computing the new value.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object computeIfPresent(Object key, HBiFunction remappingFunction) {
+        return cache.computeIfPresent(key, remappingFunction);
+    }
+
+    /**
+     * Calls {@link HMap#compute(Object, HBiFunction)} on the cache.
+     *
+     * @param key               key whose value is computed.
+     * @param remappingFunction the function computing the new value.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object compute(Object key, HBiFunction remappingFunction) {
+        return cache.compute(key, remappingFunction);
+    }
+
+    /**
+     * Calls {@link HMap#merge(Object, Object, HBiFunction)} on the cache.
+     *
+     * @param key               key whose value is merged.
+     * @param value             the value to merge.
+     * @param remappingFunction the function merging the values.
+     * @return the result of the operation on the cache.
+     */
+    @Override
+    public Object merge(Object key, Object value, HBiFunction remappingFunction) {
+        return cache.merge(key, value, remappingFunction);
+    }
+
+    /**
+     * Performs the given action for each mapping of the cache.
+     *
+     * @param action The action to be performed for each mapping.
+     */
+    @Override
+    public void forEach(HBiConsumer action) {
+        cache.forEach(action);
+    }
+
+    /**
+     * Compares the specified object with the cache for equality.
+     *
+     * @param o object to be compared for equality with the cache.
+     * @return {@code true} if the specified object is equal to the cache.
+     */
+    public boolean equals(Object o) {
+        return o == this || cache.equals(o);
+    }
+
+    /**
+     * Returns the hash code value of the cache.
+     *
+     * @return the hash code value of the cache.
+     */
+    public int hashCode() {
+        return cache.hashCode();
+    }
+
+    /**
+     * Returns the string representation of the cache.
+     *
+     * @return the string representation of the cache.
+     */
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+
+    // Internals //
+
+    /**
+     * Loads the keys owned by the caller with a single call of the loader,
+     * completing their futures and adding their values to the result. If
+     * the loader, its result or the cache fails, the caller fails the owned
+     * loads.
+     */
+    private void loadOwned(MapAdapter owned, MapAdapter result) {
+        MapAdapter loaded = new MapAdapter();
+        loads.incrementAndGet();
+        HMap values = loader.loadAll(owned.keySet());
+        HIterator iter = owned.keySet().iterator();
+        while (iter.hasNext()) {
+            Object key = iter.next();
+            Object value = values == null ? null : values.get(key);
+            if (value != null) {
+                cache.put(key, value);
+                loaded.put(key, value);
+            }
+        }
+        iter = owned.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry entry = (HEntry) iter.next();
+            Object value = loaded.get(entry.getKey());
+            if (value != null) result.put(entry.getKey(), value);
+            finish(entry.getKey(), (Load) entry.getValue(), value);
+        }
+    }
+
+    /**
+     * Submits a refresh of the key if its value expires soon and the key is
+     * not already being loaded. If the executor rejects the refresh, the
+     * refresh fails without affecting the caller, which keeps the cached
+     * value; a later read submits it again.
+     */
+    private void refreshIfNeeded(Object key, Object value) {
+        long timeToLive = ((ExpiringHMap) cache).timeToLive(key);
+        if (timeToLive < 0 || timeToLive > refreshAhead) return;
+        Load future;
+        synchronized (loading) {
+            if (loading.containsKey(key)) return;
+            future = new Load();
+            loading.put(key, future);
+        }
+        try {
+            executor.execute(() -> {
+                Object refreshed;
+                try {
+                    loads.incrementAndGet();
+                    refreshed = loader.reload(key, value);
+                    if (refreshed != null) cache.put(key, refreshed);
+                    else refreshed = cache.get(key);
+                } catch (Throwable e) {
+                    fail(key, future, e);
+                    return;
+                }
+                finish(key, future, refreshed);
+            });
+        } catch (RuntimeException e) {
+            // The caller already has a live value
+            fail(key, future, e);
+        } catch (Error e) {
+            fail(key, future, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ends a load that produced a value, or {@code null}, releasing its
+     * waiters.
+     */
+    private void finish(Object key, Load future, Object value) {
+        release(key, future);
+        future.complete(value);
+    }
+
+    /**
+     * Ends a load that failed, releasing its waiters with the exception.
+     */
+    private void fail(Object key, Load future, Throwable failure) {
+        release(key, future);
+        future.completeExceptionally(failure);
+    }
+
+    /**
+     * Removes the load of the key from the loads in flight, unless another
+     * load has replaced it.
+     */
+    private void release(Object key, Load future) {
+        synchronized (loading) {
+            if (loading.get(key) == future) loading.remove(key);
+        }
+    }
+
+    /**
+     * Waits for a load and returns its value, throwing again the exception of
+     * the loader if it failed.
+     */
+    private static Object join(Load future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    // Inner classes //
+
+    /**
+     * Future of a load or a refresh in flight, shared by all the callers
+     * waiting for its value.
+     */
+    private static final class Load extends CompletableFuture<Object> {
+    }
+}
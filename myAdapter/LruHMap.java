@@ -0,0 +1,129 @@
+package myAdapter;
+
+import java.util.ConcurrentModificationException;
+
+/**
+ * A size-bounded implementation of {@link HMap} meant to be used as a cache:
+ * once the map holds its maximum number of mappings, putting a new key
+ * evicts the <i>least recently used</i> mapping. A mapping is used when it is
+ * put or read with {@link #get(Object)}; {@link #containsKey(Object)},
+ * {@link #peek(Object)} and the views do not count as uses.
+ *
+ * <p>The mappings are linked in a doubly linked list in access order, from
+ * the least to the most recently used, and are located through an
+ * {@link OpenHashTable} mapping each key to its node of the list. Moving a
+ * used mapping to the end of the list, and evicting the one at its head, take
+ * constant time, so the map never needs a separate pass to bound its
+ * size.</p>
+ *
+ * <p>The map can be bounded by the total weight of its mappings instead of
+ * their number, each mapping being weighed by an {@link HWeigher}, for
+ * instance by the estimated heap retained by its key and value with
+ * {@link HWeigher#HEAP}. The current weight is returned by
+ * {@link #weightedSize()} and the heap retained by the structure of the map
+ * by {@link #footprint()}.</p>
+ *
+ * <p>An optional <i>eviction listener</i> is called with the key and the
+ * value of every evicted mapping, after the lock of the map has been
+ * released, so it can safely use the map. It is not called for mappings
+ * removed explicitly or by {@link #clear()}. The map counts the hits and the
+ * misses of {@link #get(Object)} and the evictions, see {@link #hitCount()},
+ * {@link #missCount()} and {@link #evictionCount()}.</p>
+ *
+ * <p>All the operations are synchronized on the map. The compound
+ * operations are the default ones of {@link HMap}: each of their steps is
+ * atomic, but not the operation as a whole. The views return the mappings
+ * from the least to the most recently used; their iterators are fail-fast and
+ * throw {@link ConcurrentModificationException} if the map is modified, or a
+ * mapping is used, other than through the iterator itself. As
+ * {@link MapAdapter}, the map does not support null keys nor null
+ * values.</p>
+ *
+ * @see HMap
+ * @see TinyLfuHMap
+ */
+public class LruHMap extends AbstractCacheHMap {
+
+    // Constants //
+
+    /** The only queue, in access order. */
+    private static final int QUEUE = 0;
+
+    // Constructors //
+
+    /**
+     * Creates an empty map holding at most {@code maximumSize} mappings and
+     * without eviction listener.
+     *
+     * @param maximumSize The maximum number of mappings of the map
+     *
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public LruHMap(int maximumSize) {
+        this(maximumSize, null);
+    }
+
+    /**
+     * Creates an empty map holding at most {@code maximumSize} mappings and
+     * calling the given listener for every evicted mapping.
+     *
+     * @param maximumSize      The maximum number of mappings of the map
+     * @param evictionListener The action called with the key and the value of
+     *                         each evicted mapping, or {@code null} for none
+     *
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public LruHMap(int maximumSize, HBiConsumer evictionListener) {
+        super(maximumSize, null, evictionListener, 1);
+    }
+
+    /**
+     * Creates an empty map whose mappings weigh at most
+     * {@code maximumWeight} in total, calling the given listener for every
+     * evicted mapping. Putting a mapping evicts the least recently used ones
+     * until the map fits its maximum weight again; a mapping heavier than
+     * the map is evicted at once.
+     *
+     * @param maximumWeight    The maximum total weight of the mappings of
+     *                         the map
+     * @param weigher          The function weighing each mapping, for
+     *                         instance {@link HWeigher#HEAP}, or {@code null}
+     *                         to count the mappings
+     * @param evictionListener The action called with the key and the value of
+     *                         each evicted mapping, or {@code null} for none
+     *
+     * @throws IllegalArgumentException if the maximum weight is not positive.
+     */
+    public LruHMap(long maximumWeight, HWeigher weigher, HBiConsumer evictionListener) {
+        super(maximumWeight, weigher, evictionListener, 1);
+    }
+
+    // Methods //
+
+    /**
+     * Returns the maximum number of mappings of this map, or its maximum
+     * weight capped at {@link Integer#MAX_VALUE} if it has a weigher.
+     *
+     * @return the maximum number of mappings of this map.
+     */
+    public int maximumSize() {
+        return (int) Math.min(Integer.MAX_VALUE, maximumWeight());
+    }
+
+    // Policy //
+
+    @Override
+    void onInsert(Node node) {
+        link(QUEUE, node);
+    }
+
+    @Override
+    void onAccess(Node node) {
+        moveToTail(QUEUE, node);
+    }
+
+    @Override
+    void evictEntries() {
+        while (overweight()) evict(headOf(QUEUE));
+    }
+}
@@ -1,11 +1,18 @@
 package myAdapter;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 
 /**
- * A class that provides map functionality using Java ME CLDC 1.1 hash table. As
+ * A class that provides map functionality using an open addressing hash table
+ * that stores keys and values in two parallel arrays (see
+ * {@link OpenHashTable}), so no node object is allocated per mapping. The
+ * probe sequence used to resolve collisions can be chosen at construction
+ * time between {@link #LINEAR_PROBING} and {@link #QUADRATIC_PROBING}. The
+ * map can also be created with a value index, which makes
+ * {@link #containsValue(Object)} and {@code values().contains(Object)}
+ * constant time operations in exchange for the memory reported by
+ * {@link #valueIndexFootprint()}. As
  * a result of the underlying supporting structure, this implementation of the
  * map does not support null keys nor null values so
  * {@code NullPointerException} will be thrown on all methods for which that is
@@ -31,9 +38,23 @@ import java.util.NoSuchElementException;
  */
 public class MapAdapter implements HMap {
 
-    // Methods //
+    // Constants //
+
+    /**
+     * Collision resolution visiting consecutive slots of the hash table. This
+     * is the default probing.
+     */
+    public static final int LINEAR_PROBING = OpenHashTable.LINEAR;
+
+    /**
+     * Collision resolution visiting slots at growing (triangular) offsets of
+     * the hash table, which reduces clustering on poorly spread hash codes.
+     */
+    public static final int QUADRATIC_PROBING = OpenHashTable.QUADRATIC;
+
+    // Attributes //
 
-    private Hashtable<Object,Object> hashTable;
+    private OpenHashTable hashTable;
 
     // Constructors //
 
@@ -42,16 +63,55 @@ public class MapAdapter implements HMap {
      * for data storing.
      */
     public MapAdapter() {
-        this.hashTable = new Hashtable<>();
+        this.hashTable = new OpenHashTable();
     }
 
     /**
      * Creates a new instance of the hash table given an initial capacity.
      *
      * @param initialCapacity The initial capacity of the underlying hash table
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
      */
     public MapAdapter(int initialCapacity) {
-        this.hashTable = new Hashtable<>(initialCapacity);
+        this(initialCapacity, LINEAR_PROBING);
+    }
+
+    /**
+     * Creates a new instance of the hash table given an initial capacity and
+     * the probing used to resolve collisions.
+     *
+     * @param initialCapacity The initial capacity of the underlying hash table
+     * @param probing         Either {@link #LINEAR_PROBING} or
+     *                        {@link #QUADRATIC_PROBING}
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative or
+     *                                  the probing is not one of the supported
+     *                                  ones.
+     */
+    public MapAdapter(int initialCapacity, int probing) {
+        this(initialCapacity, probing, false);
+    }
+
+    /**
+     * Creates a new instance of the hash table given an initial capacity, the
+     * probing used to resolve collisions and whether to maintain a value
+     * index. The value index counts the occurrences of each value so that
+     * value membership is answered with a hash lookup instead of a scan of
+     * the whole map; it is updated on every write.
+     *
+     * @param initialCapacity The initial capacity of the underlying hash table
+     * @param probing         Either {@link #LINEAR_PROBING} or
+     *                        {@link #QUADRATIC_PROBING}
+     * @param indexValues     Whether to maintain the value index
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative or
+     *                                  the probing is not one of the supported
+     *                                  ones.
+     * @see #valueIndexFootprint()
+     */
+    public MapAdapter(int initialCapacity, int probing, boolean indexValues) {
+        this.hashTable = new OpenHashTable(initialCapacity, probing, indexValues);
     }
 
     /**
@@ -60,13 +120,33 @@ public class MapAdapter implements HMap {
      * structure, changes in the passed HMap's values and keys will then not
      * result in changes to the new created copied instance.
      *
+     * <p>If the passed map is a MapAdapter its table is cloned as a whole,
+     * which is much cheaper than inserting its mappings one by one; the copy
+     * then keeps the probing and the value index of the passed map.</p>
+     *
      * @param map The map to copy the data from.
+     *
+     * @throws NullPointerException if the passed map is {@code null}, or
+     *                              contains {@code null} keys or values.
      */
     public MapAdapter(HMap map) {
-        this.hashTable = new Hashtable<>();
+        if (map == null) throw new NullPointerException();
+        if (map instanceof MapAdapter) {
+            MapAdapter source = (MapAdapter) map;
+            this.hashTable = new OpenHashTable(source.hashTable, source.hasValueIndex());
+            return;
+        }
+        this.hashTable = new OpenHashTable();
         putAll(map);
     }
 
+    /**
+     * Creates a new instance backed by the given table.
+     */
+    private MapAdapter(OpenHashTable hashTable) {
+        this.hashTable = hashTable;
+    }
+
     // Methods //
 
     /**
@@ -81,9 +161,9 @@ public class MapAdapter implements HMap {
      * Returns {@code true} if this map maps one or more keys to the specified
      * value. More formally, returns {@code true} if and only if this map
      * contains at least one mapping to a value {@code v} such that
-     * {@code (value==null ? v==null : value.equals(v))}. This operation will
-     * probably require time linear in the map size for most implementations of
-     * the {@code Map} interface.
+     * {@code (value==null ? v==null : value.equals(v))}. This operation
+     * requires time linear in the map size unless the map was created with a
+     * value index, in which case it requires constant time.
      *
      * @param value value whose presence in this map is to be tested.
      * @return {@code true} if this map maps one or more keys to the specified
@@ -92,7 +172,7 @@ public class MapAdapter implements HMap {
      * @throws NullPointerException if the value is {@code null}.
      */
     public boolean containsValue(Object value) {
-        return hashTable.contains(value);
+        return hashTable.containsValue(value);
     }
 
     /**
@@ -139,11 +219,20 @@ public class MapAdapter implements HMap {
      * {@code equals} method works properly across different implementations of
      * the {@code Map} interface.
      *
+     * <p>If the specified object is also a {@code MapAdapter}, maps of
+     * different size or hash code are rejected without comparing their
+     * entries.</p>
+     *
      * @param o object to be compared for equality with this map.
      * @return {@code true} if the specified object is equal to this map.
      */
     public boolean equals(Object o) {
+        if (o == this) return true;
         if (!(o instanceof HMap)) return false;
+        if (o instanceof MapAdapter) {
+            MapAdapter other = (MapAdapter) o;
+            if (other.size() != size() || other.hashCode() != hashCode()) return false;
+        }
         return this.entrySet().equals(((HMap) o).entrySet());
     }
 
@@ -168,6 +257,30 @@ public class MapAdapter implements HMap {
         return hashTable.get(key);
     }
 
+    /**
+     * Looks up the specified keys, storing the value to which each key is
+     * mapped, or {@code null} if it is not mapped, at the same index of
+     * {@code out}. The lock of the table is taken once for the whole batch
+     * and the home slots of groups of keys are read together, so that their
+     * cache misses overlap, before the keys are compared.
+     *
+     * @param keys the keys whose associated values are to be returned.
+     * @param out  the array receiving the values, at least as long as
+     *             {@code keys}.
+     * @return the number of keys that are mapped in this map.
+     *
+     * @throws NullPointerException     if an array or a key is {@code null}.
+     * @throws IllegalArgumentException if {@code out} is shorter than
+     *                                  {@code keys}.
+     */
+    public int getAll(Object[] keys, Object[] out) {
+        if (keys == null || out == null) throw new NullPointerException();
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("The output array is shorter than the keys.");
+        }
+        return hashTable.getAll(keys, out);
+    }
+
     /**
      * Returns the hash code value for this map. The hash code of a map is
      * defined to be the sum of the hashCodes of each entry in the map's
@@ -175,6 +288,10 @@ public class MapAdapter implements HMap {
      * {@code t1.hashCode()==t2.hashCode()} for any two maps {@code t1} and
      * {@code t2}, as required by the general contract of Object.hashCode.
      *
+     * <p>The sum is updated by every write to the map, so this method
+     * requires constant time. The result is only correct if the hash codes of
+     * the keys and values do not change while they are in the map.</p>
+     *
      * @return the hash code value for this map.
      *
      * @see HMap.HEntry#hashCode()
@@ -183,7 +300,7 @@ public class MapAdapter implements HMap {
      * @see #equals(Object)
      */
     public int hashCode() {
-        return entrySet().hashCode();
+        return hashTable.entryHashSum();
     }
 
     /**
@@ -233,6 +350,29 @@ public class MapAdapter implements HMap {
         return hashTable.put(key, value);
     }
 
+    /**
+     * Maps each of the specified keys to the value at the same index of the
+     * specified values, replacing any previous mapping. The effect is that of
+     * calling {@link #put(Object, Object) put(keys[i], values[i])} for each
+     * index in order, but the lock of the table is taken once and the hashes
+     * of all the keys are computed up front. If an argument is invalid the
+     * map is left unchanged.
+     *
+     * @param keys   keys with which the values are to be associated.
+     * @param values values to be associated with the keys.
+     *
+     * @throws NullPointerException     if an array, a key or a value is
+     *                                  {@code null}.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public void putAll(Object[] keys, Object[] values) {
+        if (keys == null || values == null) throw new NullPointerException();
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values must have the same length.");
+        }
+        hashTable.putAll(keys, values);
+    }
+
     /**
      * Copies all of the mappings from the specified map to this map (optional
      * operation). The effect of this call is equivalent to that of calling
@@ -241,6 +381,11 @@ public class MapAdapter implements HMap {
      * of this operation is unspecified if the specified map is modified while
      * the operation is in progress.
      *
+     * <p>If the specified map is a MapAdapter this map is grown once to hold
+     * the mappings of both maps and, if this map is empty and uses the same
+     * probing, the table of the specified map is cloned instead of inserting
+     * its mappings one by one.</p>
+     *
      * @param t Mappings to be stored in this map.
      * @throws NullPointerException          the specified map is {@code null},
      *                                       or the specified map contains
@@ -250,14 +395,36 @@ public class MapAdapter implements HMap {
     public void putAll(HMap t) {
         if (t == null) throw new NullPointerException();
 
+        if (t instanceof MapAdapter) {
+            if (t == this) return;
+            OpenHashTable other = ((MapAdapter) t).hashTable;
+            if (isEmpty()) {
+                // Clone the other table holding only its lock, then take over
+                // the clone unless this map has been filled meanwhile
+                OpenHashTable copy = new OpenHashTable(other, false);
+                if (hashTable.adopt(copy)) return;
+                other = copy;
+            } else {
+                // Grow once up front instead of at every threshold crossed
+                hashTable.ensureCapacity(size() + other.size());
+            }
+            // Walk the other table directly, its mappings are never null
+            for (int i = other.nextSlot(0); i < other.capacity(); i = other.nextSlot(i + 1)) {
+                hashTable.put(other.keyAt(i), other.valueAt(i));
+            }
+            return;
+        }
+
         HSet entrySet = t.entrySet();
         HIterator iter = entrySet.iterator();
         while (iter.hasNext()) {
             HEntry current = (HEntry) iter.next();
-            if (current.getKey() == null || current.getValue() == null) {
+            Object key = current.getKey();
+            Object value = current.getValue();
+            if (key == null || value == null) {
                 throw new NullPointerException("Key and value must not be null.");
             }
-            put(current.getKey(), current.getValue());
+            put(key, value);
         }
     }
 
@@ -294,6 +461,22 @@ public class MapAdapter implements HMap {
         return hashTable.size();
     }
 
+    /**
+     * Returns a snapshot of this map: a new map holding the mappings of this
+     * one at the time of the call, with the same probing and value index.
+     * The snapshot is taken in constant time because the two maps share
+     * their storage, which is copied by whichever of them is modified first;
+     * from then on each map keeps its own. The snapshot has its own lock, so
+     * reading it never blocks the writers of this map.
+     *
+     * @return a snapshot of this map.
+     *
+     * @see #MapAdapter(HMap)
+     */
+    public MapAdapter snapshot() {
+        return new MapAdapter(hashTable.snapshot());
+    }
+
     /**
      * Returns a collection view of the values contained in this map. The
      * collection is backed by the map, so changes to the map are reflected in
@@ -311,6 +494,227 @@ public class MapAdapter implements HMap {
         return new ValueCollection();
     }
 
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key. The
+     * key is looked up once.
+     *
+     * @param key          the key whose associated value is to be returned.
+     * @param defaultValue the default mapping of the key.
+     * @return the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return hashTable.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * If the specified key is not already associated with a value associates
+     * it with the given value and returns {@code null}, else returns the
+     * current value. The key is looked up once and the check and the
+     * insertion are atomic.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        return hashTable.putIfAbsent(key, value);
+    }
+
+    /**
+     * Removes the entry for the specified key only if it is currently mapped
+     * to the specified value. The key is looked up once and the check and the
+     * removal are atomic.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value expected to be associated with the specified key.
+     * @return {@code true} if the value was removed.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        return hashTable.remove(key, value);
+    }
+
+    /**
+     * Replaces the entry for the specified key only if it is currently mapped
+     * to some value. The key is looked up once and the check and the
+     * replacement are atomic.
+     *
+     * @param key   key with which the specified value is associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    @Override
+    public Object replace(Object key, Object value) {
+        return hashTable.replace(key, value);
+    }
+
+    /**
+     * Replaces the entry for the specified key only if currently mapped to the
+     * specified value. The key is looked up once and the check and the
+     * replacement are atomic.
+     *
+     * @param key      key with which the specified value is associated.
+     * @param oldValue value expected to be associated with the specified key.
+     * @param newValue value to be associated with the specified key.
+     * @return {@code true} if the value was replaced.
+     *
+     * @throws NullPointerException if the key or a value is {@code null}.
+     */
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        return hashTable.replace(key, oldValue, newValue);
+    }
+
+    /**
+     * If the specified key is not already associated with a value, computes
+     * its value using the given mapping function and enters it into this map
+     * unless {@code null}. The key is looked up once and the whole operation,
+     * including the call to the function, is atomic.
+     *
+     * @param key             key with which the computed value is to be
+     *                        associated.
+     * @param mappingFunction the function to compute a value.
+     * @return the current (existing or computed) value associated with the
+     * specified key, or {@code null} if the computed value is {@code null}.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies this
+     *                                         map.
+     */
+    @Override
+    public Object computeIfAbsent(Object key, HFunction mappingFunction) {
+        return hashTable.computeIfAbsent(key, mappingFunction);
+    }
+
+    /**
+     * If the specified key is mapped, computes a new mapping given the key and
+     * its current value, removing the mapping if the function returns
+     * {@code null}. The key is looked up once and the whole operation,
+     * including the call to the function, is atomic.
+     *
+     * @param key               key with which the computed value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies this
+     *                                         map.
+     */
+    @Override
+    public Object computeIfPresent(Object key, HBiFunction remappingFunction) {
+        return hashTable.computeIfPresent(key, remappingFunction);
+    }
+
+    /**
+     * Computes a mapping for the specified key and its current value, or
+     * {@code null} if there is no current mapping. The mapping is removed, or
+     * not added, if the function returns {@code null}. The key is looked up
+     * once and the whole operation, including the call to the function, is
+     * atomic.
+     *
+     * @param key               key with which the computed value is to be
+     *                          associated.
+     * @param remappingFunction the function to compute a value.
+     * @return the new value associated with the specified key, or
+     * {@code null} if none.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies this
+     *                                         map.
+     */
+    @Override
+    public Object compute(Object key, HBiFunction remappingFunction) {
+        return hashTable.compute(key, remappingFunction);
+    }
+
+    /**
+     * If the specified key is not mapped, associates it with the given value.
+     * Otherwise, replaces the value with the result of the given function
+     * applied to the current and the given value, or removes the mapping if
+     * the result is {@code null}. The key is looked up once and the whole
+     * operation, including the call to the function, is atomic.
+     *
+     * @param key               key with which the resulting value is to be
+     *                          associated.
+     * @param value             the value to be merged with the existing value
+     *                          associated with the key or, if no existing value
+     *                          is associated with the key, to be associated
+     *                          with the key.
+     * @param remappingFunction the function to recompute a value if present.
+     * @return the new value associated with the specified key, or
+     * {@code null} if no value is associated with the key.
+     *
+     * @throws NullPointerException            if the key, the value or the
+     *                                         function is {@code null}.
+     * @throws ConcurrentModificationException if the function modifies this
+     *                                         map.
+     */
+    @Override
+    public Object merge(Object key, Object value, HBiFunction remappingFunction) {
+        return hashTable.merge(key, value, remappingFunction);
+    }
+
+    /**
+     * Performs the given action for each mapping of this map. The table is
+     * walked directly while holding its lock once, without allocating an
+     * iterator nor an entry per mapping. Mappings are processed in the order
+     * of the entry set's iterator.
+     *
+     * @param action the action to be performed for each mapping.
+     *
+     * @throws NullPointerException            if the action is {@code null}.
+     * @throws ConcurrentModificationException if the action adds or removes
+     *                                         a mapping.
+     */
+    @Override
+    public void forEach(HBiConsumer action) {
+        hashTable.forEach(action);
+    }
+
+    /**
+     * Returns {@code true} if this map maintains a value index.
+     *
+     * @return {@code true} if this map was created with a value index.
+     *
+     * @see #MapAdapter(int, int, boolean)
+     */
+    public boolean hasValueIndex() {
+        return hashTable.hasValueIndex();
+    }
+
+    /**
+     * Returns the estimated memory in bytes retained by the value index, that
+     * is the overhead paid for constant time value membership. Values are
+     * shared with the map and are not accounted. Returns 0 if this map does
+     * not maintain a value index.
+     *
+     * @return the estimated size of the value index in bytes.
+     *
+     * @see #MapAdapter(int, int, boolean)
+     */
+    public long valueIndexFootprint() {
+        return hashTable.valueIndexFootprint();
+    }
+
     /**
      * Returns a string representation of this map. The string representation
      * consists of a list of key-value mappings in the order returned by the map's
@@ -324,13 +728,11 @@ public class MapAdapter implements HMap {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
-        HIterator iter = entrySet().iterator();
-        while (iter.hasNext()) {
-            HEntry entry = (HEntry) iter.next();
-            sb.append(entry.toString());
-            if (iter.hasNext()) {
+        for (int i = hashTable.nextSlot(0); i < hashTable.capacity(); i = hashTable.nextSlot(i + 1)) {
+            if (sb.length() > 1) {
                 sb.append(", ");
             }
+            sb.append(hashTable.keyAt(i)).append('=').append(hashTable.valueAt(i));
         }
         sb.append("}");
         return sb.toString();
@@ -397,6 +799,12 @@ public class MapAdapter implements HMap {
          * Returns {@code true} if this collection contains all of the elements
          * in the specified collection.
          *
+         * <p>A set view answers {@code false} without looking at the elements
+         * when the specified collection is a larger set view of a map adapter,
+         * or a view of the same kind with the same size but a different hash
+         * code. A value collection without a value index counts its values
+         * once instead of scanning them for each element.</p>
+         *
          * @param c collection to be checked for containment in this
          *          collection.
          * @return {@code true} if this collection contains all of the elements
@@ -410,7 +818,26 @@ public class MapAdapter implements HMap {
          */
         @Override
         public boolean containsAll(HCollection c) {
+            if (c == null) throw new NullPointerException();
+            if (c == this) return true;
+            if (this instanceof HSet && c instanceof HSet && c instanceof AbstractView) {
+                // The elements of a set are distinct, so a larger one cannot
+                // be contained and one of the same size must be equal
+                int size = size();
+                if (c.size() > size) return false;
+                if (c.size() == size && c.getClass() == getClass() && c.hashCode() != hashCode()) return false;
+            }
             HIterator iter = c.iterator();
+            if (!hashedMembership()) {
+                ValueIndex elements = null;
+                while (iter.hasNext()) {
+                    Object current = iter.next();
+                    if (current == null) throw new NullPointerException();
+                    if (elements == null) elements = elements();
+                    if (!elements.contains(current)) return false;
+                }
+                return true;
+            }
             while (iter.hasNext()) {
                 if (!contains(iter.next())) return false;
             }
@@ -423,6 +850,17 @@ public class MapAdapter implements HMap {
          * this collection will contain no elements in common with the specified
          * collection.
          *
+         * <p>A set view iterates the specified collection removing each of its
+         * elements with a single lookup, unless the specified collection is a
+         * larger view of a map adapter answering {@code contains} with a hash
+         * lookup. In that case, and always for the value collection, the
+         * matching mappings are found in a single pass over the table and
+         * removed together. Unless the specified collection is a view of this
+         * same map, it is asked about the elements without holding the lock
+         * of this map, on a snapshot of the table, so that it may lock its own
+         * map. Elements that cannot be contained in this collection, such as
+         * {@code null}, are ignored.</p>
+         *
          * @param c elements to be removed from this collection.
          * @return {@code true} if this collection changed as a result of the
          * call
@@ -434,16 +872,17 @@ public class MapAdapter implements HMap {
          */
         @Override
         public boolean removeAll(HCollection c) {
-            boolean res = false;
-            HIterator iter = c.iterator();
-            while (iter.hasNext()) {
-                Object current = iter.next();
-                try {
-                    // Remove all occurrences of current
-                    while(remove(current)) res |= true;
-                } catch (Exception e) { }
+            if (c == null) throw new NullPointerException();
+            if (this instanceof HSet && !sameMap(c) && !(hashed(c) && c.size() > size())) {
+                boolean res = false;
+                HIterator iter = c.iterator();
+                while (iter.hasNext()) {
+                    Object current = iter.next();
+                    if (accepts(current)) res |= remove(current);
+                }
+                return res;
             }
-            return res;
+            return removeMatching(c, true);
         }
 
         /**
@@ -452,12 +891,19 @@ public class MapAdapter implements HMap {
          * removes from this collection all of its elements that are not
          * contained in the specified collection.
          *
+         * <p>The mappings to remove are found in a single pass over the table,
+         * testing each element with the {@code contains} method of the
+         * specified collection, and removed together. Unless the specified
+         * collection is a view of this same map, it is asked without holding
+         * the lock of this map, on a snapshot of the table, so that it may
+         * lock its own map. The whole operation takes linear time when the
+         * specified collection is a view of a map adapter answering
+         * {@code contains} with a hash lookup.</p>
+         *
          * @param c elements to be retained in this collection.
          * @return {@code true} if this collection changed as a result of the
          * call
          *
-         * @throws NullPointerException          if this collection contains one
-         *                                       or more null elements
          * @throws NullPointerException          if the specified collection is
          *                                       {@code null}.
          * @see #remove(Object)
@@ -466,15 +912,196 @@ public class MapAdapter implements HMap {
         @Override
         public boolean retainAll(HCollection c) {
             if (c == null) throw new NullPointerException();
-            boolean res = false;
-            HIterator iter = iterator();
-            while (iter.hasNext()) {
-                Object current = iter.next();
+            if (c == this) return false;
+            return removeMatching(c, false);
+        }
+
+        /**
+         * Performs the given action for each element of this collection. The
+         * table of the map is walked directly while holding its lock once,
+         * without allocating an iterator. Elements are processed in the order
+         * of the iterator.
+         *
+         * @param action the action to be performed for each element.
+         *
+         * @throws NullPointerException            if the action is
+         *                                         {@code null}.
+         * @throws ConcurrentModificationException if the action adds or
+         *                                         removes a mapping.
+         */
+        @Override
+        public void forEach(HConsumer action) {
+            if (action == null) throw new NullPointerException();
+            hashTable.forEach((key, value) -> action.accept(elementOf(key, value)));
+        }
+
+        /**
+         * Creates a spliterator over the elements of this collection. The
+         * spliterator covers a range of slots of the map's table and is split
+         * in two halves of the range, so no element is copied and the parts
+         * can be traversed in parallel. Like the iterators, the spliterator
+         * reads the table without locking and its behavior is undefined if a
+         * new key is inserted in the map while it is in use.
+         *
+         * @return a spliterator over the elements of this collection.
+         */
+        @Override
+        public HSpliterator spliterator() {
+            return new SlotSpliterator(0, -1);
+        }
+
+        /**
+         * Returns the element of this collection corresponding to a mapping.
+         */
+        abstract Object elementOf(Object key, Object value);
+
+        /**
+         * Returns {@code true} if the object may be an element of this
+         * collection, that is if {@code contains} would not throw.
+         */
+        boolean accepts(Object o) {
+            return o != null;
+        }
+
+        /**
+         * Returns {@code true} if {@code contains} is answered by a hash
+         * lookup rather than by a scan of the table.
+         */
+        boolean hashedMembership() {
+            return true;
+        }
+
+        /**
+         * Returns {@code true} if the collection is a view of a map adapter
+         * answering {@code contains} with a hash lookup.
+         */
+        private boolean hashed(HCollection c) {
+            return c instanceof AbstractView && ((AbstractView) c).hashedMembership();
+        }
+
+        /**
+         * Returns {@code true} if the collection is a view of this same map.
+         */
+        private boolean sameMap(HCollection c) {
+            return c instanceof AbstractView && ((AbstractView) c).map() == MapAdapter.this;
+        }
+
+        /**
+         * Returns the map this collection is a view of.
+         */
+        private MapAdapter map() {
+            return MapAdapter.this;
+        }
+
+        /**
+         * Removes the mappings whose element is, if {@code contained}, or is
+         * not contained in the collection. Only a view of this same map is
+         * asked about its elements while the table is locked; any other
+         * collection, which may lock another table, is asked without the lock
+         * so that two maps filtering each other cannot deadlock.
+         */
+        private boolean removeMatching(HCollection c, boolean contained) {
+            OpenHashTable.Filter filter = matching(c, contained);
+            return sameMap(c) ? hashTable.removeIf(filter) : hashTable.removeIfUnlocked(filter);
+        }
+
+        /**
+         * Returns a filter matching the mappings whose element is, if
+         * {@code contained}, or is not contained in the collection. An element
+         * that a view of a map adapter cannot contain is not contained in it;
+         * an element that makes another collection throw is never matched.
+         */
+        private OpenHashTable.Filter matching(HCollection c, boolean contained) {
+            if (c instanceof AbstractView) {
+                AbstractView view = (AbstractView) c;
+                return (key, value) -> {
+                    Object element = elementOf(key, value);
+                    return (view.accepts(element) && view.contains(element)) == contained;
+                };
+            }
+            return (key, value) -> {
                 try {
-                    if (!c.contains(current)) res |= remove(current);
-                } catch (NullPointerException npe) { }
+                    return c.contains(elementOf(key, value)) == contained;
+                } catch (ClassCastException | NullPointerException e) {
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Returns a temporary hash index of the elements of this collection.
+         */
+        private ValueIndex elements() {
+            ValueIndex elements = new ValueIndex(size());
+            for (int i = hashTable.nextSlot(0); i < hashTable.capacity(); i = hashTable.nextSlot(i + 1)) {
+                elements.add(elementOf(hashTable.keyAt(i), hashTable.valueAt(i)));
+            }
+            return elements;
+        }
+
+        /**
+         * A spliterator over a range of slots of the map's table. The end of
+         * the range of the spliterator created by the view is bound to the
+         * capacity of the table on first use.
+         */
+        private final class SlotSpliterator implements HSpliterator {
+
+            private int index;
+            private int fence;
+
+            private SlotSpliterator(int origin, int fence) {
+                this.index = origin;
+                this.fence = fence;
+            }
+
+            @Override
+            public boolean tryAdvance(HConsumer action) {
+                if (action == null) throw new NullPointerException();
+                int hi = fence();
+                int slot = hashTable.nextSlot(index, hi);
+                if (slot >= hi) {
+                    index = hi;
+                    return false;
+                }
+                index = slot + 1;
+                action.accept(elementOf(hashTable.keyAt(slot), hashTable.valueAt(slot)));
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(HConsumer action) {
+                if (action == null) throw new NullPointerException();
+                int hi = fence();
+                for (int slot = hashTable.nextSlot(index, hi); slot < hi; slot = hashTable.nextSlot(slot + 1, hi)) {
+                    action.accept(elementOf(hashTable.keyAt(slot), hashTable.valueAt(slot)));
+                }
+                index = hi;
+            }
+
+            @Override
+            public HSpliterator trySplit() {
+                int lo = index;
+                int mid = (lo + fence()) >>> 1;
+                if (mid <= lo) return null;
+                index = mid;
+                return new SlotSpliterator(lo, mid);
+            }
+
+            /**
+             * Estimates the remaining elements assuming the mappings are
+             * evenly spread over the slots.
+             */
+            @Override
+            public long estimateSize() {
+                int capacity = hashTable.capacity();
+                if (capacity == 0) return 0;
+                return (long) hashTable.size() * (fence() - index) / capacity;
+            }
+
+            private int fence() {
+                if (fence < 0) fence = hashTable.capacity();
+                return fence;
             }
-            return res;
         }
 
         /**
@@ -613,14 +1240,7 @@ public class MapAdapter implements HMap {
 
             if (entry.getKey()==null || entry.getValue()==null) throw new NullPointerException();
 
-            try {
-                return MapAdapter.this.containsKey(entry.getKey()) &&
-                        MapAdapter.this.get(entry.getKey()).equals(entry.getValue());
-            } catch (NullPointerException e) {
-                // Since MapAdapter does not support null keys or values
-                // null values or keys cannot be present in the map
-                return false;
-            }
+            return hashTable.containsEntry(entry.getKey(), entry.getValue());
         }
 
         /**
@@ -647,13 +1267,7 @@ public class MapAdapter implements HMap {
             
             if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
 
-            Object key = entry.getKey();
-            Object value = MapAdapter.this.get(key);
-
-            if (!MapAdapter.this.containsKey(key)) return false;
-            if (!value.equals(entry.getValue())) return false;
-
-            return MapAdapter.this.remove(key) != null;
+            return hashTable.remove(entry.getKey(), entry.getValue());
         }
 
         /**
@@ -668,6 +1282,30 @@ public class MapAdapter implements HMap {
             return new EntryIterator();
         }
 
+        @Override
+        Object elementOf(Object key, Object value) {
+            return new Entry(key, value);
+        }
+
+        @Override
+        boolean accepts(Object o) {
+            return o instanceof HEntry && ((HEntry) o).getKey() != null && ((HEntry) o).getValue() != null;
+        }
+
+        /**
+         * Returns the hash code value for this set, defined as the sum of the
+         * hash codes of its entries. The sum is maintained by the map on every
+         * write, so this method requires constant time.
+         *
+         * @return the hash code value for this set.
+         *
+         * @see HMap.HEntry#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hashTable.entryHashSum();
+        }
+
         /**
          * Compares the specified object with this set for equality. Returns
          * {@code true} if the specified object is also a set, the two sets have the
@@ -680,12 +1318,15 @@ public class MapAdapter implements HMap {
          * @return {@code true} if the specified Object is equal to this set.
          */
         public boolean equals(Object o) {
+            if (o == this) return true;
             if (!(o instanceof HSet)) return false;
             HSet other = (HSet) o;
 
             // Must check if the other view has the same size
             // otherwise one or the other could be a subset
-            return containsAll(other) && other.size() == size();
+            if (other.size() != size()) return false;
+            if (other instanceof EntrySet && other.hashCode() != hashCode()) return false;
+            return containsAll(other);
         }
 
     }
@@ -733,7 +1374,7 @@ public class MapAdapter implements HMap {
          */
         public boolean remove(Object o) {
             if (o == null) throw new NullPointerException();
-            return MapAdapter.this.remove(o) != null;
+            return hashTable.remove(o) != null;
         }
 
         /**
@@ -747,6 +1388,23 @@ public class MapAdapter implements HMap {
             return new KeyIterator();
         }
 
+        @Override
+        Object elementOf(Object key, Object value) {
+            return key;
+        }
+
+        /**
+         * Returns the hash code value for this set, defined as the sum of the
+         * hash codes of its keys. The sum is maintained by the map on every
+         * write, so this method requires constant time.
+         *
+         * @return the hash code value for this set.
+         */
+        @Override
+        public int hashCode() {
+            return hashTable.keyHashSum();
+        }
+
         /**
          * Compares the specified object with this set for equality. Returns
          * {@code true} if the specified object is also a set, the two sets have the
@@ -759,12 +1417,15 @@ public class MapAdapter implements HMap {
          * @return {@code true} if the specified Object is equal to this set.
          */
         public boolean equals(Object o) {
+            if (o == this) return true;
             if (!(o instanceof HSet)) return false;
             HSet other = (HSet) o;
 
             // Must check if the other view has the same size
             // otherwise one or the other could be a subset
-            return containsAll(other) && other.size() == size();
+            if (other.size() != size()) return false;
+            if (other instanceof KeySet && other.hashCode() != hashCode()) return false;
+            return containsAll(other);
         }
     }
 
@@ -788,8 +1449,7 @@ public class MapAdapter implements HMap {
          */
         @Override
         public boolean contains(Object o) {
-            if (o == null) throw new NullPointerException();
-            return hashTable.contains(o);
+            return hashTable.containsValue(o);
         }
 
         /**
@@ -853,6 +1513,16 @@ public class MapAdapter implements HMap {
          * interfaces.)
          * </p>
          *
+         * <p>
+         * This collection is equal to another collection that is not a set if
+         * both contain the same elements the same number of times. The
+         * comparison counts the occurrences of each value of this collection
+         * in a single pass over the map, then consumes the counts with the
+         * elements of the other collection, failing as soon as an element is
+         * not available. When the other collection is also a map value
+         * collection the sums of the hash codes are compared first.
+         * </p>
+         *
          * @param o Object to be compared for equality with this collection.
          * @return {@code true} if the specified object is equal to this collection
          *
@@ -860,17 +1530,19 @@ public class MapAdapter implements HMap {
          * @see HSet#equals(Object)
          */
         public boolean equals(Object o) {
+            if (o == this) return true;
             if (!(o instanceof HCollection)) return false;
             if (o instanceof HSet) return false;
 
             HCollection other = (HCollection) o;
             if (other.size() != size()) return false;
-            HCollection clone = new MapAdapter(MapAdapter.this).values();
-            HIterator iter = other.iterator();
-            while (iter.hasNext()) {
-                clone.remove(iter.next());
+            if (other instanceof ValueCollection && other.hashCode() != hashCode()) return false;
+
+            ValueIndex counts = new ValueIndex(size());
+            for (int i = hashTable.nextSlot(0); i < hashTable.capacity(); i = hashTable.nextSlot(i + 1)) {
+                counts.add(hashTable.valueAt(i));
             }
-            return clone.isEmpty();
+            return AbstractMapView.consumes(counts, other);
         }
 
         /**
@@ -886,18 +1558,40 @@ public class MapAdapter implements HMap {
             return new ValueIterator();
         }
 
+        @Override
+        Object elementOf(Object key, Object value) {
+            return value;
+        }
+
+        @Override
+        boolean hashedMembership() {
+            return hashTable.hasValueIndex();
+        }
+
+        /**
+         * Returns the hash code value for this collection, defined as the sum
+         * of the hash codes of its values. The sum is maintained by the map on
+         * every write, so this method requires constant time.
+         *
+         * @return the hash code value for this collection.
+         */
+        @Override
+        public int hashCode() {
+            return hashTable.valueHashSum();
+        }
+
 
     }
 
     // Iterator
 
-    @SuppressWarnings("rawtypes")
     public class EntryIterator implements HIterator {
 
         // Attributes //
 
-        private Entry current = null;
-        private Enumeration keys = hashTable.keys();
+        private Object currentKey = null;
+        private int currentSlot = -1;
+        private int cursor = 0;
 
         // Methods //
 
@@ -910,7 +1604,8 @@ public class MapAdapter implements HMap {
          */
         @Override
         public boolean hasNext() {
-            return keys.hasMoreElements();
+            cursor = hashTable.nextSlot(cursor);
+            return cursor < hashTable.capacity();
         }
 
         /**
@@ -922,8 +1617,24 @@ public class MapAdapter implements HMap {
          */
         @Override
         public Object next() {
-            current = new MapAdapter.Entry(keys.nextElement());
-            return current;
+            int slot = advance();
+            return new MapAdapter.Entry(currentKey, hashTable.valueAt(slot));
+        }
+
+        /**
+         * Moves the iteration to the next element, making it the one removed by
+         * {@link #remove()}, and returns the slot of the backing table holding
+         * it. Subclasses read the element they return straight from the slot.
+         *
+         * @return the slot of the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        final int advance() {
+            if (!hasNext()) throw new NoSuchElementException();
+            currentSlot = cursor++;
+            currentKey = hashTable.keyAt(currentSlot);
+            return currentSlot;
         }
 
         /**
@@ -943,9 +1654,12 @@ public class MapAdapter implements HMap {
          */
         @Override
         public void remove() {
-            if (current == null) throw new IllegalStateException();
-            MapAdapter.this.remove(current.getKey());
-            current = null;
+            if (currentKey == null) throw new IllegalStateException();
+            // The slot is stale if the table was rebuilt since the call to next
+            if (!hashTable.removeAt(currentSlot, currentKey)) {
+                MapAdapter.this.remove(currentKey);
+            }
+            currentKey = null;
         }
 
     }
@@ -963,7 +1677,7 @@ public class MapAdapter implements HMap {
          */
         @Override
         public Object next() {
-            return ((Entry) super.next()).getKey();
+            return hashTable.keyAt(advance());
         }
 
     }
@@ -981,20 +1695,23 @@ public class MapAdapter implements HMap {
          */
         @Override
         public Object next() {
-            return ((Entry) super.next()).getValue();
+            return hashTable.valueAt(advance());
         }
 
     }
 
     /**
      * {@code MapAdapter}'s entry implementation. This class represents a
-     * key-value pair in the map.
+     * key-value pair in the map. The entry carries the value it was created
+     * with, so reading it does not look the key up in the map again; the value
+     * is only updated by {@link #setValue(Object)}.
      */
     public class Entry implements HEntry {
 
         // Attributes //
 
         private final Object key;
+        private Object value;
 
         // Constructors //
 
@@ -1005,8 +1722,9 @@ public class MapAdapter implements HMap {
          * @param key   The key to create the entry instance with
          * @param value The value to create the entry instance with
          */
-        private Entry(Object key) {
+        private Entry(Object key, Object value) {
             this.key = key;
+            this.value = value;
         }
 
         // Methods //
@@ -1030,17 +1748,19 @@ public class MapAdapter implements HMap {
          */
         @Override
         public Object getValue() {
-            return MapAdapter.this.get(this.key);
+            return this.value;
         }
 
         /**
          * Replaces the value corresponding to this entry with the specified
-         * value (optional operation).  (Writes through to the map.) The
-         * behavior of this call is undefined if the mapping has already been
-         * removed from the map (by the iterator's {@code remove} operation).
+         * value (optional operation).  (Writes through to the map.) The value
+         * is only replaced if the key is still mapped: if the mapping has
+         * already been removed from the map the map is left unchanged and
+         * {@code null} is returned.
          *
          * @param value new value to be stored in this entry.
-         * @return old value corresponding to the entry.
+         * @return old value corresponding to the entry, or {@code null} if the
+         * mapping has been removed.
          *
          * @throws NullPointerException          the backing map does not permit
          *                                       {@code null} values, and the
@@ -1049,7 +1769,9 @@ public class MapAdapter implements HMap {
          */
         @Override
         public Object setValue(Object value) {
-            return MapAdapter.this.put(this.key, value);
+            Object old = hashTable.replace(this.key, value);
+            this.value = value;
+            return old;
         }
 
         /**
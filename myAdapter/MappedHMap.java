@@ -0,0 +1,473 @@
+package myAdapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent map whose mappings live in a memory-mapped file. Reopening the
+ * file after {@link #sync()} or {@link #close()} makes the map usable
+ * immediately: nothing is read up front, and the pages of the file are
+ * faulted in by the operating system as they are accessed.
+ *
+ * <p>Keys and values are serialized by an {@link HCodec} into a log of
+ * records, mapped in regions of {@value #REGION_SIZE} bytes. Records are only
+ * ever appended: replacing a value appends a new record and removing a key
+ * appends a removal record. The hash index described by
+ * {@link AbstractRecordHMap} is mapped from a companion file, named after the
+ * map file with the {@code .index} suffix, and is a cache of the log that can
+ * always be rebuilt from it.</p>
+ *
+ * <p>The file starts with two copies of a header, written alternately by
+ * {@link #sync()}, each holding a generation number, the length of the
+ * committed log, the size of the map and a checksum. {@code sync()} forces
+ * the log to the storage before writing the next header, so the header with
+ * the highest generation and a valid checksum always describes a complete
+ * log. When the map is opened its index is used as is only if it was synced
+ * with that same header; after a crash, or if the index file is missing, the
+ * index is rebuilt by replaying the committed log, and the map is restored to
+ * its state at the last {@code sync()}.</p>
+ *
+ * <p>Since the log is never rewritten, the file grows with every update;
+ * copying the map into a new file drops the superseded records. Records
+ * larger than a region are not supported. Objects returned by the map are
+ * decoded copies of the stored ones. Null keys and values are not supported
+ * and the map is not synchronized.</p>
+ *
+ * @see HCodec
+ * @see OffHeapHMap
+ */
+public class MappedHMap extends AbstractRecordHMap implements AutoCloseable {
+
+    // Constants //
+
+    /** Size of a mapped region of the log. */
+    static final int REGION_SIZE = 1 << 24;
+
+    private static final int MAGIC = 0x484D4150;
+    private static final int FORMAT = 1;
+
+    /** Bytes reserved at the start of the map file for the headers. */
+    private static final int HEADER_BYTES = 4096;
+
+    /** Offset of the second copy of the header. */
+    private static final int HEADER_COPY = 2048;
+
+    // Header layout: magic, format, generation, log length, size, checksum
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_GENERATION = 8;
+    private static final int H_END = 16;
+    private static final int H_SIZE = 24;
+    private static final int H_CHECKSUM = 28;
+
+    /** Bytes at the start of the index file, before the slots. */
+    private static final int INDEX_HEADER = 64;
+
+    // Index header layout: magic, slots, used slots, generation
+    private static final int I_MAGIC = 0;
+    private static final int I_SLOTS = 4;
+    private static final int I_USED = 8;
+    private static final int I_GENERATION = 16;
+
+    /** Key length marking the end of the records of a region. */
+    private static final int PAD = -1;
+
+    /** Key length of a record removing every mapping. */
+    private static final int CLEAR = -2;
+
+    /** Value length of a record removing the mapping of its key. */
+    private static final int REMOVE = -1;
+
+    // Attributes //
+
+    private final Path indexPath;
+    private final Path pendingIndexPath;
+
+    private final FileChannel data;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] regions;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer indexMap;
+
+    /** Index being built by a rebuild, until {@link #indexRebuilt()}. */
+    private FileChannel pendingChannel;
+    private MappedByteBuffer pendingMap;
+
+    /** Generation of the last header written. */
+    private long generation;
+
+    /** Length of the log, where the next record is appended. */
+    private long end;
+
+    /** {@code true} if the map changed since the last sync. */
+    private boolean dirty;
+
+    // Constructors //
+
+    /**
+     * Opens the map stored in the given file, creating an empty map if the
+     * file does not exist or has never been synced.
+     *
+     * @param path       the map file.
+     * @param keyCodec   codec of the keys.
+     * @param valueCodec codec of the values.
+     *
+     * @throws IOException          if the file cannot be opened or is not a
+     *                              map file.
+     * @throws NullPointerException if an argument is {@code null}.
+     */
+    public MappedHMap(Path path, HCodec keyCodec, HCodec valueCodec) throws IOException {
+        super(keyCodec, valueCodec);
+        indexPath = path.resolveSibling(path.getFileName() + ".index");
+        pendingIndexPath = path.resolveSibling(path.getFileName() + ".index.tmp");
+        data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        regions = new MappedByteBuffer[4];
+        // The files opened so far are closed if the map cannot be opened
+        try {
+            header = data.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            int size = 0;
+            int copy = latestHeader();
+            if (copy >= 0) {
+                generation = header.getLong(copy + H_GENERATION);
+                end = header.getLong(copy + H_END);
+                size = header.getInt(copy + H_SIZE);
+            } else if (header.getInt(H_MAGIC) != 0 || header.getInt(HEADER_COPY + H_MAGIC) != 0) {
+                throw new IOException("Not a map file or corrupted headers: " + path);
+            }
+            if (!openIndex(size)) {
+                allocateIndex(MIN_SLOTS);
+                indexRebuilt();
+                replay();
+                dirty = true;
+            }
+        } catch (UncheckedIOException e) {
+            closeAfterFailure(e.getCause());
+            throw e.getCause();
+        } catch (IOException | RuntimeException | Error e) {
+            closeAfterFailure(e);
+            throw e;
+        }
+    }
+
+    // Methods //
+
+    /**
+     * Removes all mappings from this map by appending to the log a record
+     * removing every mapping. The number of index slots is left unchanged.
+     */
+    @Override
+    public void clear() {
+        appendRecord(null, 0, null);
+        super.clear();
+    }
+
+    /**
+     * Makes the current state of the map durable. The log and the index are
+     * forced to the storage and a new header is written, so that the map is
+     * restored to this state when reopened, even after a crash.
+     *
+     * @throws UncheckedIOException if the files cannot be written.
+     */
+    public void sync() {
+        for (MappedByteBuffer region : regions) {
+            if (region != null) region.force();
+        }
+        int copy = (int) (++generation & 1) * HEADER_COPY;
+        header.putInt(copy + H_MAGIC, MAGIC);
+        header.putInt(copy + H_FORMAT, FORMAT);
+        header.putLong(copy + H_GENERATION, generation);
+        header.putLong(copy + H_END, end);
+        header.putInt(copy + H_SIZE, size());
+        header.putLong(copy + H_CHECKSUM, checksum(copy));
+        header.force();
+
+        // The index is only trusted if its generation matches the header
+        indexMap.force();
+        indexMap.putInt(I_USED, usedSlots());
+        indexMap.putLong(I_GENERATION, generation);
+        indexMap.force();
+        dirty = false;
+    }
+
+    /**
+     * Syncs the map and closes its files. The map must not be used after
+     * being closed. The mapped memory is released when the map is garbage
+     * collected.
+     *
+     * @throws IOException if the files cannot be written or closed.
+     */
+    public void close() throws IOException {
+        try {
+            sync();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // Each close runs even if the previous one throws
+            try {
+                data.close();
+            } finally {
+                try {
+                    if (indexChannel != null) indexChannel.close();
+                } finally {
+                    if (pendingChannel != null) pendingChannel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the log of records in bytes, including the
+     * records superseded by later updates.
+     *
+     * @return the length of the log in bytes.
+     */
+    public long logBytes() {
+        return end;
+    }
+
+    // Storage //
+
+    @Override
+    ByteBuffer newIndex(int slots) {
+        try {
+            FileChannel channel = FileChannel.open(pendingIndexPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                // The file is extended with zeros, so every slot starts free
+                pendingMap = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        INDEX_HEADER + (long) slots * SLOT_BYTES);
+            } catch (Throwable e) {
+                try {
+                    channel.close();
+                } catch (IOException closing) {
+                    e.addSuppressed(closing);
+                }
+                throw e;
+            }
+            pendingChannel = channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pendingMap.putInt(I_MAGIC, MAGIC);
+        pendingMap.putInt(I_SLOTS, slots);
+        return pendingMap.slice(INDEX_HEADER, slots * SLOT_BYTES);
+    }
+
+    @Override
+    void indexRebuilt() {
+        try {
+            if (indexChannel != null) indexChannel.close();
+            Files.move(pendingIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexChannel = pendingChannel;
+        indexMap = pendingMap;
+        pendingChannel = null;
+        pendingMap = null;
+    }
+
+    @Override
+    ByteBuffer recordBuffer(long address) {
+        return region((address - 1) / REGION_SIZE);
+    }
+
+    @Override
+    int recordOffset(long address) {
+        return (int) ((address - 1) % REGION_SIZE);
+    }
+
+    @Override
+    long append(ByteBuffer encodedKey, Object value, int valueLength) {
+        return appendRecord(encodedKey, valueLength, value);
+    }
+
+    @Override
+    boolean overwrite(long address, Object value, int valueLength) {
+        // Committed records must stay as they are for the log to be replayed
+        return false;
+    }
+
+    @Override
+    void replaced(long address) {
+    }
+
+    @Override
+    void removed(long address) {
+        ByteBuffer buffer = recordBuffer(address);
+        int offset = recordOffset(address);
+        appendRecord(buffer.slice(offset + RECORD_HEADER, buffer.getInt(offset)), REMOVE, null);
+    }
+
+    // Internals //
+
+    /**
+     * Appends a record to the log, moving to the next region if it does not
+     * fit in the current one, and returns its address. The record puts the
+     * value if one is given, removes the key if only the key is given and
+     * removes every mapping if neither is given.
+     */
+    private long appendRecord(ByteBuffer encodedKey, int valueLength, Object value) {
+        int keyLength = encodedKey == null ? 0 : encodedKey.remaining();
+        int length = RECORD_HEADER + keyLength + (value == null ? 0 : valueLength);
+        if (length > REGION_SIZE) {
+            throw new IllegalArgumentException("Record of " + length + " bytes larger than a region.");
+        }
+        markDirty();
+        int offset = (int) (end % REGION_SIZE);
+        if (REGION_SIZE - offset < length) {
+            if (REGION_SIZE - offset >= Integer.BYTES) region(end / REGION_SIZE).putInt(offset, PAD);
+            end += REGION_SIZE - offset;
+            offset = 0;
+        }
+
+        ByteBuffer region = region(end / REGION_SIZE);
+        region.putInt(offset, encodedKey == null ? CLEAR : keyLength);
+        region.putInt(offset + Integer.BYTES, valueLength);
+        if (encodedKey != null) region.put(offset + RECORD_HEADER, encodedKey, encodedKey.position(), keyLength);
+        if (value != null) valueCodec.encode(value, region.duplicate().position(offset + RECORD_HEADER + keyLength));
+        long address = end + 1;
+        end += length;
+        return address;
+    }
+
+    /**
+     * Invalidates the index file before its first change since the last
+     * sync, so that a crash leaves an index that is never trusted.
+     */
+    private void markDirty() {
+        if (dirty) return;
+        indexMap.putLong(I_GENERATION, 0);
+        indexMap.force();
+        dirty = true;
+    }
+
+    /**
+     * Returns the mapped region of the log with the given number, mapping it
+     * if needed.
+     */
+    private MappedByteBuffer region(long number) {
+        int i = (int) number;
+        if (i >= regions.length) {
+            MappedByteBuffer[] grown = new MappedByteBuffer[Math.max(i + 1, regions.length << 1)];
+            System.arraycopy(regions, 0, grown, 0, regions.length);
+            regions = grown;
+        }
+        if (regions[i] == null) {
+            try {
+                regions[i] = data.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_BYTES + (long) i * REGION_SIZE, REGION_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return regions[i];
+    }
+
+    /**
+     * Returns the offset of the valid header copy with the highest
+     * generation, or -1 if no copy is valid.
+     */
+    private int latestHeader() {
+        int latest = -1;
+        for (int copy = 0; copy <= HEADER_COPY; copy += HEADER_COPY) {
+            if (header.getInt(copy + H_MAGIC) != MAGIC || header.getInt(copy + H_FORMAT) != FORMAT
+                    || header.getLong(copy + H_CHECKSUM) != checksum(copy)) {
+                continue;
+            }
+            if (latest < 0 || header.getLong(copy + H_GENERATION) > header.getLong(latest + H_GENERATION)) {
+                latest = copy;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Returns the checksum of the header copy at the given offset.
+     */
+    private long checksum(int copy) {
+        CRC32 crc = new CRC32();
+        crc.update(header.slice(copy, H_CHECKSUM));
+        return crc.getValue();
+    }
+
+    /**
+     * Maps the index file if it was synced with the current header, returning
+     * {@code false} if the index has to be rebuilt.
+     */
+    private boolean openIndex(int size) throws IOException {
+        if (generation == 0 || !Files.exists(indexPath)) return false;
+        FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // The channel is owned by the map once it is the index channel
+        indexChannel = channel;
+        long length = channel.size();
+        MappedByteBuffer map = length < INDEX_HEADER ? null
+                : channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (map == null || map.getInt(I_MAGIC) != MAGIC || map.getLong(I_GENERATION) != generation
+                || length != INDEX_HEADER + (long) map.getInt(I_SLOTS) * SLOT_BYTES) {
+            indexChannel = null;
+            channel.close();
+            return false;
+        }
+        int slots = map.getInt(I_SLOTS);
+        indexMap = map;
+        attachIndex(map.slice(INDEX_HEADER, slots * SLOT_BYTES), slots, size, map.getInt(I_USED));
+        return true;
+    }
+
+    /**
+     * Closes the files opened by a constructor that failed, adding the
+     * exceptions of the closes to the failure.
+     */
+    private void closeAfterFailure(Throwable failure) {
+        for (FileChannel channel : new FileChannel[] {data, indexChannel, pendingChannel}) {
+            if (channel == null) continue;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the committed log.
+     */
+    private void replay() {
+        long position = 0;
+        while (position < end) {
+            ByteBuffer region = region(position / REGION_SIZE);
+            int offset = (int) (position % REGION_SIZE);
+            if (REGION_SIZE - offset < RECORD_HEADER || region.getInt(offset) == PAD) {
+                position += REGION_SIZE - offset;
+                continue;
+            }
+            int keyLength = region.getInt(offset);
+            int valueLength = region.getInt(offset + Integer.BYTES);
+            if (keyLength == CLEAR) {
+                super.clear();
+                position += RECORD_HEADER;
+                continue;
+            }
+            ByteBuffer key = region.slice(offset + RECORD_HEADER, keyLength);
+            if (valueLength == REMOVE) {
+                unlink(key);
+                position += RECORD_HEADER + keyLength;
+            } else {
+                link(key, position + 1);
+                position += RECORD_HEADER + keyLength + valueLength;
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package myAdapter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A map storing its mappings outside the Java heap. Keys and values are
+ * serialized by an {@link HCodec} into chunks of direct memory and located
+ * through a hash index which is itself held in direct memory, so a map with
+ * millions of mappings is made of a handful of heap objects and adds almost
+ * nothing to the work of the garbage collector.
+ *
+ * <p>Each mapping is stored as a record made of the lengths of the encoded
+ * key and value followed by their bytes. Records are appended to the last
+ * chunk; a value replaced by one of the same encoded length is overwritten in
+ * place, otherwise the record is appended again and the old one becomes
+ * garbage. When garbage exceeds half of the stored bytes the live records are
+ * compacted into new chunks.</p>
+ *
+ * <p>The index, held in direct memory as well, is the one described by
+ * {@link AbstractRecordHMap}: keys are looked up by comparing their
+ * encodings, so they are never decoded to be found; keys and values are only
+ * decoded when returned.</p>
+ *
+ * <p>Objects returned by the map are decoded copies of the stored ones:
+ * changes to them are not reflected by the map. Null keys and values are not
+ * supported and the map is not synchronized. The memory is released when the
+ * map is garbage collected.</p>
+ *
+ * @see HCodec
+ * @see HMap
+ */
+public class OffHeapHMap extends AbstractRecordHMap {
+
+    // Constants //
+
+    /** Default size of a data chunk. */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // Attributes //
+
+    /** Data chunks, only the last one receives new records. */
+    private ByteBuffer[] chunks;
+    private int chunkCount;
+
+    /** Bytes taken by the records, including replaced and removed ones. */
+    private long dataBytes;
+
+    /** Bytes taken by replaced and removed records. */
+    private long garbageBytes;
+
+    // Constructors //
+
+    /**
+     * Creates a new empty map with the default capacity.
+     *
+     * @param keyCodec   codec of the keys.
+     * @param valueCodec codec of the values.
+     *
+     * @throws NullPointerException if a codec is {@code null}.
+     */
+    public OffHeapHMap(HCodec keyCodec, HCodec valueCodec) {
+        this(DEFAULT_CAPACITY, keyCodec, valueCodec);
+    }
+
+    /**
+     * Creates a new empty map that can hold {@code initialCapacity} mappings
+     * without growing its index.
+     *
+     * @param initialCapacity The number of mappings the map can hold before
+     *                        growing
+     * @param keyCodec        codec of the keys.
+     * @param valueCodec      codec of the values.
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     * @throws NullPointerException     if a codec is {@code null}.
+     */
+    public OffHeapHMap(int initialCapacity, HCodec keyCodec, HCodec valueCodec) {
+        super(keyCodec, valueCodec);
+        allocateIndex(slotsFor(initialCapacity));
+        chunks = new ByteBuffer[4];
+    }
+
+    /**
+     * Creates a new map with the same mappings of the given map.
+     *
+     * @param map        The map to copy the data from.
+     * @param keyCodec   codec of the keys.
+     * @param valueCodec codec of the values.
+     *
+     * @throws NullPointerException if the map or a codec is {@code null}, or
+     *                              the map contains {@code null} values.
+     * @throws ClassCastException   if a key or a value of the map is not
+     *                              accepted by its codec.
+     */
+    public OffHeapHMap(HMap map, HCodec keyCodec, HCodec valueCodec) {
+        this(map.size(), keyCodec, valueCodec);
+        putAll(map);
+    }
+
+    // Methods //
+
+    /**
+     * Removes all mappings from this map, releasing the data chunks. The
+     * number of index slots is left unchanged.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        chunks = new ByteBuffer[4];
+        chunkCount = 0;
+        dataBytes = 0;
+        garbageBytes = 0;
+    }
+
+    /**
+     * Returns the number of bytes of direct memory held by this map: the
+     * index and the data chunks, including the free space of the last chunk
+     * and the records not yet compacted.
+     *
+     * @return the direct memory held by this map in bytes.
+     */
+    public long offHeapBytes() {
+        long bytes = (long) slotCount() * SLOT_BYTES;
+        for (int i = 0; i < chunkCount; i++) bytes += chunks[i].capacity();
+        return bytes;
+    }
+
+    // Storage //
+
+    @Override
+    ByteBuffer newIndex(int slots) {
+        // Direct memory is zeroed, so every slot starts free
+        return ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+    }
+
+    @Override
+    ByteBuffer recordBuffer(long address) {
+        return chunks[(int) ((address - 1) >>> 32)];
+    }
+
+    @Override
+    int recordOffset(long address) {
+        return (int) (address - 1);
+    }
+
+    @Override
+    long append(ByteBuffer encodedKey, Object value, int valueLength) {
+        int keyLength = encodedKey.remaining();
+        int length = RECORD_HEADER + keyLength + valueLength;
+        ByteBuffer chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+        if (chunk == null || chunk.remaining() < length) chunk = newChunk(length);
+
+        long address = address(chunkCount - 1, chunk.position());
+        chunk.putInt(keyLength);
+        chunk.putInt(valueLength);
+        chunk.put(encodedKey.duplicate());
+        valueCodec.encode(value, chunk);
+        dataBytes += length;
+        return address;
+    }
+
+    @Override
+    void replaced(long address) {
+        discard(address);
+        compactIfNeeded();
+    }
+
+    @Override
+    void removed(long address) {
+        discard(address);
+    }
+
+    @Override
+    void removeAt(int slot) {
+        super.removeAt(slot);
+        compactIfNeeded();
+    }
+
+    // Internals //
+
+    /**
+     * Adds a chunk of direct memory able to hold at least {@code length}
+     * bytes, returning it.
+     */
+    private ByteBuffer newChunk(int length) {
+        if (chunkCount == chunks.length) {
+            ByteBuffer[] grown = new ByteBuffer[chunkCount << 1];
+            System.arraycopy(chunks, 0, grown, 0, chunkCount);
+            chunks = grown;
+        }
+        ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(length, CHUNK_SIZE));
+        chunks[chunkCount++] = chunk;
+        return chunk;
+    }
+
+    /**
+     * Counts the record at the address as garbage.
+     */
+    private void discard(long address) {
+        garbageBytes += recordLength(recordBuffer(address), recordOffset(address));
+    }
+
+    /**
+     * Copies the live records into new chunks when garbage exceeds half of
+     * the stored bytes. Slots keep their position, so iterations over the
+     * slots can go on.
+     */
+    private void compactIfNeeded() {
+        if (garbageBytes < CHUNK_SIZE || garbageBytes * 2 < dataBytes) return;
+        ByteBuffer[] oldChunks = chunks;
+        chunks = new ByteBuffer[4];
+        chunkCount = 0;
+        dataBytes = 0;
+        garbageBytes = 0;
+
+        for (int i = nextSlot(0); i < slotCount(); i = nextSlot(i + 1)) {
+            long address = addressAt(i);
+            ByteBuffer record = oldChunks[(int) ((address - 1) >>> 32)];
+            int offset = recordOffset(address);
+            int length = recordLength(record, offset);
+            ByteBuffer chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+            if (chunk == null || chunk.remaining() < length) chunk = newChunk(length);
+            setAddress(i, address(chunkCount - 1, chunk.position()));
+            chunk.put(record.slice(offset, length));
+            dataBytes += length;
+        }
+    }
+
+    /**
+     * Returns the length of the record at the offset of the buffer.
+     */
+    private static int recordLength(ByteBuffer buffer, int offset) {
+        return RECORD_HEADER + buffer.getInt(offset) + buffer.getInt(offset + Integer.BYTES);
+    }
+
+    /**
+     * Packs a chunk number and an offset into an address. Addresses are
+     * shifted by one so that 0 and -1 are left for free and removed slots.
+     */
+    private static long address(int chunk, int offset) {
+        return ((long) chunk << 32 | offset) + 1;
+    }
+}
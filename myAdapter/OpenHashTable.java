@@ -0,0 +1,1279 @@
+package myAdapter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The hash table engine backing {@link MapAdapter}. Mappings are stored in
+ * two parallel arrays of keys and values using open addressing: a key is
+ * placed in the first free slot of its probe sequence, so no node object is
+ * allocated per mapping and a lookup only touches the two arrays.
+ *
+ * <p>Two probe sequences are supported, selected at construction time:
+ * {@link #LINEAR} probing visits consecutive slots while {@link #QUADRATIC}
+ * probing visits slots at triangular offsets ({@code 1, 3, 6, 10, ...}), which
+ * on a power of two sized table is guaranteed to visit every slot.</p>
+ *
+ * <p>Removed mappings leave a <i>tombstone</i> in their key slot so that probe
+ * sequences passing through the slot are not interrupted. Tombstones are
+ * reused by later insertions and are dropped whenever the table is rebuilt.
+ * The table is rebuilt when live mappings plus tombstones exceed the load
+ * factor: it doubles in size if it is mostly made of live mappings, otherwise
+ * it is rebuilt at the same size to purge the tombstones.</p>
+ *
+ * <p>Rebuilds are incremental: the previous arrays are kept next to the new
+ * ones and every insertion of a new key migrates at most
+ * {@link #MIGRATION_STEP} of their slots, so no single operation pays for
+ * copying the whole table. While a rebuild is in progress lookups probe the
+ * new arrays and then the old ones, new keys are only inserted in the new
+ * arrays and migrated slots become tombstones, so the probe sequences of the
+ * keys left behind are not interrupted. Only insertions of new keys move
+ * mappings, so replacing a value or removing a key never invalidates the
+ * slot of another mapping.</p>
+ *
+ * <p>Optionally the table maintains a {@link ValueIndex} counting the
+ * occurrences of each value, so that {@link #containsValue(Object)} is a hash
+ * lookup instead of a scan of the value array at the cost of extra memory and
+ * of one more hash update on every write.</p>
+ *
+ * <p>The sums of the hash codes of the keys, of the values and of the
+ * entries ({@code key.hashCode() ^ value.hashCode()}) are updated on every
+ * write, so the hash codes of the map and of its views are available in
+ * constant time. As for the position of a key in the table, the sums are
+ * only correct as long as the hash codes of the stored keys and values do not
+ * change while they are in the table.</p>
+ *
+ * <p>A {@link #snapshot()} shares the storage of the table instead of
+ * copying it: both tables read the same arrays and whichever is written
+ * first makes its own copies, so the copy is paid by the first write rather
+ * than by the snapshot, and not at all by a table the others have stopped
+ * sharing with.</p>
+ *
+ * <p>Like the {@code Hashtable} it replaces, the table does not support null
+ * keys nor null values and all the operations that are not slot accessors are
+ * synchronized on the table instance.</p>
+ *
+ * <p>Slot accessors ({@link #nextSlot(int)}, {@link #nextSlot(int, int)},
+ * {@link #keyAt(int)}, {@link #valueAt(int)}, {@link #removeAt(int, Object)})
+ * expose the storage to the views of {@link MapAdapter} so that they can walk
+ * the table without additional lookups. While a rebuild is in progress the slots of the old
+ * arrays follow the ones of the new arrays. Slot indexes are only meaningful
+ * until the next insertion of a new key.</p>
+ */
+final class OpenHashTable {
+
+    // Constants //
+
+    /** Probe sequence visiting consecutive slots. */
+    static final int LINEAR = 0;
+
+    /** Probe sequence visiting slots at triangular offsets. */
+    static final int QUADRATIC = 1;
+
+    /** Marker left in the key array by a removed mapping. */
+    private static final Object TOMBSTONE = new Object();
+
+    /** Default number of mappings the table can hold before growing. */
+    private static final int DEFAULT_CAPACITY = 11;
+
+    /** Smallest allowed number of slots, must be a power of two. */
+    private static final int MIN_SLOTS = 16;
+
+    /** Largest allowed number of slots, must be a power of two. */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /** Maximum fraction of slots that can be used, live or tombstone. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Number of slots of the old arrays migrated by each insertion while a
+     * rebuild is in progress. The migration completes after a small fraction
+     * of the insertions the new arrays can take before their own rebuild.
+     */
+    static final int MIGRATION_STEP = 16;
+
+    /**
+     * Number of keys whose home slots are read together by
+     * {@link #getAll(Object[], Object[])}, enough to keep the memory system
+     * busy with independent reads.
+     */
+    private static final int BATCH = 32;
+
+    /** Estimated size in bytes of an object header (compressed class pointers). */
+    static final int OBJECT_HEADER = 12;
+
+    /** Estimated size in bytes of an array header. */
+    static final int ARRAY_HEADER = 16;
+
+    /** Estimated size in bytes of an object reference (compressed oops). */
+    static final int REFERENCE = 4;
+
+    // Attributes //
+
+    private Object[] keys;
+    private Object[] values;
+    private final int probing;
+
+    /** Arrays being migrated by a rebuild, {@code null} if none is running. */
+    private Object[] oldKeys;
+    private Object[] oldValues;
+
+    /** Next slot of the old arrays to migrate. */
+    private int migrated;
+
+    /** Occurrence count of each value, {@code null} if not enabled. */
+    private ValueIndex valueIndex;
+
+    /**
+     * Number of tables reading the arrays and the value index of this one,
+     * {@code null} if the table owns them. See {@link #own()}.
+     */
+    private AtomicInteger share;
+
+    /** Number of live mappings. */
+    private int size;
+
+    /** Number of slots holding a live mapping or a tombstone. */
+    private int used;
+
+    /** Value of {@code used} over which the table is rebuilt. */
+    private int threshold;
+
+    /** Sum of the hash codes of the live keys. */
+    private int keyHashSum;
+
+    /** Sum of the hash codes of the live values. */
+    private int valueHashSum;
+
+    /** Sum of the hash codes of the live entries. */
+    private int entryHashSum;
+
+    /**
+     * Number of structural modifications, used to detect functions passed to
+     * the compound operations that modify the table.
+     */
+    private int modifications;
+
+    // Constructors //
+
+    /**
+     * Creates an empty table using linear probing sized for the default
+     * capacity.
+     */
+    OpenHashTable() {
+        this(DEFAULT_CAPACITY, LINEAR, false);
+    }
+
+    /**
+     * Creates an empty table that can hold {@code initialCapacity} mappings
+     * without being rebuilt.
+     *
+     * @param initialCapacity the number of mappings the table must hold
+     *                        before growing.
+     * @param probing         the probe sequence, either {@link #LINEAR} or
+     *                        {@link #QUADRATIC}.
+     * @param indexValues     whether to maintain a {@link ValueIndex}.
+     *
+     * @throws IllegalArgumentException if the initial capacity is negative or
+     *                                  the probing is not a known sequence.
+     */
+    OpenHashTable(int initialCapacity, int probing, boolean indexValues) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        if (probing != LINEAR && probing != QUADRATIC) {
+            throw new IllegalArgumentException("Illegal probing: " + probing);
+        }
+        this.probing = probing;
+        this.valueIndex = indexValues ? new ValueIndex(initialCapacity) : null;
+        allocate(slotsFor(initialCapacity));
+    }
+
+    /**
+     * Creates a table holding the same mappings as the source, with the same
+     * probe sequence. Unless most of the used slots of the source are
+     * tombstones, the arrays of the source are cloned as they are, including
+     * a rebuild in progress. A copy then costs a few array copies instead of
+     * one insertion per mapping. Otherwise the mappings are inserted into
+     * arrays sized for them.
+     *
+     * @param source      the table to copy.
+     * @param indexValues whether to maintain a {@link ValueIndex}.
+     */
+    OpenHashTable(OpenHashTable source, boolean indexValues) {
+        synchronized (source) {
+            this.probing = source.probing;
+            if (source.used - source.size > source.size) {
+                this.valueIndex = indexValues ? new ValueIndex(source.size) : null;
+                allocate(slotsFor(source.size));
+                for (int i = source.nextSlot(0); i < source.capacity(); i = source.nextSlot(i + 1)) {
+                    Object key = source.keyAt(i);
+                    int keyHash = key.hashCode();
+                    insertAt(-probe(key, keyHash) - 1, key, keyHash, source.valueAt(i));
+                }
+                return;
+            }
+            keys = source.keys.clone();
+            values = source.values.clone();
+            if (source.oldKeys != null) {
+                oldKeys = source.oldKeys.clone();
+                oldValues = source.oldValues.clone();
+                migrated = source.migrated;
+            }
+            size = source.size;
+            used = source.used;
+            threshold = source.threshold;
+            keyHashSum = source.keyHashSum;
+            valueHashSum = source.valueHashSum;
+            entryHashSum = source.entryHashSum;
+            if (!indexValues) {
+                valueIndex = null;
+            } else if (source.valueIndex != null) {
+                valueIndex = new ValueIndex(source.valueIndex);
+            } else {
+                valueIndex = new ValueIndex(size);
+                for (int i = nextSlot(0); i < capacity(); i = nextSlot(i + 1)) valueIndex.add(valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Creates a table sharing the storage of the source, which must be locked
+     * by the caller.
+     */
+    private OpenHashTable(OpenHashTable source) {
+        if (source.share == null) source.share = new AtomicInteger(1);
+        source.share.incrementAndGet();
+        share = source.share;
+        probing = source.probing;
+        keys = source.keys;
+        values = source.values;
+        oldKeys = source.oldKeys;
+        oldValues = source.oldValues;
+        migrated = source.migrated;
+        valueIndex = source.valueIndex;
+        size = source.size;
+        used = source.used;
+        threshold = source.threshold;
+        keyHashSum = source.keyHashSum;
+        valueHashSum = source.valueHashSum;
+        entryHashSum = source.entryHashSum;
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of live mappings in the table.
+     *
+     * @return the number of live mappings in the table.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the table contains no mappings.
+     *
+     * @return {@code true} if the table contains no mappings.
+     */
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code null} if there is none.
+     *
+     * @param key key to look up.
+     * @return the value mapped to the key, or {@code null}.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    synchronized Object get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    /**
+     * Returns {@code true} if the table contains a mapping for the key.
+     *
+     * @param key key to look up.
+     * @return {@code true} if the table contains a mapping for the key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    synchronized boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if at least one key is mapped to the value. This
+     * operation scans the whole value array unless the values are indexed.
+     *
+     * @param value value to look for.
+     * @return {@code true} if at least one key is mapped to the value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    synchronized boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        if (valueIndex != null) return valueIndex.contains(value);
+        return contains(values, value) || oldValues != null && contains(oldValues, value);
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping of the key.
+     *
+     * @param key   key of the mapping.
+     * @param value value of the mapping.
+     * @return the value previously mapped to the key, or {@code null}.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    synchronized Object put(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        if (slot >= 0) return replaceAt(slot, keyHash, value);
+        insertAt(-slot - 1, key, keyHash, value);
+        return null;
+    }
+
+    /**
+     * Looks up a batch of keys, storing the value mapped to each key, or
+     * {@code null}, at the same index of {@code out}. The keys are looked up
+     * in groups of {@link #BATCH}: the hashes of a group are computed first,
+     * then the home slots of all its keys are read, and only then are the
+     * keys compared and their probe sequences followed. The reads of the home
+     * slots do not depend on each other, so the processor can overlap their
+     * cache misses instead of waiting for each one in turn.
+     *
+     * @param batch keys to look up.
+     * @param out   array receiving the values, at least as long as
+     *              {@code batch}.
+     * @return the number of keys found.
+     *
+     * @throws NullPointerException if a key is {@code null}.
+     */
+    synchronized int getAll(Object[] batch, Object[] out) {
+        int n = batch.length;
+        int[] hashes = new int[Math.min(n, BATCH)];
+        Object[] homes = new Object[hashes.length];
+        int found = 0;
+        for (int from = 0; from < n; from += BATCH) {
+            int count = Math.min(BATCH, n - from);
+            for (int i = 0; i < count; i++) hashes[i] = hash(batch[from + i]);
+            Object[] ks = keys;
+            int mask = ks.length - 1;
+            for (int i = 0; i < count; i++) homes[i] = ks[hashes[i] & mask];
+            for (int i = 0; i < count; i++) {
+                Object key = batch[from + i];
+                Object home = homes[i];
+                int slot;
+                if (home == null && oldKeys == null) slot = -1;
+                else if (home == key) slot = hashes[i] & mask;
+                else slot = find(key, hashes[i]);
+                if (slot >= 0) found++;
+                out[from + i] = slot < 0 ? null : valueAt(slot);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Maps each key of a batch to the value at the same index, replacing any
+     * previous mapping. The hashes of all the keys are computed before the
+     * table is modified.
+     *
+     * @param batch  keys of the mappings.
+     * @param values values of the mappings, as many as the keys.
+     *
+     * @throws NullPointerException if a key or a value is {@code null}.
+     */
+    synchronized void putAll(Object[] batch, Object[] values) {
+        int n = batch.length;
+        int[] hashes = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (values[i] == null) throw new NullPointerException();
+            hashes[i] = batch[i].hashCode();
+        }
+        for (int i = 0; i < n; i++) {
+            int slot = probe(batch[i], hashes[i]);
+            if (slot >= 0) replaceAt(slot, hashes[i], values[i]);
+            else insertAt(-slot - 1, batch[i], hashes[i], values[i]);
+        }
+    }
+
+    /**
+     * Removes the mapping of the key if present.
+     *
+     * @param key key of the mapping to remove.
+     * @return the value previously mapped to the key, or {@code null}.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    synchronized Object remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) return null;
+        Object old = valueAt(slot);
+        erase(slot);
+        return old;
+    }
+
+    /**
+     * Returns {@code true} if the key is mapped to a value equal to the given
+     * one.
+     *
+     * @param key   key of the mapping.
+     * @param value value the key is expected to be mapped to.
+     * @return {@code true} if the table contains the mapping.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    synchronized boolean containsEntry(Object key, Object value) {
+        if (value == null) throw new NullPointerException();
+        int slot = find(key);
+        return slot >= 0 && value.equals(valueAt(slot));
+    }
+
+    /**
+     * Removes the mapping of the key only if the key is mapped to a value
+     * equal to the given one.
+     *
+     * @param key   key of the mapping to remove.
+     * @param value value the key is expected to be mapped to.
+     * @return {@code true} if the mapping has been removed.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    synchronized boolean remove(Object key, Object value) {
+        if (value == null) throw new NullPointerException();
+        int slot = find(key);
+        if (slot < 0 || !value.equals(valueAt(slot))) return false;
+        erase(slot);
+        return true;
+    }
+
+    /**
+     * Performs the action for each mapping walking the arrays directly, in
+     * the order of {@link #nextSlot(int)}, while holding the table's lock.
+     *
+     * @param action action to perform for each mapping.
+     *
+     * @throws NullPointerException            if the action is {@code null}.
+     * @throws ConcurrentModificationException if the action inserts or
+     *                                         removes a mapping.
+     */
+    synchronized void forEach(HBiConsumer action) {
+        if (action == null) throw new NullPointerException();
+        int expected = modifications;
+        forEach(keys, values, action, expected);
+        if (oldKeys != null) forEach(oldKeys, oldValues, action, expected);
+    }
+
+    /**
+     * Returns a table holding the current mappings of this one, in constant
+     * time. The two tables share their storage until one of them is written,
+     * which then copies it. Afterwards they are fully independent and, having
+     * distinct locks, never wait for each other.
+     *
+     * @return a snapshot of the table.
+     */
+    synchronized OpenHashTable snapshot() {
+        return new OpenHashTable(this);
+    }
+
+    /**
+     * Makes room for at least {@code capacity} mappings, starting a rebuild
+     * of the table at the required size if the current arrays are smaller.
+     * Used before bulk insertions so that the table grows once.
+     *
+     * @param capacity the number of mappings the table must hold before
+     *                 growing.
+     */
+    synchronized void ensureCapacity(int capacity) {
+        int slots = slotsFor(capacity);
+        if (slots > keys.length) rebuild(slots);
+    }
+
+    /**
+     * Takes over the storage of a table no one else references if this table
+     * is empty and uses the same probe sequence, otherwise does nothing. The
+     * value index of this table, if any, is filled with the adopted values.
+     *
+     * @param copy a private table, such as a copy made with
+     *             {@link #OpenHashTable(OpenHashTable, boolean)}.
+     * @return {@code true} if the storage has been adopted.
+     */
+    synchronized boolean adopt(OpenHashTable copy) {
+        if (size != 0 || probing != copy.probing) return false;
+        release();
+        keys = copy.keys;
+        values = copy.values;
+        oldKeys = copy.oldKeys;
+        oldValues = copy.oldValues;
+        migrated = copy.migrated;
+        size = copy.size;
+        used = copy.used;
+        threshold = copy.threshold;
+        keyHashSum = copy.keyHashSum;
+        valueHashSum = copy.valueHashSum;
+        entryHashSum = copy.entryHashSum;
+        modifications++;
+        if (valueIndex != null) {
+            valueIndex = new ValueIndex(size);
+            for (int i = nextSlot(0); i < capacity(); i = nextSlot(i + 1)) valueIndex.add(valueAt(i));
+        }
+        return true;
+    }
+
+    /**
+     * Removes every mapping matched by the filter in a single pass over the
+     * slots. The filter is called while holding the table's lock and must not
+     * modify the table.
+     *
+     * @param filter filter selecting the mappings to remove.
+     * @return {@code true} if at least one mapping has been removed.
+     */
+    synchronized boolean removeIf(Filter filter) {
+        boolean removed = false;
+        for (int slot = nextSlot(0); slot < capacity(); slot = nextSlot(slot + 1)) {
+            if (filter.test(keyAt(slot), valueAt(slot))) {
+                erase(slot);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every mapping matched by the filter, calling the filter without
+     * holding the table's lock, so that it may lock other tables. The filter
+     * is applied to a snapshot of the table, then the matched mappings that
+     * still hold the same value are removed in a single locked pass; mappings
+     * written in between are neither tested nor removed.
+     *
+     * @param filter filter selecting the mappings to remove.
+     * @return {@code true} if at least one mapping has been removed.
+     */
+    boolean removeIfUnlocked(Filter filter) {
+        OpenHashTable snapshot = snapshot();
+        // Keys and values of the matched mappings, interleaved
+        Object[] matched = new Object[16];
+        int count = 0;
+        try {
+            for (int slot = snapshot.nextSlot(0); slot < snapshot.capacity(); slot = snapshot.nextSlot(slot + 1)) {
+                Object key = snapshot.keyAt(slot);
+                Object value = snapshot.valueAt(slot);
+                if (filter.test(key, value)) {
+                    if (count == matched.length) matched = Arrays.copyOf(matched, count << 1);
+                    matched[count++] = key;
+                    matched[count++] = value;
+                }
+            }
+        } finally {
+            // Stop sharing, so that the removals do not copy the storage
+            synchronized (snapshot) {
+                snapshot.release();
+            }
+        }
+        return count > 0 && removeMatched(matched, count);
+    }
+
+    /**
+     * Removes all the mappings. The number of slots is left unchanged.
+     */
+    synchronized void clear() {
+        modifications++;
+        if (share != null) {
+            // Leave the shared storage to the other tables
+            release();
+            keys = new Object[keys.length];
+            values = new Object[values.length];
+            if (valueIndex != null) valueIndex = new ValueIndex(0);
+        } else {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+            if (valueIndex != null) valueIndex.clear();
+        }
+        oldKeys = null;
+        oldValues = null;
+        size = 0;
+        used = 0;
+        keyHashSum = 0;
+        valueHashSum = 0;
+        entryHashSum = 0;
+    }
+
+    // Compound operations //
+
+    /**
+     * Returns the value mapped to the key, or {@code defaultValue} if there is
+     * none.
+     *
+     * @param key          key to look up.
+     * @param defaultValue value to return if the key is not mapped.
+     * @return the value mapped to the key, or {@code defaultValue}.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    synchronized Object getOrDefault(Object key, Object defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : valueAt(slot);
+    }
+
+    /**
+     * Maps the key to the value only if the key is not mapped yet.
+     *
+     * @param key   key of the mapping.
+     * @param value value of the mapping.
+     * @return the value already mapped to the key, or {@code null} if the
+     * mapping has been added.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    synchronized Object putIfAbsent(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        if (slot >= 0) return valueAt(slot);
+        insertAt(-slot - 1, key, keyHash, value);
+        return null;
+    }
+
+    /**
+     * Replaces the value of the key only if the key is mapped.
+     *
+     * @param key   key of the mapping.
+     * @param value new value of the mapping.
+     * @return the value previously mapped to the key, or {@code null} if the
+     * key is not mapped.
+     *
+     * @throws NullPointerException if the key or the value is {@code null}.
+     */
+    synchronized Object replace(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException();
+        int slot = find(key);
+        return slot < 0 ? null : replaceAt(slot, key.hashCode(), value);
+    }
+
+    /**
+     * Replaces the value of the key only if the key is mapped to a value equal
+     * to {@code oldValue}.
+     *
+     * @param key      key of the mapping.
+     * @param oldValue value the key is expected to be mapped to.
+     * @param newValue new value of the mapping.
+     * @return {@code true} if the value has been replaced.
+     *
+     * @throws NullPointerException if an argument is {@code null}.
+     */
+    synchronized boolean replace(Object key, Object oldValue, Object newValue) {
+        if (key == null || oldValue == null || newValue == null) throw new NullPointerException();
+        int slot = find(key);
+        if (slot < 0 || !oldValue.equals(valueAt(slot))) return false;
+        replaceAt(slot, key.hashCode(), newValue);
+        return true;
+    }
+
+    /**
+     * Maps the key to the value computed by the function if the key is not
+     * mapped yet, unless the function returns {@code null}.
+     *
+     * @param key             key of the mapping.
+     * @param mappingFunction function computing the value from the key.
+     * @return the value mapped to the key after the call, or {@code null}.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies the
+     *                                         table.
+     */
+    synchronized Object computeIfAbsent(Object key, HFunction mappingFunction) {
+        if (key == null || mappingFunction == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        if (slot >= 0) return valueAt(slot);
+        int expected = modifications;
+        Object value = mappingFunction.apply(key);
+        checkModifications(expected);
+        if (value != null) insertAt(-slot - 1, key, keyHash, value);
+        return value;
+    }
+
+    /**
+     * Replaces the value of the key with the one computed by the function if
+     * the key is mapped, removing the mapping if the function returns
+     * {@code null}.
+     *
+     * @param key               key of the mapping.
+     * @param remappingFunction function computing the new value from the key
+     *                          and the current value.
+     * @return the value mapped to the key after the call, or {@code null}.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies the
+     *                                         table.
+     */
+    synchronized Object computeIfPresent(Object key, HBiFunction remappingFunction) {
+        if (key == null || remappingFunction == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        if (slot < 0) return null;
+        int expected = modifications;
+        Object value = remappingFunction.apply(key, valueAt(slot));
+        checkModifications(expected);
+        store(slot, key, keyHash, value);
+        return value;
+    }
+
+    /**
+     * Maps the key to the value computed by the function from the key and the
+     * current value, or {@code null} if the key is not mapped. The mapping is
+     * removed, or not added, if the function returns {@code null}.
+     *
+     * @param key               key of the mapping.
+     * @param remappingFunction function computing the new value.
+     * @return the value mapped to the key after the call, or {@code null}.
+     *
+     * @throws NullPointerException            if the key or the function is
+     *                                         {@code null}.
+     * @throws ConcurrentModificationException if the function modifies the
+     *                                         table.
+     */
+    synchronized Object compute(Object key, HBiFunction remappingFunction) {
+        if (key == null || remappingFunction == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        int expected = modifications;
+        Object value = remappingFunction.apply(key, slot < 0 ? null : valueAt(slot));
+        checkModifications(expected);
+        store(slot, key, keyHash, value);
+        return value;
+    }
+
+    /**
+     * Maps the key to the value if the key is not mapped, otherwise to the
+     * value computed by the function from the current value and the given
+     * one. The mapping is removed if the function returns {@code null}.
+     *
+     * @param key               key of the mapping.
+     * @param value             value to map or to merge with the current one.
+     * @param remappingFunction function merging the current value with the
+     *                          given one.
+     * @return the value mapped to the key after the call, or {@code null}.
+     *
+     * @throws NullPointerException            if an argument is {@code null}.
+     * @throws ConcurrentModificationException if the function modifies the
+     *                                         table.
+     */
+    synchronized Object merge(Object key, Object value, HBiFunction remappingFunction) {
+        if (key == null || value == null || remappingFunction == null) throw new NullPointerException();
+        int keyHash = key.hashCode();
+        int slot = probe(key, keyHash);
+        if (slot < 0) {
+            insertAt(-slot - 1, key, keyHash, value);
+            return value;
+        }
+        int expected = modifications;
+        Object merged = remappingFunction.apply(valueAt(slot), value);
+        checkModifications(expected);
+        store(slot, key, keyHash, merged);
+        return merged;
+    }
+
+    /**
+     * Returns the sum of the hash codes of the keys, that is the hash code of
+     * the key set.
+     *
+     * @return the sum of the hash codes of the keys.
+     */
+    synchronized int keyHashSum() {
+        return keyHashSum;
+    }
+
+    /**
+     * Returns the sum of the hash codes of the values, that is the hash code
+     * of the value collection.
+     *
+     * @return the sum of the hash codes of the values.
+     */
+    synchronized int valueHashSum() {
+        return valueHashSum;
+    }
+
+    /**
+     * Returns the sum of the hash codes of the entries, that is the hash code
+     * of the map and of its entry set.
+     *
+     * @return the sum of the hash codes of the entries.
+     */
+    synchronized int entryHashSum() {
+        return entryHashSum;
+    }
+
+    /**
+     * Returns {@code true} if the table maintains a {@link ValueIndex}.
+     *
+     * @return {@code true} if the values are indexed.
+     */
+    boolean hasValueIndex() {
+        return valueIndex != null;
+    }
+
+    /**
+     * Returns the estimated size in bytes of the {@link ValueIndex}, or 0 if
+     * the values are not indexed.
+     *
+     * @return the estimated size of the value index in bytes.
+     */
+    synchronized long valueIndexFootprint() {
+        return valueIndex == null ? 0 : valueIndex.footprint();
+    }
+
+    /**
+     * Returns an estimate of the heap retained by the table in bytes: its key
+     * and value arrays, including the old ones while a rebuild is in
+     * progress, and its value index. The keys and values themselves are not
+     * included.
+     *
+     * @return the estimated size of the table in bytes.
+     */
+    synchronized long footprint() {
+        long bytes = 2 * align(ARRAY_HEADER + (long) keys.length * REFERENCE);
+        if (oldKeys != null) bytes += 2 * align(ARRAY_HEADER + (long) oldKeys.length * REFERENCE);
+        return bytes + valueIndexFootprint();
+    }
+
+    /**
+     * Rounds a size in bytes up to the 8 bytes alignment of the objects in
+     * the heap.
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    // Slot accessors //
+
+    /**
+     * Returns the number of slots of the table, including the slots of the
+     * old arrays while a rebuild is in progress. Every slot index lies
+     * between 0 inclusive and this number exclusive.
+     *
+     * @return the number of slots of the table.
+     */
+    int capacity() {
+        Object[] old = oldKeys;
+        return keys.length + (old == null ? 0 : old.length);
+    }
+
+    /**
+     * Returns the index of the first slot holding a live mapping at or after
+     * {@code from}, or {@link #capacity()} if there is none.
+     *
+     * @param from the slot to start searching from.
+     * @return the first live slot at or after {@code from}.
+     */
+    int nextSlot(int from) {
+        Object[] ks = keys;
+        while (from < ks.length && (ks[from] == null || ks[from] == TOMBSTONE)) from++;
+        Object[] old = oldKeys;
+        if (from < ks.length || old == null) return from;
+        int i = from - ks.length;
+        while (i < old.length && (old[i] == null || old[i] == TOMBSTONE)) i++;
+        return ks.length + i;
+    }
+
+    /**
+     * Returns the index of the first slot holding a live mapping at or after
+     * {@code from} and before {@code to}, or {@code to} if there is none. Used
+     * by the spliterators of the views to walk a range of slots.
+     *
+     * @param from the slot to start searching from.
+     * @param to   the slot to stop searching at, at most {@link #capacity()}.
+     * @return the first live slot between {@code from} and {@code to}.
+     */
+    int nextSlot(int from, int to) {
+        Object[] ks = keys;
+        for (int end = Math.min(to, ks.length); from < end; from++) {
+            if (ks[from] != null && ks[from] != TOMBSTONE) return from;
+        }
+        Object[] old = oldKeys;
+        if (old != null) {
+            int end = Math.min(to - ks.length, old.length);
+            for (int i = Math.max(from - ks.length, 0); i < end; i++) {
+                if (old[i] != null && old[i] != TOMBSTONE) return ks.length + i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns the key stored in a live slot.
+     *
+     * @param slot index of a live slot.
+     * @return the key stored in the slot.
+     */
+    Object keyAt(int slot) {
+        Object[] ks = keys;
+        return slot < ks.length ? ks[slot] : oldKeys[slot - ks.length];
+    }
+
+    /**
+     * Returns the value stored in a live slot.
+     *
+     * @param slot index of a live slot.
+     * @return the value stored in the slot.
+     */
+    Object valueAt(int slot) {
+        Object[] vals = values;
+        return slot < vals.length ? vals[slot] : oldValues[slot - vals.length];
+    }
+
+    /**
+     * Removes the mapping stored in a slot if the slot still holds the given
+     * key. Used by iterators, which remember the slot of the last returned
+     * element, to remove it without probing.
+     *
+     * @param slot index of the slot.
+     * @param key  key that the slot is expected to hold.
+     * @return {@code true} if the mapping was removed.
+     */
+    synchronized boolean removeAt(int slot, Object key) {
+        if (slot >= capacity() || keyAt(slot) != key) return false;
+        erase(slot);
+        return true;
+    }
+
+    // Internals //
+
+    /**
+     * Spreads the key's hash code so that keys differing only in the high
+     * bits do not collide on the low bits used as slot index.
+     */
+    static int hash(Object key) {
+        return spread(key.hashCode());
+    }
+
+    /**
+     * Spreads an already computed hash code, see {@link #hash(Object)}.
+     */
+    static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot holding the key, or -1 if the key is not present.
+     */
+    private int find(Object key) {
+        return find(key, hash(key));
+    }
+
+    /**
+     * Returns the slot holding the key given its spread hash, or -1 if the
+     * key is not present.
+     */
+    private int find(Object key, int hash) {
+        int slot = indexOf(keys, key, hash);
+        if (slot >= 0 || oldKeys == null) return slot;
+        slot = indexOf(oldKeys, key, hash);
+        return slot < 0 ? -1 : keys.length + slot;
+    }
+
+    /**
+     * Returns the slot of the given key array holding the key, or -1 if the
+     * key is not present.
+     */
+    private int indexOf(Object[] ks, Object key, int hash) {
+        int mask = ks.length - 1;
+        int slot = hash & mask;
+        for (int step = 1; ; step++) {
+            Object k = ks[slot];
+            if (k == null) return -1;
+            if (k != TOMBSTONE && (k == key || k.equals(key))) return slot;
+            slot = (slot + (probing == LINEAR ? 1 : step)) & mask;
+        }
+    }
+
+    /**
+     * Performs the action for each live slot of the given arrays, checking
+     * after each call that the table has not been modified.
+     */
+    private void forEach(Object[] ks, Object[] vals, HBiConsumer action, int expected) {
+        for (int i = 0; i < ks.length; i++) {
+            Object k = ks[i];
+            if (k != null && k != TOMBSTONE) {
+                action.accept(k, vals[i]);
+                checkModifications(expected);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the value array contains the value.
+     */
+    private static boolean contains(Object[] vals, Object value) {
+        for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null && value.equals(vals[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the slot holding the key or, if the key is not present,
+     * {@code -(slot + 1)} where slot is the one of the new arrays the key
+     * should be inserted in: the first tombstone met, or the free slot ending
+     * the probe sequence.
+     */
+    private int probe(Object key, int keyHash) {
+        int hash = spread(keyHash);
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        int free = -1;
+        for (int step = 1; ; step++) {
+            Object k = keys[slot];
+            if (k == null) break;
+            if (k == TOMBSTONE) {
+                if (free < 0) free = slot;
+            } else if (k == key || k.equals(key)) {
+                return slot;
+            }
+            slot = (slot + (probing == LINEAR ? 1 : step)) & mask;
+        }
+        if (oldKeys != null) {
+            int oldSlot = indexOf(oldKeys, key, hash);
+            if (oldSlot >= 0) return keys.length + oldSlot;
+        }
+        return -(free >= 0 ? free : slot) - 1;
+    }
+
+    /**
+     * Applies the result of a compound operation to the slot returned by
+     * {@link #probe(Object, int)}: a {@code null} value removes the mapping
+     * if present, any other value replaces or adds it.
+     */
+    private void store(int slot, Object key, int keyHash, Object value) {
+        if (slot >= 0) {
+            if (value == null) erase(slot);
+            else replaceAt(slot, keyHash, value);
+        } else if (value != null) {
+            insertAt(-slot - 1, key, keyHash, value);
+        }
+    }
+
+    /**
+     * Throws {@link ConcurrentModificationException} if the table has been
+     * structurally modified since {@code expected} was read.
+     */
+    private void checkModifications(int expected) {
+        if (modifications != expected) {
+            throw new ConcurrentModificationException("The map has been modified by the function or action.");
+        }
+    }
+
+    /**
+     * Replaces the value of a live slot, returning the previous one.
+     */
+    private Object replaceAt(int slot, int keyHash, Object value) {
+        own();
+        Object[] vals = values;
+        if (slot >= vals.length) {
+            slot -= vals.length;
+            vals = oldValues;
+        }
+        Object old = vals[slot];
+        vals[slot] = value;
+        int valueHash = value.hashCode();
+        int oldHash = old.hashCode();
+        valueHashSum += valueHash - oldHash;
+        entryHashSum += (keyHash ^ valueHash) - (keyHash ^ oldHash);
+        if (valueIndex != null) {
+            valueIndex.remove(old);
+            valueIndex.add(value);
+        }
+        return old;
+    }
+
+    /**
+     * Adds a mapping in a free slot or tombstone of the new arrays, then
+     * migrates some slots of a rebuild in progress or starts a rebuild.
+     */
+    private void insertAt(int slot, Object key, int keyHash, Object value) {
+        own();
+        int valueHash = value.hashCode();
+        keyHashSum += keyHash;
+        valueHashSum += valueHash;
+        entryHashSum += keyHash ^ valueHash;
+        if (valueIndex != null) valueIndex.add(value);
+
+        // Reusing a tombstone does not change the used slot count
+        if (keys[slot] == null) used++;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        modifications++;
+        if (oldKeys != null) migrate(MIGRATION_STEP);
+        if (used > threshold) rebuild();
+    }
+
+    /**
+     * Turns a live slot into a tombstone.
+     */
+    private void erase(int slot) {
+        own();
+        Object[] ks = keys;
+        Object[] vals = values;
+        if (slot >= ks.length) {
+            slot -= ks.length;
+            ks = oldKeys;
+            vals = oldValues;
+        }
+        int keyHash = ks[slot].hashCode();
+        int valueHash = vals[slot].hashCode();
+        keyHashSum -= keyHash;
+        valueHashSum -= valueHash;
+        entryHashSum -= keyHash ^ valueHash;
+        if (valueIndex != null) valueIndex.remove(vals[slot]);
+        ks[slot] = TOMBSTONE;
+        vals[slot] = null;
+        size--;
+        modifications++;
+    }
+
+    /**
+     * Starts rebuilding the table dropping the tombstones, doubling its size
+     * only if more than half of the used slots hold live mappings. The
+     * current arrays become the old arrays, migrated by the next insertions.
+     * A rebuild still in progress is completed first.
+     */
+    private void rebuild() {
+        rebuild(size > used / 2 && keys.length < MAX_SLOTS ? keys.length << 1 : keys.length);
+    }
+
+    /**
+     * Starts rebuilding the table into new arrays of the given number of
+     * slots, completing first a rebuild still in progress.
+     */
+    private void rebuild(int slots) {
+        own();
+        if (oldKeys != null) migrate(oldKeys.length);
+        oldKeys = keys;
+        oldValues = values;
+        migrated = 0;
+        allocate(slots);
+    }
+
+    /**
+     * Moves the mappings of at most {@code steps} slots of the old arrays
+     * into the new ones, dropping the old arrays once all their slots have
+     * been migrated.
+     */
+    private void migrate(int steps) {
+        int mask = keys.length - 1;
+        int end = Math.min(oldKeys.length, migrated + steps);
+        for (; migrated < end; migrated++) {
+            Object k = oldKeys[migrated];
+            if (k == null || k == TOMBSTONE) continue;
+
+            // The key is not in the new arrays, so the first tombstone will do
+            int slot = hash(k) & mask;
+            for (int step = 1; keys[slot] != null && keys[slot] != TOMBSTONE; step++) {
+                slot = (slot + (probing == LINEAR ? 1 : step)) & mask;
+            }
+            if (keys[slot] == null) used++;
+            keys[slot] = k;
+            values[slot] = oldValues[migrated];
+            oldKeys[migrated] = TOMBSTONE;
+            oldValues[migrated] = null;
+        }
+        if (migrated == oldKeys.length) {
+            oldKeys = null;
+            oldValues = null;
+        }
+    }
+
+    /**
+     * Makes private copies of the storage shared with snapshots, unless the
+     * other tables sharing it have all copied it already. Called before any
+     * write to the arrays or to the value index.
+     */
+    private void own() {
+        if (share == null) return;
+        if (share.get() > 1) {
+            keys = keys.clone();
+            values = values.clone();
+            if (oldKeys != null) {
+                oldKeys = oldKeys.clone();
+                oldValues = oldValues.clone();
+            }
+            if (valueIndex != null) valueIndex = new ValueIndex(valueIndex);
+        }
+        release();
+    }
+
+    /**
+     * Removes the interleaved keys and values of {@link #removeIfUnlocked}
+     * whose key is still mapped to the same value instance.
+     */
+    private synchronized boolean removeMatched(Object[] matched, int count) {
+        boolean removed = false;
+        for (int i = 0; i < count; i += 2) {
+            int slot = find(matched[i]);
+            if (slot >= 0 && valueAt(slot) == matched[i + 1]) {
+                erase(slot);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Stops sharing the storage, which the caller either copies or drops.
+     */
+    private void release() {
+        if (share != null) {
+            share.decrementAndGet();
+            share = null;
+        }
+    }
+
+    /**
+     * Replaces the new arrays with empty arrays of the given number of slots.
+     */
+    private void allocate(int slots) {
+        keys = new Object[slots];
+        values = new Object[slots];
+        used = 0;
+        threshold = slots == MAX_SLOTS ? slots - 1 : (int) (slots * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the smallest power of two number of slots that can hold the
+     * given number of mappings within the load factor.
+     */
+    private static int slotsFor(int capacity) {
+        int slots = MIN_SLOTS;
+        while (slots < MAX_SLOTS && slots * LOAD_FACTOR < capacity) slots <<= 1;
+        return slots;
+    }
+
+    // Inner classes //
+
+    /**
+     * A condition on a mapping of the table, see {@link #removeIf(Filter)}
+     * and {@link #removeIfUnlocked(Filter)}.
+     */
+    interface Filter {
+
+        /**
+         * Returns {@code true} if the mapping is matched.
+         *
+         * @param key   key of the mapping.
+         * @param value value of the mapping.
+         * @return {@code true} if the mapping is matched.
+         */
+        boolean test(Object key, Object value);
+    }
+}
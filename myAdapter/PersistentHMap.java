@@ -0,0 +1,1147 @@
+package myAdapter;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable implementation of {@link HMap} whose updates return new
+ * versions of the map. The mappings are stored in a <i>hash array mapped
+ * trie</i>: each node consumes {@value #BITS} bits of the hash of a key to
+ * select one of 32 branches, and only the branches in use are allocated,
+ * compacted in an array indexed through a bitmap. {@link #with(Object, Object)}
+ * and {@link #without(Object)} copy the nodes on the path from the root to the
+ * key, at most seven small arrays, and share every other node with the
+ * previous version. Holding many versions of a large map that differ in a few
+ * keys therefore costs little more than holding one of them.
+ *
+ * <p>Each node stores the mappings that are alone in their branch inline, in
+ * a single array followed by the child nodes, so a lookup touches one array
+ * per level. Removals keep the trie in its canonical form: a child left with a
+ * single mapping is replaced by the mapping, so equal maps have the same
+ * shape whatever the order of their updates. Keys whose hashes are equal on
+ * all 32 bits share a collision node scanned linearly.</p>
+ *
+ * <p>A version never changes once created and all its fields are final, so it
+ * can be read by any number of threads without locking. Publishing a new
+ * version is a single write of the variable holding it; declaring the
+ * variable {@code volatile} makes the new version visible to the readers that
+ * read it afterwards, while readers still holding the previous one keep a
+ * consistent view of it.</p>
+ *
+ * <p>The operations of {@link HMap} that modify the map, and those of its
+ * views and iterators, throw {@link UnsupportedOperationException}. As
+ * {@link MapAdapter}, this map does not support null keys nor null values.
+ * The hash code of the map is updated by every new version, so it is returned
+ * in constant time.</p>
+ *
+ * @see HMap
+ * @see MapAdapter#snapshot()
+ */
+public final class PersistentHMap implements HMap {
+
+    // Constants //
+
+    /** Number of hash bits consumed by each level of the trie. */
+    private static final int BITS = 5;
+
+    /** Mask selecting the branch from the shifted hash. */
+    private static final int BRANCH_MASK = (1 << BITS) - 1;
+
+    /** Shift past which all the hash bits have been consumed. */
+    private static final int HASH_BITS = 32;
+
+    /** Deepest level of the trie, the one of the collision nodes. */
+    private static final int MAX_DEPTH = (HASH_BITS + BITS - 1) / BITS + 1;
+
+    private static final BitmapNode EMPTY_NODE = new BitmapNode(0, 0, new Object[0]);
+
+    // Attributes //
+
+    private final Node root;
+    private final int size;
+
+    /** Sum of the hash codes of the entries. */
+    private final int hashCode;
+
+    // Constructors //
+
+    /**
+     * Creates an empty map.
+     */
+    public PersistentHMap() {
+        this(EMPTY_NODE, 0, 0);
+    }
+
+    /**
+     * Creates a map holding the mappings of the given map. If the given map is
+     * a PersistentHMap its trie is shared instead of copied.
+     *
+     * @param map The map to copy the data from.
+     *
+     * @throws NullPointerException if the given map is {@code null}, or
+     *                              contains {@code null} keys or values.
+     */
+    public PersistentHMap(HMap map) {
+        if (map == null) throw new NullPointerException();
+        PersistentHMap copy = new PersistentHMap().withAll(map);
+        this.root = copy.root;
+        this.size = copy.size;
+        this.hashCode = copy.hashCode;
+    }
+
+    private PersistentHMap(Node root, int size, int hashCode) {
+        this.root = root;
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    // Versions //
+
+    /**
+     * Returns a version of this map in which the key is mapped to the value.
+     * This map is left unchanged. If the key is already mapped to this very
+     * value, this map is returned.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return a map holding the mappings of this one and the new mapping.
+     *
+     * @throws NullPointerException if {@code key} or {@code value} is null.
+     */
+    public PersistentHMap with(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null.");
+        }
+        Change change = new Change();
+        Node updated = root.with(key, OpenHashTable.hash(key), value, 0, change);
+        if (updated == root) return this;
+        int keyHash = key.hashCode();
+        if (change.old == null) {
+            return new PersistentHMap(updated, size + 1, hashCode + (keyHash ^ value.hashCode()));
+        }
+        return new PersistentHMap(updated, size,
+                hashCode - (keyHash ^ change.old.hashCode()) + (keyHash ^ value.hashCode()));
+    }
+
+    /**
+     * Returns a version of this map without the mapping of the key. This map
+     * is left unchanged. If the key is not mapped, this map is returned.
+     *
+     * @param key key whose mapping is to be left out.
+     * @return a map holding the mappings of this one but the key's.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public PersistentHMap without(Object key) {
+        if (key == null) throw new NullPointerException();
+        Change change = new Change();
+        Node updated = root.without(key, OpenHashTable.hash(key), 0, change);
+        if (updated == root) return this;
+        return new PersistentHMap(updated, size - 1, hashCode - (key.hashCode() ^ change.old.hashCode()));
+    }
+
+    /**
+     * Returns a version of this map holding also the mappings of the given
+     * map, which replace the ones of this map for the same keys. If this map
+     * is empty and the given map is a PersistentHMap, the given map is
+     * returned.
+     *
+     * @param map mappings to be added.
+     * @return a map holding the mappings of both maps.
+     *
+     * @throws NullPointerException if the given map is {@code null}, or
+     *                              contains {@code null} keys or values.
+     */
+    public PersistentHMap withAll(HMap map) {
+        if (map == null) throw new NullPointerException();
+        if (map instanceof PersistentHMap && size == 0) return (PersistentHMap) map;
+        PersistentHMap result = this;
+        HIterator iter = map.entrySet().iterator();
+        while (iter.hasNext()) {
+            HEntry entry = (HEntry) iter.next();
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    // Methods //
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested.
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @throws NullPointerException if the key is {@code null}.
+     */
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified
+     * value. This operation requires time linear in the map size.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified
+     * value.
+     *
+     * @throws NullPointerException if the value is {@code null}.
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        return root.containsValue(value);
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @param key key whose associated value is to be returned.
+     * @return the value to which this map maps the specified key, or
+     * {@code null} if the map contains no mapping for this key.
+     *
+     * @throws NullPointerException if key is {@code null}.
+     */
+    public Object get(Object key) {
+        if (key == null) throw new NullPointerException();
+        return root.get(key, OpenHashTable.hash(key), 0);
+    }
+
+    /**
+     * This method is not supported, the map is immutable.
+     *
+     * @throws UnsupportedOperationException always, use
+     *                                       {@link #with(Object, Object)}.
+     */
+    public Object put(Object key, Object value) {
+        throw new UnsupportedOperationException("PersistentHMap is immutable, use 'with' instead.");
+    }
+
+    /**
+     * This method is not supported, the map is immutable.
+     *
+     * @throws UnsupportedOperationException always, use
+     *                                       {@link #without(Object)}.
+     */
+    public Object remove(Object key) {
+        throw new UnsupportedOperationException("PersistentHMap is immutable, use 'without' instead.");
+    }
+
+    /**
+     * This method is not supported, the map is immutable.
+     *
+     * @throws UnsupportedOperationException always, use
+     *                                       {@link #withAll(HMap)}.
+     */
+    public void putAll(HMap t) {
+        throw new UnsupportedOperationException("PersistentHMap is immutable, use 'withAll' instead.");
+    }
+
+    /**
+     * This method is not supported, the map is immutable.
+     *
+     * @throws UnsupportedOperationException always, an empty map is obtained
+     *                                       with {@link #PersistentHMap()}.
+     */
+    public void clear() {
+        throw new UnsupportedOperationException("PersistentHMap is immutable.");
+    }
+
+    /**
+     * Returns a read-only set view of the keys contained in this map.
+     *
+     * @return a set view of the keys contained in this map.
+     */
+    public HSet keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * Returns a read-only collection view of the values contained in this
+     * map.
+     *
+     * @return a collection view of the values contained in this map.
+     */
+    public HCollection values() {
+        return new ValueCollection();
+    }
+
+    /**
+     * Returns a read-only set view of the mappings contained in this map.
+     *
+     * @return a set view of the mappings contained in this map.
+     */
+    public HSet entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Performs the action for each mapping of this map, walking the trie
+     * recursively instead of through an iterator.
+     *
+     * @param action the action to be performed for each mapping.
+     *
+     * @throws NullPointerException if the action is {@code null}.
+     */
+    @Override
+    public void forEach(HBiConsumer action) {
+        if (action == null) throw new NullPointerException();
+        root.forEach(action);
+    }
+
+    /**
+     * Compares the specified object with this map for equality. Returns
+     * {@code true} if the given object is also a map and the two maps
+     * represent the same mappings.
+     *
+     * @param o object to be compared for equality with this map.
+     * @return {@code true} if the specified object is equal to this map.
+     */
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof HMap)) return false;
+        if (o instanceof PersistentHMap) {
+            PersistentHMap other = (PersistentHMap) o;
+            if (other.root == root) return true;
+            if (other.size != size || other.hashCode != hashCode) return false;
+        }
+        return entrySet().equals(((HMap) o).entrySet());
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of the
+     * hash codes of the entries of the map. The sum is maintained by every
+     * version, so this method runs in constant time.
+     *
+     * @return the hash code value for this map.
+     */
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Returns a string representation of this map in the same format of
+     * {@link MapAdapter#toString()}.
+     *
+     * @return The string representation of this map.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        HIterator iter = entrySet().iterator();
+        while (iter.hasNext()) {
+            sb.append(iter.next());
+            if (iter.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    // Internals //
+
+    /**
+     * Returns the bit of a node's bitmaps selecting the branch of the hash at
+     * the given shift.
+     */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & BRANCH_MASK);
+    }
+
+    /**
+     * Returns the position among the branches set in the bitmap of the branch
+     * selected by the bit.
+     */
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /**
+     * Returns a node holding two mappings whose keys are distinct, descending
+     * as long as their hashes select the same branch.
+     */
+    private static Node pair(Object k1, int h1, Object v1, Object k2, int h2, Object v2, int shift) {
+        if (shift >= HASH_BITS) return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+        int b1 = bit(h1, shift);
+        int b2 = bit(h2, shift);
+        if (b1 == b2) return new BitmapNode(0, b1, new Object[] {pair(k1, h1, v1, k2, h2, v2, shift + BITS)});
+        Object[] array = Integer.compareUnsigned(b1, b2) < 0
+                ? new Object[] {k1, v1, k2, v2}
+                : new Object[] {k2, v2, k1, v1};
+        return new BitmapNode(b1 | b2, 0, array);
+    }
+
+    /**
+     * Outcome of an update of the trie: the value previously mapped to the
+     * key, {@code null} if none.
+     */
+    private static final class Change {
+        Object old;
+    }
+
+    /**
+     * A node of the trie. Nodes are immutable: updates return a new node, or
+     * the same node if nothing changed.
+     */
+    private abstract static class Node {
+
+        /**
+         * Returns the value mapped to the key, {@code null} if none.
+         */
+        abstract Object get(Object key, int hash, int shift);
+
+        /**
+         * Returns the node with the key mapped to the value.
+         */
+        abstract Node with(Object key, int hash, Object value, int shift, Change change);
+
+        /**
+         * Returns the node without the mapping of the key.
+         */
+        abstract Node without(Object key, int hash, int shift, Change change);
+
+        /** Returns the number of mappings stored inline. */
+        abstract int payloadArity();
+
+        abstract Object keyAt(int i);
+
+        abstract Object valueAt(int i);
+
+        /** Returns the number of child nodes. */
+        abstract int nodeArity();
+
+        abstract Node nodeAt(int i);
+
+        /**
+         * Performs the action for each mapping of the node and its children.
+         */
+        final void forEach(HBiConsumer action) {
+            for (int i = 0; i < payloadArity(); i++) action.accept(keyAt(i), valueAt(i));
+            for (int i = 0; i < nodeArity(); i++) nodeAt(i).forEach(action);
+        }
+
+        /**
+         * Returns {@code true} if the node or its children map a key to the
+         * value.
+         */
+        final boolean containsValue(Object value) {
+            for (int i = 0; i < payloadArity(); i++) {
+                if (value.equals(valueAt(i))) return true;
+            }
+            for (int i = 0; i < nodeArity(); i++) {
+                if (nodeAt(i).containsValue(value)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A node of up to 32 branches. The array holds first the key and value of
+     * each inline mapping, in branch order, then the child nodes in reverse
+     * branch order, so that both parts grow from the ends of the array.
+     */
+    private static final class BitmapNode extends Node {
+
+        /** Branches holding an inline mapping. */
+        final int dataMap;
+
+        /** Branches holding a child node. */
+        final int nodeMap;
+
+        final Object[] array;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] array) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.array = array;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit) << 1;
+                Object k = array[i];
+                return k == key || k.equals(key) ? array[i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(index(nodeMap, bit)).get(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node with(Object key, int hash, Object value, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                Object k = array[i << 1];
+                Object v = array[(i << 1) + 1];
+                if (k == key || k.equals(key)) {
+                    change.old = v;
+                    if (v == value) return this;
+                    Object[] copy = array.clone();
+                    copy[(i << 1) + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, copy);
+                }
+                Node child = pair(k, OpenHashTable.hash(k), v, key, hash, value, shift + BITS);
+                return inlineToNode(bit, i, child);
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodeAt(j);
+                Node updated = child.with(key, hash, value, shift + BITS, change);
+                return updated == child ? this : replaceNode(j, updated);
+            }
+            int i = index(dataMap, bit) << 1;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(array, i, copy, i + 2, array.length - i);
+            return new BitmapNode(dataMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit) << 1;
+                Object k = array[i];
+                if (k != key && !k.equals(key)) return this;
+                change.old = array[i + 1];
+                Object[] copy = new Object[array.length - 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, copy);
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodeAt(j);
+                Node updated = child.without(key, hash, shift + BITS, change);
+                if (updated == child) return this;
+                // Keep the trie canonical, a lone mapping moves up
+                if (updated.nodeArity() == 0 && updated.payloadArity() == 1) {
+                    return nodeToInline(bit, j, updated.keyAt(0), updated.valueAt(0));
+                }
+                return replaceNode(j, updated);
+            }
+            return this;
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return array[i << 1];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return array[(i << 1) + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            return (Node) array[array.length - 1 - i];
+        }
+
+        /**
+         * Returns a copy of the node with the child at position {@code j}
+         * replaced.
+         */
+        private BitmapNode replaceNode(int j, Node node) {
+            Object[] copy = array.clone();
+            copy[copy.length - 1 - j] = node;
+            return new BitmapNode(dataMap, nodeMap, copy);
+        }
+
+        /**
+         * Returns a copy of the node with the inline mapping at position
+         * {@code i} of the branch replaced by a child.
+         */
+        private BitmapNode inlineToNode(int bit, int i, Node node) {
+            int base = payloadArity() << 1;
+            int nodes = nodeArity();
+            int j = index(nodeMap, bit);
+            Object[] copy = new Object[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, i << 1);
+            System.arraycopy(array, (i << 1) + 2, copy, i << 1, base - (i << 1) - 2);
+            // Children after j, stored first, move down by the removed pair
+            System.arraycopy(array, base, copy, base - 2, nodes - j);
+            copy[base - 2 + nodes - j] = node;
+            System.arraycopy(array, base + nodes - j, copy, base - 1 + nodes - j, j);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        /**
+         * Returns a copy of the node with the child at position {@code j} of
+         * the branch replaced by an inline mapping.
+         */
+        private BitmapNode nodeToInline(int bit, int j, Object key, Object value) {
+            int base = payloadArity() << 1;
+            int nodes = nodeArity();
+            int i = index(dataMap, bit) << 1;
+            Object[] copy = new Object[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(array, i, copy, i + 2, base - i);
+            // Children after j, stored first, move up by the added pair
+            System.arraycopy(array, base, copy, base + 2, nodes - 1 - j);
+            System.arraycopy(array, base + nodes - j, copy, base + nodes - j + 1, j);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, copy);
+        }
+    }
+
+    /**
+     * A node holding the mappings of keys whose hashes are equal on all
+     * their bits, as key and value pairs scanned linearly.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node with(Object key, int hash, Object value, int shift, Change change) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                change.old = array[i + 1];
+                if (change.old == value) return this;
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i < 0) return this;
+            change.old = array[i + 1];
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        int payloadArity() {
+            return array.length >> 1;
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return array[i << 1];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return array[(i << 1) + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        /**
+         * Returns the array index of the key, or -1 if the key is absent.
+         */
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == key || array[i].equals(key)) return i;
+            }
+            return -1;
+        }
+    }
+
+    // Inner classes //
+
+    /**
+     * Operations shared by the read-only views of the map.
+     */
+    public abstract class AbstractView extends AbstractMapView {
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException("Method 'remove' is not supported by this view.");
+        }
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public boolean removeAll(HCollection c) {
+            throw new UnsupportedOperationException("Method 'removeAll' is not supported by this view.");
+        }
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public boolean retainAll(HCollection c) {
+            throw new UnsupportedOperationException("Method 'retainAll' is not supported by this view.");
+        }
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Method 'clear' is not supported by this view.");
+        }
+
+        /**
+         * Returns the number of elements in this collection.
+         *
+         * @return the number of elements in this collection
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only set view of the mappings of the map.
+     *
+     * @see PersistentHMap#entrySet()
+     */
+    public class EntrySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains the mapping of the
+         * specified entry.
+         *
+         * @param o entry whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null
+         * @throws ClassCastException   if o is not instance of HMap.HEntry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) throw new NullPointerException();
+            if (!(o instanceof HEntry)) throw new ClassCastException();
+            HEntry entry = (HEntry) o;
+            if (entry.getKey() == null || entry.getValue() == null) throw new NullPointerException();
+
+            Object value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        /**
+         * Returns an iterator over the mappings of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new EntryIterator();
+        }
+
+        /**
+         * Returns the hash code of the map, maintained by every version.
+         *
+         * @return the hash code value for this set.
+         */
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Read-only set view of the keys of the map.
+     *
+     * @see PersistentHMap#keySet()
+     */
+    public class KeySet extends AbstractView implements HSet {
+
+        /**
+         * Returns {@code true} if the map contains a mapping for the specified
+         * key.
+         *
+         * @param o element whose presence in this set is to be tested.
+         * @return {@code true} if this set contains the specified element.
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        /**
+         * Returns an iterator over the keys of the map.
+         *
+         * @return an iterator over the elements in this set.
+         */
+        @Override
+        public HIterator iterator() {
+            return new KeyIterator();
+        }
+
+        /**
+         * Compares the specified object with this set for equality.
+         *
+         * @param o Object to be compared for equality with this set.
+         * @return {@code true} if the specified Object is equal to this set.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return setEquals(o);
+        }
+    }
+
+    /**
+     * Read-only collection view of the values of the map.
+     *
+     * @see PersistentHMap#values()
+     */
+    public class ValueCollection extends AbstractView {
+
+        /**
+         * Returns {@code true} if at least one key of the map is mapped to the
+         * specified value.
+         *
+         * @param o element whose presence in this collection is to be tested.
+         * @return {@code true} if this collection contains the specified
+         * element
+         *
+         * @throws NullPointerException if the specified element is null.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        /**
+         * Returns an iterator over the values of the map.
+         *
+         * @return an iterator over the elements in this collection.
+         */
+        @Override
+        public HIterator iterator() {
+            return new ValueIterator();
+        }
+
+        /**
+         * Compares the specified object with this collection for equality.
+         * This collection is equal to another collection that is not a set if
+         * both contain the same elements the same number of times.
+         *
+         * @param o Object to be compared for equality with this collection.
+         * @return {@code true} if the specified object is equal to this
+         * collection
+         */
+        @Override
+        public boolean equals(Object o) {
+            return valuesEqual(o);
+        }
+    }
+
+    // Iterator
+
+    /**
+     * Iterator over the mappings of the map, walking the trie depth first
+     * with an explicit stack. The inline mappings of a node are returned
+     * before the ones of its children.
+     */
+    public class EntryIterator implements HIterator {
+
+        // Attributes //
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+
+        /**
+         * Next position in each node of the stack: inline mappings first,
+         * then children.
+         */
+        private final int[] positions = new int[MAX_DEPTH];
+
+        private int depth = 0;
+
+        /** Node holding the next mapping, {@code null} at the end. */
+        private Node next;
+        private int nextIndex;
+
+        /** Node holding the mapping last returned. */
+        Node current;
+
+        // Constructors //
+
+        EntryIterator() {
+            nodes[0] = root;
+            advance();
+        }
+
+        // Methods //
+
+        /**
+         * Returns {@code true} if the iteration has more elements.
+         *
+         * @return {@code true} if the iterator has more elements.
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            int i = nextIndex();
+            return new Entry(current.keyAt(i), current.valueAt(i));
+        }
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Method 'remove' is not supported by this iterator.");
+        }
+
+        /**
+         * Moves forward, returning the index of the mapping passed in the
+         * node left in {@code current}.
+         */
+        final int nextIndex() {
+            if (next == null) throw new NoSuchElementException();
+            current = next;
+            int i = nextIndex;
+            advance();
+            return i;
+        }
+
+        /**
+         * Moves {@code next} to the following mapping, descending into the
+         * children and climbing back as needed.
+         */
+        private void advance() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                int position = positions[depth]++;
+                int payload = node.payloadArity();
+                if (position < payload) {
+                    next = node;
+                    nextIndex = position;
+                    return;
+                }
+                if (position - payload < node.nodeArity()) {
+                    nodes[++depth] = node.nodeAt(position - payload);
+                    positions[depth] = 0;
+                } else {
+                    nodes[depth--] = null;
+                }
+            }
+            next = null;
+        }
+    }
+
+    /**
+     * Iterator over the keys of the map.
+     */
+    public class KeyIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            int i = nextIndex();
+            return current.keyAt(i);
+        }
+    }
+
+    /**
+     * Iterator over the values of the map.
+     */
+    public class ValueIterator extends EntryIterator {
+
+        /**
+         * Returns the next element in the iteration.
+         *
+         * @return the next element in the iteration.
+         *
+         * @throws NoSuchElementException iteration has no more elements.
+         */
+        @Override
+        public Object next() {
+            int i = nextIndex();
+            return current.valueAt(i);
+        }
+    }
+
+    /**
+     * {@code PersistentHMap}'s entry implementation. Entries are immutable as
+     * the map they come from.
+     */
+    public static class Entry implements HEntry {
+
+        // Attributes //
+
+        private final Object key;
+        private final Object value;
+
+        // Constructors //
+
+        private Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Methods //
+
+        /**
+         * Returns the key corresponding to this entry.
+         *
+         * @return the key corresponding to this entry.
+         */
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value corresponding to this entry.
+         *
+         * @return the value corresponding to this entry.
+         */
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * This method is not supported, the map is immutable.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException("Method 'setValue' is not supported by this entry.");
+        }
+
+        /**
+         * Returns the hash code value for this map entry.
+         *
+         * @return the hash code value for this map entry.
+         */
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        /**
+         * Compares the specified object with this entry for equality.
+         *
+         * @param o object to be compared for equality with this map entry.
+         * @return {@code true} if the specified object is equal to this map
+         * entry.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof HEntry)) return false;
+            HEntry e = (HEntry) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        /**
+         * Creates a string representation of the entry following the
+         * {@code key=value} representation
+         */
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package myAdapter;
+
+import java.util.ConcurrentModificationException;
+
+/**
+ * A weight-bounded implementation of {@link HMap} meant to be used as a
+ * cache, evicting with the <i>W-TinyLFU</i> policy: a new mapping is only
+ * admitted into the cache if its key has been accessed more often, recently,
+ * than the key of the mapping it would evict. Unlike {@link LruHMap}, a scan
+ * of keys read once cannot flush the frequently used mappings out of the
+ * cache.
+ *
+ * <p>The mappings are split in three queues. New mappings enter a small
+ * <i>window</i>, about 1% of the maximum weight, in least recently used
+ * order, so a burst of accesses to a new key can build up its frequency. The
+ * mappings leaving the window become candidates for the <i>main</i> region,
+ * a segmented LRU: a candidate enters its <i>probation</i> segment and
+ * competes with the least recently used mapping of the segment, the one with
+ * the lower estimated frequency being evicted. A mapping used while on
+ * probation moves to the <i>protected</i> segment, holding up to 80% of the
+ * main region, whose least recently used mappings move back to probation
+ * when it is full.</p>
+ *
+ * <p>The frequencies of the keys are estimated by a count-min sketch of
+ * 4-bit counters, incremented by every {@link #get(Object)} and
+ * {@link #put(Object, Object)} including the misses, and periodically halved
+ * so that old accesses are forgotten. The sketch takes 8 bytes per
+ * mapping and grows with the number of mappings, up to 128 MB, keeping the
+ * frequencies it has counted.</p>
+ *
+ * <p>Each mapping has a weight, given by an {@link HWeigher} or 1 if the map
+ * has none; the current weight is returned by {@link #weightedSize()} and the
+ * heap retained by the structure of the map by {@link #footprint()}. An
+ * optional <i>eviction listener</i> is called with the key and the value of
+ * every evicted mapping, after the lock of the map has been released, so it
+ * can safely use the map. It is not called for mappings
+ * removed explicitly or by {@link #clear()}. The map counts the hits and the
+ * misses of {@link #get(Object)} and the evictions, see {@link #hitCount()},
+ * {@link #missCount()} and {@link #evictionCount()}.</p>
+ *
+ * <p>All the operations are synchronized on the map. The compound
+ * operations are the default ones of {@link HMap}: each of their steps is
+ * atomic, but not the operation as a whole. The views return the mappings of
+ * the window, then of probation, then of the protected segment, each from
+ * the least to the most recently used; their iterators are fail-fast and
+ * throw {@link ConcurrentModificationException} if the map is modified, or a
+ * mapping is used, other than through the iterator itself. As
+ * {@link MapAdapter}, the map does not support null keys nor null
+ * values.</p>
+ *
+ * @see HMap
+ * @see LruHMap
+ */
+public class TinyLfuHMap extends AbstractCacheHMap {
+
+    // Constants //
+
+    /** Queue of the new mappings, in access order. */
+    private static final int WINDOW = 0;
+
+    /** Segment of the main region holding the mappings used once there. */
+    private static final int PROBATION = 1;
+
+    /** Segment of the main region holding the mappings used again. */
+    private static final int PROTECTED = 2;
+
+    /** Fraction of the maximum weight given to the window. */
+    private static final double WINDOW_FRACTION = 0.01;
+
+    /** Fraction of the main region given to the protected segment. */
+    private static final double PROTECTED_FRACTION = 0.8;
+
+    /** Number of keys the sketch of a weighted map is first sized for. */
+    private static final int INITIAL_SKETCH_CAPACITY = 1024;
+
+    // Attributes //
+
+    private final long maximumWindow;
+    private final long maximumProtected;
+
+    /** Estimated frequencies of the keys, replaced by a larger one as the map grows. */
+    private FrequencySketch sketch;
+
+    // Constructors //
+
+    /**
+     * Creates an empty map holding at most {@code maximumSize} mappings and
+     * without eviction listener.
+     *
+     * @param maximumSize The maximum number of mappings of the map
+     *
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public TinyLfuHMap(long maximumSize) {
+        this(maximumSize, null, null);
+    }
+
+    /**
+     * Creates an empty map whose mappings weigh at most
+     * {@code maximumWeight} in total, calling the given listener for every
+     * evicted mapping.
+     *
+     * @param maximumWeight    The maximum total weight of the mappings of
+     *                         the map
+     * @param weigher          The function weighing each mapping, or
+     *                         {@code null} to count the mappings
+     * @param evictionListener The action called with the key and the value of
+     *                         each evicted mapping, or {@code null} for none
+     *
+     * @throws IllegalArgumentException if the maximum weight is not positive.
+     */
+    public TinyLfuHMap(long maximumWeight, HWeigher weigher, HBiConsumer evictionListener) {
+        super(maximumWeight, weigher, evictionListener, 3);
+        maximumWindow = Math.max(1, (long) (maximumWeight * WINDOW_FRACTION));
+        maximumProtected = (long) ((maximumWeight - maximumWindow) * PROTECTED_FRACTION);
+        sketch = new FrequencySketch(weigher == null ? maximumWeight : INITIAL_SKETCH_CAPACITY);
+    }
+
+    // Methods //
+
+    /**
+     * Returns the estimated number of recent accesses to the key, from 0 to
+     * 15, as used to choose the mappings to evict.
+     *
+     * @param key the key whose frequency is estimated.
+     * @return the estimated frequency of the key.
+     *
+     * @throws NullPointerException if {@code key} is null.
+     */
+    public synchronized int frequency(Object key) {
+        if (key == null) throw new NullPointerException("Key must not be null.");
+        return sketch.frequency(OpenHashTable.hash(key));
+    }
+
+    /**
+     * Returns an estimate of the heap retained by the structure of this map
+     * in bytes, including its frequency sketch. See
+     * {@link AbstractCacheHMap#footprint()}.
+     *
+     * @return the estimated size of the structure of this map in bytes.
+     */
+    @Override
+    public synchronized long footprint() {
+        return super.footprint() + sketch.footprint();
+    }
+
+    // Policy //
+
+    @Override
+    void recordAccess(Object key) {
+        sketch.increment(OpenHashTable.hash(key));
+    }
+
+    @Override
+    void onInsert(Node node) {
+        if (size() > sketch.capacity()) sketch.ensureCapacity(2L * sketch.capacity());
+        link(WINDOW, node);
+        if (!overweight()) drainWindow();
+    }
+
+    @Override
+    void onAccess(Node node) {
+        if (node.queue != PROBATION) {
+            moveToTail(node.queue, node);
+            return;
+        }
+        moveToTail(PROTECTED, node);
+        while (queueWeight(PROTECTED) > maximumProtected) moveToTail(PROBATION, headOf(PROTECTED));
+    }
+
+    /**
+     * Moves the mappings over the weight of the window to probation, then
+     * evicts until the map fits its maximum weight. Each candidate from the
+     * window, in order, competes with the head of probation and the less
+     * frequent of the two is evicted; when no candidate is left the heads of
+     * probation, protected and the window are evicted in this order.
+     */
+    @Override
+    void evictEntries() {
+        Node candidate = drainWindow();
+        while (overweight()) {
+            Node victim = headOf(PROBATION);
+            if (victim == null) victim = headOf(PROTECTED);
+            if (victim == null) victim = headOf(WINDOW);
+            Node evicted = victim;
+            if (candidate != null && candidate != victim
+                    && sketch.frequency(OpenHashTable.hash(candidate.key))
+                    <= sketch.frequency(OpenHashTable.hash(victim.key))) {
+                evicted = candidate;
+            }
+            if (evicted == candidate) candidate = nextInQueue(candidate);
+            evict(evicted);
+        }
+    }
+
+    /**
+     * Moves the least recently used mappings of the window to the tail of
+     * probation until the window fits its maximum weight, and returns the
+     * first one moved or {@code null} if none is.
+     */
+    private Node drainWindow() {
+        Node first = null;
+        while (queueWeight(WINDOW) > maximumWindow) {
+            Node node = headOf(WINDOW);
+            moveToTail(PROBATION, node);
+            if (first == null) first = node;
+        }
+        return first;
+    }
+}
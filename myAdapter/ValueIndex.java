@@ -0,0 +1,204 @@
+package myAdapter;
+
+import java.util.Arrays;
+
+/**
+ * A multiset of the values stored in an {@link OpenHashTable}, counting how
+ * many keys are mapped to each distinct value. It lets the table answer value
+ * membership queries with a hash lookup instead of a scan of the whole value
+ * array. It is also used as a scratch multiset to compare value collections
+ * by occurrence counts.
+ *
+ * <p>Distinct values and their counts are stored in two parallel arrays using
+ * linear probing. A value whose count drops to zero is removed shifting back
+ * the following values of its cluster, so no tombstones are needed.</p>
+ *
+ * <p>The index is not synchronized: an index owned by a table is only
+ * accessed while holding the table's lock.</p>
+ */
+final class ValueIndex {
+
+    // Constants //
+
+    /** Smallest allowed number of slots, must be a power of two. */
+    private static final int MIN_SLOTS = 16;
+
+    /** Maximum fraction of slots holding a value. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Attributes //
+
+    private Object[] values;
+    private int[] counts;
+
+    /** Number of distinct values. */
+    private int size;
+
+    /** Value of {@code size} over which the index grows. */
+    private int threshold;
+
+    // Constructors //
+
+    /**
+     * Creates an empty index able to hold {@code capacity} distinct values
+     * without growing.
+     *
+     * @param capacity the number of distinct values the index must hold
+     *                 before growing.
+     */
+    ValueIndex(int capacity) {
+        int slots = MIN_SLOTS;
+        while (slots < (1 << 30) && slots * LOAD_FACTOR < capacity) slots <<= 1;
+        allocate(slots);
+    }
+
+    /**
+     * Creates an index counting the same values of another one.
+     *
+     * @param source the index to copy.
+     */
+    ValueIndex(ValueIndex source) {
+        this.values = source.values.clone();
+        this.counts = source.counts.clone();
+        this.size = source.size;
+        this.threshold = source.threshold;
+    }
+
+    // Methods //
+
+    /**
+     * Returns {@code true} if at least one occurrence of the value is counted.
+     *
+     * @param value a non null value.
+     * @return {@code true} if the value is counted at least once.
+     */
+    boolean contains(Object value) {
+        return find(value) >= 0;
+    }
+
+    /**
+     * Returns the number of occurrences of the value.
+     *
+     * @param value a non null value.
+     * @return the number of occurrences of the value.
+     */
+    int count(Object value) {
+        int slot = find(value);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Counts one more occurrence of the value.
+     *
+     * @param value a non null value.
+     */
+    void add(Object value) {
+        int mask = values.length - 1;
+        int slot = OpenHashTable.hash(value) & mask;
+        while (values[slot] != null) {
+            if (values[slot].equals(value)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[slot] = value;
+        counts[slot] = 1;
+        if (++size > threshold) grow();
+    }
+
+    /**
+     * Counts one less occurrence of the value, dropping it when no occurrence
+     * is left.
+     *
+     * @param value a non null value.
+     * @return {@code false} if the value was not counted.
+     */
+    boolean remove(Object value) {
+        int slot = find(value);
+        if (slot < 0) return false;
+        if (--counts[slot] > 0) return true;
+
+        // Shift back the values of the cluster that would become unreachable
+        int mask = values.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = OpenHashTable.hash(values[i]) & mask;
+            boolean reachable = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!reachable) {
+                values[hole] = values[i];
+                counts[hole] = counts[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+        counts[hole] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every counted value. The number of slots is left unchanged.
+     */
+    void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns an estimate of the heap retained by the index in bytes, that is
+     * the size of its two arrays. The counted values are shared with the table
+     * and are not included.
+     *
+     * @return the estimated size of the index in bytes.
+     */
+    long footprint() {
+        return OpenHashTable.align(OpenHashTable.ARRAY_HEADER + (long) values.length * OpenHashTable.REFERENCE)
+                + OpenHashTable.align(OpenHashTable.ARRAY_HEADER + (long) counts.length * Integer.BYTES);
+    }
+
+    // Internals //
+
+    /**
+     * Returns the slot holding the value, or -1 if the value is not counted.
+     */
+    private int find(Object value) {
+        int mask = values.length - 1;
+        int slot = OpenHashTable.hash(value) & mask;
+        while (values[slot] != null) {
+            if (values[slot].equals(value)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Doubles the number of slots re-inserting every counted value.
+     */
+    private void grow() {
+        Object[] oldValues = values;
+        int[] oldCounts = counts;
+        allocate(oldValues.length << 1);
+
+        int mask = values.length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = OpenHashTable.hash(oldValues[i]) & mask;
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            values[slot] = oldValues[i];
+            counts[slot] = oldCounts[i];
+            size++;
+        }
+    }
+
+    /**
+     * Replaces the storage with empty arrays of the given number of slots.
+     */
+    private void allocate(int slots) {
+        values = new Object[slots];
+        counts = new int[slots];
+        size = 0;
+        threshold = (int) (slots * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,88 @@
+package myTest;
+
+import java.util.Random;
+
+import myAdapter.MapAdapter;
+
+/**
+ * Measures the throughput of looking up batches of keys in a
+ * {@link MapAdapter}, comparing a loop of {@link MapAdapter#get(Object)}
+ * calls, which takes the table's lock and probes once per key, with a single
+ * {@link MapAdapter#getAll(Object[], Object[])} call per batch.
+ *
+ * <p>The map is much larger than the processor caches and the keys of each
+ * batch are drawn at random, so most lookups miss the cache. Several threads
+ * share the map to show the cost of the lock acquisitions as well.</p>
+ *
+ * <p>Usage:
+ * {@code java myTest.BatchLookupBenchmark [mappings] [batch] [threads] [rounds]},
+ * by default 4,000,000 mappings, batches of 256 keys, 1 thread and 5 rounds,
+ * the first of which warms up the JIT compiler and is not reported. Run it
+ * with a heap large enough to hold the map, for instance {@code -Xmx2g}.</p>
+ */
+public class BatchLookupBenchmark {
+
+    /** Number of batches looked up by each thread in each round. */
+    private static final int BATCHES = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int mappings = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        MapAdapter map = new MapAdapter(mappings);
+        Integer[] keys = new Integer[mappings];
+        for (int i = 0; i < mappings; i++) keys[i] = i * 0x61C88647;
+        map.putAll(keys, keys);
+
+        for (int round = 0; round < rounds; round++) {
+            boolean report = round > 0;
+            long single = run(map, keys, batch, threads, false);
+            long batched = run(map, keys, batch, threads, true);
+            if (report) {
+                long lookups = (long) BATCHES * batch * threads;
+                System.out.printf("get loop  %7.2f ns/key    getAll  %7.2f ns/key    speedup %5.2fx%n",
+                        (double) single / lookups * threads, (double) batched / lookups * threads,
+                        (double) single / batched);
+            }
+        }
+    }
+
+    /**
+     * Runs the lookups on the given number of threads and returns the elapsed
+     * time in nanoseconds.
+     */
+    private static long run(MapAdapter map, Integer[] keys, int batch, int threads, boolean batched)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long[] checksums = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(id);
+                Object[] batchKeys = new Object[batch];
+                Object[] out = new Object[batch];
+                long checksum = 0;
+                for (int b = 0; b < BATCHES; b++) {
+                    for (int i = 0; i < batch; i++) batchKeys[i] = keys[random.nextInt(keys.length)];
+                    if (batched) {
+                        map.getAll(batchKeys, out);
+                    } else {
+                        for (int i = 0; i < batch; i++) out[i] = map.get(batchKeys[i]);
+                    }
+                    for (int i = 0; i < batch; i++) checksum += (Integer) out[i];
+                }
+                checksums[id] = checksum;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+        long checksum = 0;
+        for (long c : checksums) checksum += c;
+        if (checksum == 42) System.out.println();
+        return elapsed;
+    }
+}
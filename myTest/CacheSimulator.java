@@ -0,0 +1,129 @@
+package myTest;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import myAdapter.HMap;
+import myAdapter.LruHMap;
+import myAdapter.TinyLfuHMap;
+
+/**
+ * Replays access traces against the caches and reports their hit rates,
+ * comparing the least recently used policy of {@link LruHMap} with the
+ * W-TinyLFU policy of {@link TinyLfuHMap}. Each access reads its key with
+ * {@link HMap#get(Object)} and, on a miss, puts it as if it had been loaded.
+ *
+ * <p>A trace file is a text file of keys separated by white space, in access
+ * order. Without trace files, a synthetic trace is replayed: keys drawn from
+ * a Zipf distribution, as the popular items of a web cache, interrupted by
+ * scans of keys read once, as a batch job would.</p>
+ *
+ * <p>Usage: {@code java myTest.CacheSimulator [maximumSize] [trace files...]},
+ * by default a maximum size of 1000 mappings and the synthetic trace.</p>
+ */
+public class CacheSimulator {
+
+    /** Number of distinct keys of the Zipf distribution of the synthetic trace. */
+    private static final int KEYS = 100_000;
+
+    /** Skew of the Zipf distribution of the synthetic trace. */
+    private static final double SKEW = 0.9;
+
+    public static void main(String[] args) throws IOException {
+        int maximumSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        if (args.length < 2) {
+            report("synthetic", syntheticTrace(42, 2_000_000), maximumSize);
+        }
+        for (int i = 1; i < args.length; i++) {
+            report(args[i], readTrace(args[i]), maximumSize);
+        }
+    }
+
+    /**
+     * Prints the hit rates of the caches of the given size on the trace.
+     */
+    private static void report(String name, Object[] trace, int maximumSize) {
+        double lru = hitRate(new LruHMap(maximumSize), trace);
+        double tinyLfu = hitRate(new TinyLfuHMap(maximumSize), trace);
+        System.out.printf("%s: %d accesses, maximum size %d%n", name, trace.length, maximumSize);
+        System.out.printf("  LRU       hit rate %6.2f%%%n", lru * 100);
+        System.out.printf("  W-TinyLFU hit rate %6.2f%%%n", tinyLfu * 100);
+    }
+
+    /**
+     * Replays the trace on the cache, putting every missed key, and returns
+     * the fraction of the accesses that hit.
+     *
+     * @param cache the cache, initially empty.
+     * @param trace the keys accessed, in order.
+     * @return the hit rate of the cache, between 0 and 1.
+     */
+    public static double hitRate(HMap cache, Object[] trace) {
+        long hits = 0;
+        for (Object key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return trace.length == 0 ? 0 : (double) hits / trace.length;
+    }
+
+    /**
+     * Returns a synthetic trace: keys drawn from a Zipf distribution, where
+     * every 50,000 accesses a scan reads 5,000 keys never seen before.
+     *
+     * @param seed   the seed of the random generator.
+     * @param length the number of accesses of the trace.
+     * @return the keys accessed, as Integer instances, and Long
+     *         instances for the scans.
+     */
+    public static Object[] syntheticTrace(long seed, int length) {
+        double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += 1 / Math.pow(i + 1, SKEW);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(seed);
+        Object[] trace = new Object[length];
+        int scanned = 0;
+        for (int i = 0; i < length; i++) {
+            if (i % 50_000 >= 45_000) {
+                trace[i] = (long) ++scanned;
+                continue;
+            }
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = KEYS - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < target) low = mid + 1;
+                else high = mid;
+            }
+            // Scatter the ranks so popular keys do not share their low bits
+            trace[i] = low * 0x61C88647;
+        }
+        return trace;
+    }
+
+    /**
+     * Reads the keys of a trace file, separated by white space.
+     */
+    private static Object[] readTrace(String file) throws IOException {
+        ArrayList<String> keys = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String key : line.trim().split("\\s+")) {
+                    if (!key.isEmpty()) keys.add(key);
+                }
+            }
+        }
+        return keys.toArray();
+    }
+}
@@ -0,0 +1,340 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.ConcurrentMapAdapter;
+import myAdapter.HCollection;
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.HSet;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the ConcurrentMapAdapter class. Since the class shares
+ * the {@link myAdapter.HMap} contract with {@link myAdapter.MapAdapter}, the
+ * tests focus on the behavior specific to the segmented implementation:
+ * consistency with an equivalent MapAdapter, growth of the segments, updates
+ * from several threads and weakly consistent iteration.
+ *
+ * @test.design This test case aims to verify that ConcurrentMapAdapter
+ * instances correctly implement the {@link myAdapter.HMap} interface and keep
+ * every mapping when updated concurrently by several threads.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.ConcurrentMapAdapter
+ */
+public class ConcurrentMapAdapterTests {
+
+    public ConcurrentMapAdapter map;
+
+    /**
+     * Sets up the test environment by creating a ConcurrentMapAdapter instance
+     * and populating it with 100 entries, where keys are "key0" to "key99" and
+     * values are "value0" to "value49" (values repeat every 50 keys).
+     */
+    @Before
+    public void setUp() {
+        map = new ConcurrentMapAdapter();
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + (i % 50));
+        }
+    }
+
+    // ConcurrentMapAdapter(int initialCapacity, int concurrencyLevel)
+
+    /**
+     * Tests that the constructor rejects illegal arguments.
+     *
+     * @test.design The test aims to verify that a negative initial capacity
+     * and a non positive concurrency level are rejected.
+     * @test.description The constructor is called with a negative capacity
+     * and then with a concurrency level of 0, each call is expected to throw
+     * {@link IllegalArgumentException}.
+     * @test.precondition None
+     * @test.postcondition No map is created
+     * @test.expectedresults Both calls throw {@link IllegalArgumentException}.
+     */
+    @Test
+    public void testConstructorIllegalArguments() {
+        try {
+            new ConcurrentMapAdapter(-1, 4);
+            fail("Negative capacity should be rejected");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new ConcurrentMapAdapter(10, 0);
+            fail("Zero concurrency level should be rejected");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    // HMap contract
+
+    /**
+     * Tests that the map holds the same mappings of an equivalent MapAdapter.
+     *
+     * @test.design The test aims to verify the basic operations of the map by
+     * comparison with a {@link MapAdapter} holding the same mappings.
+     * @test.description A MapAdapter is populated as the map created in the
+     * {@link #setUp()} method. The two maps are asserted to be equal in both
+     * directions, to have the same hash code and size. A key is then replaced
+     * and another removed in both maps and they are compared again. Finally
+     * get, containsKey and containsValue are checked on present and absent
+     * elements.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 99 mappings.
+     * @test.expectedresults The two maps are always equal.
+     */
+    @Test
+    public void testSameMappingsAsMapAdapter() {
+        MapAdapter expected = new MapAdapter();
+        for (int i = 0; i < 100; i++) {
+            expected.put("key" + i, "value" + (i % 50));
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(100, map.size());
+
+        assertEquals("value0", map.put("key0", "other"));
+        expected.put("key0", "other");
+        assertEquals("value1", map.remove("key1"));
+        expected.remove("key1");
+        assertNull(map.remove("key1"));
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(99, map.size());
+
+        assertEquals("other", map.get("key0"));
+        assertNull(map.get("absent"));
+        assertTrue(map.containsKey("key2"));
+        assertFalse(map.containsKey("key1"));
+        assertTrue(map.containsValue("value49"));
+        assertFalse(map.containsValue("absent"));
+    }
+
+    /**
+     * Tests that null keys and values are rejected.
+     *
+     * @test.design The test aims to verify that, as MapAdapter, the map throws
+     * {@link NullPointerException} for null keys and values.
+     * @test.description put is called with a null key and with a null value,
+     * get, remove and containsValue are called with null. Each call is
+     * expected to throw {@link NullPointerException}.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults Every call throws {@link NullPointerException}.
+     */
+    @Test
+    public void testNullRejected() {
+        Runnable[] calls = {
+                () -> map.put(null, "value"),
+                () -> map.put("key", null),
+                () -> map.get(null),
+                () -> map.remove(null),
+                () -> map.containsValue(null)
+        };
+        for (Runnable call : calls) {
+            try {
+                call.run();
+                fail("Null should be rejected");
+            } catch (NullPointerException expected) { }
+        }
+        assertEquals(100, map.size());
+    }
+
+    /**
+     * Tests that the map keeps every mapping while growing.
+     *
+     * @test.design The test aims to verify that the segments keep all the
+     * mappings when they grow from the smallest capacity.
+     * @test.description A map with initial capacity 0 and concurrency level 4
+     * is filled with 100000 mappings, then every mapping is read back and the
+     * size is checked.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 100000 mappings.
+     * @test.expectedresults Every mapping is found and the size is 100000.
+     */
+    @Test
+    public void testGrowth() {
+        ConcurrentMapAdapter grown = new ConcurrentMapAdapter(0, 4);
+        for (int i = 0; i < 100000; i++) grown.put(i, "value" + i);
+        assertEquals(100000, grown.size());
+        for (int i = 0; i < 100000; i++) assertEquals("value" + i, grown.get(i));
+    }
+
+    // Views
+
+    /**
+     * Tests the removal operations of the views.
+     *
+     * @test.design The test aims to verify that the views write through to
+     * the map.
+     * @test.description A key is removed through the key set, an entry through
+     * the entry set (first with a wrong value, which must not remove it), a
+     * value through the value collection and the keys ending with 9 through
+     * the key set iterator. The size and presence of the affected mappings
+     * are then checked. Finally retainAll with an empty collection empties the
+     * map.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is empty.
+     * @test.expectedresults Each removal is reflected by the map.
+     */
+    @Test
+    public void testViewRemovals() {
+        HSet keys = map.keySet();
+        HSet entries = map.entrySet();
+        HCollection values = map.values();
+
+        assertTrue(keys.remove("key0"));
+        assertFalse(keys.remove("key0"));
+
+        MapAdapter other = new MapAdapter();
+        other.put("key1", "wrong");
+        HMap.HEntry wrong = (HMap.HEntry) other.entrySet().iterator().next();
+        assertFalse(entries.remove(wrong));
+        wrong.setValue("value1");
+        assertTrue(entries.remove(wrong));
+        assertFalse(map.containsKey("key1"));
+
+        assertTrue(values.remove("value2"));
+        assertEquals(1, countValue("value2"));
+
+        HIterator iter = keys.iterator();
+        while (iter.hasNext()) {
+            if (((String) iter.next()).endsWith("9")) iter.remove();
+        }
+        assertEquals(87, map.size());
+        assertEquals(87, keys.toArray().length);
+
+        assertTrue(keys.retainAll(new MapAdapter().keySet()));
+        assertTrue(map.isEmpty());
+    }
+
+    // Concurrency
+
+    /**
+     * Tests that updates made by several threads are all kept.
+     *
+     * @test.design The test aims to verify that concurrent updates of
+     * different keys, which may fall in the same segment, never lose a
+     * mapping.
+     * @test.description Eight threads put 20000 distinct keys each into an
+     * empty map with initial capacity 0, forcing concurrent growth of the
+     * segments, and then remove half of them. After all the threads complete,
+     * the size and every remaining mapping are checked.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 80000 mappings.
+     * @test.expectedresults No mapping is lost and no removed mapping is left.
+     */
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        ConcurrentMapAdapter shared = new ConcurrentMapAdapter(0, 8);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int base = t * 20000;
+            threads[t] = new Thread(() -> {
+                for (int i = base; i < base + 20000; i++) shared.put(i, i);
+                for (int i = base; i < base + 20000; i += 2) shared.remove(i);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(80000, shared.size());
+        for (int i = 0; i < 160000; i++) {
+            assertEquals("Mapping of " + i, i % 2 == 0 ? null : (Object) i, shared.get(i));
+        }
+    }
+
+    /**
+     * Tests that compound operations are atomic.
+     *
+     * @test.design The test aims to verify that merge, compute and
+     * putIfAbsent made by several threads on the same keys never lose an
+     * update, which a get followed by a put would.
+     * @test.description Eight threads increment 100 shared counters 2000
+     * times each, alternating merge and compute, and call putIfAbsent on a
+     * shared key with their own value. After all the threads complete, every
+     * counter is checked and the shared key must be mapped to the value
+     * putIfAbsent returned to the other seven threads.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 101 mappings.
+     * @test.expectedresults Every counter equals 16000.
+     */
+    @Test
+    public void testAtomicCompoundOperations() throws InterruptedException {
+        ConcurrentMapAdapter shared = new ConcurrentMapAdapter(0, 4);
+        Object[] winners = new Object[8];
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                Object previous = shared.putIfAbsent("owner", id);
+                winners[id] = previous == null ? id : previous;
+                for (int round = 0; round < 2000; round++) {
+                    for (int i = 0; i < 100; i++) {
+                        if (round % 2 == 0) shared.merge(i, 1, (a, b) -> (Integer) a + (Integer) b);
+                        else shared.compute(i, (k, v) -> v == null ? 1 : (Integer) v + 1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(101, shared.size());
+        for (int i = 0; i < 100; i++) assertEquals("Counter " + i, 16000, shared.get(i));
+        for (Object winner : winners) assertEquals(shared.get("owner"), winner);
+    }
+
+    /**
+     * Tests that iterators are weakly consistent.
+     *
+     * @test.design The test aims to verify that iterating the views while
+     * another thread updates the map never throws and never returns a key
+     * twice.
+     * @test.description A writer thread repeatedly adds and removes keys
+     * "tmp0" to "tmp999" while the test thread iterates the key set ten times.
+     * Each iteration must complete without exceptions, return every key of the
+     * stable mappings created by the {@link #setUp()} method and return each
+     * key at most once.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds the 100 stable mappings.
+     * @test.expectedresults Iterations complete with no exception and no
+     * duplicate keys.
+     */
+    @Test
+    public void testWeaklyConsistentIteration() throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 1000; i++) map.put("tmp" + i, "tmp");
+                for (int i = 0; i < 1000; i++) map.remove("tmp" + i);
+            }
+        });
+        writer.start();
+        for (int round = 0; round < 10; round++) {
+            MapAdapter seen = new MapAdapter();
+            HIterator iter = map.keySet().iterator();
+            while (iter.hasNext()) {
+                Object key = iter.next();
+                assertNull("Key returned twice: " + key, seen.put(key, key));
+            }
+            for (int i = 0; i < 100; i++) assertTrue(seen.containsKey("key" + i));
+        }
+        writer.join();
+        assertEquals(100, map.size());
+    }
+
+    /**
+     * Returns the number of mappings of the map to the given value.
+     */
+    private int countValue(Object value) {
+        int count = 0;
+        HIterator iter = map.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().equals(value)) count++;
+        }
+        return count;
+    }
+}
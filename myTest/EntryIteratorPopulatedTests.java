@@ -210,6 +210,65 @@ public class EntryIteratorPopulatedTests {
         entry.setValue(null);
     }
 
+    /**
+     * Tests that an Entry carries the value of its mapping and that the value
+     * is updated by setValue.
+     *
+     * @test.design This test is designed to ensure that entries returned by
+     * the EntryIterator hold the value of the mapping they were created from,
+     * so that reading it does not depend on a new lookup in the map, and that
+     * setValue() keeps the carried value in sync with the map.
+     * @test.description Every entry returned by the EntryIterator created in
+     * the {@link #setUp()} method is checked to have the value mapped to its
+     * key in the map. Then setValue() is called on the last entry and its
+     * getValue() is asserted to return the new value.
+     * @test.precondition The map must be populated with entries before this
+     * test runs.
+     * @test.postcondition The last iterated mapping has value "newValue".
+     * @test.expectedresults Each entry value equals the mapped value and the
+     * value read after setValue() is the new one.
+     */
+    @Test
+    public void testEntryCarriesValue() {
+        Entry entry = null;
+        while (iter.hasNext()) {
+            entry = (Entry) iter.next();
+            assertEquals("Entry value should match the map", map.get(entry.getKey()), entry.getValue());
+        }
+        entry.setValue("newValue");
+        assertEquals("Entry value should be updated by setValue", "newValue", entry.getValue());
+    }
+
+    /**
+     * Tests that setValue does not map again a key whose mapping has been
+     * removed.
+     *
+     * @test.design This test is designed to ensure that setValue() replaces
+     * the value only if the key is still mapped, so that an entry outliving
+     * its mapping cannot add it back to the map.
+     * @test.description An entry is obtained from the EntryIterator created in
+     * the {@link #setUp()} method and its key is removed from the map. Then
+     * setValue() is called on the entry. The key is then mapped again and
+     * setValue() is called a second time.
+     * @test.precondition The map must be populated with entries before this
+     * test runs.
+     * @test.postcondition The map holds 100 mappings.
+     * @test.expectedresults The first setValue() returns {@code null} and
+     * leaves the key unmapped, the second one replaces the new mapping.
+     */
+    @Test
+    public void testEntrySetValueAfterRemoval() {
+        Entry entry = (Entry) iter.next();
+        Object key = entry.getKey();
+        map.remove(key);
+        assertNull("setValue should not find the removed mapping", entry.setValue("newValue"));
+        assertFalse("setValue should not map the key again", map.containsKey(key));
+        map.put(key, "again");
+        assertEquals("again", entry.setValue("newValue"));
+        assertEquals("newValue", map.get(key));
+        assertEquals(100, map.size());
+    }
+
     // Entry.equals()
 
     /**
@@ -568,6 +568,59 @@ public class EntrySetPopulatedTests {
         assertEquals("Map should have size 99 after removing an element", 99, map.size());
     }
 
+    /**
+     * Tests that contains and remove look the key of the entry up only once.
+     *
+     * @test.design The test aims to verify that contains and remove are
+     * answered by a single conditional lookup in the backing table instead of
+     * a sequence of containsKey, get and remove calls.
+     * @test.description A key counting the calls of its equals method is
+     * mapped in the map. Entries with an equal key and a different or the
+     * same value are then tested with contains and removed with remove, and
+     * the number of equals calls of each operation is checked.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds the 100 mappings created by the
+     * {@link #setUp()} method.
+     * @test.expectedresults Each operation compares the key once and returns
+     * the correct result.
+     */
+    @Test
+    public void testContainsAndRemoveSingleLookup() {
+        int[] comparisons = new int[1];
+        class CountingKey {
+            @Override
+            public boolean equals(Object o) {
+                comparisons[0]++;
+                return o instanceof CountingKey;
+            }
+
+            @Override
+            public int hashCode() {
+                return 42;
+            }
+        }
+        Object key = new CountingKey();
+        map.put(key, "value");
+        MapAdapter other = new MapAdapter();
+        other.put(new CountingKey(), "wrong");
+        Object wrong = other.entrySet().iterator().next();
+        other.clear();
+        other.put(new CountingKey(), "value");
+        Object right = other.entrySet().iterator().next();
+
+        comparisons[0] = 0;
+        assertFalse(entrySet.contains(wrong));
+        assertEquals(1, comparisons[0]);
+        assertTrue(entrySet.contains(right));
+        assertEquals(2, comparisons[0]);
+        assertFalse(entrySet.remove(wrong));
+        assertEquals(3, comparisons[0]);
+        assertTrue(entrySet.remove(right));
+        assertEquals(4, comparisons[0]);
+        assertFalse(map.containsKey(key));
+        assertEquals(100, map.size());
+    }
+
     // EntrySet.containsAll(HCollection)
 
     /**
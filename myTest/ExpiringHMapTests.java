@@ -0,0 +1,226 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.ExpiringHMap;
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the ExpiringHMap class. The tests drive the clock of
+ * the map to check that expired mappings are invisible as soon as they
+ * expire and that the timing wheel removes them, at every level.
+ *
+ * @test.design This test case aims to verify that ExpiringHMap instances
+ * behave as an HMap holding only the mappings whose time to live has not
+ * elapsed.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.ExpiringHMap
+ */
+public class ExpiringHMapTests {
+
+    public long[] now;
+    public ExpiringHMap map;
+
+    /**
+     * Sets up the test environment by creating an ExpiringHMap with a default
+     * time to live of 1000 milliseconds, driven by a clock set by the tests.
+     */
+    @Before
+    public void setUp() {
+        now = new long[] {-5000};
+        map = new ExpiringHMap(1000, () -> now[0]);
+    }
+
+    /**
+     * Tests that a mapping disappears when its time to live elapses.
+     *
+     * @test.design The test aims to verify the visibility of expired mappings
+     * through every read operation, exactly at the expiration time.
+     * @test.description Key "a" is put with the default time to live and key
+     * "b" with a time to live of 100 milliseconds. The clock is moved to 1
+     * millisecond before and then to the expiration time of "b", and then of
+     * "a".
+     * @test.precondition The map is empty.
+     * @test.postcondition The map is empty.
+     * @test.expectedresults Each mapping is visible up to 1 millisecond
+     * before its expiration time and invisible to get, containsKey,
+     * containsValue, size and the views from then on.
+     */
+    @Test
+    public void testExpiration() {
+        map.put("a", "A");
+        map.put("b", "B", 100);
+        now[0] += 99;
+        assertEquals("B", map.get("b"));
+        assertEquals(1, map.timeToLive("b"));
+        assertEquals(2, map.size());
+        now[0] += 1;
+        assertNull(map.get("b"));
+        assertFalse(map.containsKey("b"));
+        assertFalse(map.containsValue("B"));
+        assertEquals(-1, map.timeToLive("b"));
+        assertEquals(1, map.size());
+        assertEquals("{a=A}", map.toString());
+        assertEquals(900, map.timeToLive("a"));
+
+        now[0] += 899;
+        assertTrue(map.keySet().contains("a"));
+        now[0] += 1;
+        assertTrue(map.isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+        assertEquals(new MapAdapter(), map);
+    }
+
+    /**
+     * Tests the timing wheel against a model over times to live of every
+     * level.
+     *
+     * @test.design The test aims to verify that the wheel removes every
+     * expired mapping and only them, whatever the level of its bucket and
+     * however far the clock jumps, including mappings replaced or removed
+     * before they expire.
+     * @test.description 20000 random operations over 2000 keys put mappings
+     * with times to live from 1 millisecond to about 200 days, remove them
+     * or move the clock forward by up to about 100 days, most often by far
+     * less. A model records the expiration time of each key. After each
+     * operation the size of the map, and every 100 operations its mappings,
+     * are compared with the live mappings of the model.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition None.
+     * @test.expectedresults The size, which only counts the mappings not yet
+     * removed by the wheel, and the mappings always match the model.
+     */
+    @Test
+    public void testWheel() {
+        long[] clock = {0};
+        ExpiringHMap wheel = new ExpiringHMap(Long.MAX_VALUE, () -> clock[0]);
+        MapAdapter expirations = new MapAdapter();
+        Random random = new Random(11);
+        for (int op = 0; op < 20000; op++) {
+            int key = random.nextInt(2000);
+            int action = random.nextInt(10);
+            if (action < 6) {
+                long ttl = 1 + (random.nextLong() >>> 1) % (1L << random.nextInt(35));
+                wheel.put(key, op, ttl);
+                expirations.put(key, new long[] {clock[0] + ttl, op});
+            } else if (action < 8) {
+                wheel.remove(key);
+                expirations.remove(key);
+            } else {
+                clock[0] += random.nextLong() >>> (31 + random.nextInt(33));
+            }
+            MapAdapter live = new MapAdapter();
+            HIterator iter = expirations.entrySet().iterator();
+            while (iter.hasNext()) {
+                HMap.HEntry entry = (HMap.HEntry) iter.next();
+                long[] mapping = (long[]) entry.getValue();
+                if (mapping[0] > clock[0]) live.put(entry.getKey(), (int) mapping[1]);
+            }
+            assertEquals(live.size(), wheel.size());
+            if (op % 100 == 0) assertEquals(live, wheel);
+        }
+    }
+
+    /**
+     * Tests the times to live of the mappings put and replaced.
+     *
+     * @test.design The test aims to verify that replacing a mapping restarts
+     * its time to live while setting the value of an entry does not, that
+     * maps without a default time to live keep the mappings put without one
+     * and that illegal arguments are rejected.
+     * @test.description Key "a" is put, replaced halfway through its time to
+     * live and checked after the first expiration time. Key "k" is put into
+     * another map with a time to live of 100 milliseconds and its value is
+     * set through an entry of the entry set, before and after it expires. A map without default
+     * time to live receives a mapping with and one without time to live.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map holds the replaced mapping of "a".
+     * @test.expectedresults The replaced mapping outlives the first one, the
+     * value set through the entry keeps the time to live of the mapping and
+     * is not added back once expired, the mapping without time to live never
+     * expires and illegal arguments throw.
+     */
+    @Test
+    public void testTimeToLive() {
+        map.put("a", 1);
+        now[0] += 500;
+        assertEquals(1, map.put("a", 2));
+        now[0] += 700;
+        assertEquals(2, map.get("a"));
+        assertEquals(300, map.timeToLive("a"));
+
+        ExpiringHMap single = new ExpiringHMap(1000, () -> now[0]);
+        single.put("k", "v", 100);
+        HMap.HEntry entry = (HMap.HEntry) single.entrySet().iterator().next();
+        now[0] += 50;
+        assertEquals("v", entry.setValue("v2"));
+        assertEquals("v2", single.get("k"));
+        assertEquals(50, single.timeToLive("k"));
+        now[0] += 50;
+        assertNull(entry.setValue("v3"));
+        assertTrue(single.isEmpty());
+        assertEquals(200, map.timeToLive("a"));
+
+        long[] clock = {0};
+        ExpiringHMap forever = new ExpiringHMap(Long.MAX_VALUE, () -> clock[0]);
+        forever.put("kept", 1);
+        forever.put("dropped", 2, 10);
+        clock[0] = Long.MAX_VALUE / 2;
+        assertEquals("{kept=1}", forever.toString());
+        assertEquals(Long.MAX_VALUE, forever.timeToLive("kept"));
+        assertNull(new ExpiringHMap().put("k", 1, Long.MAX_VALUE));
+
+        assertThrows(IllegalArgumentException.class, () -> map.put("b", 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringHMap(-1));
+        assertThrows(NullPointerException.class, () -> map.put(null, 1, 10));
+        assertThrows(NullPointerException.class, () -> new ExpiringHMap(10, null));
+        assertFalse(map.containsKey("b"));
+    }
+
+    /**
+     * Tests the iterators over mappings expiring during the iteration.
+     *
+     * @test.design The test aims to verify that an iterator skips the
+     * mappings expired when it moves, and that removal through the iterator
+     * and clear unlink the mappings from the wheel.
+     * @test.description 10 keys are put with times to live of 10 to 100
+     * milliseconds. An iterator over the keys is created, the clock moves 50
+     * milliseconds and the iteration goes on, removing key 9. The map is then
+     * cleared and the clock moves past all the times to live.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map is empty.
+     * @test.expectedresults The iterator returns the 5 keys still alive, the
+     * removed key is gone and the map stays empty and consistent after the
+     * wheel advances.
+     */
+    @Test
+    public void testIterators() {
+        for (int i = 0; i < 10; i++) map.put(i, i, 10 * (i + 1));
+        HIterator iter = map.keySet().iterator();
+        now[0] += 50;
+        int count = 0;
+        while (iter.hasNext()) {
+            int key = (Integer) iter.next();
+            assertTrue(key >= 5);
+            if (key == 9) iter.remove();
+            count++;
+        }
+        assertEquals(5, count);
+        assertEquals(4, map.size());
+        assertFalse(map.containsKey(9));
+        assertTrue(map.values().remove(5));
+        assertEquals(3, map.size());
+        map.clear();
+        now[0] += 1000;
+        assertTrue(map.isEmpty());
+        map.put("x", "y");
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,176 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.ConcurrentMapAdapter;
+import myAdapter.HMap;
+import myAdapter.HPipeline;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the HPipeline class over the views of MapAdapter and
+ * ConcurrentMapAdapter instances. The tests focus on the laziness and the
+ * fusion of the stages, on short-circuiting and on parallel evaluation
+ * giving the same results of the sequential one.
+ *
+ * @test.design This test case aims to verify that pipelines compute the same
+ * results as explicit loops over the views, whether they are evaluated
+ * sequentially or in parallel.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.HPipeline
+ */
+public class HPipelineTests {
+
+    public MapAdapter map;
+
+    /**
+     * Sets up the test environment by creating a MapAdapter instance mapping
+     * the integers 0 to 199999 to themselves.
+     */
+    @Before
+    public void setUp() {
+        map = new MapAdapter();
+        for (int i = 0; i < 200000; i++) map.put(i, i);
+    }
+
+    /**
+     * Tests the stages and the terminal operations of a sequential pipeline.
+     *
+     * @test.design The test aims to verify that filter and map are applied in
+     * order and that every terminal operation returns the result of the
+     * equivalent loop.
+     * @test.description The even values of the map are doubled and then
+     * counted, summed with reduce and collected into a map grouping them by
+     * their remainder modulo 10 and counting them.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults The results equal the ones computed by a loop.
+     */
+    @Test
+    public void testSequential() {
+        HPipeline doubledEven = map.values().pipeline()
+                .filter(v -> (Integer) v % 2 == 0)
+                .map(v -> 2L * (Integer) v);
+        assertFalse(doubledEven.isParallel());
+
+        long sum = 0;
+        for (long i = 0; i < 200000; i += 2) sum += 2 * i;
+        assertEquals(100000L, doubledEven.count());
+        assertEquals(sum, doubledEven.reduce(0L, (a, b) -> (Long) a + (Long) b));
+
+        HMap groups = doubledEven.toMap(v -> (Long) v % 10, v -> 1, (a, b) -> (Integer) a + (Integer) b);
+        assertEquals(5, groups.size());
+        for (long digit = 0; digit < 10; digit += 2) assertEquals(20000, groups.get(digit));
+        assertEquals(200000, map.size());
+    }
+
+    /**
+     * Tests that parallel pipelines give the results of sequential ones.
+     *
+     * @test.design The test aims to verify that splitting the source, on the
+     * slot ranges of MapAdapter views and on the batches of the default
+     * spliterator of ConcurrentMapAdapter views, and combining the partial
+     * results in encounter order loses and duplicates no element.
+     * @test.description For the key set of the map and of a
+     * ConcurrentMapAdapter with the same mappings, a pipeline keeping the
+     * multiples of 3 is evaluated sequentially and in parallel on a pool of
+     * four threads with count, reduce, toMap and forEach.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The maps are unchanged.
+     * @test.expectedresults The parallel results equal the sequential ones.
+     */
+    @Test
+    public void testParallel() {
+        ConcurrentMapAdapter concurrent = new ConcurrentMapAdapter();
+        concurrent.putAll(map);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (HMap current : new HMap[] {map, concurrent}) {
+                HPipeline sequential = current.keySet().pipeline().filter(k -> (Integer) k % 3 == 0);
+                HPipeline parallel = sequential.parallel(pool);
+                assertTrue(parallel.isParallel());
+                assertFalse(parallel.sequential().isParallel());
+
+                assertEquals(sequential.count(), parallel.count());
+                assertEquals(66667L, parallel.count());
+                HPipeline longs = parallel.map(k -> (long) (Integer) k);
+                assertEquals(sequential.map(k -> (long) (Integer) k).reduce(0L, (a, b) -> (Long) a + (Long) b),
+                        longs.reduce(0L, (a, b) -> (Long) a + (Long) b));
+
+                HMap byDigit = parallel.toMap(k -> (Integer) k % 10, k -> 1L, (a, b) -> (Long) a + (Long) b);
+                assertEquals(sequential.toMap(k -> (Integer) k % 10, k -> 1L, (a, b) -> (Long) a + (Long) b), byDigit);
+
+                AtomicLong visited = new AtomicLong();
+                parallel.forEach(k -> visited.incrementAndGet());
+                assertEquals(66667L, visited.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that stages are only run by terminal operations and that
+     * anyMatch stops at the first match.
+     *
+     * @test.design The test aims to verify that a pipeline is lazy and that
+     * the stages are fused, each element going through all of them before the
+     * next one is read.
+     * @test.description A pipeline counting the calls of its mapping function
+     * is created and the count is checked before and after anyMatch is
+     * evaluated with a predicate matching the first element and with one
+     * matching no element. anyMatch is then evaluated in parallel.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults The function is not called before the terminal
+     * operation, is called once when the first element matches and once per
+     * element when none matches.
+     */
+    @Test
+    public void testLazyAndShortCircuit() {
+        long[] calls = new long[1];
+        HPipeline counted = map.keySet().pipeline().map(k -> {
+            calls[0]++;
+            return k;
+        });
+        assertEquals(0, calls[0]);
+        assertTrue(counted.anyMatch(k -> true));
+        assertEquals(1, calls[0]);
+        assertFalse(counted.anyMatch(k -> (Integer) k < 0));
+        assertEquals(200001, calls[0]);
+
+        assertTrue(map.values().pipeline().parallel().anyMatch(v -> (Integer) v == 123456));
+        assertFalse(map.values().pipeline().parallel().anyMatch(v -> (Integer) v < 0));
+    }
+
+    /**
+     * Tests that null arguments are rejected.
+     *
+     * @test.design The test aims to verify that pipelines reject
+     * {@code null} sources, functions, actions and pools when they are given,
+     * not when the pipeline is evaluated.
+     * @test.description Every method taking an argument is called with
+     * {@code null}.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults NullPointerException is thrown by each call.
+     */
+    @Test
+    public void testNullArguments() {
+        HPipeline pipeline = map.keySet().pipeline();
+        assertThrows(NullPointerException.class, () -> HPipeline.of(null));
+        assertThrows(NullPointerException.class, () -> pipeline.filter(null));
+        assertThrows(NullPointerException.class, () -> pipeline.map(null));
+        assertThrows(NullPointerException.class, () -> pipeline.parallel(null));
+        assertThrows(NullPointerException.class, () -> pipeline.forEach(null));
+        assertThrows(NullPointerException.class, () -> pipeline.anyMatch(null));
+        assertThrows(NullPointerException.class, () -> pipeline.reduce(0, null));
+        assertThrows(NullPointerException.class, () -> pipeline.toMap(k -> k, null, (a, b) -> a));
+    }
+}
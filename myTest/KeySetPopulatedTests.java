@@ -955,6 +955,64 @@ public class KeySetPopulatedTests {
                 100, keySet.size());
     }
 
+    /**
+     * Tests removeAll, retainAll and containsAll with key sets of maps
+     * larger and smaller than the map.
+     *
+     * @test.design The test aims to verify that the bulk operations return
+     * the same results whichever side they choose to iterate, including the
+     * size and hash code short-circuits of containsAll, and when the argument
+     * is a view of the same map.
+     * @test.description A large map holding "key0" to "key9999" and a small
+     * map holding "key0" to "key9" and "other" are created. containsAll is
+     * checked in both directions and against a map with the same size of the
+     * key set but different keys. Then removeAll is called with the small key
+     * set, retainAll with the large key set of a map holding only even keys,
+     * removeAll with the large key set, and retainAll and removeAll with a new
+     * key set of the same map.
+     * @test.precondition The map is correctly instantiated and populated with
+     * 100 items. A key set is correctly instantiated from the map.
+     * @test.postcondition The map is empty.
+     * @test.expectedresults Each operation returns whether the key set
+     * changed and leaves the expected keys.
+     */
+    @Test
+    public void testBulkOperationsWithKeySets() {
+        MapAdapter large = new MapAdapter();
+        for (int i = 0; i < 10000; i++) large.put("key" + i, i);
+        MapAdapter small = new MapAdapter();
+        for (int i = 0; i < 10; i++) small.put("key" + i, i);
+        small.put("other", -1);
+        MapAdapter shifted = new MapAdapter();
+        for (int i = 1; i <= 100; i++) shifted.put("key" + i, i);
+
+        assertTrue(large.keySet().containsAll(keySet));
+        assertFalse(keySet.containsAll(large.keySet()));
+        assertFalse(keySet.containsAll(small.keySet()));
+        assertFalse(keySet.containsAll(shifted.keySet()));
+        assertTrue(keySet.containsAll(map.keySet()));
+
+        assertTrue(keySet.removeAll(small.keySet()));
+        assertEquals(90, keySet.size());
+        assertFalse(keySet.contains("key9"));
+        assertFalse(keySet.removeAll(small.keySet()));
+
+        MapAdapter even = new MapAdapter();
+        for (int i = 0; i < 10000; i += 2) even.put("key" + i, i);
+        assertTrue(keySet.retainAll(even.keySet()));
+        assertEquals(45, keySet.size());
+        assertFalse(keySet.retainAll(even.keySet()));
+        assertTrue(keySet.contains("key10"));
+        assertFalse(keySet.contains("key11"));
+
+        assertFalse(keySet.retainAll(map.keySet()));
+        assertTrue(keySet.removeAll(large.keySet()));
+        assertTrue(map.isEmpty());
+        map.put("key0", "value0");
+        assertTrue(keySet.removeAll(map.keySet()));
+        assertTrue(map.isEmpty());
+    }
+
     // KeySet.clear()
 
 
@@ -1217,4 +1275,45 @@ public class KeySetPopulatedTests {
         map.keySet().containsAll(nullableMap.keySet());
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that two maps retaining the keys of each other concurrently do
+     * not deadlock.
+     *
+     * @test.design The test aims to verify that the bulk operations of a key
+     * set do not call {@code contains} on a view of another map while holding
+     * the lock of their own map, since the other map may be running the same
+     * operation the other way round.
+     * @test.description The map is filled up to 10000 keys and a second map
+     * holds keys "key0" to "key19999". Two threads call {@code retainAll} 200
+     * times, one on the key set of each map with the key set of the other.
+     * @test.precondition The map is correctly instantiated and populated with
+     * 100 items.
+     * @test.postcondition Both maps hold the keys "key0" to "key9999".
+     * @test.expectedresults Both threads end within 10 seconds.
+     */
+    @Test
+    public void testRetainAllAcrossMapsConcurrently() throws InterruptedException {
+        MapAdapter other = new MapAdapter();
+        for (int i = 0; i < 20000; i++) {
+            if (i < 10000) map.put("key" + i, "value" + i);
+            other.put("key" + i, "value" + i);
+        }
+        Thread first = new Thread(() -> {
+            for (int i = 0; i < 200; i++) map.keySet().retainAll(other.keySet());
+        });
+        Thread second = new Thread(() -> {
+            for (int i = 0; i < 200; i++) other.keySet().retainAll(map.keySet());
+        });
+        for (Thread thread : new Thread[] {first, second}) {
+            // A deadlocked thread must not keep the test runner alive
+            thread.setDaemon(true);
+            thread.start();
+        }
+        first.join(10_000);
+        second.join(10_000);
+        assertFalse(first.isAlive());
+        assertFalse(second.isAlive());
+        assertEquals(10000, map.size());
+        assertEquals(map, other);
+    }
+}
@@ -0,0 +1,344 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import myAdapter.ExpiringHMap;
+import myAdapter.HCollection;
+import myAdapter.HLoader;
+import myAdapter.HMap;
+import myAdapter.LoadingHMap;
+import myAdapter.LruHMap;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the LoadingHMap class. The tests focus on the loads:
+ * concurrent misses of a key share one load, bulk reads load their missing
+ * keys at once, failures reach every waiting caller and values are refreshed
+ * ahead of their expiration.
+ *
+ * @test.design This test case aims to verify that LoadingHMap instances call
+ * their loader once per missing key whatever the number of callers, and
+ * otherwise behave as their cache.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.LoadingHMap
+ * @see myAdapter.HLoader
+ */
+public class LoadingHMapTests {
+
+    /**
+     * Starts the given number of threads running the task and waits for
+     * them, failing if one of them does not end within 10 seconds.
+     */
+    private static void runThreads(int threads, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(task);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join(10_000);
+            assertFalse(worker.isAlive());
+        }
+    }
+
+    /**
+     * Tests that concurrent misses of a key call the loader once.
+     *
+     * @test.design The test aims to verify the single-flight loads: the
+     * threads missing a key while it is loaded wait for the same value.
+     * @test.description A loader blocks until 16 threads have called get on
+     * the same key, then returns a new object.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The cache holds the loaded value.
+     * @test.expectedresults The loader is called once and every thread
+     * receives the same instance, which is then cached.
+     */
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(16);
+        AtomicInteger calls = new AtomicInteger();
+        LoadingHMap map = new LoadingHMap(new LruHMap(10), key -> {
+            calls.incrementAndGet();
+            try {
+                started.await();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new StringBuilder("value of " + key);
+        });
+        Object[] results = new Object[16];
+        AtomicInteger next = new AtomicInteger();
+        runThreads(16, () -> {
+            int id = next.getAndIncrement();
+            started.countDown();
+            results[id] = map.get("hot");
+        });
+        assertEquals(1, calls.get());
+        assertEquals(1, map.loadCount());
+        for (Object result : results) assertSame(results[0], result);
+        assertSame(results[0], map.getIfPresent("hot"));
+        assertEquals("value of hot", map.get("hot").toString());
+        assertEquals(1, map.loadCount());
+    }
+
+    /**
+     * Tests that a failed load is reported to every waiting caller.
+     *
+     * @test.design The test aims to verify that the exception of the loader
+     * is thrown again to the callers sharing the load, and that the failure
+     * is not cached.
+     * @test.description A loader blocks until 8 threads have called get, then
+     * throws an exception. Get is called again after the failure.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The cache is empty.
+     * @test.expectedresults The 8 threads receive the same exception
+     * instance from a single load, and the next get calls the loader again.
+     */
+    @Test
+    public void testFailure() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(8);
+        IllegalStateException failure = new IllegalStateException("unavailable");
+        LoadingHMap map = new LoadingHMap(new MapAdapter(), key -> {
+            try {
+                started.await();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw failure;
+        });
+        Object[] thrown = new Object[8];
+        AtomicInteger next = new AtomicInteger();
+        runThreads(8, () -> {
+            int id = next.getAndIncrement();
+            started.countDown();
+            try {
+                map.get("key");
+            } catch (IllegalStateException e) {
+                thrown[id] = e;
+            }
+        });
+        for (Object e : thrown) assertSame(failure, e);
+        assertEquals(1, map.loadCount());
+        assertTrue(map.isEmpty());
+        assertThrows(IllegalStateException.class, () -> map.get("key"));
+        assertEquals(2, map.loadCount());
+    }
+
+    /**
+     * Tests the bulk reads.
+     *
+     * @test.design The test aims to verify that getAll returns the cached
+     * values and loads all the missing keys with one call of loadAll.
+     * @test.description A loader records the keys of each loadAll call and
+     * has no value for the keys above 100. Keys 1 and 2 are cached, then
+     * getAll is called with keys 1 to 5 and 200, then with the cached keys 1
+     * and 3, and finally with a collection holding a null key.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The cache holds keys 1 to 5.
+     * @test.expectedresults loadAll is called once with keys 3, 4, 5 and 200;
+     * the result maps keys 1 to 5 and the loaded values are cached. The
+     * second call does not load and the last one throws
+     * NullPointerException before loading any key.
+     */
+    @Test
+    public void testGetAll() {
+        ArrayList<Integer> batchSizes = new ArrayList<>();
+        HLoader loader = new HLoader() {
+            @Override
+            public Object load(Object key) {
+                return (Integer) key <= 100 ? "v" + key : null;
+            }
+
+            @Override
+            public HMap loadAll(HCollection keys) {
+                batchSizes.add(keys.size());
+                return HLoader.super.loadAll(keys);
+            }
+        };
+        LoadingHMap map = new LoadingHMap(new MapAdapter(), loader);
+        map.put(1, "one");
+        map.put(2, "two");
+        MapAdapter keys = new MapAdapter();
+        for (int key : new int[] {1, 2, 3, 4, 5, 200}) keys.put(key, key);
+        HMap result = map.getAll(keys.keySet());
+        assertEquals(1, batchSizes.size());
+        assertEquals(4, (int) batchSizes.get(0));
+        assertEquals(5, result.size());
+        assertEquals("one", result.get(1));
+        assertEquals("v5", result.get(5));
+        assertNull(result.get(200));
+        assertEquals(5, map.size());
+        assertEquals(1, map.loadCount());
+
+        MapAdapter cached = new MapAdapter();
+        cached.put(1, 1);
+        cached.put(3, 3);
+        assertEquals(2, map.getAll(cached.keySet()).size());
+        assertEquals(1, batchSizes.size());
+        NullableHMap withNull = new NullableHMap();
+        withNull.put(6, 6);
+        withNull.put(null, 7);
+        assertThrows(NullPointerException.class, () -> map.getAll(withNull.keySet()));
+        assertFalse(map.containsKey(6));
+    }
+
+    /**
+     * Tests the refreshes of values about to expire.
+     *
+     * @test.design The test aims to verify that reads of a value close to its
+     * expiration schedule one asynchronous reload, without waiting for it,
+     * and that the reloaded value restarts the time to live.
+     * @test.description An ExpiringHMap with a time to live of 1000
+     * milliseconds and a driven clock is refreshed 200 milliseconds ahead by
+     * an executor that queues its tasks. A key is loaded, read at 700 and
+     * twice at 850 milliseconds, then the queued task is run.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition The cache holds the reloaded value.
+     * @test.expectedresults Only the first read at 850 queues a refresh, the
+     * reads return the old value until it runs, and the new value lives
+     * 1000 milliseconds from then on.
+     */
+    @Test
+    public void testRefresh() {
+        long[] now = {0};
+        ArrayList<Runnable> tasks = new ArrayList<>();
+        AtomicInteger version = new AtomicInteger();
+        ExpiringHMap cache = new ExpiringHMap(1000, () -> now[0]);
+        LoadingHMap map = new LoadingHMap(cache, key -> key + "#" + version.incrementAndGet(), 200, tasks::add);
+        assertEquals("k#1", map.get("k"));
+        now[0] = 700;
+        assertEquals("k#1", map.get("k"));
+        assertTrue(tasks.isEmpty());
+        now[0] = 850;
+        assertEquals("k#1", map.get("k"));
+        assertEquals("k#1", map.get("k"));
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals("k#2", map.get("k"));
+        assertEquals(1000, cache.timeToLive("k"));
+        assertEquals(2, map.loadCount());
+        now[0] = 1500;
+        assertEquals("k#2", map.get("k"));
+        assertEquals(1, tasks.size());
+
+        assertThrows(IllegalArgumentException.class, () -> new LoadingHMap(cache, key -> key, -1, Runnable::run));
+        assertThrows(NullPointerException.class, () -> new LoadingHMap(cache, key -> key, 1, null));
+    }
+
+    /**
+     * Tests that no failure leaves a load in flight.
+     *
+     * @test.design The test aims to verify that a load ends when the cache
+     * rejects the value or fails while getAll registers the keys, or when the
+     * executor rejects a refresh, so that the next reads of the key load it
+     * again instead of waiting forever.
+     * @test.description A MapAdapter whose put throws backs a map read twice
+     * with get and once with getAll. A MapAdapter whose second get throws
+     * backs a map read with getAll on two keys, then with get on each key
+     * from another thread. An ExpiringHMap with a time to live of
+     * 1000 milliseconds is refreshed 200 milliseconds ahead by an executor
+     * rejecting its tasks; a key is loaded, read at 900 milliseconds, then
+     * read again after its expiration.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition The expiring cache holds the reloaded value.
+     * @test.expectedresults Every read over the failing caches throws the
+     * exception of the cache, the reads after the failed getAll load the keys
+     * within 10 seconds; the read at 900 returns the live value despite the
+     * rejected refresh and the read after the expiration loads the key.
+     */
+    @Test
+    public void testCacheFailures() throws InterruptedException {
+        MapAdapter readOnly = new MapAdapter() {
+            @Override
+            public Object put(Object key, Object value) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        LoadingHMap map = new LoadingHMap(readOnly, key -> key);
+        assertThrows(UnsupportedOperationException.class, () -> map.get("k"));
+        assertThrows(UnsupportedOperationException.class, () -> map.get("k"));
+        MapAdapter keys = new MapAdapter();
+        keys.put("k", "k");
+        assertThrows(UnsupportedOperationException.class, () -> map.getAll(keys.keySet()));
+        assertEquals(3, map.loadCount());
+
+        int[] gets = {0};
+        MapAdapter flaky = new MapAdapter() {
+            @Override
+            public Object get(Object key) {
+                if (++gets[0] == 2) throw new IllegalStateException();
+                return super.get(key);
+            }
+        };
+        LoadingHMap registering = new LoadingHMap(flaky, key -> key);
+        MapAdapter pair = new MapAdapter();
+        pair.put("a", "a");
+        pair.put("b", "b");
+        assertThrows(IllegalStateException.class, () -> registering.getAll(pair.keySet()));
+        Object[] values = new Object[2];
+        runThreads(1, () -> {
+            values[0] = registering.get("a");
+            values[1] = registering.get("b");
+        });
+        assertEquals("a", values[0]);
+        assertEquals("b", values[1]);
+
+        long[] now = {0};
+        LoadingHMap refreshed = new LoadingHMap(new ExpiringHMap(1000, () -> now[0]), key -> key + "#" + now[0], 200,
+                task -> {
+                    throw new RejectedExecutionException();
+                });
+        assertEquals("k#0", refreshed.get("k"));
+        now[0] = 900;
+        assertEquals("k#0", refreshed.get("k"));
+        now[0] = 1000;
+        assertEquals("k#1000", refreshed.get("k"));
+        assertEquals(2, refreshed.loadCount());
+    }
+
+    /**
+     * Tests the operations delegated to the cache.
+     *
+     * @test.design The test aims to verify that only get and getAll load: the
+     * other reads and the compound operations act on the cache alone.
+     * @test.description A loader returning the length of String keys, and no
+     * value for "none", backs a MapAdapter. The map is read with
+     * getIfPresent, containsKey, getOrDefault and computeIfAbsent, and
+     * compared with its cache.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition The cache holds the mappings put and loaded.
+     * @test.expectedresults The loader is only called by get, a missing value
+     * is not cached and the map equals its cache.
+     */
+    @Test
+    public void testDelegation() {
+        MapAdapter cache = new MapAdapter();
+        LoadingHMap map = new LoadingHMap(cache, key -> "none".equals(key) ? null : ((String) key).length());
+        assertNull(map.getIfPresent("abc"));
+        assertFalse(map.containsKey("abc"));
+        assertEquals(-1, map.getOrDefault("abc", -1));
+        assertEquals(0, map.loadCount());
+        assertEquals(42, map.computeIfAbsent("abc", key -> 42));
+        assertEquals(0, map.loadCount());
+        assertEquals(4, map.get("four"));
+        assertNull(map.get("none"));
+        assertFalse(cache.containsKey("none"));
+        assertEquals(2, map.loadCount());
+        assertEquals(cache, map);
+        assertEquals(map, cache);
+        assertEquals(cache.hashCode(), map.hashCode());
+        assertEquals(2, map.size());
+        assertSame(cache, map.cache());
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> new LoadingHMap(null, key -> key));
+    }
+}
@@ -0,0 +1,239 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.HWeigher;
+import myAdapter.LruHMap;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the LruHMap class. The tests focus on the cache
+ * behavior: the eviction of the least recently used mapping, the operations
+ * that count as uses, the eviction listener, the counters and the bound on
+ * the weight of the mappings.
+ *
+ * @test.design This test case aims to verify that LruHMap instances never
+ * exceed their maximum size, always evict the least recently used mapping and
+ * otherwise behave as an HMap.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.LruHMap
+ */
+public class LruHMapTests {
+
+    public LruHMap map;
+    public MapAdapter evicted;
+
+    /**
+     * Sets up the test environment by creating an LruHMap of maximum size 3
+     * whose eviction listener records the evicted mappings.
+     */
+    @Before
+    public void setUp() {
+        evicted = new MapAdapter();
+        map = new LruHMap(3, evicted::put);
+    }
+
+    /**
+     * Tests that putting a new key into a full map evicts the least recently
+     * used mapping.
+     *
+     * @test.design The test aims to verify the access order: puts and gets
+     * mark a mapping as used, while containsKey, peek and the views do not.
+     * @test.description Keys 1, 2 and 3 are put, key 1 is read with get, key
+     * 2 with peek and containsKey, and key 4 is put. Then key 3 is put again
+     * and key 5 is put.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map holds keys 4, 3 and 5.
+     * @test.expectedresults Key 2 is evicted first, then key 1, and the
+     * listener receives both mappings.
+     */
+    @Test
+    public void testEvictionOrder() {
+        map.put(1, "one");
+        map.put(2, "two");
+        map.put(3, "three");
+        assertEquals("one", map.get(1));
+        assertEquals("two", map.peek(2));
+        assertTrue(map.containsKey(2));
+        map.put(4, "four");
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey(2));
+        assertEquals("[3, 1, 4]", Arrays.toString(map.keySet().toArray()));
+
+        map.put(3, "THREE");
+        map.put(5, "five");
+        assertEquals("{4=four, 3=THREE, 5=five}", map.toString());
+        assertEquals(2, evicted.size());
+        assertEquals("two", evicted.get(2));
+        assertEquals("one", evicted.get(1));
+        assertEquals(2, map.evictionCount());
+    }
+
+    /**
+     * Tests the hit, miss and eviction counters on a larger map.
+     *
+     * @test.design The test aims to verify that the map stays bounded over
+     * many puts and that the counters account for every get and eviction.
+     * @test.description A map of maximum size 100 receives 10000 puts of
+     * distinct keys and a get of each key, in reverse order, after the
+     * last put.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The map holds the last 100 keys.
+     * @test.expectedresults The map holds 100 mappings, 9900 evictions, 100
+     * hits and 9900 misses are counted and the listener is never called when
+     * none is set.
+     */
+    @Test
+    public void testCounters() {
+        LruHMap cache = new LruHMap(100);
+        for (int i = 0; i < 10000; i++) cache.put(i, i);
+        assertEquals(100, cache.size());
+        for (int i = 9999; i >= 0; i--) assertEquals(i >= 9900 ? (Object) i : null, cache.get(i));
+        assertEquals(100, cache.hitCount());
+        assertEquals(9900, cache.missCount());
+        assertEquals(9900, cache.evictionCount());
+        assertEquals(100, cache.maximumSize());
+        assertEquals(9999, cache.keySet().iterator().next());
+        assertThrows(IllegalArgumentException.class, () -> new LruHMap(0));
+    }
+
+    /**
+     * Tests that the eviction listener can use the map.
+     *
+     * @test.design The test aims to verify that the listener is called after
+     * the map is unlocked, so it can read and write the map from another
+     * thread or from the same one.
+     * @test.description A listener puts every evicted mapping back, under a
+     * key suffixed with "'", until key "c'" is put. Keys "a" to "e" are put
+     * into a map of maximum size 2.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The map holds 2 mappings.
+     * @test.expectedresults The map never exceeds its maximum size and the
+     * listener calls do not throw nor deadlock.
+     */
+    @Test
+    public void testListenerReentrance() {
+        LruHMap[] cache = new LruHMap[1];
+        cache[0] = new LruHMap(2, (k, v) -> {
+            if (!((String) k).endsWith("'") && ((String) k).compareTo("c") < 0) cache[0].put(k + "'", v);
+        });
+        for (String key : new String[] {"a", "b", "c", "d", "e"}) {
+            cache[0].put(key, key);
+            assertTrue(cache[0].size() <= 2);
+        }
+        assertEquals(2, cache[0].size());
+        assertTrue(cache[0].evictionCount() >= 3);
+    }
+
+    /**
+     * Tests a map bounded by the estimated heap retained by its mappings.
+     *
+     * @test.design The test aims to verify the eviction in least recently
+     * used order until the weight fits, the estimates of HWeigher.HEAP and
+     * the footprint of the map.
+     * @test.description A map of maximum weight 10000 weighed by
+     * HWeigher.HEAP receives byte arrays of 100 to 3000 bytes under Integer
+     * keys, some keys being read to keep them. Values of 10 and 20000 bytes
+     * are set through an entry of the entry set, a mapping of 20000 bytes is
+     * put and the estimates of a few objects are checked.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition None.
+     * @test.expectedresults The weight never exceeds 10000 and equals the
+     * sum of the estimates of the mappings held, the keys read survive the
+     * next evictions, the oversized mappings, put or set, are evicted at once
+     * through the listener and the footprint grows with the number of
+     * mappings.
+     */
+    @Test
+    public void testWeights() {
+        LruHMap cache = new LruHMap(10_000, HWeigher.HEAP, evicted::put);
+        assertEquals(16 + 120, HWeigher.HEAP.weigh(1, new byte[100]));
+        assertEquals(48 + 24, HWeigher.HEAP.weigh("abc", 5L));
+        assertEquals(32 + 32, HWeigher.HEAP.weigh(new Object[3], new int[3]));
+        long empty = cache.footprint();
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            cache.put(i, new byte[100 + random.nextInt(2900)]);
+            if (i % 10 == 0) cache.get(i - 1);
+            assertTrue(cache.weightedSize() <= 10_000);
+            long[] sum = {0};
+            cache.forEach((k, v) -> sum[0] += HWeigher.HEAP.weigh(k, v));
+            assertEquals(sum[0], cache.weightedSize());
+            if (i > 0 && i % 10 == 0) assertTrue(cache.containsKey(i - 1));
+        }
+        assertEquals(200 - cache.size(), cache.evictionCount());
+        assertTrue(cache.footprint() >= empty + cache.size() * 40L);
+
+        HMap.HEntry entry = (HMap.HEntry) cache.entrySet().iterator().next();
+        long weight = cache.weightedSize() - HWeigher.HEAP.weigh(entry.getKey(), entry.getValue());
+        assertNotNull(entry.setValue(new byte[10]));
+        assertEquals(weight + HWeigher.HEAP.weigh(entry.getKey(), new byte[10]), cache.weightedSize());
+        entry.setValue(new byte[20_000]);
+        assertFalse(cache.containsKey(entry.getKey()));
+        assertTrue(evicted.containsKey(entry.getKey()));
+        assertEquals(weight, cache.weightedSize());
+
+        cache.put(-1, new byte[20_000]);
+        assertFalse(cache.containsKey(-1));
+        assertTrue(evicted.containsKey(-1));
+        assertTrue(cache.weightedSize() <= 10_000);
+        assertEquals(Integer.MAX_VALUE, new LruHMap(1L << 40, HWeigher.HEAP, null).maximumSize());
+        assertThrows(IllegalArgumentException.class, () -> new LruHMap(0, HWeigher.HEAP, null));
+    }
+
+    /**
+     * Tests the views and their iterators.
+     *
+     * @test.design The test aims to verify removal through the views, which
+     * does not call the listener, and the fail-fast behavior of the
+     * iterators when a mapping is used.
+     * @test.description The map is filled with 3 mappings and compared with a
+     * MapAdapter. A mapping is removed through the entry set iterator and
+     * another through the values view. An iterator is then invalidated by a
+     * get of the least recently used key.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map holds 1 mapping.
+     * @test.expectedresults The removals are reflected by the map, no
+     * eviction is recorded and the invalidated iterator throws
+     * ConcurrentModificationException.
+     */
+    @Test
+    public void testViews() {
+        MapAdapter expected = new MapAdapter();
+        for (int i = 0; i < 3; i++) {
+            map.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+
+        HIterator iter = map.entrySet().iterator();
+        HMap.HEntry first = (HMap.HEntry) iter.next();
+        assertEquals(0, first.getKey());
+        iter.remove();
+        assertTrue(map.values().remove("v2"));
+        assertEquals(1, map.size());
+        assertTrue(evicted.isEmpty());
+
+        map.put(3, "v3");
+        HIterator keys = map.keySet().iterator();
+        assertEquals(1, keys.next());
+        map.get(1);
+        assertThrows(ConcurrentModificationException.class, keys::next);
+        assertThrows(ConcurrentModificationException.class, () -> map.forEach((k, v) -> map.get(3)));
+        map.remove(1);
+        assertEquals(1, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(null, "v"));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+    }
+}
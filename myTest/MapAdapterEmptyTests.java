@@ -119,6 +119,93 @@ public class MapAdapterEmptyTests {
         map = new MapAdapter(-1);
     }
 
+    // MapAdapter(int initialCapacity, int probing)
+
+    /**
+     * Tests that MapAdapter's probing constructor creates a new empty map
+     * without exceptions for both supported probing sequences.
+     *
+     * @test.design The test aims to verify that the probing constructor
+     * accepts both {@link MapAdapter#LINEAR_PROBING} and
+     * {@link MapAdapter#QUADRATIC_PROBING} and creates an empty map.
+     * @test.description The instance created in the {@link #setUp()} method is
+     * overwritten by a new one created by the probing constructor once for each
+     * probing. After creation each instance is tested to be non-null and empty
+     * by asserting that {@link MapAdapter#isEmpty()} returns true and the size
+     * is 0.
+     * @test.precondition None
+     * @test.postcondition The map is created and is empty
+     * @test.expectedresults Maps are created without exceptions, they are empty
+     * and have size 0.
+     */
+    @Test
+    public void testProbingConstructor() {
+        map = new MapAdapter(5, MapAdapter.LINEAR_PROBING);
+        assertNotNull(map);
+        assertTrue("Map should be empty with linear probing: ", map.isEmpty());
+        assertEquals("Map should have size 0 with linear probing: ", 0, map.size());
+
+        map = new MapAdapter(5, MapAdapter.QUADRATIC_PROBING);
+        assertNotNull(map);
+        assertTrue("Map should be empty with quadratic probing: ", map.isEmpty());
+        assertEquals("Map should have size 0 with quadratic probing: ", 0, map.size());
+    }
+
+    /**
+     * Tests that the MapAdapter's probing constructor throws
+     * {@link IllegalArgumentException} when called with an unknown probing.
+     *
+     * @test.design The test aims to verify that the probing constructor
+     * rejects values other than the supported probing constants.
+     * @test.description The instance created in the {@link #setUp()} method is
+     * overwritten by a new one created by the probing constructor with a
+     * probing value of 42, which is not a supported probing. The constructor
+     * is tested to throw {@link IllegalArgumentException}.
+     * @test.precondition None
+     * @test.postcondition The map is not created
+     * @test.expectedresults The {@link MapAdapter#MapAdapter(int, int)}
+     * constructor throws {@link IllegalArgumentException} when called with an
+     * unknown probing.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testProbingConstructorUnknownProbing() {
+        map = new MapAdapter(5, 42);
+    }
+
+    // MapAdapter(int initialCapacity, int probing, boolean indexValues)
+
+    /**
+     * Tests that MapAdapter's value index constructor creates a new empty map
+     * reporting whether it maintains a value index.
+     *
+     * @test.design The test aims to verify that the value index option of the
+     * constructor is reflected by {@link MapAdapter#hasValueIndex()} and that
+     * the memory overhead is reported only for maps maintaining the index.
+     * @test.description A map is created with the value index enabled and is
+     * tested to be empty, to report {@code true} from
+     * {@link MapAdapter#hasValueIndex()} and a positive
+     * {@link MapAdapter#valueIndexFootprint()}. A map is then created with
+     * the value index disabled and is tested to report {@code false} and a
+     * footprint of 0, as does the default constructed map.
+     * @test.precondition None
+     * @test.postcondition The maps are created and are empty
+     * @test.expectedresults Only the map created with the option enabled
+     * maintains a value index and reports its memory overhead.
+     */
+    @Test
+    public void testValueIndexConstructor() {
+        MapAdapter indexed = new MapAdapter(5, MapAdapter.LINEAR_PROBING, true);
+        assertTrue("Map should be empty with value index constructor: ", indexed.isEmpty());
+        assertTrue("Map should maintain a value index: ", indexed.hasValueIndex());
+        assertTrue("Value index footprint should be positive: ", indexed.valueIndexFootprint() > 0);
+
+        MapAdapter plain = new MapAdapter(5, MapAdapter.LINEAR_PROBING, false);
+        assertFalse("Map should not maintain a value index: ", plain.hasValueIndex());
+        assertEquals("Value index footprint should be 0: ", 0, plain.valueIndexFootprint());
+        assertFalse("Default map should not maintain a value index: ", map.hasValueIndex());
+        assertEquals("Default map value index footprint should be 0: ", 0, map.valueIndexFootprint());
+    }
+
     // MapAdapter.clear()
 
     /**
@@ -1,6 +1,15 @@
 package myTest;
 
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import myAdapter.ConcurrentMapAdapter;
+import myAdapter.HCollection;
+import myAdapter.HConsumer;
+import myAdapter.HIterator;
 import myAdapter.HMap;
+import myAdapter.HSpliterator;
 import myAdapter.MapAdapter;
 import org.junit.Before;
 import org.junit.Test;
@@ -1454,5 +1463,739 @@ public class MapAdapterPopulatedTests {
         assertTrue("String representation should contain 'key0=value0'", str.contains("key0=value0"));
     }
 
+    // Open addressing
+
+    /**
+     * Tests that mappings stay reachable when the map goes through many
+     * removals and insertions with both probing sequences.
+     *
+     * @test.design The test aims to verify that tombstones left by removals
+     * neither hide mappings placed further along a probe sequence nor leak
+     * into the size, and that the table rebuilds keep all the live mappings,
+     * with both {@link MapAdapter#LINEAR_PROBING} and
+     * {@link MapAdapter#QUADRATIC_PROBING}.
+     * @test.description For each probing a map with initial capacity 0 is
+     * filled with 10000 mappings "key"+i to i. Every even key is then removed
+     * and the removed keys are inserted again with a different value, forcing
+     * both tombstone reuse and table rebuilds. Every mapping is then checked
+     * with {@link MapAdapter#get(Object)} and the size is checked to be 10000.
+     * Finally the keys are counted through the key set iterator.
+     * @test.precondition None, the maps are created by the test.
+     * @test.postcondition The maps contain 10000 mappings.
+     * @test.expectedresults All the mappings are found with their latest
+     * value, the size is 10000 and the iterator returns 10000 keys.
+     */
+    @Test
+    public void testProbingWithRemovals() {
+        int[] probings = {MapAdapter.LINEAR_PROBING, MapAdapter.QUADRATIC_PROBING};
+        for (int probing : probings) {
+            MapAdapter probed = new MapAdapter(0, probing);
+            for (int i = 0; i < 10000; i++) probed.put("key" + i, i);
+            for (int i = 0; i < 10000; i += 2) assertEquals(i, probed.remove("key" + i));
+            assertEquals(5000, probed.size());
+            for (int i = 0; i < 10000; i += 2) assertNull(probed.put("key" + i, -i));
+
+            assertEquals(10000, probed.size());
+            for (int i = 0; i < 10000; i++) {
+                assertEquals("Mapping of key" + i, i % 2 == 0 ? -i : i, probed.get("key" + i));
+            }
+            int count = 0;
+            HIterator iter = probed.keySet().iterator();
+            while (iter.hasNext()) {
+                iter.next();
+                count++;
+            }
+            assertEquals(10000, count);
+        }
+    }
+
+    /**
+     * Tests the map while incremental rebuilds of its table are in progress.
+     *
+     * @test.design The test aims to verify that mappings are found, replaced,
+     * removed and iterated correctly while part of them still lies in the
+     * table being migrated, with both probe sequences.
+     * @test.description For each probing, a map with initial capacity 0 is
+     * filled with 50000 keys. After each insertion the key inserted 100 steps
+     * before is replaced with its negated value and every third key is
+     * removed right after being inserted. Whenever the size reaches a
+     * multiple of 4096 the entry set is iterated, replacing every value
+     * through {@link myAdapter.HMap.HEntry#setValue(Object)} with itself, and
+     * the iterated entries are counted. Every mapping is finally checked.
+     * @test.precondition None, the maps are created by the test.
+     * @test.postcondition The maps hold the keys not multiple of 3.
+     * @test.expectedresults Each iteration returns exactly as many entries as
+     * the size of the map and every mapping holds its latest value.
+     */
+    @Test
+    public void testIncrementalRebuild() {
+        int[] probings = {MapAdapter.LINEAR_PROBING, MapAdapter.QUADRATIC_PROBING};
+        for (int probing : probings) {
+            MapAdapter grown = new MapAdapter(0, probing);
+            for (int i = 0; i < 50000; i++) {
+                assertNull(grown.put(i, i));
+                if (i >= 100 && (i - 100) % 3 != 0) assertEquals(i - 100, grown.put(i - 100, 100 - i));
+                if (i % 3 == 0) assertEquals(i, grown.remove(i));
+                if (grown.size() % 4096 == 0) {
+                    int count = 0;
+                    HIterator iter = grown.entrySet().iterator();
+                    while (iter.hasNext()) {
+                        HMap.HEntry entry = (HMap.HEntry) iter.next();
+                        entry.setValue(entry.getValue());
+                        count++;
+                    }
+                    assertEquals(grown.size(), count);
+                }
+            }
+            for (int i = 0; i < 50000; i++) {
+                Object expected = i % 3 == 0 ? null : i < 49900 ? (Object) (-i) : (Object) i;
+                assertEquals("Mapping of " + i, expected, grown.get(i));
+            }
+        }
+    }
+
+    // Batch operations
+
+    /**
+     * Tests the batch lookup and the batch insertion of the map.
+     *
+     * @test.design The test aims to verify that getAll and putAll over arrays
+     * have the effect of loops of get and put calls, including while the
+     * table is being rebuilt and when a key appears twice in a batch, and that
+     * an invalid batch leaves the map unchanged.
+     * @test.description A batch of 200 keys, half of them mapped in the map
+     * created by the {@link #setUp()} method, is looked up with getAll. Then
+     * 5000 new keys and an already mapped one, twice, are put with putAll
+     * and looked up again, with both probe sequences. Finally invalid batches
+     * are passed to both methods.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 5100 mappings.
+     * @test.expectedresults The values returned by getAll are the ones
+     * returned by get, the count of found keys is correct and invalid
+     * batches throw without modifying the map.
+     */
+    @Test
+    public void testBatchOperations() {
+        Object[] keys = new Object[200];
+        for (int i = 0; i < 200; i++) keys[i] = "key" + (i * 7 % 200);
+        Object[] out = new Object[201];
+        out[200] = "untouched";
+        assertEquals(100, map.getAll(keys, out));
+        for (int i = 0; i < 200; i++) assertEquals(map.get(keys[i]), out[i]);
+        assertEquals("untouched", out[200]);
+
+        Object[] newKeys = new Object[5002];
+        Object[] newValues = new Object[5002];
+        for (int i = 0; i < 5000; i++) {
+            newKeys[i] = "new" + i;
+            newValues[i] = i;
+        }
+        newKeys[5000] = "key1";
+        newValues[5000] = "first";
+        newKeys[5001] = "key1";
+        newValues[5001] = "second";
+        map.putAll(newKeys, newValues);
+        assertEquals(5100, map.size());
+        assertEquals("second", map.get("key1"));
+        Object[] found = new Object[5002];
+        assertEquals(5002, map.getAll(newKeys, found));
+        for (int i = 0; i < 5000; i++) assertEquals(i, found[i]);
+
+        MapAdapter quadratic = new MapAdapter(0, MapAdapter.QUADRATIC_PROBING);
+        quadratic.putAll(newKeys, newValues);
+        assertEquals(5002, quadratic.getAll(newKeys, found));
+        assertEquals(map.get("new42"), quadratic.get("new42"));
+
+        assertThrows(IllegalArgumentException.class, () -> map.getAll(keys, new Object[10]));
+        assertThrows(IllegalArgumentException.class, () -> map.putAll(keys, new Object[10]));
+        assertThrows(NullPointerException.class, () -> map.getAll(new Object[] {"key1", null}, new Object[2]));
+        assertThrows(NullPointerException.class,
+                () -> map.putAll(new Object[] {"key1", "key2"}, new Object[] {"v", null}));
+        assertThrows(NullPointerException.class,
+                () -> map.putAll(new Object[] {"key1", null}, new Object[] {"v", "v"}));
+        assertEquals("second", map.get("key1"));
+        assertEquals(5100, map.size());
+    }
+
+    // Copying
+
+    /**
+     * Tests the copy constructor with MapAdapter sources.
+     *
+     * @test.design The test aims to verify that the cloned table holds the
+     * same mappings as the source, whatever its state, and that the copy and
+     * the source are then independent.
+     * @test.description The map created by the {@link #setUp()} method is
+     * copied and both maps are modified. Then a map caught in the middle of a
+     * rebuild, a map mostly made of removed mappings and a map with quadratic
+     * probing and a value index are copied, and the copies are updated.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 100 mappings.
+     * @test.expectedresults Each copy is equal to its source, has the same
+     * hash code, keeps its probing and value index and is not affected by the
+     * changes of its source.
+     */
+    @Test
+    public void testCopyConstructor() {
+        MapAdapter copy = new MapAdapter(map);
+        assertEquals(map, copy);
+        assertEquals(map.hashCode(), copy.hashCode());
+        copy.put("key0", "changed");
+        copy.remove("key1");
+        map.put("extra", "extra");
+        assertEquals("value0", map.get("key0"));
+        assertEquals("value1", map.get("key1"));
+        assertFalse(copy.containsKey("extra"));
+        assertEquals(99, copy.size());
+        map.remove("extra");
+
+        // The 13th put crosses the threshold of 16 slots and starts a
+        // rebuild, which the next put would complete
+        MapAdapter rebuilding = new MapAdapter(0);
+        for (int i = 0; i < 13; i++) rebuilding.put(i, i);
+        MapAdapter copied = new MapAdapter(rebuilding);
+        assertEquals(rebuilding, copied);
+        for (int i = 13; i < 1000; i++) copied.put(i, i);
+        assertEquals(13, rebuilding.size());
+        for (int i = 0; i < 1000; i++) assertEquals(i, copied.get(i));
+
+        MapAdapter removed = new MapAdapter();
+        for (int i = 0; i < 1000; i++) removed.put(i, i);
+        for (int i = 10; i < 1000; i++) removed.remove(i);
+        copied = new MapAdapter(removed);
+        assertEquals(removed, copied);
+        assertEquals(removed.hashCode(), copied.hashCode());
+        copied.put(5000, 5000);
+        assertEquals(11, copied.size());
+
+        MapAdapter indexed = new MapAdapter(0, MapAdapter.QUADRATIC_PROBING, true);
+        for (int i = 0; i < 500; i++) indexed.put(i, i % 7);
+        copied = new MapAdapter(indexed);
+        assertTrue(copied.hasValueIndex());
+        assertEquals(indexed, copied);
+        for (int i = 0; i < 500; i++) copied.put(i, "v");
+        assertFalse(copied.containsValue(3));
+        assertTrue(indexed.containsValue(3));
+
+        assertThrows(NullPointerException.class, () -> new MapAdapter((HMap) null));
+    }
+
+    /**
+     * Tests {@link MapAdapter#putAll(HMap)} with MapAdapter arguments.
+     *
+     * @test.design The test aims to verify the cloning of the argument into an
+     * empty map, including one with a different probing or a value index,
+     * and the presized insertion into a populated map.
+     * @test.description The map created by the {@link #setUp()} method is put
+     * into an empty map, into an empty map with quadratic probing, into an
+     * empty map with a value index and into a populated map whose keys
+     * partly overlap it. Finally the map is put into itself.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 100 mappings.
+     * @test.expectedresults The receiving maps hold the union of the
+     * mappings, with the values of the argument for common keys, and remain
+     * usable afterwards.
+     */
+    @Test
+    public void testPutAllFromMapAdapter() {
+        MapAdapter empty = new MapAdapter();
+        empty.putAll(map);
+        assertEquals(map, empty);
+        empty.put("key0", "changed");
+        assertEquals("value0", map.get("key0"));
+
+        MapAdapter quadratic = new MapAdapter(0, MapAdapter.QUADRATIC_PROBING);
+        quadratic.putAll(map);
+        assertEquals(map, quadratic);
+
+        MapAdapter indexed = new MapAdapter(0, MapAdapter.LINEAR_PROBING, true);
+        indexed.putAll(map);
+        assertEquals(map, indexed);
+        assertTrue(indexed.containsValue("value49"));
+        assertFalse(indexed.containsValue("value50"));
+
+        MapAdapter populated = new MapAdapter();
+        for (int i = 50; i < 3000; i++) populated.put("key" + i, i);
+        populated.putAll(map);
+        assertEquals(3000, populated.size());
+        assertEquals("value1", populated.get("key51"));
+        assertEquals(2999, populated.get("key2999"));
+
+        map.putAll(map);
+        assertEquals(100, map.size());
+        assertEquals("value1", map.get("key51"));
+    }
+
+    /**
+     * Tests {@link MapAdapter#snapshot()}.
+     *
+     * @test.design The test aims to verify that a snapshot and its source
+     * share nothing observable: whichever is written first, and however, the
+     * other keeps its mappings, including snapshots of snapshots, snapshots
+     * taken during a rebuild and indexed maps.
+     * @test.description Two snapshots of the map created by the
+     * {@link #setUp()} method are taken, then the map, the first snapshot and
+     * a snapshot of it are written. A snapshot of a map caught in the middle
+     * of a rebuild is grown, the source is cleared. Finally a snapshot of an
+     * indexed map is updated, and a snapshot is read while another thread
+     * writes to its source.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 101 mappings.
+     * @test.expectedresults Each map only reflects its own writes and keeps
+     * a consistent size, hash code and value index.
+     */
+    @Test
+    public void testSnapshot() throws InterruptedException {
+        MapAdapter expected = new MapAdapter(map);
+        MapAdapter first = map.snapshot();
+        MapAdapter second = map.snapshot();
+        assertEquals(map, first);
+        assertEquals(map.hashCode(), first.hashCode());
+        map.put("key0", "changed");
+        map.put("extra", "extra");
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        first.remove("key1");
+        MapAdapter nested = first.snapshot();
+        first.clear();
+        assertTrue(first.isEmpty());
+        assertEquals(99, nested.size());
+        assertEquals("value0", nested.get("key0"));
+        assertEquals(expected, second);
+        assertEquals(101, map.size());
+        second.put("key2", "changed");
+        assertEquals("value2", map.get("key2"));
+
+        // The 13th put starts a rebuild, which the next put would complete
+        MapAdapter rebuilding = new MapAdapter(0);
+        for (int i = 0; i < 13; i++) rebuilding.put(i, i);
+        MapAdapter grown = rebuilding.snapshot();
+        for (int i = 13; i < 1000; i++) grown.put(i, i);
+        rebuilding.put(13, 13);
+        assertEquals(14, rebuilding.size());
+        for (int i = 0; i < 1000; i++) assertEquals(i, grown.get(i));
+        rebuilding.clear();
+        assertEquals(1000, grown.size());
+
+        MapAdapter indexed = new MapAdapter(0, MapAdapter.QUADRATIC_PROBING, true);
+        for (int i = 0; i < 100; i++) indexed.put(i, i % 7);
+        MapAdapter indexedSnapshot = indexed.snapshot();
+        assertTrue(indexedSnapshot.hasValueIndex());
+        for (int i = 0; i < 100; i++) indexedSnapshot.put(i, "v");
+        assertFalse(indexedSnapshot.containsValue(3));
+        assertTrue(indexed.containsValue(3));
+        assertFalse(indexed.containsValue("v"));
+
+        MapAdapter source = new MapAdapter();
+        for (int i = 0; i < 10000; i++) source.put(i, i);
+        MapAdapter snapshot = source.snapshot();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+                source.remove(i);
+                source.put(-i - 1, i);
+            }
+        });
+        writer.start();
+        long sum = 0;
+        HIterator it = snapshot.values().iterator();
+        while (it.hasNext()) sum += (Integer) it.next();
+        writer.join();
+        assertEquals(10000L * 9999 / 2, sum);
+        assertEquals(10000, snapshot.size());
+        assertFalse(snapshot.containsKey(-1));
+    }
+
+    // Compound operations
+
+    /**
+     * Tests the compound operations on the populated map.
+     *
+     * @test.design The test aims to verify that getOrDefault, putIfAbsent,
+     * both replace overloads, computeIfAbsent, computeIfPresent, compute and
+     * merge read and update the mapping of a key as their contract states,
+     * including the removal of the mapping when a function returns
+     * {@code null}.
+     * @test.description Every operation is called on the map created by the
+     * {@link #setUp()} method both with a mapped key and with an unmapped one,
+     * and its return value and the resulting mapping are checked. A counter
+     * is then incremented 10 times through merge.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 100 mappings.
+     * @test.expectedresults Each operation returns the documented value and
+     * leaves the documented mapping.
+     */
+    @Test
+    public void testCompoundOperations() {
+        assertEquals("value1", map.getOrDefault("key1", "none"));
+        assertEquals("none", map.getOrDefault("missing", "none"));
+
+        assertEquals("value2", map.putIfAbsent("key2", "other"));
+        assertNull(map.putIfAbsent("new", "value"));
+        assertEquals("value", map.get("new"));
+
+        assertEquals("value3", map.replace("key3", "three"));
+        assertNull(map.replace("missing", "value"));
+        assertFalse(map.containsKey("missing"));
+        assertFalse(map.replace("key4", "wrong", "four"));
+        assertTrue(map.replace("key4", "value4", "four"));
+        assertEquals("four", map.get("key4"));
+
+        assertEquals("value5", map.computeIfAbsent("key5", k -> "unused"));
+        assertNull(map.computeIfAbsent("missing", k -> null));
+        assertFalse(map.containsKey("missing"));
+        assertEquals("missingX", map.computeIfAbsent("missing", k -> k + "X"));
+
+        assertNull(map.computeIfPresent("absent", (k, v) -> "unused"));
+        assertEquals("key6value6", map.computeIfPresent("key6", (k, v) -> (String) k + v));
+        assertNull(map.computeIfPresent("key6", (k, v) -> null));
+        assertFalse(map.containsKey("key6"));
+
+        assertEquals("seven", map.compute("key7", (k, v) -> v.equals("value7") ? "seven" : "wrong"));
+        assertNull(map.compute("key7", (k, v) -> null));
+        assertEquals("absent", map.compute("absent", (k, v) -> v == null ? "absent" : "wrong"));
+        assertNull(map.compute("absent", (k, v) -> null));
+        assertEquals(100, map.size());
+
+        for (int i = 0; i < 10; i++) map.merge("counter", 1, (a, b) -> (Integer) a + (Integer) b);
+        assertEquals(10, map.get("counter"));
+        assertNull(map.merge("counter", 0, (a, b) -> null));
+        assertEquals("value8+", map.merge("key8", "+", (a, b) -> (String) a + b));
+        assertEquals(100, map.size());
+    }
+
+    /**
+     * Tests that the compound operations reject functions modifying the map
+     * and {@code null} arguments.
+     *
+     * @test.design The test aims to verify that a function passed to a
+     * compound operation which inserts or removes a mapping is detected, so
+     * that the operation does not store its result in a stale slot.
+     * @test.description computeIfAbsent, compute and merge are called with
+     * functions putting or removing keys, then every operation is called with
+     * a {@code null} key, value or function.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds the mappings added or removed by the
+     * functions before the exceptions.
+     * @test.expectedresults ConcurrentModificationException is thrown for the
+     * modifying functions and NullPointerException for {@code null} arguments.
+     */
+    @Test
+    public void testCompoundOperationsExceptions() {
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.computeIfAbsent("new", k -> map.put("other", "value")));
+        assertFalse(map.containsKey("new"));
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.compute("key1", (k, v) -> map.remove("key2")));
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.merge("key3", "x", (a, b) -> map.put("another", "value")));
+        assertEquals("value3", map.get("key3"));
+
+        assertThrows(NullPointerException.class, () -> map.getOrDefault(null, "x"));
+        assertThrows(NullPointerException.class, () -> map.putIfAbsent("key", null));
+        assertThrows(NullPointerException.class, () -> map.replace("key1", null));
+        assertThrows(NullPointerException.class, () -> map.replace("key1", "value1", null));
+        assertThrows(NullPointerException.class, () -> map.computeIfAbsent("key1", null));
+        assertThrows(NullPointerException.class, () -> map.computeIfPresent(null, (k, v) -> v));
+        assertThrows(NullPointerException.class, () -> map.compute("key1", null));
+        assertThrows(NullPointerException.class, () -> map.merge("key1", null, (a, b) -> a));
+        assertEquals("value1", map.get("key1"));
+    }
+
+    // Internal iteration
+
+    /**
+     * Tests that forEach on the map and on its views visits every mapping
+     * once, in the order of the iterators.
+     *
+     * @test.design The test aims to verify that the internal iteration walks
+     * the same mappings as the external one, including while an incremental
+     * rebuild of the table is in progress.
+     * @test.description The keys, values and entries visited by forEach on
+     * the map and on each view are collected in arrays and compared with the
+     * arrays returned by the toArray method of the views. The same is done on
+     * a map grown from capacity 0 to 3000 mappings, whose table is rebuilt
+     * incrementally while it grows.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults The visited elements are the ones returned by the
+     * iterators, in the same order.
+     */
+    @Test
+    public void testForEach() {
+        MapAdapter growing = new MapAdapter(0);
+        for (int i = 0; i < 3000; i++) growing.put(i, -i);
+        for (MapAdapter current : new MapAdapter[] {map, growing}) {
+            int size = current.size();
+            Object[] keys = new Object[size];
+            Object[] values = new Object[size];
+            int[] count = new int[1];
+            current.forEach((k, v) -> {
+                keys[count[0]] = k;
+                values[count[0]++] = v;
+            });
+            assertEquals(size, count[0]);
+            assertArrayEquals(current.keySet().toArray(), keys);
+            assertArrayEquals(current.values().toArray(), values);
+
+            for (HCollection view : new HCollection[] {current.keySet(), current.values(), current.entrySet()}) {
+                Object[] elements = new Object[size];
+                count[0] = 0;
+                view.forEach(e -> elements[count[0]++] = e);
+                assertArrayEquals(view.toArray(), elements);
+            }
+        }
+    }
+
+    /**
+     * Tests that forEach detects actions modifying the map.
+     *
+     * @test.design The test aims to verify that an action adding or removing
+     * a mapping stops the walk, while an action replacing values does not.
+     * @test.description forEach is called on the map with an action putting a
+     * new key and then with an action removing the visited key. Then the
+     * values are replaced with an action and the map is checked. Finally the
+     * methods are called with a {@code null} action.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 100 mappings, one of the removed keys
+     * having been replaced by the new key.
+     * @test.expectedresults ConcurrentModificationException is thrown by the
+     * modifying actions and NullPointerException for {@code null} actions.
+     */
+    @Test
+    public void testForEachModification() {
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.forEach((k, v) -> map.put("new", "value")));
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.keySet().forEach(k -> map.remove(k)));
+        assertEquals(100, map.size());
+        map.forEach((k, v) -> map.put(k, "x" + v));
+        assertEquals("xvalue1", map.get("key51"));
+        assertThrows(NullPointerException.class, () -> map.forEach(null));
+        assertThrows(NullPointerException.class, () -> map.values().forEach(null));
+    }
+
+    /**
+     * Tests that the spliterators of the views cover every element exactly
+     * once however they are split.
+     *
+     * @test.design The test aims to verify that splitting the spliterator of
+     * a view partitions its elements, both for the slot range spliterators of
+     * MapAdapter and for the default iterator based spliterator, and that
+     * the parts can be traversed in parallel on a ForkJoinPool.
+     * @test.description A MapAdapter and a ConcurrentMapAdapter are filled
+     * with the keys 0 to 99999 mapped to themselves. The spliterators of their
+     * key sets are split recursively until they refuse to split, mixing
+     * tryAdvance and forEachRemaining, and the number of visits of each key is
+     * counted. Then the values of the MapAdapter are summed by a
+     * RecursiveTask splitting the spliterator of the value collection while
+     * its estimated size exceeds 1000.
+     * @test.precondition None, the maps are created by the test.
+     * @test.postcondition The maps are unchanged.
+     * @test.expectedresults Every key is visited once and the parallel sum
+     * equals the sum of the keys.
+     */
+    @Test
+    public void testSpliterator() {
+        MapAdapter large = new MapAdapter();
+        ConcurrentMapAdapter concurrent = new ConcurrentMapAdapter();
+        for (int i = 0; i < 100000; i++) {
+            large.put(i, i);
+            concurrent.put(i, i);
+        }
+        for (HMap current : new HMap[] {large, concurrent}) {
+            int[] visits = new int[100000];
+            traverse(current.keySet().spliterator(), k -> visits[(Integer) k]++);
+            for (int i = 0; i < visits.length; i++) assertEquals("Visits of " + i, 1, visits[i]);
+        }
+        assertEquals(100000, large.values().spliterator().estimateSize());
+
+        long sum = ForkJoinPool.commonPool().invoke(new SumTask(large.values().spliterator()));
+        assertEquals(99999L * 100000 / 2, sum);
+    }
+
+    /**
+     * Splits the spliterator recursively, advancing it by one element before
+     * each split, and traverses the parts.
+     */
+    private static void traverse(HSpliterator spliterator, HConsumer action) {
+        spliterator.tryAdvance(action);
+        HSpliterator prefix = spliterator.trySplit();
+        if (prefix != null) {
+            traverse(prefix, action);
+            traverse(spliterator, action);
+        } else {
+            spliterator.forEachRemaining(action);
+        }
+    }
+
+    /**
+     * Sums the integers covered by a spliterator forking a task for each
+     * split.
+     */
+    private static final class SumTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HSpliterator spliterator;
+
+        SumTask(HSpliterator spliterator) {
+            this.spliterator = spliterator;
+        }
+
+        @Override
+        protected Long compute() {
+            HSpliterator prefix;
+            if (spliterator.estimateSize() > 1000 && (prefix = spliterator.trySplit()) != null) {
+                SumTask left = new SumTask(prefix);
+                left.fork();
+                long right = new SumTask(spliterator).compute();
+                return left.join() + right;
+            }
+            long[] sum = new long[1];
+            spliterator.forEachRemaining(v -> sum[0] += (Integer) v);
+            return sum[0];
+        }
+    }
+
+    // Value index
+
+    /**
+     * Tests that the value index of a map follows every kind of write.
+     *
+     * @test.design The test aims to verify that a map created with a value
+     * index answers {@link MapAdapter#containsValue(Object)} and
+     * {@code values().contains(Object)} consistently with its mappings after
+     * insertions, replacements, removals through the map and through the
+     * views, and clear.
+     * @test.description An indexed map is filled with the same mappings of the
+     * map created by the {@link #setUp()} method, where every value is shared
+     * by two keys. Removing one of the two keys of "value0" must keep the
+     * value present, removing the second one must drop it. Replacing the only
+     * mapping of "value1" with "other" must drop "value1" and add "other".
+     * Removing the keys of "value2" through the key set and its iterator must
+     * drop it. Finally clear must drop every value.
+     * @test.precondition None, the indexed map is created by the test.
+     * @test.postcondition The indexed map is empty.
+     * @test.expectedresults Value membership reflects the mappings of the map
+     * after each step.
+     */
+    @Test
+    public void testValueIndexFollowsWrites() {
+        MapAdapter indexed = new MapAdapter(0, MapAdapter.LINEAR_PROBING, true);
+        indexed.putAll(map);
+        assertEquals(map, indexed);
+        for (int i = 0; i < 50; i++) assertTrue(indexed.containsValue("value" + i));
+        assertFalse(indexed.containsValue("test"));
+
+        indexed.remove("key0");
+        assertTrue("value0 is still mapped by key50", indexed.containsValue("value0"));
+        indexed.remove("key50");
+        assertFalse("value0 is no longer mapped", indexed.containsValue("value0"));
+
+        indexed.remove("key51");
+        indexed.put("key1", "other");
+        assertFalse("value1 has been replaced", indexed.values().contains("value1"));
+        assertTrue("other has been added", indexed.values().contains("other"));
+
+        indexed.keySet().remove("key2");
+        HIterator iter = indexed.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().equals("key52")) iter.remove();
+        }
+        assertFalse("value2 has been removed", indexed.containsValue("value2"));
+        assertTrue(indexed.containsValue("value3"));
+
+        indexed.clear();
+        assertFalse(indexed.containsValue("value3"));
+        assertFalse(indexed.containsValue("other"));
+    }
+
+    // Incremental hash code
+
+    /**
+     * Tests that the hash codes of the map and of its views stay equal to the
+     * sums of the hash codes of their elements through every kind of write.
+     *
+     * @test.design The test aims to verify that the hash code sums maintained
+     * by the map on put, remove, entry setValue, iterator removal and clear
+     * match the definition of the hash code of the map, of the key set and of
+     * the value collection.
+     * @test.description The populated map created by the {@link #setUp()}
+     * method is modified by replacing a value, by setting a value through an
+     * entry, by removing a key from the map and one through the key set
+     * iterator. After each write the hash codes of the map, the entry set,
+     * the key set and the value collection are compared with the sums of the
+     * hash codes of the elements returned by their iterators. Finally the map
+     * is cleared and every hash code is checked to be 0.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is empty.
+     * @test.expectedresults The maintained hash codes always equal the
+     * recomputed ones.
+     */
+    @Test
+    public void testHashCodeFollowsWrites() {
+        assertHashCodes();
+        map.put("key0", "other");
+        assertHashCodes();
+        ((HMap.HEntry) map.entrySet().iterator().next()).setValue("another");
+        assertHashCodes();
+        map.remove("key1");
+        assertHashCodes();
+        HIterator iter = map.keySet().iterator();
+        iter.next();
+        iter.remove();
+        assertHashCodes();
+        map.clear();
+        assertHashCodes();
+        assertEquals(0, map.hashCode());
+    }
+
+    /**
+     * Tests that the {@link MapAdapter#equals(Object)} method rejects maps
+     * of the same size with different mappings.
+     *
+     * @test.design The test aims to verify that the size and hash code based
+     * rejection of {@link MapAdapter#equals(Object)} does not change its
+     * result.
+     * @test.description A copy of the populated map is created and asserted
+     * to be equal to the map. One value of the copy is replaced, so the maps
+     * keep the same size but differ in one mapping, and they are asserted to
+     * be different in both directions. Restoring the value makes them equal
+     * again.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults The maps are equal only when their mappings are.
+     */
+    @Test
+    public void testEqualsSameSizeDifferentMapping() {
+        MapAdapter copy = new MapAdapter(map);
+        assertEquals(map, copy);
+        copy.put("key0", "other");
+        assertNotEquals(map, copy);
+        assertNotEquals(copy, map);
+        copy.put("key0", "value0");
+        assertEquals(map, copy);
+    }
+
+    /**
+     * Asserts that the hash codes of the map and of its views are equal to the
+     * sums of the hash codes of the elements returned by their iterators.
+     */
+    private void assertHashCodes() {
+        assertEquals("Map hash code", sumOfHashCodes(map.entrySet()), map.hashCode());
+        assertEquals("Entry set hash code", sumOfHashCodes(map.entrySet()), map.entrySet().hashCode());
+        assertEquals("Key set hash code", sumOfHashCodes(map.keySet()), map.keySet().hashCode());
+        assertEquals("Values hash code", sumOfHashCodes(map.values()), map.values().hashCode());
+    }
+
+    /**
+     * Returns the sum of the hash codes of the elements of a collection.
+     */
+    private int sumOfHashCodes(HCollection c) {
+        int sum = 0;
+        HIterator iter = c.iterator();
+        while (iter.hasNext()) sum += iter.next().hashCode();
+        return sum;
+    }
 
 }
@@ -0,0 +1,202 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import myAdapter.HCodec;
+import myAdapter.MapAdapter;
+import myAdapter.MappedHMap;
+
+/**
+ * This test case tests the MappedHMap class. The tests focus on persistence:
+ * reopening a closed map, recovering the last synced state after a crash,
+ * falling back to the previous header when the latest one is corrupted and
+ * logs spanning several mapped regions.
+ *
+ * @test.design This test case aims to verify that MappedHMap instances
+ * restore the mappings they held at the last sync when their file is
+ * reopened, whatever happened after it.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.MappedHMap
+ */
+public class MappedHMapTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Path file;
+
+    /**
+     * Sets up the test environment by choosing the path of a map file in an
+     * empty temporary folder.
+     */
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("map.bin");
+    }
+
+    /**
+     * Tests that a closed map is restored when its file is reopened.
+     *
+     * @test.design The test aims to verify that puts, replacements and
+     * removals are all persisted and that the reopened map can be updated.
+     * @test.description A map from String to Integer and a MapAdapter receive
+     * the same 5000 puts, then the same replacements and removals. The map is
+     * closed and reopened, compared with the MapAdapter, updated again,
+     * closed and reopened a second time.
+     * @test.precondition None, the map file does not exist.
+     * @test.postcondition The map file holds 2501 mappings.
+     * @test.expectedresults The reopened maps are equal to the MapAdapter.
+     */
+    @Test
+    public void testReopen() throws IOException {
+        MapAdapter expected = new MapAdapter();
+        MappedHMap map = new MappedHMap(file, HCodec.STRING, HCodec.INTEGER);
+        assertTrue(map.isEmpty());
+        for (int i = 0; i < 5000; i++) {
+            map.put("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            assertEquals(i, map.remove("key" + i));
+            expected.remove("key" + i);
+        }
+        map.put("key1", -1);
+        expected.put("key1", -1);
+        map.close();
+
+        map = new MappedHMap(file, HCodec.STRING, HCodec.INTEGER);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(-1, map.get("key1"));
+        assertNull(map.get("key0"));
+        map.put("new", 7);
+        expected.put("new", 7);
+        map.close();
+
+        map = new MappedHMap(file, HCodec.STRING, HCodec.INTEGER);
+        assertEquals(expected, map);
+        assertEquals(2501, map.size());
+        map.close();
+    }
+
+    /**
+     * Tests that the last synced state is restored after a crash.
+     *
+     * @test.design The test aims to verify that the changes made after the
+     * last sync, which may have partially reached the files, are discarded
+     * when the map is reopened.
+     * @test.description A map is filled with 1000 mappings and synced. More
+     * keys are then put, some are removed and the map is cleared without
+     * syncing or closing it, as if the process crashed. A second map is
+     * opened on the same file.
+     * @test.precondition None, the map file does not exist.
+     * @test.postcondition The map file holds 1000 mappings.
+     * @test.expectedresults The second map holds exactly the 1000 synced
+     * mappings.
+     */
+    @Test
+    public void testCrashRecovery() throws IOException {
+        MapAdapter expected = new MapAdapter();
+        MappedHMap map = new MappedHMap(file, HCodec.LONG, HCodec.STRING);
+        for (long i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        map.sync();
+        for (long i = 1000; i < 3000; i++) map.put(i, "lost" + i);
+        for (long i = 0; i < 500; i++) map.remove(i);
+        map.clear();
+        map.put(1L, "lost");
+
+        MappedHMap recovered = new MappedHMap(file, HCodec.LONG, HCodec.STRING);
+        assertEquals(expected, recovered);
+        recovered.close();
+    }
+
+    /**
+     * Tests that a corrupted header is ignored in favor of the previous one.
+     *
+     * @test.design The test aims to verify the header versioning: a torn
+     * write of the latest header must leave the map at its previous synced
+     * state.
+     * @test.description A map is synced with 10 mappings and then with 20.
+     * The latest header is then damaged by flipping a byte of its log length
+     * and the map is reopened. The map is then updated and closed, and
+     * reopened again.
+     * @test.precondition None, the map file does not exist.
+     * @test.postcondition The map file holds 11 mappings.
+     * @test.expectedresults The first reopened map holds the 10 mappings of
+     * the previous sync, the second one also the later update.
+     */
+    @Test
+    public void testCorruptedHeader() throws IOException {
+        MappedHMap map = new MappedHMap(file, HCodec.INTEGER, HCodec.INTEGER);
+        for (int i = 0; i < 10; i++) map.put(i, i);
+        map.sync();
+        for (int i = 10; i < 20; i++) map.put(i, i);
+        map.close();
+
+        // Generation 2 is written to the first copy of the header
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, 16);
+            b.put(0, (byte) (b.get(0) ^ 0x40)).rewind();
+            channel.write(b, 16);
+        }
+
+        map = new MappedHMap(file, HCodec.INTEGER, HCodec.INTEGER);
+        assertEquals(10, map.size());
+        for (int i = 0; i < 20; i++) assertEquals(i < 10 ? (Object) i : null, map.get(i));
+        map.put(100, 100);
+        map.close();
+
+        map = new MappedHMap(file, HCodec.INTEGER, HCodec.INTEGER);
+        assertEquals(11, map.size());
+        assertEquals(100, map.get(100));
+        map.close();
+    }
+
+    /**
+     * Tests that the log can span several mapped regions.
+     *
+     * @test.design The test aims to verify that records are never split
+     * between regions and that a log spanning several regions is replayed
+     * correctly.
+     * @test.description 40 values of about 1 MB are put in a map, which needs
+     * more than two regions, the map is cleared and 30 values are put again.
+     * The map is synced and its index file deleted, forcing the index to be
+     * rebuilt from the log when the map is reopened.
+     * @test.precondition None, the map file does not exist.
+     * @test.postcondition The map file holds 30 mappings.
+     * @test.expectedresults The reopened map holds the 30 values put after
+     * clearing.
+     */
+    @Test
+    public void testRegionsAndReplay() throws IOException {
+        String big = "b".repeat(1 << 20);
+        MappedHMap map = new MappedHMap(file, HCodec.INTEGER, HCodec.STRING);
+        for (int i = 0; i < 40; i++) map.put(i, big + i);
+        assertTrue(map.logBytes() > 2L * (1 << 24));
+        map.clear();
+        for (int i = 0; i < 30; i++) map.put(i, i + big);
+        map.close();
+        Files.delete(file.resolveSibling("map.bin.index"));
+
+        map = new MappedHMap(file, HCodec.INTEGER, HCodec.STRING);
+        assertEquals(30, map.size());
+        for (int i = 0; i < 40; i++) assertEquals(i < 30 ? i + big : null, map.get(i));
+        map.close();
+    }
+}
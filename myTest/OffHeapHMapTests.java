@@ -0,0 +1,204 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.HCodec;
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.MapAdapter;
+import myAdapter.OffHeapHMap;
+
+/**
+ * This test case tests the OffHeapHMap class. The tests focus on the behavior
+ * specific to the off-heap storage: encoding through codecs, replacement of
+ * values with encodings of the same and of different lengths, compaction of
+ * the data chunks and consistency with an equivalent MapAdapter.
+ *
+ * @test.design This test case aims to verify that OffHeapHMap instances
+ * correctly implement the {@link myAdapter.HMap} interface while storing
+ * their mappings in direct memory.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.OffHeapHMap
+ * @see myAdapter.HCodec
+ */
+public class OffHeapHMapTests {
+
+    public OffHeapHMap map;
+
+    /**
+     * Sets up the test environment by creating an OffHeapHMap from String to
+     * Integer and populating it with 100 entries, where keys are "key0" to
+     * "key99" and values are 0 to 99.
+     */
+    @Before
+    public void setUp() {
+        map = new OffHeapHMap(HCodec.STRING, HCodec.INTEGER);
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, i);
+        }
+    }
+
+    /**
+     * Tests that the map holds the same mappings of an equivalent MapAdapter.
+     *
+     * @test.design The test aims to verify the basic operations of the map and
+     * its interoperability with other {@link HMap} implementations.
+     * @test.description A MapAdapter is populated as the map created in the
+     * {@link #setUp()} method. The two maps are asserted to be equal in both
+     * directions with the same hash code, views and string length. A key is
+     * then replaced and another removed in both maps and they are compared
+     * again. Finally lookups of absent keys, of keys of the wrong type and of
+     * a key holding an unpaired surrogate are checked.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 101 mappings.
+     * @test.expectedresults The two maps are always equal, and the key with
+     * an unpaired surrogate is rejected without matching the key "?".
+     */
+    @Test
+    public void testSameMappingsAsMapAdapter() {
+        MapAdapter expected = new MapAdapter();
+        for (int i = 0; i < 100; i++) expected.put("key" + i, i);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.keySet(), map.keySet());
+        assertEquals(expected.entrySet(), map.entrySet());
+        assertEquals(map.values(), expected.values());
+        assertEquals(expected.toString().length(), map.toString().length());
+
+        assertEquals(0, map.put("key0", 1000));
+        expected.put("key0", 1000);
+        assertEquals(1, map.remove("key1"));
+        expected.remove("key1");
+        assertNull(map.remove("key1"));
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(99, map.size());
+
+        assertNull(map.get("absent"));
+        assertNull(map.get(5));
+        assertFalse(map.containsKey(5));
+        assertTrue(map.containsValue(1000));
+        assertFalse(map.containsValue(1));
+        assertFalse(map.containsValue("1000"));
+        try {
+            map.put(5, 5);
+            fail("Keys not accepted by the codec should be rejected");
+        } catch (ClassCastException expectedException) { }
+        try {
+            map.put("key", null);
+            fail("Null values should be rejected");
+        } catch (NullPointerException expectedException) { }
+
+        map.put("?", 1);
+        assertFalse(map.containsKey("\uD800"));
+        assertNull(map.get("\uD800"));
+        try {
+            map.put("\uD800", 2);
+            fail("Keys without a UTF-8 encoding should be rejected");
+        } catch (ClassCastException expectedException) { }
+        assertEquals(1, map.get("?"));
+        map.put("\uD83D\uDE00", 3);
+        assertTrue(map.keySet().contains("\uD83D\uDE00"));
+    }
+
+    /**
+     * Tests the replacement of values whose encoding changes length.
+     *
+     * @test.design The test aims to verify that values are read back
+     * correctly both when overwritten in place and when their record is
+     * appended again, and that keys of different lengths and non ASCII keys
+     * are told apart.
+     * @test.description A map from String to String is filled with keys of
+     * growing length including non ASCII characters. Every value is then
+     * replaced by a value of the same length and then by a longer one, and
+     * every mapping is read back after each round.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 1000 mappings.
+     * @test.expectedresults Every mapping is found with its latest value.
+     */
+    @Test
+    public void testReplaceValues() {
+        OffHeapHMap strings = new OffHeapHMap(0, HCodec.STRING, HCodec.STRING);
+        String[] keys = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "k\u00e8\u20ac\ud83d\ude00" + "x".repeat(i % 37) + i;
+            assertNull(strings.put(keys[i], "a" + i));
+        }
+        for (int i = 0; i < keys.length; i++) assertEquals("a" + i, strings.put(keys[i], "b" + i));
+        for (int i = 0; i < keys.length; i++) assertEquals("b" + i, strings.get(keys[i]));
+        for (int i = 0; i < keys.length; i++) assertEquals("b" + i, strings.put(keys[i], "longer" + i));
+        for (int i = 0; i < keys.length; i++) assertEquals("longer" + i, strings.get(keys[i]));
+        assertEquals(1000, strings.size());
+    }
+
+    /**
+     * Tests that the map keeps every mapping through rebuilds and
+     * compactions.
+     *
+     * @test.design The test aims to verify that the data chunks are compacted
+     * without losing mappings and that compaction gives back direct memory.
+     * @test.description A map from Long to String is filled with 20000
+     * mappings with 200 byte values. Every mapping is replaced with a longer
+     * value and then three quarters of them are removed, forcing both index
+     * rebuilds and compactions. The remaining mappings are read back and the
+     * direct memory held by the map is compared with the one held before the
+     * removals.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 5000 mappings.
+     * @test.expectedresults Every remaining mapping is found and the map
+     * holds less direct memory.
+     */
+    @Test
+    public void testCompaction() {
+        OffHeapHMap longs = new OffHeapHMap(HCodec.LONG, HCodec.STRING);
+        String padding = "p".repeat(200);
+        for (long i = 0; i < 20000; i++) longs.put(i, padding + i);
+        for (long i = 0; i < 20000; i++) longs.put(i, padding + padding + i);
+        long before = longs.offHeapBytes();
+        for (long i = 0; i < 20000; i++) {
+            if (i % 4 != 0) assertEquals(padding + padding + i, longs.remove(i));
+        }
+        assertEquals(5000, longs.size());
+        for (long i = 0; i < 20000; i++) {
+            assertEquals(i % 4 == 0 ? padding + padding + i : null, longs.get(i));
+        }
+        assertTrue(longs.offHeapBytes() < before);
+        longs.clear();
+        assertTrue(longs.isEmpty());
+        assertNull(longs.get(0L));
+    }
+
+    /**
+     * Tests that mappings can be removed through the views while iterating.
+     *
+     * @test.design The test aims to verify that iterator removal leaves the
+     * other slots in place, so the iteration returns every key once.
+     * @test.description The keys ending with an odd digit are removed through
+     * the key set iterator and a key through the key set. The remaining keys
+     * are then checked.
+     * @test.precondition The map is correctly instantiated and populated.
+     * @test.postcondition The map holds 49 mappings.
+     * @test.expectedresults Every removal is reflected by the map and every
+     * other mapping is kept.
+     */
+    @Test
+    public void testIteratorRemove() {
+        HIterator iter = map.keySet().iterator();
+        int seen = 0;
+        while (iter.hasNext()) {
+            String key = (String) iter.next();
+            seen++;
+            if ((key.charAt(key.length() - 1) - '0') % 2 == 1) iter.remove();
+        }
+        assertEquals(100, seen);
+        assertTrue(map.keySet().remove("key0"));
+        assertEquals(49, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 0 && i != 0, map.containsKey("key" + i));
+        }
+    }
+}
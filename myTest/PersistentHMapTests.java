@@ -0,0 +1,261 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import myAdapter.HCollection;
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.HSet;
+import myAdapter.MapAdapter;
+import myAdapter.PersistentHMap;
+
+/**
+ * This test case tests the PersistentHMap class. The tests focus on
+ * persistence: every version keeps its mappings whatever is derived from it,
+ * including when keys collide on their hash, and the map cannot be modified
+ * in place.
+ *
+ * @test.design This test case aims to verify that PersistentHMap versions
+ * behave as immutable HMap instances equal to a MapAdapter that received the
+ * same updates.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.PersistentHMap
+ */
+public class PersistentHMapTests {
+
+    /**
+     * Key whose hash code is chosen by the test, to force keys into the same
+     * branches of the trie.
+     */
+    private static final class Key {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "k" + id;
+        }
+    }
+
+    /**
+     * Tests that every version keeps its own mappings.
+     *
+     * @test.design The test aims to verify with and without against a
+     * MapAdapter model, and that the versions derived from a map never alter
+     * it.
+     * @test.description 20000 random puts and removals over 3000 keys are
+     * applied both to a MapAdapter and, as new versions, to a PersistentHMap.
+     * Every 1000 operations the version and a copy of the MapAdapter are
+     * saved. All the saved versions are then compared with their copies.
+     * @test.precondition None.
+     * @test.postcondition None, the maps are local to the test.
+     * @test.expectedresults Each version has the size, mappings, hash code
+     * and views of its copy, in both comparison directions.
+     */
+    @Test
+    public void testVersions() {
+        Random random = new Random(42);
+        MapAdapter model = new MapAdapter();
+        PersistentHMap map = new PersistentHMap();
+        PersistentHMap[] versions = new PersistentHMap[20];
+        MapAdapter[] copies = new MapAdapter[20];
+        for (int op = 0; op < 20000; op++) {
+            int key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                model.remove(key);
+                map = map.without(key);
+            } else {
+                model.put(key, op);
+                map = map.with(key, op);
+            }
+            if (op % 1000 == 999) {
+                versions[op / 1000] = map;
+                copies[op / 1000] = new MapAdapter(model);
+            }
+        }
+        for (int i = 0; i < versions.length; i++) {
+            assertEquals(copies[i].size(), versions[i].size());
+            assertEquals(copies[i], versions[i]);
+            assertEquals(versions[i], copies[i]);
+            assertEquals(copies[i].hashCode(), versions[i].hashCode());
+            assertEquals(copies[i].keySet(), versions[i].keySet());
+            assertEquals(copies[i].entrySet(), versions[i].entrySet());
+            for (int key = 0; key < 3000; key++) assertEquals(copies[i].get(key), versions[i].get(key));
+        }
+        assertNotEquals(versions[0], versions[1]);
+        assertEquals(versions[19], new PersistentHMap(copies[19]));
+    }
+
+    /**
+     * Tests keys colliding on part or all of their hash.
+     *
+     * @test.design The test aims to verify the descent of colliding keys into
+     * child and collision nodes and the inlining of the remaining mapping when
+     * they are removed.
+     * @test.description Groups of keys whose hash codes are equal, or equal on
+     * their low bits only, are added and then removed one at a time, checking
+     * the lookups of all the keys at each step.
+     * @test.precondition None.
+     * @test.postcondition None, the maps are local to the test.
+     * @test.expectedresults Every lookup returns the value of the current
+     * version and the map is empty once all the keys are removed.
+     */
+    @Test
+    public void testCollisions() {
+        Key[] keys = new Key[40];
+        for (int i = 0; i < 10; i++) keys[i] = new Key(i, 7);
+        for (int i = 10; i < 20; i++) keys[i] = new Key(i, 7 + (i << 20));
+        for (int i = 20; i < 40; i++) keys[i] = new Key(i, i);
+        PersistentHMap map = new PersistentHMap();
+        for (int i = 0; i < keys.length; i++) {
+            map = map.with(keys[i], i);
+            for (int j = 0; j < keys.length; j++) assertEquals(j <= i ? (Object) j : null, map.get(keys[j]));
+        }
+        assertEquals(40, map.size());
+        PersistentHMap full = map;
+        for (int i = 0; i < keys.length; i++) {
+            map = map.without(keys[i]);
+            assertEquals(39 - i, map.size());
+            for (int j = 0; j < keys.length; j++) assertEquals(j > i ? (Object) j : null, map.get(keys[j]));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.hashCode());
+        assertEquals(40, full.size());
+        assertEquals(full, new PersistentHMap(new MapAdapter(full)));
+    }
+
+    /**
+     * Tests that updates leaving the map unchanged return the same version.
+     *
+     * @test.design The test aims to verify that no new version is allocated
+     * when nothing changes, and that a PersistentHMap source is shared.
+     * @test.description The key of a map is mapped again to its own value, an
+     * absent key is removed and the map is copied with the constructor and
+     * withAll.
+     * @test.precondition None.
+     * @test.postcondition None, the maps are local to the test.
+     * @test.expectedresults The same instance is returned by with and
+     * without, and the copies are equal to the map.
+     */
+    @Test
+    public void testUnchangedVersions() {
+        String value = "value";
+        PersistentHMap map = new PersistentHMap().with("key", value).with("other", 1);
+        assertSame(map, map.with("key", value));
+        assertSame(map, map.without("absent"));
+        assertSame(map, new PersistentHMap().withAll(map));
+        assertEquals(map, new PersistentHMap(map));
+        PersistentHMap replaced = map.with("key", "new");
+        assertNotSame(map, replaced);
+        assertEquals(value, map.get("key"));
+        assertEquals("new", replaced.get("key"));
+        assertEquals(2, replaced.size());
+    }
+
+    /**
+     * Tests the read operations of the views and of the map.
+     *
+     * @test.design The test aims to verify iteration, toArray, forEach and
+     * value membership, which all walk the trie.
+     * @test.description A map of 1000 keys mapped to their remainder by 10 is
+     * built. Its views are iterated and converted to arrays, and forEach sums
+     * the values.
+     * @test.precondition None.
+     * @test.postcondition None, the maps are local to the test.
+     * @test.expectedresults Every key is returned once, the values sum to
+     * 4500, and the views equal the ones of a MapAdapter with the same
+     * mappings.
+     */
+    @Test
+    public void testViews() {
+        MapAdapter model = new MapAdapter();
+        PersistentHMap map = new PersistentHMap();
+        for (int i = 0; i < 1000; i++) {
+            model.put(i, i % 10);
+            map = map.with(i, i % 10);
+        }
+        boolean[] seen = new boolean[1000];
+        HIterator iter = map.keySet().iterator();
+        while (iter.hasNext()) {
+            int key = (Integer) iter.next();
+            assertFalse(seen[key]);
+            seen[key] = true;
+        }
+        for (boolean s : seen) assertTrue(s);
+        assertEquals(1000, map.entrySet().toArray().length);
+        assertEquals(1000, map.values().toArray(new Object[1000]).length);
+        assertEquals(model.values(), map.values());
+        assertEquals(map.values(), model.values());
+        assertTrue(map.containsValue(9));
+        assertFalse(map.containsValue(10));
+        assertTrue(map.entrySet().containsAll(model.entrySet()));
+        long[] sum = {0};
+        map.forEach((k, v) -> sum[0] += (Integer) v);
+        assertEquals(4500, sum[0]);
+        assertEquals(model.toString().length(), map.toString().length());
+        assertEquals("{}", new PersistentHMap().toString());
+    }
+
+    /**
+     * Tests that the map cannot be modified in place.
+     *
+     * @test.design The test aims to verify that the modifying operations of
+     * the map, of its views, of their iterators and of the entries throw
+     * UnsupportedOperationException, and that null keys and values are
+     * rejected.
+     * @test.description Each modifying operation is called on a map of one
+     * mapping, then the map is checked.
+     * @test.precondition None.
+     * @test.postcondition None, the maps are local to the test.
+     * @test.expectedresults Every call throws and the map still holds its
+     * mapping.
+     */
+    @Test
+    public void testImmutable() {
+        PersistentHMap map = new PersistentHMap().with("key", "value");
+        HSet entries = map.entrySet();
+        HSet keys = map.keySet();
+        HCollection values = map.values();
+        assertThrows(UnsupportedOperationException.class, () -> map.put("a", "b"));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("key"));
+        assertThrows(UnsupportedOperationException.class, () -> map.putAll(new MapAdapter()));
+        assertThrows(UnsupportedOperationException.class, map::clear);
+        assertThrows(UnsupportedOperationException.class, () -> map.merge("key", "v", (a, b) -> b));
+        assertThrows(UnsupportedOperationException.class, () -> keys.remove("key"));
+        assertThrows(UnsupportedOperationException.class, () -> values.clear());
+        assertThrows(UnsupportedOperationException.class, () -> keys.retainAll(new MapAdapter().keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> keys.add("a"));
+        HIterator iter = entries.iterator();
+        HMap.HEntry entry = (HMap.HEntry) iter.next();
+        assertThrows(UnsupportedOperationException.class, iter::remove);
+        assertThrows(UnsupportedOperationException.class, () -> entry.setValue("other"));
+        assertFalse(iter.hasNext());
+        assertEquals("value", map.get("key"));
+        assertEquals(1, map.size());
+
+        assertThrows(NullPointerException.class, () -> map.with(null, "v"));
+        assertThrows(NullPointerException.class, () -> map.with("k", null));
+        assertThrows(NullPointerException.class, () -> map.without(null));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> new PersistentHMap(null));
+    }
+}
@@ -0,0 +1,228 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.IntIntHMap;
+import myAdapter.IntObjectHMap;
+import myAdapter.LongLongHMap;
+import myAdapter.LongObjectHMap;
+import myAdapter.MapAdapter;
+
+/**
+ * This test case tests the maps keyed by primitive types: IntObjectHMap,
+ * LongObjectHMap, IntIntHMap and LongLongHMap. Each map is tested through its
+ * unboxed operations and through the {@link myAdapter.HMap} interface, by
+ * comparison with a {@link myAdapter.MapAdapter} holding the same boxed
+ * mappings.
+ *
+ * @test.design This test case aims to verify that the primitive maps store
+ * and retrieve mappings correctly through tombstones and rebuilds and that
+ * they interoperate with other {@link myAdapter.HMap} implementations.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.IntObjectHMap
+ * @see myAdapter.LongObjectHMap
+ * @see myAdapter.IntIntHMap
+ * @see myAdapter.LongLongHMap
+ */
+public class PrimitiveHMapTests {
+
+    /**
+     * Tests the unboxed operations of IntObjectHMap.
+     *
+     * @test.design The test aims to verify the unboxed operations on a map
+     * going through growth, tombstones and tombstone reuse, including keys 0
+     * and negative keys.
+     * @test.description A map with initial capacity 0 is filled with keys
+     * -5000 to 4999 mapped to their string representation. Every even key is
+     * removed and then put again with a different value. All the keys are
+     * then read back and the size is checked. Removing an absent key returns
+     * {@code null} and putting a {@code null} value is rejected.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 10000 mappings.
+     * @test.expectedresults Every mapping is found with its latest value.
+     */
+    @Test
+    public void testIntObjectUnboxed() {
+        IntObjectHMap map = new IntObjectHMap(0);
+        for (int i = -5000; i < 5000; i++) assertNull(map.put(i, "v" + i));
+        for (int i = -5000; i < 5000; i += 2) assertEquals("v" + i, map.remove(i));
+        assertEquals(5000, map.size());
+        for (int i = -5000; i < 5000; i += 2) assertNull(map.put(i, "w" + i));
+
+        assertEquals(10000, map.size());
+        for (int i = -5000; i < 5000; i++) {
+            assertEquals((i % 2 == 0 ? "w" : "v") + i, map.get(i));
+            assertTrue(map.containsKey(i));
+        }
+        assertFalse(map.containsKey(5000));
+        assertNull(map.remove(5000));
+        try {
+            map.put(1, null);
+            fail("Null values should be rejected");
+        } catch (NullPointerException expected) { }
+    }
+
+    /**
+     * Tests the unboxed operations of IntIntHMap and its no entry value.
+     *
+     * @test.design The test aims to verify that the unboxed operations return
+     * the no entry value for missing keys and that containsKey distinguishes
+     * a missing key from a key mapped to the no entry value.
+     * @test.description A map with no entry value -1 is filled with keys 0 to
+     * 9999 mapped to their square. Key 0 maps to 0 and key 1 is then mapped to
+     * -1. Replacing, removing and reading present and absent keys are
+     * checked against the expected values.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds 9999 mappings.
+     * @test.expectedresults Unboxed operations return the mapped values or
+     * -1 for missing keys.
+     */
+    @Test
+    public void testIntIntUnboxed() {
+        IntIntHMap map = new IntIntHMap(0, -1);
+        assertEquals(-1, map.getNoEntryValue());
+        for (int i = 0; i < 10000; i++) assertEquals(-1, map.put(i, i * i));
+        assertEquals(0, map.get(0));
+        assertEquals(4, map.put(2, 5));
+        assertEquals(5, map.get(2));
+        assertEquals(1, map.put(1, -1));
+        assertEquals(-1, map.get(1));
+        assertTrue(map.containsKey(1));
+        assertEquals(-1, map.get(10000));
+        assertFalse(map.containsKey(10000));
+        assertTrue(map.containsValue(9999 * 9999));
+        assertEquals(9, map.remove(3));
+        assertEquals(-1, map.remove(3));
+        assertEquals(9999, map.size());
+    }
+
+    /**
+     * Tests the unboxed operations of LongObjectHMap and LongLongHMap with
+     * keys differing only in their high bits.
+     *
+     * @test.design The test aims to verify that long keys whose low 32 bits
+     * are equal are stored as different keys.
+     * @test.description Keys {@code i << 32} for i from 0 to 999 are put in
+     * both maps. Every key is read back from both maps and a key with the same
+     * low bits but not inserted is checked to be missing.
+     * @test.precondition None, the maps are created by the test.
+     * @test.postcondition The maps hold 1000 mappings each.
+     * @test.expectedresults Every key is found with its own value.
+     */
+    @Test
+    public void testLongKeysHighBits() {
+        LongObjectHMap objects = new LongObjectHMap();
+        LongLongHMap longs = new LongLongHMap();
+        for (long i = 0; i < 1000; i++) {
+            objects.put(i << 32, "v" + i);
+            longs.put(i << 32, i);
+        }
+        assertEquals(1000, objects.size());
+        assertEquals(1000, longs.size());
+        for (long i = 0; i < 1000; i++) {
+            assertEquals("v" + i, objects.get(i << 32));
+            assertEquals(i, longs.get(i << 32));
+        }
+        assertNull(objects.get(1000L << 32));
+        assertFalse(longs.containsKey(1000L << 32));
+    }
+
+    /**
+     * Tests that the primitive maps are equal to MapAdapter instances holding
+     * the same boxed mappings.
+     *
+     * @test.design The test aims to verify the {@link HMap} interoperability
+     * of the primitive maps: boxed methods, equality in both directions, hash
+     * codes and copies from and to MapAdapter.
+     * @test.description Each primitive map and a MapAdapter are filled with
+     * the same boxed mappings for keys 0 to 99. The maps are asserted to be
+     * equal in both directions with equal hash codes, views and boxed
+     * lookups. A MapAdapter copy of each primitive map and a primitive map
+     * copy of each MapAdapter are checked to be equal to the originals.
+     * @test.precondition None, the maps are created by the test.
+     * @test.postcondition The maps are unchanged.
+     * @test.expectedresults The primitive maps behave as the equivalent
+     * MapAdapter.
+     */
+    @Test
+    public void testHMapInteroperability() {
+        MapAdapter ints = new MapAdapter();
+        MapAdapter longs = new MapAdapter();
+        MapAdapter intToString = new MapAdapter();
+        MapAdapter longToString = new MapAdapter();
+        for (int i = 0; i < 100; i++) {
+            ints.put(i, i * 2);
+            longs.put((long) i, (long) i * 2);
+            intToString.put(i, "v" + i);
+            longToString.put((long) i, "v" + i);
+        }
+
+        HMap[][] pairs = {
+                {ints, new IntIntHMap(ints)},
+                {longs, new LongLongHMap(longs)},
+                {intToString, new IntObjectHMap(intToString)},
+                {longToString, new LongObjectHMap(longToString)}
+        };
+        for (HMap[] pair : pairs) {
+            HMap expected = pair[0];
+            HMap actual = pair[1];
+            assertEquals(expected, actual);
+            assertEquals(actual, expected);
+            assertEquals(expected.hashCode(), actual.hashCode());
+            assertEquals(expected.keySet(), actual.keySet());
+            assertEquals(expected.entrySet(), actual.entrySet());
+            assertEquals(actual.values(), expected.values());
+            assertEquals(new MapAdapter(actual), expected);
+            assertTrue(actual.containsKey(expected.keySet().iterator().next()));
+            assertFalse(actual.containsKey("not a number"));
+            assertNull(actual.get("not a number"));
+        }
+    }
+
+    /**
+     * Tests that the boxed methods and the views of a primitive map write
+     * through to it.
+     *
+     * @test.design The test aims to verify the write operations of the
+     * {@link HMap} interface and of the views of a primitive map.
+     * @test.description An IntIntHMap is filled with keys 0 to 99 mapped to
+     * their double through {@link HMap#put(Object, Object)}. A key is removed
+     * through the key set, one through the boxed remove, the odd keys through
+     * the key set iterator and an entry value is changed through
+     * {@link HMap.HEntry#setValue(Object)}. A key of the wrong type is
+     * rejected by put with {@link ClassCastException}.
+     * @test.precondition None, the map is created by the test.
+     * @test.postcondition The map holds the even keys except 0 and 2.
+     * @test.expectedresults Each write is reflected by the unboxed
+     * operations.
+     */
+    @Test
+    public void testBoxedWrites() {
+        IntIntHMap map = new IntIntHMap();
+        for (int i = 0; i < 100; i++) assertNull(map.put((Object) i, (Object) (i * 2)));
+        assertEquals(4, map.put((Object) 2, (Object) 5));
+
+        assertTrue(map.keySet().remove(0));
+        assertEquals(5, map.remove((Object) 2));
+        HIterator iter = map.keySet().iterator();
+        while (iter.hasNext()) {
+            if ((Integer) iter.next() % 2 == 1) iter.remove();
+        }
+        assertEquals(48, map.size());
+        assertFalse(map.containsKey(1));
+        assertTrue(map.containsKey(4));
+
+        HMap.HEntry entry = (HMap.HEntry) map.entrySet().iterator().next();
+        entry.setValue(-7);
+        assertEquals(-7, map.get(((Integer) entry.getKey()).intValue()));
+
+        try {
+            map.put("key", 1);
+            fail("Keys of the wrong type should be rejected");
+        } catch (ClassCastException expected) { }
+    }
+}
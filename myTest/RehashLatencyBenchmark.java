@@ -0,0 +1,72 @@
+package myTest;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import myAdapter.MapAdapter;
+
+/**
+ * Measures the latency of single put operations while a map grows from empty
+ * to several million mappings, comparing {@link MapAdapter}, whose table is
+ * rebuilt incrementally, with {@link java.util.Hashtable}, which rehashes the
+ * whole table within the put that crosses its threshold.
+ *
+ * <p>Each put is timed on its own with {@link System#nanoTime()} and the
+ * percentiles of the recorded latencies are printed. The interesting figures
+ * are the p99.9 and the maximum: with a stop-the-world rehash they grow with
+ * the size of the table, with an incremental rebuild they stay flat.</p>
+ *
+ * <p>Usage: {@code java myTest.RehashLatencyBenchmark [mappings] [rounds]},
+ * by default 4,000,000 mappings and 3 rounds, the first of which warms up the
+ * JIT compiler and is not reported. Run it with a heap large enough to hold
+ * both maps, for instance {@code -Xmx2g}, so that garbage collection does not
+ * dominate the measurements.</p>
+ */
+public class RehashLatencyBenchmark {
+
+    public static void main(String[] args) {
+        int mappings = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Integer[] keys = new Integer[mappings];
+        // Scrambled keys, sequential ones would fill Hashtable buckets in order
+        for (int i = 0; i < mappings; i++) keys[i] = i * 0x61C88647;
+
+        long[] latencies = new long[mappings];
+        for (int round = 0; round < rounds; round++) {
+            boolean report = round > 0;
+
+            MapAdapter adapter = new MapAdapter();
+            for (int i = 0; i < mappings; i++) {
+                long start = System.nanoTime();
+                adapter.put(keys[i], keys[i]);
+                latencies[i] = System.nanoTime() - start;
+            }
+            if (report) print("MapAdapter", latencies);
+
+            Hashtable<Integer, Integer> hashtable = new Hashtable<>();
+            for (int i = 0; i < mappings; i++) {
+                long start = System.nanoTime();
+                hashtable.put(keys[i], keys[i]);
+                latencies[i] = System.nanoTime() - start;
+            }
+            if (report) print("Hashtable ", latencies);
+        }
+    }
+
+    /**
+     * Prints the percentiles of the latencies, sorting the array.
+     */
+    private static void print(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s  p50 %8.2f us  p99 %8.2f us  p99.9 %8.2f us  p99.99 %8.2f us  max %10.2f us%n",
+                name, percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                percentile(latencies, 0.9999), latencies[latencies.length - 1] / 1000.0);
+    }
+
+    /**
+     * Returns the given percentile of sorted latencies in microseconds.
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, (long) (fraction * sorted.length))] / 1000.0;
+    }
+}
@@ -21,16 +21,26 @@ public class TestRunner {
 
         // Run all test classes
         Result result = junit.run(
+                ConcurrentMapAdapterTests.class,
                 EntryIteratorEmptyTests.class,
                 EntryIteratorPopulatedTests.class,
                 EntrySetEmptyTests.class,
                 EntrySetPopulatedTests.class,
+                ExpiringHMapTests.class,
+                HPipelineTests.class,
                 KeyIteratorEmptyTests.class,
                 KeyIteratorPopulatedTests.class,
                 KeySetEmptyTests.class,
                 KeySetPopulatedTests.class,
+                LoadingHMapTests.class,
+                LruHMapTests.class,
                 MapAdapterEmptyTests.class,
                 MapAdapterPopulatedTests.class,
+                MappedHMapTests.class,
+                OffHeapHMapTests.class,
+                PersistentHMapTests.class,
+                PrimitiveHMapTests.class,
+                TinyLfuHMapTests.class,
                 ValueCollectionEmptyTests.class,
                 ValueCollectionPopulatedTests.class,
                 ValueIteratorEmptyTests.class,
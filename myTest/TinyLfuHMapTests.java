@@ -0,0 +1,231 @@
+package myTest;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import myAdapter.HIterator;
+import myAdapter.HMap;
+import myAdapter.LruHMap;
+import myAdapter.MapAdapter;
+import myAdapter.TinyLfuHMap;
+
+/**
+ * This test case tests the TinyLfuHMap class. The tests focus on the
+ * admission policy: frequently used mappings survive scans, the map stays
+ * within its maximum weight and its hit rate is at least the one of an LRU
+ * cache on a skewed workload.
+ *
+ * @test.design This test case aims to verify that TinyLfuHMap instances never
+ * exceed their maximum weight, prefer frequently used mappings when evicting
+ * and otherwise behave as an HMap.
+ * @test.libraries JUnit 4.13, Hamcrest 1.3
+ * @see myAdapter.TinyLfuHMap
+ * @see CacheSimulator
+ */
+public class TinyLfuHMapTests {
+
+    public TinyLfuHMap map;
+    public MapAdapter evicted;
+
+    /**
+     * Sets up the test environment by creating a TinyLfuHMap of maximum size
+     * 100 whose eviction listener records the evicted mappings.
+     */
+    @Before
+    public void setUp() {
+        evicted = new MapAdapter();
+        map = new TinyLfuHMap(100, null, evicted::put);
+    }
+
+    /**
+     * Tests that a scan does not evict the frequently used mappings.
+     *
+     * @test.design The test aims to verify the admission of the candidates
+     * leaving the window: keys read once lose against the hot keys.
+     * @test.description Keys 0 to 49 are put and read 5 times each, then 10000
+     * distinct keys are read once and put on their miss, while the hot keys
+     * keep being read, one every 2 scanned keys.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map holds at most 100 mappings.
+     * @test.expectedresults Every read of a hot key hits, the 50 hot keys are
+     * all still mapped at the end, the scanned mappings have been evicted
+     * through the listener and the hot keys are estimated as more frequent
+     * than the scanned ones.
+     */
+    @Test
+    public void testScanResistance() {
+        for (int i = 0; i < 50; i++) map.put(i, i);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) assertEquals(i, map.get(i));
+        }
+        for (int i = 1000; i < 11000; i++) {
+            if (map.get(i) == null) map.put(i, i);
+            if (i % 2 == 0) assertEquals(i / 2 % 50, map.get(i / 2 % 50));
+            assertTrue(map.size() <= 100);
+        }
+        for (int i = 0; i < 50; i++) assertEquals(i, map.peek(i));
+        assertEquals(map.evictionCount(), evicted.size());
+        assertEquals(10000 + 50 - 100, map.evictionCount());
+        assertTrue(map.frequency(0) > map.frequency(10999));
+        assertEquals(250 + 5000, map.hitCount());
+    }
+
+    /**
+     * Tests that the hit rate is at least the one of an LRU cache.
+     *
+     * @test.design The test aims to verify the benefit of the policy on the
+     * synthetic trace of the cache simulator, keys drawn from a Zipf
+     * distribution interrupted by scans.
+     * @test.description The same seeded trace of 300000 accesses is replayed
+     * on an LruHMap and a TinyLfuHMap of maximum size 500.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition None.
+     * @test.expectedresults The hit rate of the TinyLfuHMap is higher than the
+     * one of the LruHMap, and both caches hold 500 mappings.
+     */
+    @Test
+    public void testHitRate() {
+        Object[] trace = CacheSimulator.syntheticTrace(7, 300_000);
+        LruHMap lru = new LruHMap(500);
+        TinyLfuHMap tinyLfu = new TinyLfuHMap(500);
+        double lruRate = CacheSimulator.hitRate(lru, trace);
+        double tinyLfuRate = CacheSimulator.hitRate(tinyLfu, trace);
+        assertTrue(tinyLfuRate + " <= " + lruRate, tinyLfuRate > lruRate);
+        assertEquals(500, lru.size());
+        assertEquals(500, tinyLfu.size());
+        assertEquals(tinyLfuRate, (double) tinyLfu.hitCount() / trace.length, 1e-9);
+    }
+
+    /**
+     * Tests a map bounded by the total weight of its mappings.
+     *
+     * @test.design The test aims to verify that the weigher is called for
+     * every put and that mappings of any weight, including replaced ones and
+     * ones heavier than the map, keep the weight within its maximum.
+     * @test.description A map of maximum weight 1000 weighs each mapping by
+     * the length of its String value. 500 keys are put with values of
+     * random length, some keys are replaced with heavier values, a value of
+     * length 2000 is put, a value of length 900 and then 1100 is set through
+     * an entry of the entry set and a weigher returning a negative weight is
+     * used.
+     * @test.precondition None, the maps are local to the test.
+     * @test.postcondition None.
+     * @test.expectedresults The weighted size is always the sum of the
+     * lengths of the values and never exceeds 1000, the mappings heavier than
+     * the map, put or set, are evicted at once and the negative weight throws
+     * IllegalArgumentException.
+     */
+    @Test
+    public void testWeights() {
+        TinyLfuHMap cache = new TinyLfuHMap(1000, (k, v) -> ((String) v).length(), null);
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(100);
+            cache.put(key, "x".repeat(random.nextInt(60)));
+            assertTrue(cache.weightedSize() <= 1000);
+            long[] sum = {0};
+            cache.forEach((k, v) -> sum[0] += ((String) v).length());
+            assertEquals(sum[0], cache.weightedSize());
+        }
+        assertEquals(1000, cache.maximumWeight());
+        cache.put("big", "x".repeat(2000));
+        assertFalse(cache.containsKey("big"));
+        assertTrue(cache.weightedSize() <= 1000);
+        HMap.HEntry entry = (HMap.HEntry) cache.entrySet().iterator().next();
+        assertNotNull(entry.setValue("x".repeat(900)));
+        assertTrue(cache.weightedSize() <= 1000);
+        long[] sum = {0};
+        cache.forEach((k, v) -> sum[0] += ((String) v).length());
+        assertEquals(sum[0], cache.weightedSize());
+        entry.setValue("x".repeat(1100));
+        assertFalse(cache.containsKey(entry.getKey()));
+        assertTrue(cache.weightedSize() <= 1000);
+        assertNull(entry.setValue("x"));
+        assertFalse(cache.containsKey(entry.getKey()));
+
+        TinyLfuHMap negative = new TinyLfuHMap(10, (k, v) -> -1, null);
+        assertThrows(IllegalArgumentException.class, () -> negative.put("k", "v"));
+        assertTrue(negative.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new TinyLfuHMap(0));
+    }
+
+    /**
+     * Tests that the frequency sketch of a weighted map keeps its counts when
+     * it grows.
+     *
+     * @test.design The test aims to verify that the sketch, first sized for
+     * 1024 keys when the map is weighted, grows with the number of mappings
+     * without forgetting the frequencies it has estimated.
+     * @test.description A map weighing each mapping 1 with a maximum weight
+     * of 100000 has a key read 15 times, then 5000 distinct keys are put.
+     * @test.precondition None, the map is local to the test.
+     * @test.postcondition The map holds 5001 mappings.
+     * @test.expectedresults The read key is estimated at 15 before and after
+     * the puts, and the footprint of the map has grown with its sketch.
+     */
+    @Test
+    public void testSketchGrowth() {
+        TinyLfuHMap cache = new TinyLfuHMap(100000, (k, v) -> 1, null);
+        cache.put("hot", "v");
+        for (int i = 0; i < 15; i++) cache.get("hot");
+        assertEquals(15, cache.frequency("hot"));
+        long footprint = cache.footprint();
+        for (int i = 0; i < 5000; i++) cache.put(i, i);
+        assertEquals(5001, cache.size());
+        assertEquals(15, cache.frequency("hot"));
+        assertTrue(cache.footprint() > footprint);
+    }
+
+    /**
+     * Tests the views and their iterators.
+     *
+     * @test.design The test aims to verify that the views cover the three
+     * queues of the map, and that removal through them does not call the
+     * listener.
+     * @test.description The map is filled with 100 mappings and a 101st one,
+     * evicting one mapping, is put and removed. A third of the mappings are
+     * read twice to move them to the protected segment, then the map is
+     * compared with a MapAdapter. A mapping is removed through the entry set iterator and
+     * another through the key set view.
+     * @test.precondition The map is empty.
+     * @test.postcondition The map holds 97 mappings.
+     * @test.expectedresults The map equals the MapAdapter, the removals are
+     * reflected by the map and no eviction is recorded.
+     */
+    @Test
+    public void testViews() {
+        MapAdapter expected = new MapAdapter();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        map.put(100, "v100");
+        map.remove(100);
+        for (int i = 0; i < 100; i += 3) {
+            map.get(i);
+            map.get(i);
+        }
+        assertEquals(99, map.size());
+        expected.remove(evicted.keySet().iterator().next());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(99, map.entrySet().toArray().length);
+
+        evicted.clear();
+        HIterator iter = map.entrySet().iterator();
+        HMap.HEntry first = (HMap.HEntry) iter.next();
+        iter.remove();
+        assertFalse(map.containsKey(first.getKey()));
+        Object second = map.keySet().iterator().next();
+        assertTrue(map.keySet().remove(second));
+        assertEquals(97, map.size());
+        assertTrue(evicted.isEmpty());
+        assertThrows(NullPointerException.class, () -> map.put(null, "v"));
+        assertThrows(NullPointerException.class, () -> map.frequency(null));
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.*;
 
+import myAdapter.HCollection;
 import myAdapter.MapAdapter;
 import myAdapter.MapAdapter.ValueCollection;
 
@@ -925,6 +926,81 @@ public class ValueCollectionPopulatedTests {
                 100, values.size());
     }
 
+    /**
+     * Tests that removeAll removes every occurrence of the given values in a
+     * single pass and that containsAll answers with and without a value
+     * index.
+     *
+     * @test.design The test aims to verify the bulk operations of the value
+     * collection, whose values repeat, against collections with and without
+     * hash membership.
+     * @test.description An indexed map is filled with the mappings of the map
+     * created by the {@link #setUp()} method. containsAll is called on both
+     * value collections with the values of a map holding "value0" to
+     * "value49", and with the values of a map also holding "value50". Then
+     * removeAll is called on both collections with the values of a map
+     * holding "value0" to "value9", and retainAll with the values of a map
+     * holding "value10" to "value19".
+     * @test.precondition The ValueCollection must be populated before this
+     * test runs.
+     * @test.postcondition Both maps hold the 20 keys mapped to "value10" to
+     * "value19".
+     * @test.expectedresults Both value collections give the same results and
+     * every occurrence of a removed value is removed.
+     */
+    @Test
+    public void testBulkOperationsWithValueIndex() {
+        MapAdapter indexed = new MapAdapter(0, MapAdapter.LINEAR_PROBING, true);
+        indexed.putAll(map);
+        MapAdapter all = new MapAdapter();
+        for (int i = 0; i < 50; i++) all.put(i, "value" + i);
+        MapAdapter more = new MapAdapter();
+        more.putAll(all);
+        more.put(50, "value50");
+        MapAdapter first = new MapAdapter();
+        for (int i = 0; i < 10; i++) first.put(i, "value" + i);
+        MapAdapter second = new MapAdapter();
+        for (int i = 10; i < 20; i++) second.put(i, "value" + i);
+
+        for (HCollection current : new HCollection[] {values, indexed.values()}) {
+            assertTrue(current.containsAll(all.values()));
+            assertFalse(current.containsAll(more.values()));
+            assertTrue(current.removeAll(first.values()));
+            assertEquals(80, current.size());
+            assertFalse(current.contains("value0"));
+            assertTrue(current.retainAll(second.values()));
+            assertEquals(20, current.size());
+            assertTrue(current.containsAll(second.values()));
+        }
+        assertEquals(map, indexed);
+    }
+
+    /**
+     * Tests that removeAll ignores the elements that cannot belong to this
+     * collection when it removes in a single pass over the table.
+     *
+     * @test.design The test aims to verify that the single-pass removeAll of
+     * the views does not throw when the specified collection is a view of
+     * another kind, whose contains rejects the elements of this collection.
+     * @test.description removeAll is called on the value collection with the
+     * entry set of the map, and on the key set of the map with the entry set
+     * of a larger map.
+     * @test.precondition The ValueCollection must be populated before this
+     * test runs.
+     * @test.postcondition The map is unchanged.
+     * @test.expectedresults Both calls return {@code false} without throwing
+     * and the map keeps its 100 mappings.
+     */
+    @Test
+    public void testRemoveAllForeignElements() {
+        MapAdapter larger = new MapAdapter();
+        larger.putAll(map);
+        for (int i = 100; i < 200; i++) larger.put("key" + i, "value" + i);
+        assertFalse(values.removeAll(map.entrySet()));
+        assertFalse(map.keySet().removeAll(larger.entrySet()));
+        assertEquals(100, map.size());
+    }
+
     // ValueCollection.clear()
 
     /**
@@ -1035,6 +1111,44 @@ public class ValueCollectionPopulatedTests {
                 values.equals(anotherValueCollection));
     }
 
+    /**
+     * Test to verify that equals(Object) compares the number of occurrences of
+     * each element.
+     *
+     * @test.design This test checks that two value collections with the same
+     * size and the same distinct elements are equal only if every element
+     * occurs the same number of times in both.
+     * @test.description A map is populated with 100 keys different from the
+     * ones of the setUp map, mapped to the same values, and its values are
+     * asserted to be equal to the ValueCollection. The mapping of "key0" of
+     * the other map is then changed from "value0" to "value1", so that both
+     * collections still have the same size and the same distinct elements
+     * but "value0" occurs once and "value1" three times; the collections are
+     * asserted not to be equal.
+     * @test.precondition The ValueCollection must be populated before this
+     * test runs.
+     * @test.postcondition The ValueCollection should remain unchanged after
+     * this test runs.
+     * @test.expectedresults The test should pass if equals(Object) returns
+     * true only when the occurrences of every element match.
+     */
+    @Test
+    public void testEqualsSameElementsDifferentOccurrences() {
+        MapAdapter anotherMap = new MapAdapter();
+        for (int i = 0; i < 100; i++) {
+            anotherMap.put("other" + i, "value" + (i % 50));
+        }
+        HCollection anotherValueCollection = anotherMap.values();
+        assertTrue("Value collections with the same occurrences should be equal",
+                values.equals(anotherValueCollection));
+
+        anotherMap.put("other0", "value1");
+        assertFalse("Value collections with different occurrences should not be equal",
+                values.equals(anotherValueCollection));
+        assertFalse("Equality should be symmetric",
+                anotherValueCollection.equals(values));
+    }
+
     /**
      * Test to verify that equals(Object) works correctly for a collection with
      * the same elements but different order.